@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 the original author or authors.
+ * Copyright 2015-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,6 +15,9 @@
  */
 package org.springframework.batch.integration.x;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,8 +36,10 @@ import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.partition.support.Partitioner;
 import org.springframework.batch.item.ExecutionContext;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.util.StringUtils;
 
 /**
@@ -42,6 +47,10 @@ import org.springframework.util.StringUtils;
  * incremental imports.  Incremental imports are supported via the checkColumn attribute.
  * The partitionMax value processed in the current run will be set as the minimum value for the
  * next run.
+ * <p>
+ * By default the range of values of the partition column is divided into ranges of equal width. With
+ * {@link #setBalancePartitions(boolean) balancePartitions}, the ranges are chosen so that each partition holds about
+ * the same number of rows instead, which suits columns whose values are clustered or sparse.
  *
  * @author Michael Minella
  * @since 1.2
@@ -52,6 +61,17 @@ public class IncrementalColumnRangePartitioner implements Partitioner, StepExecu
 
 	public static final String BATCH_INCREMENTAL_MAX_ID = "batch.incremental.maxId";
 
+	/**
+	 * Key of the step execution context entry holding the upper bounds of the balanced partitions, comma separated.
+	 */
+	public static final String BATCH_PARTITION_SPLIT_POINTS = "batch.partition.splitPoints";
+
+	/**
+	 * Key of the step execution context entry holding the number of rows of the balanced partitions, comma
+	 * separated.
+	 */
+	public static final String BATCH_PARTITION_ROW_COUNTS = "batch.partition.rowCounts";
+
 	private JdbcOperations jdbcTemplate;
 
 	private String table;
@@ -72,6 +92,14 @@ public class IncrementalColumnRangePartitioner implements Partitioner, StepExecu
 
 	private Long overrideValue;
 
+	private boolean balancePartitions;
+
+	/**
+	 * The upper bounds of the balanced partitions computed in {@link #beforeStep(StepExecution)}, or {@code null} to
+	 * divide the column range into equal widths.
+	 */
+	private List<Long> splitPoints;
+
 	/**
 	 * The data source for connecting to the database.
 	 *
@@ -120,9 +148,19 @@ public class IncrementalColumnRangePartitioner implements Partitioner, StepExecu
 		this.overrideValue = overrideValue;
 	}
 
+	/**
+	 * Whether to choose the partition ranges so that partitions hold the same number of rows, rather than ranges of
+	 * the same width. Defaults to {@code false}.
+	 *
+	 * @param balancePartitions whether to balance the partitions by row count
+	 */
+	public void setBalancePartitions(boolean balancePartitions) {
+		this.balancePartitions = balancePartitions;
+	}
+
 	/**
 	 * Partition a database table assuming that the data in the column specified
-	 * are uniformly distributed. The execution context values will have keys
+	 * are uniformly distributed, unless partitions are balanced. The execution context values will have keys
 	 * <code>minValue</code> and <code>maxValue</code> specifying the range of
 	 * values to consider in each partition.
 	 *
@@ -144,6 +182,16 @@ public class IncrementalColumnRangePartitioner implements Partitioner, StepExecu
 				incrementalClause.append(checkColumn).append(" > ").append(this.incrementalMin);
 			}
 
+			if (this.splitPoints != null) {
+				long start = this.partitionMin;
+				for (int number = 0; number < this.splitPoints.size(); number++) {
+					long end = this.splitPoints.get(number);
+					result.put("partition" + number, partitionContext(number, start, end, incrementalClause));
+					start = end + 1;
+				}
+				return result;
+			}
+
 			long targetSize = (this.partitionMax - this.partitionMin) / partitions + 1;
 
 			int number = 0;
@@ -151,32 +199,36 @@ public class IncrementalColumnRangePartitioner implements Partitioner, StepExecu
 			long end = start + targetSize - 1;
 
 			while (start >= 0 && start <= this.partitionMax) {
-				ExecutionContext value = new ExecutionContext();
-				result.put("partition" + number, value);
-
 				if (end >= this.partitionMax) {
 					end = this.partitionMax;
 				}
 
-				if(StringUtils.hasText(checkColumn)) {
-					value.putString("partClause", String.format("WHERE (%s BETWEEN %s AND %s) AND %s", column, start, end, incrementalClause.toString()));
-				}
-				else {
-					value.putString("partClause", String.format("WHERE (%s BETWEEN %s AND %s)", column, start, end));
-				}
-
-				value.putString("partSuffix", "-p"+number);
+				result.put("partition" + number, partitionContext(number, start, end, incrementalClause));
 				start += targetSize;
 				end += targetSize;
 				number++;
-
-				log.debug("Current ExecutionContext = " + value);
 			}
 		}
 
 		return result;
 	}
 
+	private ExecutionContext partitionContext(int number, long start, long end, CharSequence incrementalClause) {
+		ExecutionContext value = new ExecutionContext();
+
+		if(StringUtils.hasText(checkColumn)) {
+			value.putString("partClause", String.format("WHERE (%s BETWEEN %s AND %s) AND %s", column, start, end, incrementalClause.toString()));
+		}
+		else {
+			value.putString("partClause", String.format("WHERE (%s BETWEEN %s AND %s)", column, start, end));
+		}
+
+		value.putString("partSuffix", "-p"+number);
+
+		log.debug("Current ExecutionContext = " + value);
+		return value;
+	}
+
 	@Override
 	public void beforeStep(StepExecution stepExecution) {
 		if(StringUtils.hasText(checkColumn)) {
@@ -233,7 +285,129 @@ public class IncrementalColumnRangePartitioner implements Partitioner, StepExecu
 				this.partitionMin = minResult != null ? minResult : Long.MIN_VALUE;
 				this.partitionMax = maxResult != null ? maxResult : Long.MAX_VALUE;
 			}
+
+			this.splitPoints = null;
+			if (this.balancePartitions && this.partitions > 1) {
+				balance(stepExecution);
+			}
+		}
+	}
+
+	/**
+	 * Compute the upper bounds of partitions holding about the same number of rows, and record them with the row
+	 * count of each partition in the step execution context.
+	 */
+	private void balance(StepExecution stepExecution) {
+		StringBuilder where = new StringBuilder(" WHERE ").append(column).append(" IS NOT NULL");
+		if(StringUtils.hasText(checkColumn)) {
+			where.append(" AND ").append(checkColumn).append(" > ").append(this.incrementalMin);
+		}
+
+		List<long[]> bounds;
+		try {
+			bounds = quantiles(where.toString());
+		}
+		catch (DataAccessException e) {
+			log.debug("Unable to compute quantiles of " + column + " with NTILE, counting rows instead: " + e);
+			bounds = countedBounds(where.toString());
+		}
+		if (bounds.isEmpty()) {
+			return;
+		}
+
+		this.splitPoints = new ArrayList<Long>(bounds.size());
+		StringBuilder splits = new StringBuilder();
+		StringBuilder counts = new StringBuilder();
+		for (long[] bound : bounds) {
+			this.splitPoints.add(bound[0]);
+			splits.append(splits.length() > 0 ? "," : "").append(bound[0]);
+			counts.append(counts.length() > 0 ? "," : "").append(bound[1]);
+		}
+		// the last partition covers the whole remaining range, as computed from MAX(column)
+		this.splitPoints.set(this.splitPoints.size() - 1, this.partitionMax);
+
+		stepExecution.getExecutionContext().putString(BATCH_PARTITION_SPLIT_POINTS, splits.toString());
+		stepExecution.getExecutionContext().putString(BATCH_PARTITION_ROW_COUNTS, counts.toString());
+		log.info("Balanced partitions of " + table + " on " + column + ": split points [" + splits
+				+ "], row counts [" + counts + "]");
+	}
+
+	/**
+	 * Compute the partition bounds with the {@code NTILE} window function, on databases that support it. Values
+	 * repeated across tiles are kept in the lower partition, in which case the row counts are approximate.
+	 *
+	 * @return the upper bound and the row count of each partition
+	 */
+	private List<long[]> quantiles(String where) {
+		String sql = String.format("SELECT tile, MAX(%1$s), COUNT(*) FROM (SELECT %1$s, NTILE(%2$d) OVER (ORDER BY %1$s) AS tile FROM %3$s%4$s) tiles GROUP BY tile ORDER BY tile",
+				column, partitions, table, where);
+		List<long[]> tiles = jdbcTemplate.query(sql, new RowMapper<long[]>() {
+
+			@Override
+			public long[] mapRow(ResultSet rs, int rowNum) throws SQLException {
+				return new long[] { rs.getLong(2), rs.getLong(3) };
+			}
+
+		});
+		List<long[]> bounds = new ArrayList<long[]>(tiles.size());
+		for (long[] tile : tiles) {
+			long[] last = bounds.isEmpty() ? null : bounds.get(bounds.size() - 1);
+			if (last != null && last[0] >= tile[0]) {
+				last[1] += tile[1];
+			}
+			else {
+				bounds.add(tile);
+			}
+		}
+		return bounds;
+	}
+
+	/**
+	 * Compute the partition bounds by bisecting the range of the partition column with {@code COUNT} queries, for
+	 * databases without {@code NTILE}. No row is read, and each bound takes about as many queries as the range has
+	 * bits. Rows with the same value always end up in the same partition, so the row counts are exact.
+	 *
+	 * @return the upper bound and the row count of each partition
+	 */
+	private List<long[]> countedBounds(String where) {
+		List<long[]> bounds = new ArrayList<long[]>(partitions);
+		Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + where, Long.class);
+		if (rows == null || rows == 0) {
+			return bounds;
+		}
+		String countSql = "SELECT COUNT(*) FROM " + table + where + " AND " + column + " <= ?";
+		long lower = this.partitionMin;
+		long rowsBelow = 0;
+		for (int number = 1; number < partitions; number++) {
+			long target = (rows * number + partitions - 1) / partitions;
+			if (rowsBelow >= target) {
+				// a single value holds the share of several partitions
+				continue;
+			}
+			// the lowest value such that the rows up to it reach the target
+			long low = lower;
+			long high = this.partitionMax;
+			long highRows = rows;
+			while (low < high) {
+				long middle = low + ((high - low) >>> 1);
+				long middleRows = jdbcTemplate.queryForObject(countSql, Long.class, middle);
+				if (middleRows >= target) {
+					high = middle;
+					highRows = middleRows;
+				}
+				else {
+					low = middle + 1;
+				}
+			}
+			if (high >= this.partitionMax) {
+				break;
+			}
+			bounds.add(new long[] { high, highRows - rowsBelow });
+			rowsBelow = highRows;
+			lower = high + 1;
 		}
+		bounds.add(new long[] { this.partitionMax, rows - rowsBelow });
+		return bounds;
 	}
 
 	@Override
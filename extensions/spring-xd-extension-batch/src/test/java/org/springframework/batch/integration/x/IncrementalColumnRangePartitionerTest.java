@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,7 +18,13 @@ package org.springframework.batch.integration.x;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 import javax.sql.DataSource;
@@ -32,9 +38,12 @@ import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.item.ExecutionContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(classes = IncrementalColumnRangePartitionerConfiguration.class)
@@ -106,4 +115,107 @@ public class IncrementalColumnRangePartitionerTest {
 		assertEquals("-p4", partitions.get("partition4").get("partSuffix"));
 	}
 
+	@Test
+	public void testBalancedPartitionsOnSkewedColumn() {
+		jdbc.execute("insert into bar (foo) values (1), (2), (3), (4), (5), (6), (7), (8), (100), (1000)");
+		partitioner.setColumn("foo");
+		partitioner.setTable("bar");
+		partitioner.setPartitions(2);
+		partitioner.setBalancePartitions(true);
+		StepExecution stepExecution = new StepExecution("step1", new JobExecution(5l));
+		partitioner.beforeStep(stepExecution);
+		Map<String, ExecutionContext> partitions = partitioner.partition(1);
+		assertEquals(2, partitions.size());
+		assertEquals("WHERE (foo BETWEEN 1 AND 5)", partitions.get("partition0").get("partClause"));
+		assertEquals("WHERE (foo BETWEEN 6 AND 1000)", partitions.get("partition1").get("partClause"));
+		assertEquals("-p1", partitions.get("partition1").get("partSuffix"));
+		assertEquals("5,1000", stepExecution.getExecutionContext()
+				.getString(IncrementalColumnRangePartitioner.BATCH_PARTITION_SPLIT_POINTS));
+		assertEquals("5,5", stepExecution.getExecutionContext()
+				.getString(IncrementalColumnRangePartitioner.BATCH_PARTITION_ROW_COUNTS));
+	}
+
+	@Test
+	public void testBalancedPartitionsKeepEqualValuesTogether() {
+		jdbc.execute("insert into bar (foo) values (1), (1), (1), (1), (2), (3)");
+		partitioner.setColumn("foo");
+		partitioner.setTable("bar");
+		partitioner.setPartitions(2);
+		partitioner.setBalancePartitions(true);
+		StepExecution stepExecution = new StepExecution("step1", new JobExecution(5l));
+		partitioner.beforeStep(stepExecution);
+		Map<String, ExecutionContext> partitions = partitioner.partition(1);
+		assertEquals(2, partitions.size());
+		assertEquals("WHERE (foo BETWEEN 1 AND 1)", partitions.get("partition0").get("partClause"));
+		assertEquals("WHERE (foo BETWEEN 2 AND 3)", partitions.get("partition1").get("partClause"));
+		assertEquals("1,3", stepExecution.getExecutionContext()
+				.getString(IncrementalColumnRangePartitioner.BATCH_PARTITION_SPLIT_POINTS));
+	}
+
+	@Test
+	public void testBalancedPartitionsOnWideRange() {
+		jdbc.execute("insert into bar (foo) values (-2000000000), (1), (2), (3), (4), (5), (6), (7), (2000000000)");
+		partitioner.setColumn("foo");
+		partitioner.setTable("bar");
+		partitioner.setPartitions(3);
+		partitioner.setBalancePartitions(true);
+		StepExecution stepExecution = new StepExecution("step1", new JobExecution(5l));
+		partitioner.beforeStep(stepExecution);
+		Map<String, ExecutionContext> partitions = partitioner.partition(1);
+		assertEquals(3, partitions.size());
+		assertEquals("WHERE (foo BETWEEN -2000000000 AND 2)", partitions.get("partition0").get("partClause"));
+		assertEquals("WHERE (foo BETWEEN 6 AND 2000000000)", partitions.get("partition2").get("partClause"));
+		assertEquals("2,5,2000000000", stepExecution.getExecutionContext()
+				.getString(IncrementalColumnRangePartitioner.BATCH_PARTITION_SPLIT_POINTS));
+		assertEquals("3,3,3", stepExecution.getExecutionContext()
+				.getString(IncrementalColumnRangePartitioner.BATCH_PARTITION_ROW_COUNTS));
+	}
+
+	@Test
+	public void testBalancedPartitionsWithNtile() {
+		stubQuantiles(1, 1000, Arrays.asList(new long[] { 5, 5 }, new long[] { 1000, 5 }));
+		partitioner.setColumn("foo");
+		partitioner.setTable("bar");
+		partitioner.setPartitions(2);
+		partitioner.setBalancePartitions(true);
+		StepExecution stepExecution = new StepExecution("step1", new JobExecution(5l));
+		partitioner.beforeStep(stepExecution);
+		Map<String, ExecutionContext> partitions = partitioner.partition(1);
+		assertEquals(2, partitions.size());
+		assertEquals("WHERE (foo BETWEEN 1 AND 5)", partitions.get("partition0").get("partClause"));
+		assertEquals("WHERE (foo BETWEEN 6 AND 1000)", partitions.get("partition1").get("partClause"));
+		assertEquals("5,1000", stepExecution.getExecutionContext()
+				.getString(IncrementalColumnRangePartitioner.BATCH_PARTITION_SPLIT_POINTS));
+		assertEquals("5,5", stepExecution.getExecutionContext()
+				.getString(IncrementalColumnRangePartitioner.BATCH_PARTITION_ROW_COUNTS));
+	}
+
+	@Test
+	public void testBalancedPartitionsWithNtileMergeTilesEndingOnTheSameValue() {
+		stubQuantiles(1, 3, Arrays.asList(new long[] { 1, 2 }, new long[] { 1, 2 }, new long[] { 3, 2 }));
+		partitioner.setColumn("foo");
+		partitioner.setTable("bar");
+		partitioner.setPartitions(3);
+		partitioner.setBalancePartitions(true);
+		StepExecution stepExecution = new StepExecution("step1", new JobExecution(5l));
+		partitioner.beforeStep(stepExecution);
+		Map<String, ExecutionContext> partitions = partitioner.partition(1);
+		assertEquals(2, partitions.size());
+		assertEquals("WHERE (foo BETWEEN 1 AND 1)", partitions.get("partition0").get("partClause"));
+		assertEquals("WHERE (foo BETWEEN 2 AND 3)", partitions.get("partition1").get("partClause"));
+		assertEquals("1,3", stepExecution.getExecutionContext()
+				.getString(IncrementalColumnRangePartitioner.BATCH_PARTITION_SPLIT_POINTS));
+		assertEquals("4,2", stepExecution.getExecutionContext()
+				.getString(IncrementalColumnRangePartitioner.BATCH_PARTITION_ROW_COUNTS));
+	}
+
+	@SuppressWarnings("unchecked")
+	private void stubQuantiles(long min, long max, List<long[]> tiles) {
+		JdbcOperations jdbcOperations = mock(JdbcOperations.class);
+		when(jdbcOperations.queryForObject("SELECT MIN(foo) from bar", Long.class)).thenReturn(min);
+		when(jdbcOperations.queryForObject("SELECT MAX(foo) from bar", Long.class)).thenReturn(max);
+		when(jdbcOperations.query(startsWith("SELECT tile"), any(RowMapper.class))).thenReturn(tiles);
+		ReflectionTestUtils.setField(partitioner, "jdbcTemplate", jdbcOperations);
+	}
+
 }
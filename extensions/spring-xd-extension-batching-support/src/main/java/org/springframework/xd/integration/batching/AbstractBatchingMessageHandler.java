@@ -0,0 +1,307 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.integration.batching;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.channel.MessagePublishingErrorHandler;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.integration.support.channel.BeanFactoryChannelResolver;
+import org.springframework.integration.util.ErrorHandlingTaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Base class for message handlers that write the items converted from their messages in batches, rather than one
+ * at a time. Subclasses convert messages to items and write batches; buffering is handled here.
+ * <p>
+ * Items are buffered until {@code batchSize} of them have been received, or until the oldest of them has waited for
+ * {@code idleTimeout} milliseconds. Batches are written one at a time, in the order their items were received.
+ * <p>
+ * A batch that fails to be written is not lost: the items {@link #write(List)} did not remove from it stay buffered,
+ * ahead of the items received since, and the error is thrown. When a message completes a batch that cannot be
+ * written, its item is taken back from the buffer and the error is thrown to the caller, so that the message can be
+ * retried or dead-lettered as with an unbatched handler.
+ * <p>
+ * Partial batches are written on a dedicated thread rather than on the shared task scheduler, which only checks for
+ * idle items; errors writing them are sent to the {@code errorChannel}, and the items are written again after another
+ * {@code idleTimeout}. Buffered items that have not been written yet are lost if the process dies.
+ *
+ * @param <T> the type of the items written
+ * @since 1.3.2
+ */
+public abstract class AbstractBatchingMessageHandler<T> extends AbstractMessageHandler implements DisposableBean {
+
+	private final Object bufferMonitor = new Object();
+
+	/**
+	 * Held while writing, so that batches are written one at a time and in order.
+	 */
+	private final Object writeMonitor = new Object();
+
+	private final AtomicBoolean idleFlushPending = new AtomicBoolean();
+
+	private List<T> items = new ArrayList<T>();
+
+	/**
+	 * The time the oldest buffered item was received, or the buffered items last failed to be written.
+	 */
+	private long oldestItemTime;
+
+	private volatile int batchSize = 100;
+
+	private volatile long idleTimeout = 1000;
+
+	private volatile Executor taskExecutor;
+
+	private volatile Executor idleFlushExecutor;
+
+	private volatile ExecutorService ownedExecutor;
+
+	private volatile ScheduledFuture<?> idleFlushTask;
+
+	/**
+	 * Set the number of items written at a time.
+	 *
+	 * @param batchSize the batch size
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Set the time, in milliseconds, after which the buffered items are written even though they do not fill a batch.
+	 * Buffered items are checked for every half of this time. 0 or less only writes full batches, and the items still
+	 * buffered when this handler is destroyed.
+	 *
+	 * @param idleTimeout the idle timeout
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * Set the executor that writes the batches released by the idle timeout. Defaults to a single thread owned by
+	 * this handler.
+	 *
+	 * @param taskExecutor the task executor
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Return the number of items received but not written yet.
+	 *
+	 * @return the number of buffered items
+	 */
+	public int getBufferedCount() {
+		synchronized (this.bufferMonitor) {
+			return this.items.size();
+		}
+	}
+
+	@Override
+	protected void onInit() throws Exception {
+		super.onInit();
+		long timeout = this.idleTimeout;
+		if (timeout > 0) {
+			Executor executor = this.taskExecutor;
+			if (executor == null) {
+				String name = getComponentName() != null ? getComponentName() : getClass().getSimpleName();
+				this.ownedExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory(name + "-flush-"));
+				executor = this.ownedExecutor;
+			}
+			this.idleFlushExecutor = new ErrorHandlingTaskExecutor(executor,
+					new MessagePublishingErrorHandler(new BeanFactoryChannelResolver(getBeanFactory())));
+			this.idleFlushTask = getTaskScheduler().scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					flushIdle();
+				}
+
+			}, Math.max(timeout / 2, 1));
+		}
+	}
+
+	@Override
+	protected final void handleMessageInternal(Message<?> message) throws Exception {
+		T item = toItem(message);
+		boolean full;
+		synchronized (this.bufferMonitor) {
+			if (this.items.isEmpty()) {
+				this.oldestItemTime = System.currentTimeMillis();
+			}
+			this.items.add(item);
+			full = this.items.size() >= this.batchSize;
+		}
+		if (full) {
+			try {
+				flush(true);
+			}
+			catch (RuntimeException e) {
+				if (takeBack(item)) {
+					// the caller retries or dead-letters this message; the others were accepted earlier
+					throw e;
+				}
+				logger.warn("Failed to write the items buffered by " + this + "; they stay buffered", e);
+			}
+		}
+	}
+
+	/**
+	 * Remove the given item from the buffer, unless it has been written already. Items are compared by identity, as
+	 * equal items may have been received from other messages.
+	 */
+	private boolean takeBack(T item) {
+		synchronized (this.bufferMonitor) {
+			for (int i = this.items.size() - 1; i >= 0; i--) {
+				if (this.items.get(i) == item) {
+					this.items.remove(i);
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Hand the buffered items over to the idle flush executor if the oldest of them has waited for
+	 * {@code idleTimeout} milliseconds. Called by the task scheduler, which must not be blocked by writes.
+	 */
+	void flushIdle() {
+		synchronized (this.bufferMonitor) {
+			if (this.items.isEmpty() || System.currentTimeMillis() - this.oldestItemTime < this.idleTimeout) {
+				return;
+			}
+		}
+		if (!this.idleFlushPending.compareAndSet(false, true)) {
+			return;
+		}
+		this.idleFlushExecutor.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					flush(false);
+				}
+				finally {
+					idleFlushPending.set(false);
+				}
+			}
+
+		});
+	}
+
+	/**
+	 * Write the buffered items, a batch at a time. If a batch fails, its items not written yet are put back at the
+	 * head of the buffer and the error is thrown.
+	 *
+	 * @param onlyFullBatches whether to leave a last partial batch buffered
+	 */
+	private void flush(boolean onlyFullBatches) {
+		synchronized (this.writeMonitor) {
+			while (true) {
+				List<T> batch;
+				synchronized (this.bufferMonitor) {
+					int size = this.items.size();
+					// another thread may have written the items while this one waited
+					if (size == 0 || (onlyFullBatches && size < this.batchSize)) {
+						return;
+					}
+					if (size <= this.batchSize) {
+						batch = this.items;
+						this.items = new ArrayList<T>();
+					}
+					else {
+						List<T> head = this.items.subList(0, this.batchSize);
+						batch = new ArrayList<T>(head);
+						head.clear();
+					}
+				}
+				try {
+					write(batch);
+				}
+				catch (RuntimeException e) {
+					requeue(batch);
+					throw e;
+				}
+			}
+		}
+	}
+
+	private void requeue(List<T> batch) {
+		synchronized (this.bufferMonitor) {
+			List<T> pending = new ArrayList<T>(batch.size() + this.items.size());
+			pending.addAll(batch);
+			pending.addAll(this.items);
+			this.items = pending;
+			// wait for another idle timeout before writing them again
+			this.oldestItemTime = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Convert a message to the item to buffer.
+	 *
+	 * @param message the message
+	 * @return the item
+	 */
+	protected abstract T toItem(Message<?> message);
+
+	/**
+	 * Write a batch of items. If the batch cannot be written, the items this method has not removed from it stay
+	 * buffered and the exception is thrown; an implementation that writes or skips some items before failing must
+	 * remove them from the batch.
+	 *
+	 * @param batch the items to write, in the order they were received
+	 */
+	protected abstract void write(List<T> batch);
+
+	/**
+	 * Write the buffered items.
+	 */
+	@Override
+	public void destroy() {
+		if (this.idleFlushTask != null) {
+			this.idleFlushTask.cancel(false);
+		}
+		try {
+			flush(false);
+		}
+		finally {
+			if (this.ownedExecutor != null) {
+				this.ownedExecutor.shutdown();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,5 @@
+/**
+ * Package for the support of message handlers writing payloads in batches.
+ */
+
+package org.springframework.xd.integration.batching;
@@ -0,0 +1,490 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.integration.file;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.common.LiteralExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.integration.expression.ExpressionUtils;
+import org.springframework.integration.expression.ValueExpression;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.messaging.Message;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Appends message payloads to files, keeping the files open between messages and buffering the writes. This avoids
+ * opening, writing to and closing the target file for each message, as a {@code file:outbound-channel-adapter} in
+ * {@code APPEND} mode does.
+ * <p>
+ * At most {@code maxOpenFiles} files are kept open; when another one is needed, the least recently written one is
+ * closed. Buffered bytes are written to a file when its buffer is full, every {@code flushInterval} milliseconds, and
+ * when the file is closed, which happens after {@code idleTimeout} milliseconds without writes or when this handler
+ * is destroyed. Bytes still buffered are lost if the process dies, so {@code flushInterval} bounds the window of
+ * writes that may be lost; the {@link FsyncPolicy} controls whether written bytes are also forced to the storage
+ * device.
+ * <p>
+ * The file written to is given by a directory and a file name, each set either as is or as a SpEL expression
+ * evaluated against each message.
+ * <p>
+ * {@code byte[]}, {@code String}, {@link File} and {@link InputStream} payloads are supported.
+ *
+ * @since 1.3.2
+ */
+public class BufferedFileWritingMessageHandler extends AbstractMessageHandler implements DisposableBean {
+
+	/**
+	 * When to force the bytes written to a file to the storage device.
+	 */
+	public static enum FsyncPolicy {
+
+		/**
+		 * Leave it to the operating system.
+		 */
+		NONE,
+
+		/**
+		 * Each time the buffered bytes of a file are flushed, periodically or on close.
+		 */
+		FLUSH,
+
+		/**
+		 * When a file is closed.
+		 */
+		CLOSE
+	}
+
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+	private volatile Expression directoryExpression;
+
+	private volatile Expression fileNameExpression;
+
+	/**
+	 * The open files, by path, least recently written first.
+	 */
+	private final Map<String, FileHandle> handles = new LinkedHashMap<String, FileHandle>(16, 0.75f, true);
+
+	private volatile Charset charset = Charset.forName("UTF-8");
+
+	private volatile boolean appendNewLine;
+
+	private volatile byte[] newLine;
+
+	private volatile int bufferSize = 8192;
+
+	private volatile int maxOpenFiles = 16;
+
+	private volatile long flushInterval = 1000;
+
+	private volatile long idleTimeout = 60000;
+
+	private volatile FsyncPolicy fsyncPolicy = FsyncPolicy.NONE;
+
+	private volatile EvaluationContext evaluationContext;
+
+	private volatile ScheduledFuture<?> maintenanceTask;
+
+	/**
+	 * Set the directory of the files to write to.
+	 *
+	 * @param directory the directory
+	 */
+	public void setDirectory(File directory) {
+		Assert.notNull(directory, "directory must not be null");
+		this.directoryExpression = new ValueExpression<File>(directory);
+	}
+
+	/**
+	 * Set the SpEL expression evaluated against each message to obtain the directory of the file to write to, as a
+	 * {@link File} or a path.
+	 *
+	 * @param directoryExpression the directory expression
+	 */
+	public void setDirectoryExpression(String directoryExpression) {
+		Assert.hasText(directoryExpression, "directoryExpression must not be empty");
+		this.directoryExpression = new SpelExpressionParser().parseExpression(directoryExpression);
+	}
+
+	/**
+	 * Set the name of the file to write to.
+	 *
+	 * @param fileName the file name
+	 */
+	public void setFileName(String fileName) {
+		Assert.hasText(fileName, "fileName must not be empty");
+		this.fileNameExpression = new LiteralExpression(fileName);
+	}
+
+	/**
+	 * Set the SpEL expression evaluated against each message to obtain the name of the file to write to.
+	 *
+	 * @param fileNameExpression the file name expression
+	 */
+	public void setFileNameExpression(String fileNameExpression) {
+		Assert.hasText(fileNameExpression, "fileNameExpression must not be empty");
+		this.fileNameExpression = new SpelExpressionParser().parseExpression(fileNameExpression);
+	}
+
+	/**
+	 * Set the charset used to encode {@code String} payloads and the line separator.
+	 *
+	 * @param charset the charset name
+	 */
+	public void setCharset(String charset) {
+		Assert.hasText(charset, "charset must not be empty");
+		this.charset = Charset.forName(charset);
+	}
+
+	/**
+	 * Set whether to write the line separator after each payload.
+	 *
+	 * @param appendNewLine whether to terminate each payload with a new line
+	 */
+	public void setAppendNewLine(boolean appendNewLine) {
+		this.appendNewLine = appendNewLine;
+	}
+
+	/**
+	 * Set the size, in bytes, of the buffer of each open file. The buffer is written to the file when full.
+	 *
+	 * @param bufferSize the buffer size
+	 */
+	public void setBufferSize(int bufferSize) {
+		Assert.isTrue(bufferSize > 0, "bufferSize must be greater than 0");
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Set the maximum number of files kept open at a time.
+	 *
+	 * @param maxOpenFiles the maximum number of open files
+	 */
+	public void setMaxOpenFiles(int maxOpenFiles) {
+		Assert.isTrue(maxOpenFiles > 0, "maxOpenFiles must be greater than 0");
+		this.maxOpenFiles = maxOpenFiles;
+	}
+
+	/**
+	 * Set the interval, in milliseconds, at which buffered bytes are written to the files. 0 or less only writes
+	 * them when buffers are full or files closed.
+	 *
+	 * @param flushInterval the flush interval
+	 */
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Set the time, in milliseconds, after which a file that has not been written to is closed. Idle files are looked
+	 * for every {@code flushInterval} milliseconds, or every {@code idleTimeout} milliseconds if periodic flushes are
+	 * disabled. 0 or less keeps files open until evicted by others or this handler is destroyed.
+	 *
+	 * @param idleTimeout the idle timeout
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * Set when to force the bytes written to a file to the storage device; {@link FsyncPolicy#NONE} by default.
+	 *
+	 * @param fsyncPolicy the fsync policy
+	 */
+	public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+		Assert.notNull(fsyncPolicy, "fsyncPolicy must not be null");
+		this.fsyncPolicy = fsyncPolicy;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "file:buffered-outbound-channel-adapter";
+	}
+
+	@Override
+	protected void onInit() throws Exception {
+		super.onInit();
+		Assert.state(this.directoryExpression != null, "a directory or directoryExpression is required");
+		Assert.state(this.fileNameExpression != null, "a fileName or fileNameExpression is required");
+		this.evaluationContext = ExpressionUtils.createStandardEvaluationContext(getBeanFactory());
+		this.newLine = LINE_SEPARATOR.getBytes(this.charset);
+		long period = this.flushInterval > 0 ? this.flushInterval : this.idleTimeout;
+		if (period > 0) {
+			this.maintenanceTask = getTaskScheduler().scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					flushAndCloseIdle();
+				}
+
+			}, period);
+		}
+	}
+
+	@Override
+	protected void handleMessageInternal(Message<?> message) throws Exception {
+		File file = resolveFile(message);
+		Object payload = message.getPayload();
+		byte[] bytes = null;
+		if (payload instanceof String) {
+			bytes = ((String) payload).getBytes(this.charset);
+		}
+		else if (payload instanceof byte[]) {
+			bytes = (byte[]) payload;
+		}
+		else if (!(payload instanceof File) && !(payload instanceof InputStream)) {
+			throw new IllegalArgumentException("unsupported Message payload type [" + payload.getClass().getName()
+					+ "]");
+		}
+		while (true) {
+			FileHandle handle = obtainHandle(file);
+			synchronized (handle) {
+				// closed by another thread since obtained; open it again
+				if (handle.out == null) {
+					continue;
+				}
+				try {
+					if (bytes != null) {
+						handle.out.write(bytes);
+					}
+					else {
+						copy(payload, handle.out);
+					}
+					if (this.appendNewLine) {
+						handle.out.write(this.newLine);
+					}
+				}
+				catch (IOException e) {
+					discard(handle);
+					throw e;
+				}
+				handle.dirty = true;
+				handle.lastUsed = System.currentTimeMillis();
+				return;
+			}
+		}
+	}
+
+	private File resolveFile(Message<?> message) {
+		Object directory = this.directoryExpression.getValue(this.evaluationContext, message);
+		Assert.notNull(directory, "the directory expression evaluated to null");
+		String fileName = this.fileNameExpression.getValue(this.evaluationContext, message, String.class);
+		Assert.hasText(fileName, "the file name expression evaluated to an empty name");
+		return directory instanceof File ? new File((File) directory, fileName)
+				: new File(directory.toString(), fileName);
+	}
+
+	private void copy(Object payload, BufferedOutputStream out) throws IOException {
+		InputStream in = payload instanceof File ? new FileInputStream((File) payload) : (InputStream) payload;
+		try {
+			StreamUtils.copy(in, out);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Return the open handle of the file, opening it if needed and closing the least recently written file if that
+	 * opens one too many.
+	 */
+	private FileHandle obtainHandle(File file) throws IOException {
+		String path = file.getAbsolutePath();
+		FileHandle evicted = null;
+		FileHandle handle;
+		synchronized (this.handles) {
+			handle = this.handles.get(path);
+			if (handle == null) {
+				File directory = file.getAbsoluteFile().getParentFile();
+				if (!directory.exists() && !directory.mkdirs() && !directory.exists()) {
+					throw new IOException("Unable to create directory [" + directory + "]");
+				}
+				handle = new FileHandle(path, new FileOutputStream(file, true), this.bufferSize);
+				this.handles.put(path, handle);
+				if (this.handles.size() > this.maxOpenFiles) {
+					Iterator<FileHandle> eldest = this.handles.values().iterator();
+					evicted = eldest.next();
+					eldest.remove();
+				}
+			}
+		}
+		if (evicted != null) {
+			close(evicted);
+		}
+		return handle;
+	}
+
+	/**
+	 * Flush the files written to since the last flush and close the idle ones.
+	 */
+	void flushAndCloseIdle() {
+		long now = System.currentTimeMillis();
+		long idleTimeout = this.idleTimeout;
+		List<FileHandle> open = new ArrayList<FileHandle>();
+		List<FileHandle> idle = new ArrayList<FileHandle>();
+		synchronized (this.handles) {
+			for (Iterator<FileHandle> iterator = this.handles.values().iterator(); iterator.hasNext();) {
+				FileHandle handle = iterator.next();
+				if (idleTimeout > 0 && now - handle.lastUsed >= idleTimeout) {
+					iterator.remove();
+					idle.add(handle);
+				}
+				else {
+					open.add(handle);
+				}
+			}
+		}
+		for (FileHandle handle : idle) {
+			close(handle);
+		}
+		if (this.flushInterval > 0) {
+			for (FileHandle handle : open) {
+				synchronized (handle) {
+					if (handle.out != null && handle.dirty) {
+						try {
+							flush(handle);
+						}
+						catch (IOException e) {
+							logger.error("Failed to flush " + handle.path + "; closing it", e);
+							discard(handle);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private void flush(FileHandle handle) throws IOException {
+		handle.out.flush();
+		handle.dirty = false;
+		if (this.fsyncPolicy == FsyncPolicy.FLUSH) {
+			handle.fileOut.getFD().sync();
+		}
+	}
+
+	private void close(FileHandle handle) {
+		synchronized (handle) {
+			if (handle.out == null) {
+				return;
+			}
+			try {
+				flush(handle);
+				if (this.fsyncPolicy == FsyncPolicy.CLOSE) {
+					handle.fileOut.getFD().sync();
+				}
+			}
+			catch (IOException e) {
+				logger.error("Failed to flush " + handle.path + " before closing it", e);
+			}
+			closeQuietly(handle);
+		}
+	}
+
+	/**
+	 * Close a handle whose file could not be written to, so that the next message opens the file again. May be
+	 * called while holding the lock of the handle: the lock of the handles map is never held while taking the lock
+	 * of a handle.
+	 */
+	private void discard(FileHandle handle) {
+		synchronized (this.handles) {
+			if (this.handles.get(handle.path) == handle) {
+				this.handles.remove(handle.path);
+			}
+		}
+		synchronized (handle) {
+			closeQuietly(handle);
+		}
+	}
+
+	private void closeQuietly(FileHandle handle) {
+		if (handle.out == null) {
+			return;
+		}
+		try {
+			handle.out.close();
+		}
+		catch (IOException e) {
+			logger.warn("Failed to close " + handle.path, e);
+		}
+		handle.out = null;
+	}
+
+	int getOpenFileCount() {
+		synchronized (this.handles) {
+			return this.handles.size();
+		}
+	}
+
+	/**
+	 * Write the buffered bytes and close all the files.
+	 */
+	@Override
+	public void destroy() {
+		if (this.maintenanceTask != null) {
+			this.maintenanceTask.cancel(false);
+		}
+		List<FileHandle> open;
+		synchronized (this.handles) {
+			open = new ArrayList<FileHandle>(this.handles.values());
+			this.handles.clear();
+		}
+		for (FileHandle handle : open) {
+			close(handle);
+		}
+	}
+
+
+	private static class FileHandle {
+
+		private final String path;
+
+		private final FileOutputStream fileOut;
+
+		/**
+		 * The buffered stream, or {@code null} once closed.
+		 */
+		private BufferedOutputStream out;
+
+		private boolean dirty;
+
+		private volatile long lastUsed = System.currentTimeMillis();
+
+		private FileHandle(String path, FileOutputStream fileOut, int bufferSize) {
+			this.path = path;
+			this.fileOut = fileOut;
+			this.out = new BufferedOutputStream(fileOut, bufferSize);
+		}
+
+	}
+
+}
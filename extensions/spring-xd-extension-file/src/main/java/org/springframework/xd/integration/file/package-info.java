@@ -0,0 +1,5 @@
+/**
+ * Package for file writing extensions.
+ */
+
+package org.springframework.xd.integration.file;
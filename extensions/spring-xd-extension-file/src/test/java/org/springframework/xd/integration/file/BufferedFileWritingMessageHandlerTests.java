@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.integration.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.xd.test.MessageHandlerTestSupport;
+
+/**
+ * @since 1.3.2
+ */
+public class BufferedFileWritingMessageHandlerTests {
+
+	private static final String NEWLINE = System.getProperty("line.separator");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Rule
+	public MessageHandlerTestSupport support = new MessageHandlerTestSupport();
+
+	private BufferedFileWritingMessageHandler handler;
+
+	@Before
+	public void setUp() {
+		handler = new BufferedFileWritingMessageHandler();
+		handler.setDirectoryExpression("headers.dir");
+		handler.setFileNameExpression("headers.name");
+		handler.setBeanFactory(support.getBeanFactory());
+		handler.setAppendNewLine(true);
+		handler.setFlushInterval(0);
+		handler.setIdleTimeout(0);
+	}
+
+	@After
+	public void tearDown() {
+		handler.destroy();
+	}
+
+	@Test
+	public void linesBufferedUntilClose() throws Exception {
+		handler.afterPropertiesSet();
+		send("foo", "a.txt");
+		send("bar", "a.txt");
+		File file = new File(folder.getRoot(), "a.txt");
+		assertEquals("", read(file));
+		handler.destroy();
+		assertEquals("foo" + NEWLINE + "bar" + NEWLINE, read(file));
+	}
+
+	@Test
+	public void appendsToExistingFile() throws Exception {
+		File file = folder.newFile("a.txt");
+		FileCopyUtils.copy(("existing" + NEWLINE).getBytes("UTF-8"), file);
+		handler.setAppendNewLine(false);
+		handler.afterPropertiesSet();
+		send("foo".getBytes("UTF-8"), "a.txt");
+		handler.destroy();
+		assertEquals("existing" + NEWLINE + "foo", read(file));
+	}
+
+	@Test
+	public void leastRecentlyWrittenFileClosed() throws Exception {
+		handler.setMaxOpenFiles(2);
+		handler.afterPropertiesSet();
+		send("1", "a.txt");
+		send("2", "b.txt");
+		send("3", "a.txt");
+		send("4", "c.txt");
+		assertEquals(2, handler.getOpenFileCount());
+		assertEquals("2" + NEWLINE, read(new File(folder.getRoot(), "b.txt")));
+		assertEquals("", read(new File(folder.getRoot(), "a.txt")));
+		send("5", "b.txt");
+		handler.destroy();
+		assertEquals("1" + NEWLINE + "3" + NEWLINE, read(new File(folder.getRoot(), "a.txt")));
+		assertEquals("2" + NEWLINE + "5" + NEWLINE, read(new File(folder.getRoot(), "b.txt")));
+		assertEquals("4" + NEWLINE, read(new File(folder.getRoot(), "c.txt")));
+	}
+
+	@Test
+	public void periodicFlushAndIdleClose() throws Exception {
+		handler.setFlushInterval(100000);
+		handler.setIdleTimeout(50);
+		handler.afterPropertiesSet();
+		send("foo", "a.txt");
+		send("bar", "b.txt");
+		File a = new File(folder.getRoot(), "a.txt");
+		handler.flushAndCloseIdle();
+		assertEquals(2, handler.getOpenFileCount());
+		assertEquals("foo" + NEWLINE, read(a));
+		send("baz", "a.txt");
+		Thread.sleep(100);
+		handler.flushAndCloseIdle();
+		assertEquals(0, handler.getOpenFileCount());
+		assertEquals("foo" + NEWLINE + "baz" + NEWLINE, read(a));
+	}
+
+	@Test
+	public void directoryCreated() throws Exception {
+		handler.setFsyncPolicy(BufferedFileWritingMessageHandler.FsyncPolicy.FLUSH);
+		handler.afterPropertiesSet();
+		File dir = new File(folder.getRoot(), "x/y");
+		assertFalse(dir.exists());
+		handler.handleMessage(MessageBuilder.withPayload("foo").setHeader("dir", dir)
+				.setHeader("name", "a.txt").build());
+		handler.destroy();
+		assertEquals("foo" + NEWLINE, read(new File(dir, "a.txt")));
+	}
+
+	@Test
+	public void literalDirectoryAndFileName() throws Exception {
+		File dir = new File(folder.getRoot(), "it's");
+		handler.setDirectory(dir);
+		handler.setFileName("a'b.txt");
+		handler.afterPropertiesSet();
+		handler.handleMessage(MessageBuilder.withPayload("foo").build());
+		handler.destroy();
+		assertEquals("foo" + NEWLINE, read(new File(dir, "a'b.txt")));
+	}
+
+	private void send(Object payload, String name) {
+		handler.handleMessage(MessageBuilder.withPayload(payload).setHeader("dir", folder.getRoot().getPath())
+				.setHeader("name", name).build());
+	}
+
+	private String read(File file) throws IOException {
+		return new String(FileCopyUtils.copyToByteArray(file), Charset.forName("UTF-8"));
+	}
+
+}
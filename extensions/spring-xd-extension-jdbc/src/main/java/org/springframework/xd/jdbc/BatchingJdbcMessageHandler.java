@@ -0,0 +1,229 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.messaging.Message;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.xd.integration.batching.AbstractBatchingMessageHandler;
+
+/**
+ * Inserts the {@link Map} payloads produced by {@link JdbcMessagePayloadTransformer} into a table in batches, rather
+ * than running one insert, in its own transaction, per message.
+ * <p>
+ * Rows are buffered and released as described in {@link AbstractBatchingMessageHandler}. A batch is written with a
+ * single JDBC batch update, or with a single insert statement listing the values of all its rows if
+ * {@code multiRowInsert} is set, in one transaction.
+ * <p>
+ * Each attempt to write a batch runs in its own transaction, so a failed attempt leaves no row behind. If the database
+ * rejects a row of the batch with a {@link DataIntegrityViolationException}, the rows of the batch are inserted one by
+ * one, in order, so that only the rejected rows are lost: they are logged, counted and skipped. Any other failure,
+ * such as a lost connection, is retried {@code batchRetries} times; if it persists, the rows not written yet stay
+ * buffered and the error is thrown.
+ *
+ * @since 1.3.2
+ */
+public class BatchingJdbcMessageHandler extends AbstractBatchingMessageHandler<Object[]> {
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final String tableName;
+
+	private final List<String> columnNames = new ArrayList<String>();
+
+	private final AtomicLong failedRows = new AtomicLong();
+
+	private volatile boolean multiRowInsert;
+
+	private volatile int batchRetries = 1;
+
+	private volatile String insertSql;
+
+	private volatile String batchInsertSql;
+
+	/**
+	 * @param dataSource the data source of the database to write to
+	 * @param tableName the table to insert rows into
+	 * @param columnNames the comma separated names of the columns to insert, which are also the keys of the values
+	 *        in the payloads
+	 */
+	public BatchingJdbcMessageHandler(DataSource dataSource, String tableName, String columnNames) {
+		Assert.notNull(dataSource, "dataSource must not be null");
+		Assert.hasText(tableName, "tableName must not be empty");
+		for (String name : StringUtils.tokenizeToStringArray(columnNames, ",")) {
+			this.columnNames.add(name.trim());
+		}
+		Assert.notEmpty(this.columnNames, "columnNames must not be empty");
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		this.tableName = tableName;
+	}
+
+	/**
+	 * Set whether to write a batch with a single insert statement listing the values of all its rows
+	 * ({@code insert into t (a, b) values (?, ?), (?, ?), ...}) rather than with a JDBC batch update. Not all
+	 * databases support that syntax, and some limit the number of parameters of a statement.
+	 *
+	 * @param multiRowInsert whether to use multi-row insert statements
+	 */
+	public void setMultiRowInsert(boolean multiRowInsert) {
+		this.multiRowInsert = multiRowInsert;
+	}
+
+	/**
+	 * Set how many times to retry writing a batch that failed for another reason than a rejected row.
+	 *
+	 * @param batchRetries the number of retries
+	 */
+	public void setBatchRetries(int batchRetries) {
+		Assert.isTrue(batchRetries >= 0, "batchRetries must not be negative");
+		this.batchRetries = batchRetries;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "jdbc:outbound-channel-adapter";
+	}
+
+	@Override
+	protected void onInit() throws Exception {
+		this.insertSql = buildInsertSql(1);
+		this.batchInsertSql = buildInsertSql(getBatchSize());
+		super.onInit();
+	}
+
+	private String buildInsertSql(int rowCount) {
+		StringBuilder row = new StringBuilder("(");
+		for (int i = 0; i < this.columnNames.size(); i++) {
+			row.append(i > 0 ? ", ?" : "?");
+		}
+		row.append(")");
+		StringBuilder sql = new StringBuilder("insert into ").append(this.tableName).append(" (")
+				.append(StringUtils.collectionToDelimitedString(this.columnNames, ", ")).append(") values ");
+		for (int i = 0; i < rowCount; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(row);
+		}
+		return sql.toString();
+	}
+
+	@Override
+	protected Object[] toItem(Message<?> message) {
+		Object payload = message.getPayload();
+		Assert.isInstanceOf(Map.class, payload, "the payload must be a Map of column values");
+		Map<?, ?> values = (Map<?, ?>) payload;
+		Object[] row = new Object[this.columnNames.size()];
+		for (int i = 0; i < row.length; i++) {
+			row[i] = values.get(this.columnNames.get(i));
+		}
+		return row;
+	}
+
+	/**
+	 * Write a batch, removing from it the rows that have been written or skipped if it fails part way.
+	 */
+	@Override
+	protected void write(final List<Object[]> batch) {
+		for (int attempt = 0;; attempt++) {
+			try {
+				this.transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+					@Override
+					protected void doInTransactionWithoutResult(TransactionStatus status) {
+						writeBatch(batch);
+					}
+
+				});
+				return;
+			}
+			catch (DataIntegrityViolationException e) {
+				logger.warn("Failed to write a batch of " + batch.size() + " rows to " + this.tableName
+						+ "; inserting them one by one", e);
+				break;
+			}
+			catch (RuntimeException e) {
+				if (attempt >= this.batchRetries) {
+					throw e;
+				}
+				if (logger.isDebugEnabled()) {
+					logger.debug("Failed to write a batch of " + batch.size() + " rows to " + this.tableName
+							+ "; retrying", e);
+				}
+			}
+		}
+		int done = 0;
+		try {
+			for (Object[] row : batch) {
+				try {
+					this.jdbcTemplate.update(this.insertSql, row);
+				}
+				catch (DataIntegrityViolationException e) {
+					this.failedRows.incrementAndGet();
+					logger.error("Failed to insert " + Arrays.toString(row) + " into " + this.tableName
+							+ "; skipping it", e);
+				}
+				done++;
+			}
+		}
+		finally {
+			batch.subList(0, done).clear();
+		}
+	}
+
+	private void writeBatch(List<Object[]> batch) {
+		if (!this.multiRowInsert) {
+			this.jdbcTemplate.batchUpdate(this.insertSql, batch);
+			return;
+		}
+		String sql = batch.size() == getBatchSize() ? this.batchInsertSql : buildInsertSql(batch.size());
+		Object[] args = new Object[batch.size() * this.columnNames.size()];
+		int i = 0;
+		for (Object[] row : batch) {
+			System.arraycopy(row, 0, args, i, row.length);
+			i += row.length;
+		}
+		this.jdbcTemplate.update(sql, args);
+	}
+
+	/**
+	 * Return the number of rows that could not be inserted and were skipped.
+	 *
+	 * @return the number of failed rows
+	 */
+	public long getFailedRowCount() {
+		return this.failedRows.get();
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -51,6 +51,8 @@ public class JdbcHdfsOptionsMetadata {
 
 	private int partitions = 1;
 
+	private boolean balancePartitions = false;
+
 	private String sql = "";
 
 	private String fileName = XD_JOB_NAME;
@@ -88,6 +90,11 @@ public class JdbcHdfsOptionsMetadata {
 		this.partitions = partitions;
 	}
 
+	@ModuleOption("whether to size partitions by row count rather than by value range")
+	public void setBalancePartitions(boolean balancePartitions) {
+		this.balancePartitions = balancePartitions;
+	}
+
 	@ModuleOption("the SQL to use to extract data")
 	public void setSql(String sql) {
 		this.sql = sql;
@@ -153,6 +160,10 @@ public class JdbcHdfsOptionsMetadata {
 		return partitions;
 	}
 
+	public boolean isBalancePartitions() {
+		return balancePartitions;
+	}
+
 	public String getFileName() {
 		return fileName;
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,10 +16,13 @@
 
 package org.springframework.xd.jdbc;
 
+import javax.validation.constraints.Min;
+
 import org.springframework.xd.jdbc.JdbcSinkModuleOptionsMetadata.JdbcSinkImportToJdbcMixin;
 import org.springframework.xd.module.options.spi.Mixin;
 import org.springframework.xd.module.options.spi.ModuleOption;
 import org.springframework.xd.module.options.spi.ModulePlaceholders;
+import org.springframework.xd.module.options.spi.ProfileNamesProvider;
 
 /**
  * Captures module options for the "jdbc" sink module.
@@ -27,10 +30,20 @@ import org.springframework.xd.module.options.spi.ModulePlaceholders;
  * @author Eric Bottard
  */
 @Mixin({ JdbcConnectionMixin.class, JdbcConnectionPoolMixin.class, JdbcSinkImportToJdbcMixin.class })
-public class JdbcSinkModuleOptionsMetadata {
+public class JdbcSinkModuleOptionsMetadata implements ProfileNamesProvider {
+
+	private static final String SINGLE_ROW_PROFILE = "single-row";
+
+	private static final String BATCHED_PROFILE = "batched";
 
 	private String columns = "payload";
 
+	private int batchSize = 1;
+
+	private long idleTimeout = 1000;
+
+	private boolean multiRowInsert = false;
+
 	@ModuleOption("the database columns to map the data to")
 	public void setColumns(String columns) {
 		this.columns = columns;
@@ -40,6 +53,39 @@ public class JdbcSinkModuleOptionsMetadata {
 		return columns;
 	}
 
+	@ModuleOption("the number of rows inserted at a time (1 to insert each row as it arrives)")
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	@Min(1)
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	@ModuleOption("the time in milliseconds after which rows that do not fill a batch are inserted, when batching")
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	@ModuleOption("whether to insert a batch with a single multi-row VALUES statement rather than a JDBC batch, when batching")
+	public void setMultiRowInsert(boolean multiRowInsert) {
+		this.multiRowInsert = multiRowInsert;
+	}
+
+	public boolean isMultiRowInsert() {
+		return multiRowInsert;
+	}
+
+	@Override
+	public String[] profilesToActivate() {
+		return new String[] { batchSize > 1 ? BATCHED_PROFILE : SINGLE_ROW_PROFILE };
+	}
+
 	public static class JdbcSinkImportToJdbcMixin extends AbstractImportToJdbcOptionsMetadata {
 
 		/**
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.xd.test.MessageHandlerTestSupport;
+
+/**
+ * @since 1.3.2
+ */
+public class BatchingJdbcMessageHandlerTests {
+
+	@Rule
+	public MessageHandlerTestSupport support = new MessageHandlerTestSupport();
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private BatchingJdbcMessageHandler handler;
+
+	@Before
+	public void setUp() {
+		database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL).build();
+		jdbcTemplate = new JdbcTemplate(database);
+		createTable();
+		handler = new BatchingJdbcMessageHandler(database, "test", "id, user_name");
+		handler.setBeanFactory(support.getBeanFactory());
+		handler.setBatchSize(3);
+		handler.setIdleTimeout(0);
+	}
+
+	@After
+	public void tearDown() {
+		database.shutdown();
+	}
+
+	@Test
+	public void rowsInsertedByBatch() throws Exception {
+		handler.afterPropertiesSet();
+		sendRows(1, 7);
+		assertEquals(6, count());
+		handler.destroy();
+		assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7), ids());
+		assertEquals("user7", jdbcTemplate.queryForObject("select user_name from test where id = 7", String.class));
+	}
+
+	@Test
+	public void rowsInsertedByMultiRowInsert() throws Exception {
+		handler.setMultiRowInsert(true);
+		handler.afterPropertiesSet();
+		sendRows(1, 5);
+		assertEquals(3, count());
+		handler.destroy();
+		assertEquals(Arrays.asList(1, 2, 3, 4, 5), ids());
+	}
+
+	@Test
+	public void failedBatchInsertedRowByRow() throws Exception {
+		jdbcTemplate.update("insert into test (id, user_name) values (2, 'existing')");
+		handler.afterPropertiesSet();
+		sendRows(1, 3);
+		assertEquals(Arrays.asList(1, 2, 3), ids());
+		assertEquals("existing", jdbcTemplate.queryForObject("select user_name from test where id = 2", String.class));
+		assertEquals(1, handler.getFailedRowCount());
+		handler.destroy();
+	}
+
+	@Test
+	public void partialBatchInsertedWhenIdle() throws Exception {
+		handler.setIdleTimeout(50);
+		handler.afterPropertiesSet();
+		sendRows(1, 2);
+		assertTrue(support.waitFor(countIs(2)));
+		handler.destroy();
+	}
+
+	@Test
+	public void rowsKeptWhenBatchCannotBeWritten() throws Exception {
+		handler.afterPropertiesSet();
+		jdbcTemplate.execute("drop table test");
+		sendRows(1, 2);
+		try {
+			sendRows(3, 3);
+			fail("expected the batch to fail");
+		}
+		catch (MessagingException e) {
+			// the third row is handed back to the caller
+		}
+		assertEquals(2, handler.getBufferedCount());
+		createTable();
+		handler.destroy();
+		assertEquals(Arrays.asList(1, 2), ids());
+		assertEquals(0, handler.getFailedRowCount());
+	}
+
+	@Test
+	public void idleRowsWrittenOnTaskExecutor() throws Exception {
+		final AtomicInteger executions = new AtomicInteger();
+		handler.setTaskExecutor(new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				executions.incrementAndGet();
+				new Thread(command).start();
+			}
+
+		});
+		handler.setIdleTimeout(50);
+		handler.afterPropertiesSet();
+		sendRows(1, 2);
+		assertTrue(support.waitFor(countIs(2)));
+		assertTrue(executions.get() > 0);
+		handler.destroy();
+	}
+
+	@Test
+	public void idleFlushErrorSentToErrorChannelAndRowsKept() throws Exception {
+		handler.setIdleTimeout(50);
+		handler.afterPropertiesSet();
+		jdbcTemplate.execute("drop table test");
+		sendRows(1, 2);
+		assertTrue(support.getErrorChannel().receive(10000) instanceof ErrorMessage);
+		assertEquals(2, handler.getBufferedCount());
+		createTable();
+		assertTrue(support.waitFor(countIs(2)));
+		assertEquals(Arrays.asList(1, 2), ids());
+		handler.destroy();
+	}
+
+	private void createTable() {
+		jdbcTemplate.execute("create table test (id int primary key, user_name varchar(20))");
+	}
+
+	private Callable<Boolean> countIs(final int expected) {
+		return new Callable<Boolean>() {
+
+			@Override
+			public Boolean call() {
+				return count() == expected;
+			}
+
+		};
+	}
+
+	private void sendRows(int from, int to) {
+		for (int id = from; id <= to; id++) {
+			Map<String, Object> row = new HashMap<String, Object>();
+			row.put("id", id);
+			row.put("user_name", "user" + id);
+			handler.handleMessage(MessageBuilder.withPayload(row).build());
+		}
+	}
+
+	private int count() {
+		return jdbcTemplate.queryForObject("select count(*) from test", Integer.class);
+	}
+
+	private Object ids() {
+		return jdbcTemplate.queryForList("select id from test order by id", Integer.class);
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.mongodb;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Counts and latencies of the bulk inserts of a {@link BulkMongoDbMessageHandler}.
+ *
+ * @since 1.3.2
+ */
+@ManagedResource
+public class BulkInsertMetrics {
+
+	private final AtomicLong batches = new AtomicLong();
+
+	private final AtomicLong failedBatches = new AtomicLong();
+
+	private final AtomicLong insertedDocuments = new AtomicLong();
+
+	private final AtomicLong failedDocuments = new AtomicLong();
+
+	private final AtomicLong totalLatency = new AtomicLong();
+
+	private final AtomicLong maxLatency = new AtomicLong();
+
+	private volatile long lastLatency;
+
+	/**
+	 * Record a bulk insert.
+	 *
+	 * @param inserted the number of documents inserted
+	 * @param failed the number of documents that were rejected and skipped
+	 * @param latency the time the bulk insert took, in nanoseconds
+	 */
+	public void recordBatch(int inserted, int failed, long latency) {
+		this.batches.incrementAndGet();
+		if (failed > 0) {
+			this.failedBatches.incrementAndGet();
+		}
+		this.insertedDocuments.addAndGet(inserted);
+		this.failedDocuments.addAndGet(failed);
+		recordLatency(latency);
+	}
+
+	/**
+	 * Record a bulk insert that failed as a whole, and whose documents are to be inserted again.
+	 *
+	 * @param latency the time the bulk insert took, in nanoseconds
+	 */
+	public void recordFailedBatch(long latency) {
+		this.batches.incrementAndGet();
+		this.failedBatches.incrementAndGet();
+		recordLatency(latency);
+	}
+
+	private void recordLatency(long latency) {
+		this.totalLatency.addAndGet(latency);
+		this.lastLatency = latency;
+		long max = this.maxLatency.get();
+		while (latency > max && !this.maxLatency.compareAndSet(max, latency)) {
+			max = this.maxLatency.get();
+		}
+	}
+
+	@ManagedAttribute(description = "Bulk inserts executed")
+	public long getBatchCount() {
+		return this.batches.get();
+	}
+
+	@ManagedAttribute(description = "Bulk inserts that failed to insert some or all of their documents")
+	public long getBatchErrorCount() {
+		return this.failedBatches.get();
+	}
+
+	@ManagedAttribute(description = "Documents inserted")
+	public long getInsertedCount() {
+		return this.insertedDocuments.get();
+	}
+
+	@ManagedAttribute(description = "Documents that were rejected and skipped")
+	public long getFailedCount() {
+		return this.failedDocuments.get();
+	}
+
+	@ManagedAttribute(description = "Duration of the last bulk insert, in milliseconds")
+	public double getLastBatchDuration() {
+		return this.lastLatency / 1000000d;
+	}
+
+	@ManagedAttribute(description = "Mean duration of the bulk inserts, in milliseconds")
+	public double getMeanBatchDuration() {
+		long batches = this.batches.get();
+		return batches == 0 ? 0 : this.totalLatency.get() / 1000000d / batches;
+	}
+
+	@ManagedAttribute(description = "Longest duration of a bulk insert, in milliseconds")
+	public double getMaxBatchDuration() {
+		return this.maxLatency.get() / 1000000d;
+	}
+
+}
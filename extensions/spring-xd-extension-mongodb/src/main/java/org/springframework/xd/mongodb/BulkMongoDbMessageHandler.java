@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.mongodb;
+
+import java.util.List;
+
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.messaging.Message;
+import org.springframework.util.Assert;
+import org.springframework.xd.integration.batching.AbstractBatchingMessageHandler;
+import org.springframework.xd.tuple.Tuple;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+import com.mongodb.util.JSON;
+
+/**
+ * Inserts message payloads into a MongoDB collection with unordered bulk inserts, rather than saving each of them with
+ * its own request.
+ * <p>
+ * Payloads are converted to documents as they are received: {@link DBObject}s are inserted as is, {@link Tuple}s are
+ * converted with a {@link TupleWriteConverter}, {@code String}s are parsed as JSON documents and other objects are
+ * converted by the {@link MongoOperations}' converter. Documents are buffered and released as described in
+ * {@link AbstractBatchingMessageHandler}, each batch being inserted with a single unordered bulk operation,
+ * acknowledged according to the configured {@link WriteConcern}.
+ * <p>
+ * As the bulk operations are unordered, a document that cannot be inserted, for instance because its {@code _id}
+ * is already used, does not prevent the others from being inserted; such documents are logged, counted in the
+ * {@link BulkInsertMetrics} and skipped. Unlike with {@code MongoOperations.save()}, existing documents are not
+ * replaced. If a bulk operation fails as a whole, for instance because the server cannot be reached, its documents
+ * stay buffered and the error is thrown. As the driver assigns an {@code _id} to the documents that have none before
+ * sending them, the documents that such a bulk operation did insert are rejected as duplicates when it is retried.
+ *
+ * @since 1.3.2
+ */
+public class BulkMongoDbMessageHandler extends AbstractBatchingMessageHandler<DBObject> {
+
+	private final MongoOperations mongoOperations;
+
+	private final String collectionName;
+
+	private final TupleWriteConverter tupleWriteConverter = new TupleWriteConverter();
+
+	private volatile WriteConcern writeConcern = WriteConcern.ACKNOWLEDGED;
+
+	private volatile BulkInsertMetrics metrics = new BulkInsertMetrics();
+
+	/**
+	 * @param mongoOperations the operations used to access the collection and convert payloads
+	 * @param collectionName the collection to insert documents into
+	 */
+	public BulkMongoDbMessageHandler(MongoOperations mongoOperations, String collectionName) {
+		Assert.notNull(mongoOperations, "mongoOperations must not be null");
+		Assert.hasText(collectionName, "collectionName must not be empty");
+		this.mongoOperations = mongoOperations;
+		this.collectionName = collectionName;
+	}
+
+	/**
+	 * Set the write concern each bulk operation is acknowledged with, by name (for instance {@code SAFE} or
+	 * {@code MAJORITY}).
+	 *
+	 * @param writeConcern the name of the write concern
+	 */
+	public void setWriteConcern(String writeConcern) {
+		WriteConcern concern = WriteConcern.valueOf(writeConcern);
+		Assert.notNull(concern, "unknown write concern: " + writeConcern);
+		this.writeConcern = concern;
+	}
+
+	/**
+	 * Set the metrics the bulk operations are recorded to.
+	 *
+	 * @param metrics the metrics
+	 */
+	public void setMetrics(BulkInsertMetrics metrics) {
+		Assert.notNull(metrics, "metrics must not be null");
+		this.metrics = metrics;
+	}
+
+	public BulkInsertMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "mongo:outbound-channel-adapter";
+	}
+
+	@Override
+	protected DBObject toItem(Message<?> message) {
+		return toDocument(message.getPayload());
+	}
+
+	private DBObject toDocument(Object payload) {
+		if (payload instanceof DBObject) {
+			return (DBObject) payload;
+		}
+		if (payload instanceof Tuple) {
+			return this.tupleWriteConverter.convert((Tuple) payload);
+		}
+		if (payload instanceof String) {
+			Object parsed = JSON.parse((String) payload);
+			Assert.isInstanceOf(DBObject.class, parsed, "the payload is not a JSON document");
+			return (DBObject) parsed;
+		}
+		DBObject document = new BasicDBObject();
+		this.mongoOperations.getConverter().write(payload, document);
+		return document;
+	}
+
+	/**
+	 * Insert a batch with an unordered bulk operation. The documents rejected by the server are skipped, but if the
+	 * operation fails as a whole the batch is left untouched.
+	 */
+	@Override
+	protected void write(final List<DBObject> batch) {
+		long start = System.nanoTime();
+		BulkWriteException exception;
+		try {
+			exception = this.mongoOperations.execute(this.collectionName,
+					new CollectionCallback<BulkWriteException>() {
+
+						@Override
+						public BulkWriteException doInCollection(DBCollection collection) {
+							BulkWriteOperation bulk = collection.initializeUnorderedBulkOperation();
+							for (DBObject document : batch) {
+								bulk.insert(document);
+							}
+							try {
+								bulk.execute(writeConcern);
+								return null;
+							}
+							catch (BulkWriteException e) {
+								return e;
+							}
+						}
+
+					});
+		}
+		catch (RuntimeException e) {
+			this.metrics.recordFailedBatch(System.nanoTime() - start);
+			throw e;
+		}
+		int inserted;
+		int failed;
+		if (exception == null) {
+			inserted = batch.size();
+			failed = 0;
+		}
+		else {
+			failed = exception.getWriteErrors().size();
+			BulkWriteResult result = exception.getWriteResult();
+			inserted = result.isAcknowledged() ? result.getInsertedCount() : batch.size() - failed;
+			logWriteErrors(batch, exception);
+		}
+		long latency = System.nanoTime() - start;
+		this.metrics.recordBatch(inserted, failed, latency);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Inserted " + inserted + " of " + batch.size() + " documents into " + this.collectionName
+					+ " in " + (latency / 1000000) + " ms");
+		}
+	}
+
+	private void logWriteErrors(List<DBObject> batch, BulkWriteException exception) {
+		if (exception.getWriteConcernError() != null) {
+			logger.error("Write concern error inserting into " + this.collectionName + ": "
+					+ exception.getWriteConcernError().getMessage());
+		}
+		for (BulkWriteError error : exception.getWriteErrors()) {
+			logger.error("Failed to insert " + batch.get(error.getIndex()) + " into " + this.collectionName + ": "
+					+ error.getMessage() + " (code " + error.getCode() + ")");
+		}
+	}
+
+}
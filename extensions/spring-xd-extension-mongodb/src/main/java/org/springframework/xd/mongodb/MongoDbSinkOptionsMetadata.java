@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.mongodb;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.xd.module.options.mixins.IntoMongoDbOptionMixin;
+import org.springframework.xd.module.options.spi.Mixin;
+import org.springframework.xd.module.options.spi.ModuleOption;
+import org.springframework.xd.module.options.spi.ProfileNamesProvider;
+
+/**
+ * Captures module options for the "mongodb" sink module.
+ *
+ * @since 1.3.2
+ */
+@Mixin(IntoMongoDbOptionMixin.Stream.class)
+public class MongoDbSinkOptionsMetadata implements ProfileNamesProvider {
+
+	private static final String SINGLE_PROFILE = "single";
+
+	private static final String BULK_PROFILE = "bulk";
+
+	private int batchSize = 1;
+
+	private long idleTimeout = 1000;
+
+	@ModuleOption("the number of documents inserted by each unordered bulk insert (1 to save each document as it arrives)")
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	@Min(1)
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	@ModuleOption("the time in milliseconds after which documents that do not fill a batch are inserted, when batching")
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	@Override
+	public String[] profilesToActivate() {
+		return new String[] { batchSize > 1 ? BULK_PROFILE : SINGLE_PROFILE };
+	}
+
+}
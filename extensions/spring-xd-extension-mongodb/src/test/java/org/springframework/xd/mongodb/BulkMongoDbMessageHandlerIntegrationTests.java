@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.mongodb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.UnknownHostException;
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.xd.test.MessageHandlerTestSupport;
+import org.springframework.xd.test.mongodb.MongoTestSupport;
+import org.springframework.xd.tuple.TupleBuilder;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ServerAddress;
+
+/**
+ * Runs {@link BulkMongoDbMessageHandler} against a MongoDB server on localhost, and is skipped if none is running.
+ *
+ * @since 1.3.2
+ */
+public class BulkMongoDbMessageHandlerIntegrationTests {
+
+	private static final String DATABASE = "xd-bulk-tests";
+
+	private static final String COLLECTION = "test";
+
+	@Rule
+	public MongoTestSupport mongoAvailableRule = new MongoTestSupport();
+
+	@Rule
+	public MessageHandlerTestSupport support = new MessageHandlerTestSupport();
+
+	private DBCollection collection;
+
+	private BulkMongoDbMessageHandler handler;
+
+	@Before
+	public void setUp() {
+		MongoTemplate mongoTemplate = new MongoTemplate(mongoAvailableRule.getResource(), DATABASE);
+		collection = mongoTemplate.getCollection(COLLECTION);
+		collection.remove(new BasicDBObject());
+		handler = new BulkMongoDbMessageHandler(mongoTemplate, COLLECTION);
+		handler.setBeanFactory(support.getBeanFactory());
+		handler.setBatchSize(3);
+		handler.setIdleTimeout(0);
+	}
+
+	@After
+	public void tearDown() {
+		handler.destroy();
+	}
+
+	@Test
+	public void documentsInsertedByBatch() throws Exception {
+		handler.afterPropertiesSet();
+		sendDocuments(handler, 1, 7);
+		assertEquals(6, collection.count());
+		handler.destroy();
+		assertEquals(7, collection.count());
+		assertEquals("user7", collection.findOne(7).get("name"));
+		BulkInsertMetrics metrics = handler.getMetrics();
+		assertEquals(3, metrics.getBatchCount());
+		assertEquals(7, metrics.getInsertedCount());
+		assertEquals(0, metrics.getFailedCount());
+	}
+
+	@Test
+	public void payloadsConverted() throws Exception {
+		handler.afterPropertiesSet();
+		handler.handleMessage(MessageBuilder.withPayload("{\"_id\": 1, \"name\": \"foo\"}").build());
+		handler.handleMessage(MessageBuilder.withPayload(TupleBuilder.tuple().of("_id", 2, "name", "bar")).build());
+		handler.destroy();
+		assertEquals("foo", collection.findOne(1).get("name"));
+		assertEquals("bar", collection.findOne(2).get("name"));
+	}
+
+	@Test
+	public void writeConcernAppliedToBatches() throws Exception {
+		handler.setWriteConcern("MAJORITY");
+		handler.afterPropertiesSet();
+		sendDocuments(handler, 1, 3);
+		assertEquals(3, collection.count());
+		assertEquals(3, handler.getMetrics().getInsertedCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownWriteConcernRejected() {
+		handler.setWriteConcern("SOMETIMES");
+	}
+
+	@Test
+	public void rejectedDocumentsSkipped() throws Exception {
+		collection.insert(new BasicDBObject("_id", 2).append("name", "existing"));
+		handler.afterPropertiesSet();
+		sendDocuments(handler, 1, 3);
+		assertEquals(3, collection.count());
+		assertEquals("existing", collection.findOne(2).get("name"));
+		BulkInsertMetrics metrics = handler.getMetrics();
+		assertEquals(1, metrics.getBatchErrorCount());
+		assertEquals(2, metrics.getInsertedCount());
+		assertEquals(1, metrics.getFailedCount());
+		assertEquals(0, handler.getBufferedCount());
+	}
+
+	@Test
+	public void partialBatchInsertedWhenIdle() throws Exception {
+		handler.setIdleTimeout(50);
+		handler.afterPropertiesSet();
+		sendDocuments(handler, 1, 2);
+		assertTrue(support.waitFor(countIs(2)));
+	}
+
+	@Test
+	public void documentsKeptWhenBatchCannotBeInserted() throws Exception {
+		MongoClient unavailable = unavailableServer();
+		try {
+			BulkMongoDbMessageHandler failingHandler = new BulkMongoDbMessageHandler(
+					new MongoTemplate(unavailable, DATABASE), COLLECTION);
+			failingHandler.setBeanFactory(support.getBeanFactory());
+			failingHandler.setBatchSize(3);
+			failingHandler.setIdleTimeout(0);
+			failingHandler.afterPropertiesSet();
+			sendDocuments(failingHandler, 1, 2);
+			try {
+				sendDocuments(failingHandler, 3, 3);
+				fail("expected the batch to fail");
+			}
+			catch (MessagingException e) {
+				// the third document is handed back to the caller
+			}
+			assertEquals(2, failingHandler.getBufferedCount());
+			BulkInsertMetrics metrics = failingHandler.getMetrics();
+			assertEquals(1, metrics.getBatchErrorCount());
+			assertEquals(0, metrics.getFailedCount());
+		}
+		finally {
+			unavailable.close();
+		}
+	}
+
+	@Test
+	public void idleInsertErrorSentToErrorChannelAndDocumentsKept() throws Exception {
+		MongoClient unavailable = unavailableServer();
+		try {
+			BulkMongoDbMessageHandler failingHandler = new BulkMongoDbMessageHandler(
+					new MongoTemplate(unavailable, DATABASE), COLLECTION);
+			failingHandler.setBeanFactory(support.getBeanFactory());
+			failingHandler.setBatchSize(3);
+			failingHandler.setIdleTimeout(50);
+			failingHandler.afterPropertiesSet();
+			sendDocuments(failingHandler, 1, 2);
+			assertTrue(support.getErrorChannel().receive(10000) instanceof ErrorMessage);
+			assertEquals(2, failingHandler.getBufferedCount());
+			try {
+				failingHandler.destroy();
+				fail("expected the buffered documents to fail again");
+			}
+			catch (DataAccessException e) {
+				// nothing is lost silently on shutdown either
+			}
+		}
+		finally {
+			unavailable.close();
+		}
+	}
+
+	/**
+	 * Return a client of a server that is not running, whose operations fail as a whole.
+	 */
+	private MongoClient unavailableServer() throws UnknownHostException {
+		return new MongoClient(new ServerAddress("localhost", 1),
+				MongoClientOptions.builder().connectTimeout(100).maxWaitTime(100).build());
+	}
+
+	private Callable<Boolean> countIs(final int expected) {
+		return new Callable<Boolean>() {
+
+			@Override
+			public Boolean call() {
+				return collection.count() == expected;
+			}
+
+		};
+	}
+
+	private void sendDocuments(BulkMongoDbMessageHandler handler, int from, int to) {
+		for (int id = from; id <= to; id++) {
+			handler.handleMessage(MessageBuilder.withPayload(new BasicDBObject("_id", id).append("name", "user" + id))
+					.build());
+		}
+	}
+
+}
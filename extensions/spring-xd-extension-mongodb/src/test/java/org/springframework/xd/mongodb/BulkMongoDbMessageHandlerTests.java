@@ -0,0 +1,289 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.mongodb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.xd.test.MessageHandlerTestSupport;
+import org.springframework.xd.tuple.TupleBuilder;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+
+/**
+ * Unit tests of {@link BulkMongoDbMessageHandler} against a mocked collection; see
+ * {@link BulkMongoDbMessageHandlerIntegrationTests} for the tests against a server.
+ *
+ * @since 1.3.2
+ */
+public class BulkMongoDbMessageHandlerTests {
+
+	@Rule
+	public MessageHandlerTestSupport support = new MessageHandlerTestSupport();
+
+	private final List<DBObject> inserted = new ArrayList<DBObject>();
+
+	private final List<WriteConcern> writeConcerns = new ArrayList<WriteConcern>();
+
+	private final AtomicBoolean unavailable = new AtomicBoolean();
+
+	private final List<Object> rejectedIds = new ArrayList<Object>();
+
+	private MongoOperations mongoOperations;
+
+	private DBCollection collection;
+
+	private BulkMongoDbMessageHandler handler;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		mongoOperations = mock(MongoOperations.class);
+		collection = mock(DBCollection.class);
+		when(collection.initializeUnorderedBulkOperation()).thenAnswer(new Answer<BulkWriteOperation>() {
+
+			@Override
+			public BulkWriteOperation answer(InvocationOnMock invocation) {
+				BulkWriteOperation bulk = mock(BulkWriteOperation.class);
+				final List<DBObject> batch = new ArrayList<DBObject>();
+				doAnswer(new Answer<Void>() {
+
+					@Override
+					public Void answer(InvocationOnMock invocation) {
+						batch.add((DBObject) invocation.getArguments()[0]);
+						return null;
+					}
+
+				}).when(bulk).insert(any(DBObject.class));
+				when(bulk.execute(any(WriteConcern.class))).thenAnswer(new Answer<Object>() {
+
+					@Override
+					public Object answer(InvocationOnMock invocation) {
+						return execute(batch, (WriteConcern) invocation.getArguments()[0]);
+					}
+
+				});
+				return bulk;
+			}
+
+		});
+		when(mongoOperations.execute(eq("test"), any(CollectionCallback.class))).thenAnswer(new Answer<Object>() {
+
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Exception {
+				if (unavailable.get()) {
+					throw new DataAccessResourceFailureException("down");
+				}
+				return ((CollectionCallback<?>) invocation.getArguments()[1]).doInCollection(collection);
+			}
+
+		});
+		handler = new BulkMongoDbMessageHandler(mongoOperations, "test");
+		handler.setBeanFactory(support.getBeanFactory());
+		handler.setBatchSize(3);
+		handler.setIdleTimeout(0);
+	}
+
+	/**
+	 * Insert a batch as an unordered bulk operation would, rejecting the documents whose id is in
+	 * {@link #rejectedIds}.
+	 */
+	private BulkWriteResult execute(List<DBObject> batch, WriteConcern writeConcern) {
+		List<BulkWriteError> errors = new ArrayList<BulkWriteError>();
+		synchronized (inserted) {
+			writeConcerns.add(writeConcern);
+			for (int i = 0; i < batch.size(); i++) {
+				if (rejectedIds.contains(batch.get(i).get("_id"))) {
+					errors.add(new BulkWriteError(11000, "duplicate key", new BasicDBObject(), i));
+				}
+				else {
+					inserted.add(batch.get(i));
+				}
+			}
+		}
+		BulkWriteResult result = mock(BulkWriteResult.class);
+		when(result.isAcknowledged()).thenReturn(true);
+		when(result.getInsertedCount()).thenReturn(batch.size() - errors.size());
+		if (!errors.isEmpty()) {
+			BulkWriteException exception = mock(BulkWriteException.class);
+			when(exception.getWriteErrors()).thenReturn(errors);
+			when(exception.getWriteResult()).thenReturn(result);
+			throw exception;
+		}
+		return result;
+	}
+
+	@After
+	public void tearDown() {
+		unavailable.set(false);
+		handler.destroy();
+	}
+
+	@Test
+	public void documentsInsertedByBatch() throws Exception {
+		handler.afterPropertiesSet();
+		sendDocuments(1, 7);
+		assertEquals(6, insertedCount());
+		verify(collection, times(2)).initializeUnorderedBulkOperation();
+		handler.destroy();
+		assertEquals(7, insertedCount());
+		assertEquals(7, inserted.get(6).get("_id"));
+		BulkInsertMetrics metrics = handler.getMetrics();
+		assertEquals(3, metrics.getBatchCount());
+		assertEquals(7, metrics.getInsertedCount());
+		assertEquals(0, metrics.getFailedCount());
+	}
+
+	@Test
+	public void payloadsConverted() throws Exception {
+		handler.afterPropertiesSet();
+		handler.handleMessage(MessageBuilder.withPayload("{\"_id\": 1, \"name\": \"foo\"}").build());
+		handler.handleMessage(MessageBuilder.withPayload(TupleBuilder.tuple().of("_id", 2, "name", "bar")).build());
+		handler.destroy();
+		assertEquals(2, insertedCount());
+		assertEquals("foo", inserted.get(0).get("name"));
+		assertEquals("bar", inserted.get(1).get("name"));
+	}
+
+	@Test
+	public void writeConcernAppliedToBatches() throws Exception {
+		handler.setWriteConcern("MAJORITY");
+		handler.afterPropertiesSet();
+		sendDocuments(1, 3);
+		assertEquals(3, insertedCount());
+		assertEquals(WriteConcern.MAJORITY, writeConcerns.get(0));
+	}
+
+	@Test
+	public void rejectedDocumentsSkipped() throws Exception {
+		rejectedIds.add(2);
+		handler.afterPropertiesSet();
+		sendDocuments(1, 3);
+		assertEquals(2, insertedCount());
+		BulkInsertMetrics metrics = handler.getMetrics();
+		assertEquals(1, metrics.getBatchErrorCount());
+		assertEquals(2, metrics.getInsertedCount());
+		assertEquals(1, metrics.getFailedCount());
+		assertEquals(0, handler.getBufferedCount());
+	}
+
+	@Test
+	public void documentsKeptWhenBatchCannotBeInserted() throws Exception {
+		handler.afterPropertiesSet();
+		unavailable.set(true);
+		sendDocuments(1, 2);
+		try {
+			sendDocuments(3, 3);
+			fail("expected the batch to fail");
+		}
+		catch (MessagingException e) {
+			// the third document is handed back to the caller
+		}
+		assertEquals(2, handler.getBufferedCount());
+		BulkInsertMetrics metrics = handler.getMetrics();
+		assertEquals(1, metrics.getBatchErrorCount());
+		assertEquals(0, metrics.getFailedCount());
+		unavailable.set(false);
+		sendDocuments(4, 4);
+		assertEquals(3, insertedCount());
+		assertEquals(1, inserted.get(0).get("_id"));
+		assertEquals(2, inserted.get(1).get("_id"));
+		assertEquals(4, inserted.get(2).get("_id"));
+		assertEquals(0, handler.getBufferedCount());
+	}
+
+	@Test
+	public void partialBatchInsertedWhenIdle() throws Exception {
+		handler.setIdleTimeout(50);
+		handler.afterPropertiesSet();
+		sendDocuments(1, 2);
+		assertTrue(support.waitFor(insertedCountIs(2)));
+	}
+
+	@Test
+	public void idleInsertErrorSentToErrorChannelAndDocumentsKept() throws Exception {
+		handler.setIdleTimeout(50);
+		handler.afterPropertiesSet();
+		unavailable.set(true);
+		sendDocuments(1, 2);
+		assertTrue(support.getErrorChannel().receive(10000) instanceof ErrorMessage);
+		assertEquals(2, handler.getBufferedCount());
+		assertEquals(0, insertedCount());
+		unavailable.set(false);
+		assertTrue(support.waitFor(insertedCountIs(2)));
+		assertEquals(Collections.singletonList(WriteConcern.ACKNOWLEDGED), writeConcerns);
+	}
+
+	private Callable<Boolean> insertedCountIs(final int expected) {
+		return new Callable<Boolean>() {
+
+			@Override
+			public Boolean call() {
+				return insertedCount() == expected;
+			}
+
+		};
+	}
+
+	private void sendDocuments(int from, int to) {
+		for (int id = from; id <= to; id++) {
+			handler.handleMessage(MessageBuilder.withPayload(new BasicDBObject("_id", id).append("name", "user" + id))
+					.build());
+		}
+	}
+
+	private int insertedCount() {
+		synchronized (inserted) {
+			return inserted.size();
+		}
+	}
+
+}
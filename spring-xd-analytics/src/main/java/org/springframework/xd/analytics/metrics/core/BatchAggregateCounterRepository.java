@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+import java.util.Map;
+
+import org.joda.time.DateTime;
+
+/**
+ * An {@link AggregateCounterRepository} that can apply many increments of a counter in a single operation.
+ *
+ * @since 1.3.2
+ */
+public interface BatchAggregateCounterRepository extends AggregateCounterRepository {
+
+	/**
+	 * Increments the named counter by each of the given amounts, for the instant it is keyed by. Implementations
+	 * should merge increments that fall in the same buckets and write them in as few round trips as possible.
+	 *
+	 * @param name the counter to increment
+	 * @param amounts the amounts to add to the counter, by instant
+	 */
+	void incrementAll(String name, Map<DateTime, Long> amounts);
+
+}
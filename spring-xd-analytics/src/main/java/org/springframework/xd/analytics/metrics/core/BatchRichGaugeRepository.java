@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+/**
+ * A {@link RichGaugeRepository} that can record many values of a gauge in a single operation.
+ *
+ * @since 1.3.2
+ */
+public interface BatchRichGaugeRepository extends RichGaugeRepository {
+
+	/**
+	 * Record the given values of the gauge, in order, with the same outcome as calling
+	 * {@link #recordValue(String, double, double)} for each of them.
+	 *
+	 * @param name the gauge name
+	 * @param values the values of the gauge, oldest first
+	 * @param alpha the smoothing factor to use
+	 * @throws IllegalArgumentException in case the given name is null
+	 */
+	void recordValues(String name, double[] values, double alpha);
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.springframework.util.Assert;
+
+/**
+ * A gauge that keeps the distribution of the values recorded in it, so that percentiles can be queried.
+ * <p>
+ * Values are counted in logarithmic buckets, whose bounds grow by a constant factor, so that any percentile is
+ * reported within a relative error of {@value #RELATIVE_ACCURACY} of a value actually recorded, whatever the range of
+ * the values. Values below {@value #MIN_VALUE} are counted as zero. As the buckets are the same for every histogram,
+ * histograms recorded separately, for instance by partitioned sinks or over successive periods, merge exactly by
+ * adding their bucket counts.
+ *
+ * @since 1.3.2
+ */
+public final class HistogramGauge implements Metric {
+
+	/**
+	 * The maximum relative error of the reported percentiles.
+	 */
+	public static final double RELATIVE_ACCURACY = 0.01;
+
+	/**
+	 * The smallest value that is not counted as zero.
+	 */
+	public static final double MIN_VALUE = 1e-9;
+
+	private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+
+	private static final double LOG_GAMMA = Math.log(GAMMA);
+
+	private final String name;
+
+	private final SortedMap<Integer, Long> buckets;
+
+	private long zeroCount;
+
+	private long count;
+
+	private double sum;
+
+	private double min;
+
+	private double max;
+
+	public HistogramGauge(String name) {
+		this(name, new TreeMap<Integer, Long>(), 0, 0, 0.0, 0.0, 0.0);
+	}
+
+	/**
+	 * @param name the gauge name
+	 * @param buckets the number of values counted in each bucket, by {@link #bucketIndex(double) index}
+	 * @param zeroCount the number of values counted as zero
+	 * @param count the number of values
+	 * @param sum the sum of the values
+	 * @param min the smallest value
+	 * @param max the largest value
+	 */
+	public HistogramGauge(String name, Map<Integer, Long> buckets, long zeroCount, long count, double sum,
+			double min, double max) {
+		Assert.notNull(name, "The gauge name cannot be null or empty");
+		Assert.notNull(buckets, "The buckets cannot be null");
+		this.name = name;
+		this.buckets = new TreeMap<Integer, Long>(buckets);
+		this.zeroCount = zeroCount;
+		this.count = count;
+		this.sum = sum;
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * Return the index of the bucket that counts the given value, which must be at least {@link #MIN_VALUE}.
+	 */
+	public static int bucketIndex(double value) {
+		return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+	}
+
+	/**
+	 * Return the value that represents the bucket with the given index, which is within
+	 * {@link #RELATIVE_ACCURACY} of any value counted in it.
+	 */
+	public static double bucketValue(int index) {
+		return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the number of values counted in each bucket, by index, in increasing order
+	 */
+	public SortedMap<Integer, Long> getBuckets() {
+		return Collections.unmodifiableSortedMap(buckets);
+	}
+
+	/**
+	 * @return the number of values counted as zero
+	 */
+	public long getZeroCount() {
+		return zeroCount;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getSum() {
+		return sum;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return count == 0 ? 0.0 : sum / count;
+	}
+
+	/**
+	 * Return an estimate of the value below which the given percentage of the values fall.
+	 *
+	 * @param percentile the percentage, between 0 and 100
+	 * @return the estimated value, or 0 if no value has been recorded
+	 */
+	public double getValueAtPercentile(double percentile) {
+		Assert.isTrue(percentile >= 0.0 && percentile <= 100.0, "percentile must be between 0 and 100");
+		if (count == 0) {
+			return 0.0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+		// the extremes are known exactly
+		if (rank == 1 || rank <= zeroCount) {
+			return min;
+		}
+		if (rank == count) {
+			return max;
+		}
+		long seen = zeroCount;
+		for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+			seen += bucket.getValue();
+			if (seen >= rank) {
+				return Math.min(max, Math.max(min, bucketValue(bucket.getKey())));
+			}
+		}
+		return max;
+	}
+
+	HistogramGauge record(double value) {
+		Assert.isTrue(value >= 0.0, "Histogram gauge values must not be negative");
+		if (value < MIN_VALUE) {
+			zeroCount++;
+		}
+		else {
+			int index = bucketIndex(value);
+			Long current = buckets.get(index);
+			buckets.put(index, current == null ? 1L : current + 1);
+		}
+		if (count == 0) {
+			min = value;
+			max = value;
+		}
+		else if (value > max) {
+			max = value;
+		}
+		else if (value < min) {
+			min = value;
+		}
+		count++;
+		sum += value;
+		return this;
+	}
+
+	HistogramGauge merge(HistogramGauge other) {
+		if (other.count == 0) {
+			return this;
+		}
+		for (Map.Entry<Integer, Long> bucket : other.buckets.entrySet()) {
+			Long current = buckets.get(bucket.getKey());
+			buckets.put(bucket.getKey(), current == null ? bucket.getValue() : current + bucket.getValue());
+		}
+		min = count == 0 ? other.min : Math.min(min, other.min);
+		max = count == 0 ? other.max : Math.max(max, other.max);
+		zeroCount += other.zeroCount;
+		count += other.count;
+		sum += other.sum;
+		return this;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		return name.equals(((HistogramGauge) o).name);
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "HistogramGauge [name = " + name + ", count = " + count + ", min = " + min + ", max = " + max
+				+ ", mean = " + getMean() + "]";
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+
+/**
+ * A service for managing {@link HistogramGauge} instances.
+ * <p>
+ * Besides the histogram of all the values recorded in a gauge, which {@link #findOne(String)} returns,
+ * implementations keep a histogram per minute, for a limited time, so that percentiles can be queried over a recent
+ * window.
+ *
+ * @since 1.3.2
+ */
+public interface HistogramGaugeRepository extends MetricRepository<HistogramGauge> {
+
+	/**
+	 * Record a value in the gauge, at the current time, creating the gauge if necessary.
+	 *
+	 * @param name the gauge name
+	 * @param value the value, which must not be negative
+	 * @throws IllegalArgumentException in case the given name is null, or the value negative
+	 */
+	void recordValue(String name, double value);
+
+	/**
+	 * Record a value in the gauge, at the given time, creating the gauge if necessary.
+	 *
+	 * @param name the gauge name
+	 * @param value the value, which must not be negative
+	 * @param dateTime the time the value applies to
+	 * @throws IllegalArgumentException in case the given name is null, or the value negative
+	 */
+	void recordValue(String name, double value, DateTime dateTime);
+
+	/**
+	 * Return the histogram of the values recorded in the minutes that overlap the given interval.
+	 *
+	 * @param name the gauge name
+	 * @param interval the interval to query; minutes past the retention period are no longer counted
+	 * @return the merged histogram, or {@code null} if there is no such gauge
+	 */
+	HistogramGauge getHistogram(String name, Interval interval);
+
+	/**
+	 * Reset the gauge, discarding all the values recorded in it.
+	 *
+	 * @param name the gauge name
+	 * @throws IllegalArgumentException in case the given name is null
+	 */
+	void reset(String name);
+
+}
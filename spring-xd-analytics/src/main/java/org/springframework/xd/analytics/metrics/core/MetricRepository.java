@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.xd.analytics.metrics.core;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.CrudRepository;
 
 /**
@@ -29,4 +31,13 @@ import org.springframework.data.repository.CrudRepository;
  */
 public interface MetricRepository<M extends Metric> extends CrudRepository<M, String> {
 
+	/**
+	 * Return a page of the metrics whose name starts with the given prefix, ordered by name. Only the metrics of the
+	 * requested page are read, so that metrics can be listed without loading all of them.
+	 *
+	 * @param prefix the name prefix, or {@code null} or empty for all metrics
+	 * @param pageable the page to return; its sort, if any, is ignored
+	 */
+	Page<M> findByNameStartingWith(String prefix, Pageable pageable);
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,14 @@
 
 package org.springframework.xd.analytics.metrics.core;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableSet;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 
 /**
  * Utility class, primarily to avoid exposing mutable objects beyond the core package.
@@ -40,6 +47,58 @@ public final class MetricUtils {
 		return g.reset();
 	}
 
+	public static HistogramGauge recordHistogramValue(HistogramGauge h, double value) {
+		return h.record(value);
+	}
+
+	public static HistogramGauge mergeHistogram(HistogramGauge target, HistogramGauge source) {
+		return target.merge(source);
+	}
+
+	/**
+	 * Return the names, among the given ones, that start with the given prefix.
+	 *
+	 * @param names the names, in order
+	 * @param prefix the name prefix, or {@code null} or empty for all names
+	 * @return a view of the matching names
+	 */
+	public static NavigableSet<String> namesStartingWith(NavigableSet<String> names, String prefix) {
+		if (prefix == null || prefix.isEmpty()) {
+			return names;
+		}
+		return names.subSet(prefix, true, prefix + Character.MAX_VALUE, false);
+	}
+
+	/**
+	 * Read the requested page of the metrics whose name starts with the given prefix, for repositories that can list
+	 * the names of their metrics without reading them.
+	 *
+	 * @param repository the repository to read the metrics of the page from
+	 * @param names the names of all the metrics of the repository, in order
+	 * @param prefix the name prefix, or {@code null} or empty for all metrics
+	 * @param pageable the page to read
+	 */
+	public static <M extends Metric> Page<M> findPage(MetricRepository<M> repository, NavigableSet<String> names,
+			String prefix, Pageable pageable) {
+		NavigableSet<String> matching = namesStartingWith(names, prefix);
+		List<String> pageNames = new ArrayList<String>(pageable.getPageSize());
+		Iterator<String> it = matching.iterator();
+		int total = 0;
+		for (; it.hasNext(); total++) {
+			String name = it.next();
+			if (total >= pageable.getOffset() && pageNames.size() < pageable.getPageSize()) {
+				pageNames.add(name);
+			}
+		}
+		List<M> metrics = new ArrayList<M>(pageNames.size());
+		if (!pageNames.isEmpty()) {
+			for (M metric : repository.findAll(pageNames)) {
+				metrics.add(metric);
+			}
+		}
+		return new PageImpl<M>(metrics, pageable, total);
+	}
+
 	/**
 	 * Concatenate {@code size} many values from the passed in arrays, starting at offset {@code start}.
 	 */
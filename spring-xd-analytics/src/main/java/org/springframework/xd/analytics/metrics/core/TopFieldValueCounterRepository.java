@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+/**
+ * A {@link FieldValueCounterRepository} that stores a bounded summary of each counter rather than a count for every
+ * distinct value, for fields with too many distinct values to count exactly.
+ * <p>
+ * Each counter tracks at most a fixed number of values: once that many are tracked, a new value replaces the value
+ * with the lowest count, and inherits that count as its possible overestimation. The most frequent values are
+ * therefore found with bounded error, while the counts of rarely seen values are dropped. The number of distinct
+ * values is estimated separately. Consequently, {@link #findOne(String)} only reports the tracked values, and counters
+ * can not be decremented.
+ *
+ * @since 1.3.2
+ */
+public interface TopFieldValueCounterRepository extends FieldValueCounterRepository {
+
+	/**
+	 * Return the most frequent values of a counter.
+	 *
+	 * @param name the counter name
+	 * @param n the maximum number of values to return
+	 * @return the values with the highest counts, in decreasing order of count, or {@code null} if there is no such
+	 *         counter
+	 */
+	TopFieldValues findTop(String name, int n);
+
+	/**
+	 * Decrementing is not supported, as a value's count may have been dropped.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	void decrement(String name, String fieldName);
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.util.Assert;
+
+/**
+ * The most frequent values of a counter kept by a {@link TopFieldValueCounterRepository}, along with the bounds of
+ * their counts and an estimate of the number of distinct values.
+ *
+ * @since 1.3.2
+ */
+public final class TopFieldValues implements Metric {
+
+	private final String name;
+
+	private final List<FieldValue> values;
+
+	private final double total;
+
+	private final long distinct;
+
+	private final double distinctStandardError;
+
+	/**
+	 * @param name the counter name
+	 * @param values the most frequent values, in decreasing order of count
+	 * @param total the sum of all counts, including those of values that are no longer tracked
+	 * @param distinct the estimated number of distinct values
+	 * @param distinctStandardError the relative standard error of the distinct count estimate
+	 */
+	public TopFieldValues(String name, List<FieldValue> values, double total, long distinct,
+			double distinctStandardError) {
+		Assert.notNull(name);
+		Assert.notNull(values);
+		this.name = name;
+		this.values = Collections.unmodifiableList(values);
+		this.total = total;
+		this.distinct = distinct;
+		this.distinctStandardError = distinctStandardError;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the most frequent values, in decreasing order of count
+	 */
+	public List<FieldValue> getValues() {
+		return values;
+	}
+
+	/**
+	 * @return the sum of all counts, including those of values that are no longer tracked
+	 */
+	public double getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return the estimated number of distinct values
+	 */
+	public long getDistinct() {
+		return distinct;
+	}
+
+	/**
+	 * @return the relative standard error of {@link #getDistinct()}
+	 */
+	public double getDistinctStandardError() {
+		return distinctStandardError;
+	}
+
+	@Override
+	public String toString() {
+		return "TopFieldValues [name=" + name + ", values=" + values + ", total=" + total + ", distinct="
+				+ distinct + "]";
+	}
+
+	/**
+	 * A tracked value, whose true count lies between {@code count - error} and {@code count}.
+	 */
+	public static final class FieldValue {
+
+		private final String value;
+
+		private final double count;
+
+		private final double error;
+
+		public FieldValue(String value, double count, double error) {
+			this.value = value;
+			this.count = count;
+			this.error = error;
+		}
+
+		public String getValue() {
+			return value;
+		}
+
+		/**
+		 * @return the estimated count, which never underestimates the true count
+		 */
+		public double getCount() {
+			return count;
+		}
+
+		/**
+		 * @return the maximum overestimation of the count
+		 */
+		public double getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			return value + "=" + count + " (error " + error + ")";
+		}
+
+	}
+
+}
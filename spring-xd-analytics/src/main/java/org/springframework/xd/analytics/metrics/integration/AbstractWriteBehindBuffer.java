@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.analytics.metrics.integration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.Assert;
+
+/**
+ * Base class for buffers that accumulate metric updates in memory and write them to a repository in batches:
+ * periodically, and whenever a given number of updates has been buffered. Subclasses hold the updates and write a
+ * batch; this class decides when to flush.
+ * <p>
+ * Buffered updates that have not been written yet are lost if the process dies, so the flush interval bounds the
+ * window of updates that may be lost.
+ *
+ * @param <B> the type of a batch of buffered updates
+ * @since 1.3.2
+ */
+abstract class AbstractWriteBehindBuffer<B> {
+
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final int flushSize;
+
+	private final String threadNamePrefix;
+
+	/**
+	 * Serializes flushes, so that batches are written in order.
+	 */
+	private final Object flushMonitor = new Object();
+
+	private volatile ThreadPoolTaskScheduler scheduler;
+
+	/**
+	 * @param flushSize the number of buffered updates that triggers a flush
+	 * @param threadNamePrefix the name prefix of the thread that flushes the buffer periodically
+	 */
+	protected AbstractWriteBehindBuffer(int flushSize, String threadNamePrefix) {
+		Assert.isTrue(flushSize > 0, "flushSize must be greater than 0");
+		this.flushSize = flushSize;
+		this.threadNamePrefix = threadNamePrefix;
+	}
+
+	/**
+	 * Takes the buffered updates, leaving an empty buffer in their place.
+	 *
+	 * @param minCount the minimum number of buffered updates to take
+	 * @return the buffered updates, or null if fewer than {@code minCount} are buffered
+	 */
+	protected abstract B takeBuffer(int minCount);
+
+	/**
+	 * Writes updates taken from the buffer to the repository.
+	 */
+	protected abstract void write(B updates);
+
+	abstract int getBufferedCount();
+
+	/**
+	 * Flushes the buffer if it holds {@code flushSize} updates; called once an update has been buffered.
+	 *
+	 * @param bufferedCount the number of updates buffered, including the new one
+	 */
+	protected final void flushIfFull(int bufferedCount) {
+		if (bufferedCount >= this.flushSize) {
+			flush(true);
+		}
+	}
+
+	/**
+	 * Writes all buffered updates to the repository.
+	 */
+	void flush() {
+		flush(false);
+	}
+
+	private void flush(boolean onlyIfFull) {
+		synchronized (this.flushMonitor) {
+			// another thread may have flushed while this one waited
+			B updates = takeBuffer(onlyIfFull ? this.flushSize : 1);
+			if (updates != null) {
+				write(updates);
+			}
+		}
+	}
+
+	/**
+	 * Starts flushing the buffer every {@code flushInterval} milliseconds.
+	 */
+	void start(long flushInterval) {
+		Assert.isTrue(flushInterval > 0, "flushInterval must be greater than 0");
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.setThreadNamePrefix(this.threadNamePrefix);
+		scheduler.setDaemon(true);
+		scheduler.initialize();
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				flush();
+			}
+
+		}, flushInterval);
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Stops the periodic flushes.
+	 *
+	 * @param flush whether to write the updates still buffered, or discard them
+	 */
+	void stop(boolean flush) {
+		if (this.scheduler != null) {
+			this.scheduler.shutdown();
+			this.scheduler = null;
+		}
+		if (flush) {
+			flush();
+		}
+		else {
+			int count = getBufferedCount();
+			if (count > 0) {
+				logger.warn("Discarding " + count + " buffered update(s)");
+			}
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.analytics.metrics.integration;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+/**
+ * Base class for metric handlers that can buffer updates in memory and write them in batches, at most
+ * {@code flushInterval} milliseconds apart or as soon as {@code flushSize} updates have been buffered.
+ *
+ * @param <B> the type of the write-behind buffer
+ * @since 1.3.2
+ */
+abstract class AbstractWriteBehindMetricHandler<B extends AbstractWriteBehindBuffer<?>> extends AbstractMetricHandler
+		implements DisposableBean {
+
+	private boolean writeBehind;
+
+	private long flushInterval = 1000;
+
+	private int flushSize = 1000;
+
+	private boolean flushOnShutdown = true;
+
+	private volatile B writeBehindBuffer;
+
+	protected AbstractWriteBehindMetricHandler(String nameExpression) {
+		super(nameExpression);
+	}
+
+	public void setWriteBehind(boolean writeBehind) {
+		this.writeBehind = writeBehind;
+	}
+
+	public void setFlushInterval(long flushInterval) {
+		Assert.isTrue(flushInterval > 0, "flushInterval must be greater than 0");
+		this.flushInterval = flushInterval;
+	}
+
+	public void setFlushSize(int flushSize) {
+		Assert.isTrue(flushSize > 0, "flushSize must be greater than 0");
+		this.flushSize = flushSize;
+	}
+
+	public void setFlushOnShutdown(boolean flushOnShutdown) {
+		this.flushOnShutdown = flushOnShutdown;
+	}
+
+	/**
+	 * @param flushSize the number of buffered updates that triggers a flush
+	 * @return a new write-behind buffer
+	 */
+	protected abstract B createWriteBehindBuffer(int flushSize);
+
+	/**
+	 * @return the write-behind buffer, or null if updates are written directly
+	 */
+	protected B getWriteBehindBuffer() {
+		return this.writeBehindBuffer;
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		super.afterPropertiesSet();
+		if (this.writeBehind) {
+			B buffer = createWriteBehindBuffer(this.flushSize);
+			buffer.start(this.flushInterval);
+			this.writeBehindBuffer = buffer;
+		}
+	}
+
+	@Override
+	public void destroy() {
+		B buffer = this.writeBehindBuffer;
+		if (buffer != null) {
+			this.writeBehindBuffer = null;
+			buffer.stop(this.flushOnShutdown);
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2011-2013 the original author or authors.
+ * Copyright 2011-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.xd.analytics.metrics.integration;
 
 import java.text.ParseException;
 
+import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.joda.time.format.ISODateTimeFormat;
@@ -30,11 +31,14 @@ import org.springframework.xd.analytics.metrics.core.AggregateCounterRepository;
 /**
  * Handles incoming messages for the {@code aggregate-counter} module, resolves SpEL expressions
  * as needed and delegate the heavy lifting to an {@link AggregateCounterRepository}.
+ * <p>
+ * In write-behind mode, increments are summed in memory and written to the repository in batches, at most
+ * {@code flushInterval} milliseconds apart or as soon as {@code flushSize} increments have been buffered.
  *
  * @author Luke Taylor
  * @author Eric Bottard
  */
-public class AggregateCounterHandler extends AbstractMetricHandler {
+public class AggregateCounterHandler extends AbstractWriteBehindMetricHandler<AggregateCounterWriteBehindBuffer> {
 
 	private final AggregateCounterRepository aggregateCounterRepository;
 
@@ -56,6 +60,11 @@ public class AggregateCounterHandler extends AbstractMetricHandler {
 		this.dateFormat = DateTimeFormat.forPattern(pattern);
 	}
 
+	@Override
+	protected AggregateCounterWriteBehindBuffer createWriteBehindBuffer(int flushSize) {
+		return new AggregateCounterWriteBehindBuffer(this.aggregateCounterRepository, flushSize);
+	}
+
 	public Message<?> process(Message<?> message, String timeField) throws ParseException {
 		if (message == null) {
 			return null;
@@ -64,7 +73,12 @@ public class AggregateCounterHandler extends AbstractMetricHandler {
 		Double increment = incrementExpression.getValue(evaluationContext, message, Double.class);
 		String counterName = computeMetricName(message);
 
-		if (timeField == null) {
+		AggregateCounterWriteBehindBuffer buffer = getWriteBehindBuffer();
+		if (buffer != null) {
+			buffer.increment(counterName, increment.longValue(),
+					timeField == null ? new DateTime() : dateFormat.parseDateTime(timeField));
+		}
+		else if (timeField == null) {
 			this.aggregateCounterRepository.increment(counterName, increment.longValue());
 		}
 		else {
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.integration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.joda.time.DateTime;
+
+import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.AggregateCounterRepository;
+import org.springframework.xd.analytics.metrics.core.BatchAggregateCounterRepository;
+
+/**
+ * Accumulates aggregate counter increments in memory, summed per counter and minute, and writes them to an
+ * {@link AggregateCounterRepository} in batches. Repositories that implement {@link BatchAggregateCounterRepository}
+ * receive each counter's increments in a single call.
+ *
+ * @since 1.3.2
+ */
+class AggregateCounterWriteBehindBuffer
+		extends AbstractWriteBehindBuffer<Map<String, ConcurrentMap<DateTime, AtomicLong>>> {
+
+	private final AggregateCounterRepository repository;
+
+	/**
+	 * Increments take the read lock, so that they can proceed concurrently, and flushes take the write lock to swap
+	 * in an empty buffer.
+	 */
+	private final ReadWriteLock bufferLock = new ReentrantReadWriteLock();
+
+	private final AtomicInteger bufferedCount = new AtomicInteger();
+
+	private volatile ConcurrentMap<String, ConcurrentMap<DateTime, AtomicLong>> buffer = newBuffer();
+
+	/**
+	 * @param repository the repository to write the increments to
+	 * @param flushSize the number of buffered increments that triggers a flush
+	 */
+	AggregateCounterWriteBehindBuffer(AggregateCounterRepository repository, int flushSize) {
+		super(flushSize, "aggregate-counter-flush-");
+		Assert.notNull(repository, "Aggregate Counter Repository can not be null");
+		this.repository = repository;
+	}
+
+	/**
+	 * Buffers an increment, flushing the buffer if it holds {@code flushSize} increments.
+	 */
+	void increment(String name, long amount, DateTime dateTime) {
+		DateTime minute = dateTime.minuteOfHour().roundFloorCopy();
+		int count;
+		this.bufferLock.readLock().lock();
+		try {
+			ConcurrentMap<DateTime, AtomicLong> counter = this.buffer.get(name);
+			if (counter == null) {
+				counter = new ConcurrentHashMap<DateTime, AtomicLong>();
+				ConcurrentMap<DateTime, AtomicLong> existing = this.buffer.putIfAbsent(name, counter);
+				if (existing != null) {
+					counter = existing;
+				}
+			}
+			AtomicLong bucket = counter.get(minute);
+			if (bucket == null) {
+				bucket = new AtomicLong();
+				AtomicLong existing = counter.putIfAbsent(minute, bucket);
+				if (existing != null) {
+					bucket = existing;
+				}
+			}
+			bucket.addAndGet(amount);
+			// counted in the same buffer as the increment, so that a flush cannot reset the count in between
+			count = this.bufferedCount.incrementAndGet();
+		}
+		finally {
+			this.bufferLock.readLock().unlock();
+		}
+		flushIfFull(count);
+	}
+
+	@Override
+	protected Map<String, ConcurrentMap<DateTime, AtomicLong>> takeBuffer(int minCount) {
+		this.bufferLock.writeLock().lock();
+		try {
+			if (this.bufferedCount.get() < minCount) {
+				return null;
+			}
+			Map<String, ConcurrentMap<DateTime, AtomicLong>> taken = this.buffer;
+			this.buffer = newBuffer();
+			this.bufferedCount.set(0);
+			return taken;
+		}
+		finally {
+			this.bufferLock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	protected void write(Map<String, ConcurrentMap<DateTime, AtomicLong>> flushed) {
+		for (Map.Entry<String, ConcurrentMap<DateTime, AtomicLong>> counter : flushed.entrySet()) {
+			String name = counter.getKey();
+			Map<DateTime, Long> amounts = new HashMap<DateTime, Long>(counter.getValue().size() * 4 / 3 + 1);
+			for (Map.Entry<DateTime, AtomicLong> bucket : counter.getValue().entrySet()) {
+				amounts.put(bucket.getKey(), bucket.getValue().get());
+			}
+			try {
+				if (this.repository instanceof BatchAggregateCounterRepository) {
+					((BatchAggregateCounterRepository) this.repository).incrementAll(name, amounts);
+				}
+				else {
+					for (Map.Entry<DateTime, Long> amount : amounts.entrySet()) {
+						this.repository.increment(name, amount.getValue(), amount.getKey());
+					}
+				}
+			}
+			catch (RuntimeException e) {
+				logger.error("Failed to write buffered increments of aggregate counter '" + name
+						+ "'; counts for " + amounts.size() + " minute(s) are lost", e);
+			}
+		}
+	}
+
+	@Override
+	int getBufferedCount() {
+		return this.bufferedCount.get();
+	}
+
+	private static ConcurrentMap<String, ConcurrentMap<DateTime, AtomicLong>> newBuffer() {
+		return new ConcurrentHashMap<String, ConcurrentMap<DateTime, AtomicLong>>();
+	}
+
+}
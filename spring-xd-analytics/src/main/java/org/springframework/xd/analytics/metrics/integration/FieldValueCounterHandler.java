@@ -1,5 +1,5 @@
 /*
- * Copyright 2013 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -35,7 +35,8 @@ import org.springframework.xd.tuple.integration.JsonToTupleTransformer;
 
 /**
  * Counts the occurrence of values for a set of JavaBean properties or Tuple fields using a FieldValueCounterRepository.
- * Assumes a String payload is JSON and will convert it to a Tuple.
+ * Assumes a String payload is JSON and will convert it to a Tuple, keeping only the top-level field the counted
+ * field is nested in.
  *
  * @author Mark Pollack
  * @author David Turanski
@@ -47,6 +48,11 @@ public class FieldValueCounterHandler extends AbstractMetricHandler {
 
 	private final String fieldName;
 
+	/**
+	 * The property names of {@code fieldName}, from the top-level one.
+	 */
+	private final String[] fieldPath;
+
 	private final JsonToTupleTransformer jsonToTupleTransformer;
 
 	public FieldValueCounterHandler(FieldValueCounterRepository fieldValueCounterRepository, String nameExpression,
@@ -56,8 +62,10 @@ public class FieldValueCounterHandler extends AbstractMetricHandler {
 		Assert.hasText(fieldName, "Field name can not be null or empty string");
 		this.fieldValueCounterRepository = fieldValueCounterRepository;
 		this.fieldName = fieldName;
+		this.fieldPath = StringUtils.tokenizeToStringArray(fieldName, ".");
+		Assert.isTrue(this.fieldPath.length > 0, "Field name must contain a property name: '" + fieldName + "'");
 		this.jsonToTupleTransformer = new JsonToTupleTransformer();
-
+		this.jsonToTupleTransformer.setFields(this.fieldPath[0]);
 	}
 
 	@ServiceActivator
@@ -89,8 +97,7 @@ public class FieldValueCounterHandler extends AbstractMetricHandler {
 	}
 
 	private void processTuple(String counterName, Tuple tuple) {
-		String[] path = StringUtils.tokenizeToStringArray(fieldName, ".");
-		processValueForCounter(counterName, tuple, path);
+		processValueForCounter(counterName, tuple, fieldPath);
 	}
 
 	private void processValueForCounter(String counterName, Object value, String[] path) {
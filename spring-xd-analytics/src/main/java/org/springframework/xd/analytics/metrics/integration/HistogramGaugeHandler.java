@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.integration;
+
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.HistogramGaugeRepository;
+
+/**
+ * Records numeric payloads in a {@link org.springframework.xd.analytics.metrics.core.HistogramGauge}.
+ *
+ * @since 1.3.2
+ */
+public class HistogramGaugeHandler extends AbstractMetricHandler {
+
+	private final HistogramGaugeRepository histogramGaugeRepository;
+
+	public HistogramGaugeHandler(HistogramGaugeRepository histogramGaugeRepository, String nameExpression) {
+		super(nameExpression);
+		Assert.notNull(histogramGaugeRepository, "Histogram Gauge Repository can not be null");
+		this.histogramGaugeRepository = histogramGaugeRepository;
+	}
+
+	@ServiceActivator
+	public void process(Message<?> message) {
+		if (message != null) {
+			double value = convertToDouble(message.getPayload());
+			this.histogramGaugeRepository.recordValue(computeMetricName(message), value);
+		}
+	}
+
+	double convertToDouble(Object payload) {
+		if (payload != null) {
+			if (payload instanceof Number) {
+				return ((Number) payload).doubleValue();
+			}
+			else if (payload instanceof String) {
+				try {
+					return Double.parseDouble((String) payload);
+				}
+				catch (Exception e) {
+					throw new MessagingException("cannot convert payload to double", e);
+				}
+			}
+		}
+		throw new MessagingException("cannot convert "
+				+ (payload == null ? "null" : payload.getClass().getName() + " to double"));
+	}
+
+}
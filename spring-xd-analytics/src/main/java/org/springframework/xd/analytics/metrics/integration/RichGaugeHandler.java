@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -20,10 +20,16 @@ import org.springframework.util.Assert;
 import org.springframework.xd.analytics.metrics.core.RichGaugeRepository;
 
 /**
+ * Handles incoming messages for the {@code rich-gauge} module, recording their payload in a
+ * {@link RichGaugeRepository}.
+ * <p>
+ * In write-behind mode, values are buffered in memory and recorded in batches, at most {@code flushInterval}
+ * milliseconds apart or as soon as {@code flushSize} values have been buffered.
+ *
  * @author David Turanski
  *
  */
-public class RichGaugeHandler extends AbstractMetricHandler {
+public class RichGaugeHandler extends AbstractWriteBehindMetricHandler<RichGaugeWriteBehindBuffer> {
 
 	private final RichGaugeRepository richGaugeRepository;
 
@@ -36,11 +42,22 @@ public class RichGaugeHandler extends AbstractMetricHandler {
 		this.richGaugeRepository = richGaugeRepository;
     }
 
+	@Override
+	protected RichGaugeWriteBehindBuffer createWriteBehindBuffer(int flushSize) {
+		return new RichGaugeWriteBehindBuffer(this.richGaugeRepository, this.alpha, flushSize);
+	}
+
 	@ServiceActivator
 	public void process(Message<?> message) {
 		if (message != null) {
 			double value = convertToDouble(message.getPayload());
-			this.richGaugeRepository.recordValue(computeMetricName(message), value, alpha);
+			RichGaugeWriteBehindBuffer buffer = getWriteBehindBuffer();
+			if (buffer != null) {
+				buffer.recordValue(computeMetricName(message), value);
+			}
+			else {
+				this.richGaugeRepository.recordValue(computeMetricName(message), value, alpha);
+			}
 		}
 	}
 
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.integration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.BatchRichGaugeRepository;
+import org.springframework.xd.analytics.metrics.core.RichGaugeRepository;
+
+/**
+ * Accumulates rich gauge values in memory, per gauge and in arrival order, and records them in a
+ * {@link RichGaugeRepository} in batches. Repositories that implement {@link BatchRichGaugeRepository} receive each
+ * gauge's values in a single call, so that the gauge ends up as if the values had been recorded one at a time.
+ *
+ * @since 1.3.2
+ */
+class RichGaugeWriteBehindBuffer extends AbstractWriteBehindBuffer<Map<String, List<Double>>> {
+
+	private final RichGaugeRepository repository;
+
+	private final double alpha;
+
+	// guarded by this
+	private Map<String, List<Double>> buffer = new LinkedHashMap<String, List<Double>>();
+
+	// guarded by this
+	private int bufferedCount;
+
+	/**
+	 * @param repository the repository to record the values in
+	 * @param alpha the smoothing factor to record the values with
+	 * @param flushSize the number of buffered values that triggers a flush
+	 */
+	RichGaugeWriteBehindBuffer(RichGaugeRepository repository, double alpha, int flushSize) {
+		super(flushSize, "rich-gauge-flush-");
+		Assert.notNull(repository, "Rich Gauge Repository can not be null");
+		this.repository = repository;
+		this.alpha = alpha;
+	}
+
+	/**
+	 * Buffers a value, flushing the buffer if it holds {@code flushSize} values.
+	 */
+	void recordValue(String name, double value) {
+		int count;
+		synchronized (this) {
+			List<Double> values = this.buffer.get(name);
+			if (values == null) {
+				values = new ArrayList<Double>();
+				this.buffer.put(name, values);
+			}
+			values.add(value);
+			count = ++this.bufferedCount;
+		}
+		flushIfFull(count);
+	}
+
+	@Override
+	protected synchronized Map<String, List<Double>> takeBuffer(int minCount) {
+		if (this.bufferedCount < minCount) {
+			return null;
+		}
+		Map<String, List<Double>> taken = this.buffer;
+		this.buffer = new LinkedHashMap<String, List<Double>>();
+		this.bufferedCount = 0;
+		return taken;
+	}
+
+	@Override
+	protected void write(Map<String, List<Double>> flushed) {
+		for (Map.Entry<String, List<Double>> gauge : flushed.entrySet()) {
+			String name = gauge.getKey();
+			double[] values = new double[gauge.getValue().size()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = gauge.getValue().get(i);
+			}
+			try {
+				if (this.repository instanceof BatchRichGaugeRepository) {
+					((BatchRichGaugeRepository) this.repository).recordValues(name, values, this.alpha);
+				}
+				else {
+					for (double value : values) {
+						this.repository.recordValue(name, value, this.alpha);
+					}
+				}
+			}
+			catch (RuntimeException e) {
+				logger.error("Failed to record buffered values of rich gauge '" + name + "'; " + values.length
+						+ " value(s) are lost", e);
+			}
+		}
+	}
+
+	@Override
+	synchronized int getBufferedCount() {
+		return this.bufferedCount;
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.memory;
+
+/**
+ * Estimates the number of distinct strings added to it in constant space, using the HyperLogLog algorithm with the
+ * same precision as Redis: 2<sup>14</sup> registers, for a relative standard error of 0.81%.
+ * <p>
+ * Not thread safe.
+ *
+ * @since 1.3.2
+ */
+class HyperLogLog {
+
+	static final int PRECISION = 14;
+
+	static final double STANDARD_ERROR = 1.04 / Math.sqrt(1 << PRECISION);
+
+	private static final int REGISTER_COUNT = 1 << PRECISION;
+
+	private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+
+	private final byte[] registers = new byte[REGISTER_COUNT];
+
+	void add(String value) {
+		long hash = hash(value);
+		int index = (int) (hash >>> (64 - PRECISION));
+		// the position of the first set bit in the remaining bits; the sentinel bounds it for an all zero hash
+		int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+		if (rank > registers[index]) {
+			registers[index] = (byte) rank;
+		}
+	}
+
+	long estimate() {
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += 1.0 / (1L << register);
+			if (register == 0) {
+				zeros++;
+			}
+		}
+		double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+		if (estimate <= 2.5 * REGISTER_COUNT && zeros > 0) {
+			// linear counting is more accurate for small cardinalities
+			estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros);
+		}
+		return Math.round(estimate);
+	}
+
+	/**
+	 * 64 bit FNV-1a over the characters, followed by the MurmurHash3 finalizer to spread the bits.
+	 */
+	private static long hash(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2011-2013 the original author or authors.
+ * Copyright 2011-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,15 +19,19 @@ package org.springframework.xd.analytics.metrics.memory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeSet;
 
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.xd.analytics.metrics.core.AggregateCount;
 import org.springframework.xd.analytics.metrics.core.AggregateCountResolution;
 import org.springframework.xd.analytics.metrics.core.AggregateCounterRepository;
 import org.springframework.xd.analytics.metrics.core.Counter;
+import org.springframework.xd.analytics.metrics.core.MetricUtils;
 import org.springframework.xd.store.AbstractInMemoryRepository;
 
 /**
@@ -117,6 +121,11 @@ public class InMemoryAggregateCounterRepository extends AbstractInMemoryReposito
 		return new ArrayList<Counter>(aggregates.values());
 	}
 
+	@Override
+	public Page<Counter> findByNameStartingWith(String prefix, Pageable pageable) {
+		return MetricUtils.findPage(this, new TreeSet<String>(aggregates.keySet()), prefix, pageable);
+	}
+
 	@Override
 	public long count() {
 		return aggregates.size();
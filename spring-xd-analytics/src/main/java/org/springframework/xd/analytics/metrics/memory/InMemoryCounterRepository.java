@@ -1,5 +1,5 @@
 /*
- * Copyright 2013 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@
 package org.springframework.xd.analytics.metrics.memory;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.xd.analytics.metrics.core.Counter;
 import org.springframework.xd.analytics.metrics.core.CounterRepository;
 import org.springframework.xd.store.AbstractInMemoryRepository;
@@ -67,4 +69,10 @@ public class InMemoryCounterRepository extends AbstractInMemoryRepository<Counte
 		return entity.getName();
 	}
 
+	@Override
+	public Page<Counter> findByNameStartingWith(String prefix, Pageable pageable) {
+		String from = prefix == null ? "" : prefix;
+		return findAllInRange(from, from + Character.MAX_VALUE, pageable);
+	}
+
 }
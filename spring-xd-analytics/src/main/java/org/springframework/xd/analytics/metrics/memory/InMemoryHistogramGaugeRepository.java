@@ -0,0 +1,241 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.memory;
+
+import static org.springframework.xd.analytics.metrics.core.MetricUtils.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.HistogramGauge;
+import org.springframework.xd.analytics.metrics.core.HistogramGaugeRepository;
+
+/**
+ * Memory backed implementation of {@link HistogramGaugeRepository}, that keeps a histogram per minute for a
+ * configurable number of minutes.
+ *
+ * @since 1.3.2
+ */
+public class InMemoryHistogramGaugeRepository implements HistogramGaugeRepository {
+
+	/**
+	 * The default number of minutes per-minute histograms are kept for.
+	 */
+	public static final int DEFAULT_RETENTION_MINUTES = 1440;
+
+	private final ConcurrentNavigableMap<String, Histograms> map = new ConcurrentSkipListMap<String, Histograms>();
+
+	private final int retentionMinutes;
+
+	public InMemoryHistogramGaugeRepository() {
+		this(DEFAULT_RETENTION_MINUTES);
+	}
+
+	/**
+	 * @param retentionMinutes the number of minutes per-minute histograms are kept for
+	 */
+	public InMemoryHistogramGaugeRepository(int retentionMinutes) {
+		Assert.isTrue(retentionMinutes > 0, "retentionMinutes must be greater than 0");
+		this.retentionMinutes = retentionMinutes;
+	}
+
+	@Override
+	public void recordValue(String name, double value) {
+		recordValue(name, value, DateTime.now());
+	}
+
+	@Override
+	public void recordValue(String name, double value, DateTime dateTime) {
+		Assert.notNull(name, "Gauge name can not be null");
+		Assert.isTrue(value >= 0.0, "Histogram gauge values must not be negative");
+		getOrCreate(name).record(value, dateTime);
+	}
+
+	@Override
+	public HistogramGauge getHistogram(String name, Interval interval) {
+		Assert.notNull(name, "Gauge name can not be null");
+		Assert.notNull(interval, "The interval can not be null");
+		Histograms histograms = map.get(name);
+		return histograms == null ? null : histograms.merge(interval);
+	}
+
+	@Override
+	public void reset(String name) {
+		Assert.notNull(name, "Gauge name can not be null");
+		map.put(name, new Histograms(new HistogramGauge(name)));
+	}
+
+	@Override
+	public <S extends HistogramGauge> S save(S histogram) {
+		map.put(histogram.getName(), new Histograms(copy(histogram)));
+		return histogram;
+	}
+
+	@Override
+	public <S extends HistogramGauge> Iterable<S> save(Iterable<S> histograms) {
+		List<S> results = new ArrayList<S>();
+		for (S h : histograms) {
+			results.add(save(h));
+		}
+		return results;
+	}
+
+	@Override
+	public void delete(String name) {
+		Assert.notNull(name, "The name of the metric must not be null");
+		map.remove(name);
+	}
+
+	@Override
+	public void delete(HistogramGauge histogram) {
+		Assert.notNull(histogram, "The metric instance must not be null");
+		map.remove(histogram.getName());
+	}
+
+	@Override
+	public void delete(Iterable<? extends HistogramGauge> histograms) {
+		for (HistogramGauge histogram : histograms) {
+			delete(histogram);
+		}
+	}
+
+	@Override
+	public HistogramGauge findOne(String name) {
+		Assert.notNull(name, "The name of the metric must not be null");
+		Histograms histograms = map.get(name);
+		return histograms == null ? null : histograms.total();
+	}
+
+	@Override
+	public boolean exists(String name) {
+		return map.containsKey(name);
+	}
+
+	@Override
+	public List<HistogramGauge> findAll() {
+		List<HistogramGauge> results = new ArrayList<HistogramGauge>();
+		for (Histograms histograms : map.values()) {
+			results.add(histograms.total());
+		}
+		return results;
+	}
+
+	@Override
+	public Iterable<HistogramGauge> findAll(Iterable<String> names) {
+		List<HistogramGauge> results = new ArrayList<HistogramGauge>();
+		for (String name : names) {
+			HistogramGauge histogram = findOne(name);
+			if (histogram != null) {
+				results.add(histogram);
+			}
+		}
+		return results;
+	}
+
+	@Override
+	public Page<HistogramGauge> findByNameStartingWith(String prefix, Pageable pageable) {
+		return findPage(this, map.navigableKeySet(), prefix, pageable);
+	}
+
+	@Override
+	public long count() {
+		return map.size();
+	}
+
+	@Override
+	public void deleteAll() {
+		map.clear();
+	}
+
+	private Histograms getOrCreate(String name) {
+		Histograms histograms = map.get(name);
+		if (histograms == null) {
+			histograms = new Histograms(new HistogramGauge(name));
+			Histograms existing = map.putIfAbsent(name, histograms);
+			if (existing != null) {
+				histograms = existing;
+			}
+		}
+		return histograms;
+	}
+
+	private static HistogramGauge copy(HistogramGauge histogram) {
+		return new HistogramGauge(histogram.getName(), histogram.getBuckets(), histogram.getZeroCount(),
+				histogram.getCount(), histogram.getSum(), histogram.getMin(), histogram.getMax());
+	}
+
+	/**
+	 * The histogram of all the values of a gauge, and its per-minute histograms.
+	 */
+	private class Histograms {
+
+		private final HistogramGauge total;
+
+		private final TreeMap<DateTime, HistogramGauge> minutes = new TreeMap<DateTime, HistogramGauge>();
+
+		Histograms(HistogramGauge total) {
+			this.total = total;
+		}
+
+		synchronized void record(double value, DateTime dateTime) {
+			recordHistogramValue(total, value);
+			DateTime minute = dateTime.minuteOfHour().roundFloorCopy();
+			HistogramGauge histogram = minutes.get(minute);
+			if (histogram == null) {
+				histogram = new HistogramGauge(total.getName());
+				minutes.put(minute, histogram);
+			}
+			recordHistogramValue(histogram, value);
+			minutes.headMap(retentionStart()).clear();
+		}
+
+		synchronized HistogramGauge total() {
+			return copy(total);
+		}
+
+		synchronized HistogramGauge merge(Interval interval) {
+			DateTime start = interval.getStart().minuteOfHour().roundFloorCopy();
+			DateTime retentionStart = retentionStart();
+			if (start.isBefore(retentionStart)) {
+				start = retentionStart;
+			}
+			HistogramGauge result = new HistogramGauge(total.getName());
+			if (start.isBefore(interval.getEnd())) {
+				for (Map.Entry<DateTime, HistogramGauge> minute : minutes.subMap(start, interval.getEnd()).entrySet()) {
+					mergeHistogram(result, minute.getValue());
+				}
+			}
+			return result;
+		}
+
+		private DateTime retentionStart() {
+			return DateTime.now().minuteOfHour().roundFloorCopy().minusMinutes(retentionMinutes - 1);
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,11 +18,14 @@ package org.springframework.xd.analytics.metrics.memory;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.util.Assert;
 import org.springframework.xd.analytics.metrics.core.Metric;
+import org.springframework.xd.analytics.metrics.core.MetricUtils;
 import org.springframework.xd.analytics.metrics.core.MetricRepository;
 
 /**
@@ -34,7 +37,7 @@ import org.springframework.xd.analytics.metrics.core.MetricRepository;
 public abstract class InMemoryMetricRepository<M extends Metric> implements
 		MetricRepository<M> {
 
-	private final ConcurrentMap<String, M> map = new ConcurrentHashMap<String, M>();
+	private final ConcurrentNavigableMap<String, M> map = new ConcurrentSkipListMap<String, M>();
 
 	@Override
 	public <S extends M> S save(S metric) {
@@ -99,6 +102,11 @@ public abstract class InMemoryMetricRepository<M extends Metric> implements
 		return results;
 	}
 
+	@Override
+	public Page<M> findByNameStartingWith(String prefix, Pageable pageable) {
+		return MetricUtils.findPage(this, map.navigableKeySet(), prefix, pageable);
+	}
+
 	@Override
 	public long count() {
 		return map.size();
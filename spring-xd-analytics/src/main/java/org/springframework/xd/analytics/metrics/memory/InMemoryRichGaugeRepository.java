@@ -1,5 +1,5 @@
 /*
- * Copyright 2013 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,8 +19,8 @@ package org.springframework.xd.analytics.metrics.memory;
 import static org.springframework.xd.analytics.metrics.core.MetricUtils.*;
 
 import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.BatchRichGaugeRepository;
 import org.springframework.xd.analytics.metrics.core.RichGauge;
-import org.springframework.xd.analytics.metrics.core.RichGaugeRepository;
 
 /**
  * Memory backed implementation of GaugeRepository that uses a ConcurrentMap
@@ -28,12 +28,24 @@ import org.springframework.xd.analytics.metrics.core.RichGaugeRepository;
  * @author Luke Taylor
  */
 public class InMemoryRichGaugeRepository extends InMemoryMetricRepository<RichGauge>
-		implements RichGaugeRepository {
+		implements BatchRichGaugeRepository {
 
 	@Override
 	public void recordValue(String name, double value, double alpha) {
 		RichGauge gauge = getOrCreate(name);
-		setRichGaugeValue(gauge, value, alpha);
+		synchronized (gauge) {
+			setRichGaugeValue(gauge, value, alpha);
+		}
+	}
+
+	@Override
+	public void recordValues(String name, double[] values, double alpha) {
+		RichGauge gauge = getOrCreate(name);
+		synchronized (gauge) {
+			for (double value : values) {
+				setRichGaugeValue(gauge, value, alpha);
+			}
+		}
 	}
 
 	@Override
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.FieldValueCounter;
+import org.springframework.xd.analytics.metrics.core.MetricUtils;
+import org.springframework.xd.analytics.metrics.core.TopFieldValueCounterRepository;
+import org.springframework.xd.analytics.metrics.core.TopFieldValues;
+
+/**
+ * Memory backed implementation of {@link TopFieldValueCounterRepository}, that summarizes each counter with a
+ * Space-Saving summary of its most frequent values and a HyperLogLog estimate of its distinct values.
+ *
+ * @since 1.3.2
+ */
+public class InMemoryTopFieldValueCounterRepository implements TopFieldValueCounterRepository {
+
+	/**
+	 * The default number of values tracked per counter.
+	 */
+	public static final int DEFAULT_CAPACITY = 1000;
+
+	private final ConcurrentNavigableMap<String, Sketch> map = new ConcurrentSkipListMap<String, Sketch>();
+
+	private final int capacity;
+
+	public InMemoryTopFieldValueCounterRepository() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity the number of values tracked per counter
+	 */
+	public InMemoryTopFieldValueCounterRepository(int capacity) {
+		Assert.isTrue(capacity > 0, "capacity must be greater than 0");
+		this.capacity = capacity;
+	}
+
+	@Override
+	public void increment(String name, String fieldName) {
+		getOrCreate(name).offer(fieldName, 1);
+	}
+
+	@Override
+	public void decrement(String name, String fieldName) {
+		throw new UnsupportedOperationException("Top field value counters can not be decremented");
+	}
+
+	@Override
+	public void reset(String name, String fieldName) {
+		getOrCreate(name).remove(fieldName);
+	}
+
+	@Override
+	public TopFieldValues findTop(String name, int n) {
+		Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+		Assert.isTrue(n > 0, "n must be greater than 0");
+		Sketch sketch = map.get(name);
+		return sketch == null ? null : sketch.top(name, n);
+	}
+
+	/*
+	 * The counter is summarized again from its counts, so its distinct count becomes the number of its values.
+	 */
+	@Override
+	public <S extends FieldValueCounter> S save(S fieldValueCounter) {
+		Sketch sketch = new Sketch(capacity);
+		for (Map.Entry<String, Double> entry : fieldValueCounter.getFieldValueCount().entrySet()) {
+			sketch.offer(entry.getKey(), entry.getValue());
+		}
+		map.put(fieldValueCounter.getName(), sketch);
+		return fieldValueCounter;
+	}
+
+	@Override
+	public <S extends FieldValueCounter> Iterable<S> save(Iterable<S> metrics) {
+		List<S> results = new ArrayList<S>();
+		for (S m : metrics) {
+			results.add(save(m));
+		}
+		return results;
+	}
+
+	@Override
+	public void delete(String name) {
+		Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+		map.remove(name);
+	}
+
+	@Override
+	public void delete(FieldValueCounter fieldValueCounter) {
+		Assert.notNull(fieldValueCounter, "The FieldValueCounter must not be null");
+		map.remove(fieldValueCounter.getName());
+	}
+
+	@Override
+	public void delete(Iterable<? extends FieldValueCounter> fvcs) {
+		for (FieldValueCounter fvc : fvcs) {
+			delete(fvc);
+		}
+	}
+
+	/**
+	 * Returns the tracked values of the counter only.
+	 */
+	@Override
+	public FieldValueCounter findOne(String name) {
+		Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+		Sketch sketch = map.get(name);
+		return sketch == null ? null : new FieldValueCounter(name, sketch.counts());
+	}
+
+	@Override
+	public boolean exists(String name) {
+		return map.containsKey(name);
+	}
+
+	@Override
+	public List<FieldValueCounter> findAll() {
+		List<FieldValueCounter> counters = new ArrayList<FieldValueCounter>(map.size());
+		for (Map.Entry<String, Sketch> entry : map.entrySet()) {
+			counters.add(new FieldValueCounter(entry.getKey(), entry.getValue().counts()));
+		}
+		return counters;
+	}
+
+	@Override
+	public List<FieldValueCounter> findAll(Iterable<String> keys) {
+		List<FieldValueCounter> results = new ArrayList<FieldValueCounter>();
+		for (String k : keys) {
+			FieldValueCounter value = findOne(k);
+			if (value != null) {
+				results.add(value);
+			}
+		}
+		return results;
+	}
+
+	@Override
+	public Page<FieldValueCounter> findByNameStartingWith(String prefix, Pageable pageable) {
+		return MetricUtils.findPage(this, map.navigableKeySet(), prefix, pageable);
+	}
+
+	@Override
+	public long count() {
+		return map.size();
+	}
+
+	@Override
+	public void deleteAll() {
+		map.clear();
+	}
+
+	private Sketch getOrCreate(String name) {
+		Sketch sketch = map.get(name);
+		if (sketch == null) {
+			sketch = new Sketch(capacity);
+			Sketch existing = map.putIfAbsent(name, sketch);
+			if (existing != null) {
+				sketch = existing;
+			}
+		}
+		return sketch;
+	}
+
+	private static final class Sketch {
+
+		private final SpaceSavingSummary summary;
+
+		private final HyperLogLog distinct = new HyperLogLog();
+
+		private double total;
+
+		Sketch(int capacity) {
+			this.summary = new SpaceSavingSummary(capacity);
+		}
+
+		synchronized void offer(String value, double count) {
+			summary.offer(value, count);
+			distinct.add(value);
+			total += count;
+		}
+
+		synchronized void remove(String value) {
+			summary.remove(value);
+		}
+
+		synchronized TopFieldValues top(String name, int n) {
+			return new TopFieldValues(name, summary.top(n), total, distinct.estimate(), HyperLogLog.STANDARD_ERROR);
+		}
+
+		synchronized Map<String, Double> counts() {
+			return summary.counts();
+		}
+
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.memory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.TopFieldValues.FieldValue;
+
+/**
+ * Tracks the most frequent values of a stream in bounded space, using the Space-Saving algorithm: once
+ * {@code capacity} values are tracked, a new value replaces the one with the lowest count, and starts from that count
+ * plus its own, the inherited count being its maximum overestimation. Any value whose true count exceeds
+ * {@code total / capacity} is guaranteed to be tracked.
+ * <p>
+ * Not thread safe.
+ *
+ * @since 1.3.2
+ */
+class SpaceSavingSummary {
+
+	private static final Comparator<Entry> BY_COUNT = new Comparator<Entry>() {
+
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			int result = Double.compare(e1.count, e2.count);
+			// among equal counts, the least recently updated value is evicted first
+			return result != 0 ? result : (e1.sequence < e2.sequence ? -1 : (e1.sequence == e2.sequence ? 0 : 1));
+		}
+
+	};
+
+	private final int capacity;
+
+	private final Map<String, Entry> entries;
+
+	private final TreeSet<Entry> byCount = new TreeSet<Entry>(BY_COUNT);
+
+	private long sequence;
+
+	SpaceSavingSummary(int capacity) {
+		Assert.isTrue(capacity > 0, "capacity must be greater than 0");
+		this.capacity = capacity;
+		this.entries = new HashMap<String, Entry>(Math.min(capacity, 1024) * 4 / 3 + 1);
+	}
+
+	void offer(String value, double count) {
+		Assert.isTrue(count >= 0, "count must not be negative");
+		Entry entry = entries.get(value);
+		if (entry != null) {
+			byCount.remove(entry);
+			entry.count += count;
+		}
+		else if (entries.size() < capacity) {
+			entry = new Entry(value, count, 0);
+			entries.put(value, entry);
+		}
+		else {
+			Entry min = byCount.pollFirst();
+			entries.remove(min.value);
+			entry = new Entry(value, min.count + count, min.count);
+			entries.put(value, entry);
+		}
+		entry.sequence = sequence++;
+		byCount.add(entry);
+	}
+
+	void remove(String value) {
+		Entry entry = entries.remove(value);
+		if (entry != null) {
+			byCount.remove(entry);
+		}
+	}
+
+	/**
+	 * @return up to {@code n} values, in decreasing order of count
+	 */
+	List<FieldValue> top(int n) {
+		List<FieldValue> result = new ArrayList<FieldValue>(Math.min(n, entries.size()));
+		for (Iterator<Entry> it = byCount.descendingIterator(); it.hasNext() && result.size() < n;) {
+			Entry entry = it.next();
+			result.add(new FieldValue(entry.value, entry.count, entry.error));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the estimated counts of all tracked values
+	 */
+	Map<String, Double> counts() {
+		Map<String, Double> result = new HashMap<String, Double>(entries.size() * 4 / 3 + 1);
+		for (Entry entry : entries.values()) {
+			result.put(entry.value, entry.count);
+		}
+		return result;
+	}
+
+	private static final class Entry {
+
+		private final String value;
+
+		private final double error;
+
+		private double count;
+
+		private long sequence;
+
+		Entry(String value, double count, double error) {
+			this.value = value;
+			this.count = count;
+			this.error = error;
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2014 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,7 +26,7 @@ import org.springframework.xd.module.options.spi.ModuleOption;
  *
  * @author Eric Bottard
  */
-@Mixin({ DateFormatMixin.class, MetricNameMixin.class })
+@Mixin({ DateFormatMixin.class, MetricNameMixin.class, WriteBehindMixin.class })
 public class AggregateCounterSinkOptionsMetadata {
 
 	private String timeField = "null";
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2014 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,10 @@
 
 package org.springframework.xd.analytics.metrics.metadata;
 
+import static org.springframework.xd.analytics.metrics.metadata.FieldValueCounterSinkOptionsMetadata.Storage.exact;
+
+import javax.validation.constraints.NotNull;
+
 import org.hibernate.validator.constraints.NotBlank;
 
 import org.springframework.xd.module.options.spi.Mixin;
@@ -32,6 +36,8 @@ public class FieldValueCounterSinkOptionsMetadata {
 
 	private String fieldName = null;
 
+	private Storage storage = exact;
+
 	@NotBlank
 	public String getFieldName() {
 		return fieldName;
@@ -42,5 +48,25 @@ public class FieldValueCounterSinkOptionsMetadata {
 		this.fieldName = fieldName;
 	}
 
+	@NotNull
+	public Storage getStorage() {
+		return storage;
+	}
+
+	@ModuleOption("how values are counted: 'exact' counts every value, 'sketch' tracks the most frequent values and estimates the number of distinct ones, in bounded space")
+	public void setStorage(Storage storage) {
+		this.storage = storage;
+	}
+
+	/**
+	 * The name of the repository bean that implements the selected storage.
+	 */
+	public String getComputedRepository() {
+		return storage == Storage.sketch ? "topFieldValueCounterRepository" : "fieldValueCounterRepository";
+	}
+
+	public static enum Storage {
+		exact, sketch;
+	}
 
 }
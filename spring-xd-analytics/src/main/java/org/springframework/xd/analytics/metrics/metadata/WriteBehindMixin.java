@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.analytics.metrics.metadata;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.xd.module.options.spi.ModuleOption;
+
+
+/**
+ * Adds the options of metric sinks that can buffer updates in memory and write them in batches.
+ *
+ * @since 1.3.2
+ */
+public class WriteBehindMixin {
+
+	private boolean writeBehind = false;
+
+	private long flushInterval = 1000;
+
+	private int flushSize = 1000;
+
+	private boolean flushOnShutdown = true;
+
+	public boolean isWriteBehind() {
+		return writeBehind;
+	}
+
+	@ModuleOption("whether to buffer updates in memory and write them to the metric in batches")
+	public void setWriteBehind(boolean writeBehind) {
+		this.writeBehind = writeBehind;
+	}
+
+	@Min(1)
+	public long getFlushInterval() {
+		return flushInterval;
+	}
+
+	@ModuleOption("the maximum time in milliseconds that updates are held in memory in write-behind mode, which bounds the updates lost if the container fails")
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	@Min(1)
+	public int getFlushSize() {
+		return flushSize;
+	}
+
+	@ModuleOption("the number of updates held in memory that triggers an early write in write-behind mode")
+	public void setFlushSize(int flushSize) {
+		this.flushSize = flushSize;
+	}
+
+	public boolean isFlushOnShutdown() {
+		return flushOnShutdown;
+	}
+
+	@ModuleOption("whether to write the updates held in memory when the module is undeployed, rather than discard them")
+	public void setFlushOnShutdown(boolean flushOnShutdown) {
+		this.flushOnShutdown = flushOnShutdown;
+	}
+
+}
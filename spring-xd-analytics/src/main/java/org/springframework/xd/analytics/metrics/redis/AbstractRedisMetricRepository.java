@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,8 +18,11 @@ package org.springframework.xd.analytics.metrics.redis;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.NavigableSet;
 import java.util.Set;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.ValueOperations;
@@ -27,6 +30,7 @@ import org.springframework.retry.RetryOperations;
 import org.springframework.util.Assert;
 import org.springframework.xd.analytics.metrics.core.Metric;
 import org.springframework.xd.analytics.metrics.core.MetricRepository;
+import org.springframework.xd.analytics.metrics.core.MetricUtils;
 
 /**
  * Common base functionality for Redis implementations.
@@ -191,8 +195,18 @@ abstract class AbstractRedisMetricRepository<M extends Metric, V> implements Met
 		return results;
 	}
 
+	@Override
+	public Page<M> findByNameStartingWith(String prefix, Pageable pageable) {
+		return MetricUtils.findPage(this, scanNames(prefix), prefix, pageable);
+	}
+
 	@Override
 	public long count() {
-		return findAll().size();
+		return scanNames(null).size();
+	}
+
+	private NavigableSet<String> scanNames(String prefix) {
+		return RedisUtils.scanNames(this.redisOperations, this.metricPrefix, prefix,
+				metricPrefix + ".+?_\\d{4}\\.\\d{2}\\.\\d{2}-\\d{2}:\\d{2}");
 	}
 }
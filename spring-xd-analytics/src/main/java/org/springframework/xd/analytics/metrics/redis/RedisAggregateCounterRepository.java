@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -27,8 +27,11 @@ import org.joda.time.ReadableDateTime;
 import org.joda.time.Years;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.SetOperations;
 import org.springframework.data.redis.serializer.GenericToStringSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -37,9 +40,13 @@ import org.springframework.util.Assert;
 import org.springframework.xd.analytics.metrics.core.AggregateCount;
 import org.springframework.xd.analytics.metrics.core.AggregateCountResolution;
 import org.springframework.xd.analytics.metrics.core.AggregateCounterRepository;
+import org.springframework.xd.analytics.metrics.core.BatchAggregateCounterRepository;
 import org.springframework.xd.analytics.metrics.core.MetricUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -52,7 +59,16 @@ import java.util.Set;
  * @author Luke Taylor
  */
 @Qualifier("aggregate")
-public class RedisAggregateCounterRepository extends RedisCounterRepository implements AggregateCounterRepository {
+public class RedisAggregateCounterRepository extends RedisCounterRepository implements BatchAggregateCounterRepository {
+
+	private static final long DEFAULT_CLOSED_BUCKET_CACHE_TTL = 60000;
+
+	private static final int CLOSED_BUCKET_CACHE_SIZE = 1024;
+
+	private final StringRedisSerializer stringSerializer = new StringRedisSerializer();
+
+	private final ClosedBucketCache closedBucketCache = new ClosedBucketCache(CLOSED_BUCKET_CACHE_SIZE,
+			DEFAULT_CLOSED_BUCKET_CACHE_TTL);
 
 	protected HashOperations<String, String, Long> hashOperations;
 
@@ -72,6 +88,17 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 		setOperations = redisTemplate.opsForSet();
 	}
 
+	/**
+	 * Set how long, in milliseconds, the counts of buckets whose period is over are cached; 0 disables caching.
+	 * Buckets are only cached once their period has been over for that long, and increments made through this
+	 * repository evict the buckets they update, so that only increments made elsewhere for instants that old may
+	 * take up to that long to show.
+	 */
+	public void setClosedBucketCacheTtl(long closedBucketCacheTtl) {
+		Assert.isTrue(closedBucketCacheTtl >= 0, "closedBucketCacheTtl must not be negative");
+		closedBucketCache.setTimeToLive(closedBucketCacheTtl);
+	}
+
 	@Override
 	public long increment(String name) {
 		return increment(name, 1, new DateTime());
@@ -97,6 +124,63 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 		return super.increment(name, amount);
 	}
 
+	/**
+	 * Sums the amounts per hash field, then sends all increments, bookkeeping included, in a single pipeline.
+	 */
+	@Override
+	public void incrementAll(String name, Map<DateTime, Long> amounts) {
+		if (amounts.isEmpty()) {
+			return;
+		}
+		final Map<String, Map<String, Long>> hashIncrements = new LinkedHashMap<String, Map<String, Long>>();
+		long total = 0;
+		for (Map.Entry<DateTime, Long> entry : amounts.entrySet()) {
+			AggregateKeyGenerator akg = new AggregateKeyGenerator(getPrefix(), name, entry.getKey());
+			long amount = entry.getValue();
+			addHashIncrement(hashIncrements, akg.getYearsKey(), akg.getYear(), amount);
+			addHashIncrement(hashIncrements, akg.getYearKey(), akg.getMonth(), amount);
+			addHashIncrement(hashIncrements, akg.getMonthKey(), akg.getDay(), amount);
+			addHashIncrement(hashIncrements, akg.getDayKey(), akg.getHour(), amount);
+			addHashIncrement(hashIncrements, akg.getHourKey(), akg.getMinute(), amount);
+			total += amount;
+		}
+		final byte[] bookkeepingKey = stringSerializer.serialize(bookkeepingKeyFor(name));
+		final byte[] membershipKey = stringSerializer.serialize(getPrefix());
+		final byte[] totalKey = stringSerializer.serialize(redisKeyFromId(name));
+		final long totalAmount = total;
+		for (String key : hashIncrements.keySet()) {
+			closedBucketCache.evict(key);
+		}
+		redisOperations.executePipelined(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) throws DataAccessException {
+				for (Map.Entry<String, Map<String, Long>> hash : hashIncrements.entrySet()) {
+					byte[] key = stringSerializer.serialize(hash.getKey());
+					for (Map.Entry<String, Long> field : hash.getValue().entrySet()) {
+						connection.hIncrBy(key, stringSerializer.serialize(field.getKey()), field.getValue());
+					}
+					connection.sAdd(bookkeepingKey, key);
+				}
+				connection.zAdd(membershipKey, 0.0D, totalKey);
+				connection.incrBy(totalKey, totalAmount);
+				return null;
+			}
+
+		});
+	}
+
+	private void addHashIncrement(Map<String, Map<String, Long>> hashIncrements, String key, String hashKey,
+			long amount) {
+		Map<String, Long> fields = hashIncrements.get(key);
+		if (fields == null) {
+			fields = new LinkedHashMap<String, Long>();
+			hashIncrements.put(key, fields);
+		}
+		Long current = fields.get(hashKey);
+		fields.put(hashKey, current == null ? amount : current + amount);
+	}
+
 	/**
 	 * Return the key under which are stored the names of the other keys used for the given counter.
 	 */
@@ -109,6 +193,7 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 	 * cleaned up when needed.
 	 */
 	private void doIncrementHash(String key, String hashKey, long amount, String bookkeepingKey) {
+		closedBucketCache.evict(key);
 		long newValue = hashOperations.increment(key, hashKey, amount);
 		// TODO: the following test does not necessarily mean that the hash
 		// is new, just that the key inside that hash is new. So we end up
@@ -149,29 +234,29 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 		long[] counts;
 
 		if (resolution == AggregateCountResolution.minute) {
-			// Iterate through each hour in the interval and load the minutes for it
+			// Load the minutes of each hour in the interval
 			MutableDateTime dt = new MutableDateTime(interval.getStart());
 			dt.setRounding(c.hourOfDay());
 			Duration step = Duration.standardHours(1);
-			List<long[]> hours = new ArrayList<long[]>();
+			List<Bucket> hours = new ArrayList<Bucket>();
 			while (dt.isBefore(end) || dt.isEqual(end)) {
-				hours.add(getMinCountsForHour(name, dt));
+				hours.add(minutesOfHour(name, dt.toDateTime()));
 				dt.add(step);
 			}
-			counts = MetricUtils.concatArrays(hours, interval.getStart().getMinuteOfHour(),
+			counts = MetricUtils.concatArrays(getCounts(hours), interval.getStart().getMinuteOfHour(),
 					interval.toPeriod().toStandardMinutes().getMinutes() + 1);
 
 		}
 		else if (resolution == AggregateCountResolution.hour) {
 			DateTime cursor = new DateTime(c.dayOfMonth().roundFloor(interval.getStart().getMillis()));
-			List<long[]> days = new ArrayList<long[]>();
+			List<Bucket> days = new ArrayList<Bucket>();
 			Duration step = Duration.standardHours(24);
 			while (cursor.isBefore(end)) {
-				days.add(getHourCountsForDay(name, cursor));
+				days.add(hoursOfDay(name, cursor));
 				cursor = cursor.plus(step);
 			}
 
-			counts = MetricUtils.concatArrays(days, interval.getStart().getHourOfDay(),
+			counts = MetricUtils.concatArrays(getCounts(days), interval.getStart().getHourOfDay(),
 					interval.toPeriod().toStandardHours().getHours() + 1);
 
 		}
@@ -180,28 +265,28 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 			DateTime endDay = new DateTime(c.dayOfYear().roundFloor(end.plusDays(1).getMillis()));
 			int nDays = Days.daysBetween(startDay, endDay).getDays();
 			DateTime cursor = new DateTime(c.monthOfYear().roundFloor(interval.getStart().getMillis()));
-			List<long[]> months = new ArrayList<long[]>();
+			List<Bucket> months = new ArrayList<Bucket>();
 			DateTime endMonth = new DateTime(c.monthOfYear().roundCeiling(interval.getEnd().plusMonths(1).getMillis()));
 			while (cursor.isBefore(endMonth)) {
-				months.add(getDayCountsForMonth(name, cursor));
+				months.add(daysOfMonth(name, cursor));
 				cursor = cursor.plusMonths(1);
 			}
 
-			counts = MetricUtils.concatArrays(months, interval.getStart().getDayOfMonth() - 1, nDays);
+			counts = MetricUtils.concatArrays(getCounts(months), interval.getStart().getDayOfMonth() - 1, nDays);
 		}
 		else if (resolution == AggregateCountResolution.month) {
 			DateTime startMonth = new DateTime(c.monthOfYear().roundFloor(interval.getStartMillis()));
 			DateTime endMonth = new DateTime(c.monthOfYear().roundFloor(end.plusMonths(1).getMillis()));
 			int nMonths = Months.monthsBetween(startMonth, endMonth).getMonths();
 			DateTime cursor = new DateTime(c.year().roundFloor(interval.getStartMillis()));
-			List<long[]> years = new ArrayList<long[]>();
+			List<Bucket> years = new ArrayList<Bucket>();
 			DateTime endYear = new DateTime(c.year().roundCeiling(interval.getEnd().plusYears(1).getMillis()));
 			while (cursor.isBefore(endYear)) {
-				years.add(getMonthCountsForYear(name, cursor));
+				years.add(monthsOfYear(name, cursor));
 				cursor = cursor.plusYears(1);
 			}
 
-			counts = MetricUtils.concatArrays(years, interval.getStart().getMonthOfYear() - 1, nMonths);
+			counts = MetricUtils.concatArrays(getCounts(years), interval.getStart().getMonthOfYear() - 1, nMonths);
 		}
 		else if (resolution == AggregateCountResolution.year) {
 			DateTime startYear = new DateTime(interval.getStart().getYear(), 1, 1, 0, 0);
@@ -227,37 +312,102 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 
 	private Map<String, Long> getYearCounts(String name) {
 		AggregateKeyGenerator akg = new AggregateKeyGenerator(getPrefix(), name, new DateTime());
-		return getEntries(akg.getYearsKey());
+		return hashOperations.entries(akg.getYearsKey());
 	}
 
-	private long[] getMonthCountsForYear(String name, DateTime year) {
+	private Bucket monthsOfYear(String name, DateTime year) {
 		AggregateKeyGenerator akg = new AggregateKeyGenerator(getPrefix(), name, year);
-		return convertToArray(getEntries(akg.getYearKey()), year.monthOfYear().getMaximumValue(), true); // Months in this year
+		// Months in this year
+		return new Bucket(akg.getYearKey(), year.year().roundFloorCopy().plusYears(1),
+				year.monthOfYear().getMaximumValue(), true);
 	}
 
-	private long[] getDayCountsForMonth(String name, DateTime month) {
+	private Bucket daysOfMonth(String name, DateTime month) {
 		AggregateKeyGenerator akg = new AggregateKeyGenerator(getPrefix(), name, month.withTimeAtStartOfDay());
-		return convertToArray(getEntries(akg.getMonthKey()), month.dayOfMonth().getMaximumValue(), true); // Days in this month
+		// Days in this month
+		return new Bucket(akg.getMonthKey(), month.monthOfYear().roundFloorCopy().plusMonths(1),
+				month.dayOfMonth().getMaximumValue(), true);
 	}
 
-	private long[] getHourCountsForDay(String name, DateTime day) {
+	private Bucket hoursOfDay(String name, DateTime day) {
 		AggregateKeyGenerator akg = new AggregateKeyGenerator(getPrefix(), name, day.withTimeAtStartOfDay());
-		return convertToArray(getEntries(akg.getDayKey()), 24, false);
+		return new Bucket(akg.getDayKey(), day.withTimeAtStartOfDay().plusDays(1), 24, false);
+	}
+
+	private Bucket minutesOfHour(String name, DateTime hour) {
+		AggregateKeyGenerator akg = new AggregateKeyGenerator(getPrefix(), name, hour);
+		return new Bucket(akg.getHourKey(), hour.hourOfDay().roundFloorCopy().plusHours(1), 60, false);
 	}
 
-	private long[] getMinCountsForHour(String name, ReadableDateTime dateTime) {
-		return getMinCountsForHour(name, dateTime.getYear(), dateTime.getMonthOfYear(), dateTime.getDayOfMonth(),
-				dateTime.getHourOfDay());
+	/**
+	 * Load the counts of all the given buckets, taking those of closed buckets from the cache when possible and
+	 * fetching the others in a single pipeline.
+	 */
+	private List<long[]> getCounts(List<Bucket> buckets) {
+		long now = System.currentTimeMillis();
+		final List<String> keysToFetch = new ArrayList<String>();
+		List<Map<String, Long>> entries = new ArrayList<Map<String, Long>>(buckets.size());
+		for (Bucket bucket : buckets) {
+			Map<String, Long> cached = isClosed(bucket, now) ? closedBucketCache.get(bucket.key, now) : null;
+			if (cached == null) {
+				keysToFetch.add(bucket.key);
+			}
+			entries.add(cached);
+		}
+		if (!keysToFetch.isEmpty()) {
+			List<Object> fetched = hashOperations.getOperations().executePipelined(new RedisCallback<Object>() {
+
+				@Override
+				public Object doInRedis(RedisConnection connection) throws DataAccessException {
+					for (String key : keysToFetch) {
+						connection.hGetAll(stringSerializer.serialize(key));
+					}
+					return null;
+				}
+
+			}, stringSerializer);
+			Iterator<Object> results = fetched.iterator();
+			for (int i = 0; i < buckets.size(); i++) {
+				if (entries.get(i) == null) {
+					@SuppressWarnings("unchecked")
+					Map<String, String> fields = (Map<String, String>) results.next();
+					Map<String, Long> result = toCounts(fields);
+					entries.set(i, result);
+					if (isClosed(buckets.get(i), now)) {
+						closedBucketCache.put(buckets.get(i).key, result, now);
+					}
+				}
+			}
+		}
+		List<long[]> counts = new ArrayList<long[]>(buckets.size());
+		for (int i = 0; i < buckets.size(); i++) {
+			Bucket bucket = buckets.get(i);
+			counts.add(convertToArray(entries.get(i), bucket.size, bucket.unitOffset));
+		}
+		return counts;
 	}
 
-	private long[] getMinCountsForHour(String name, int year, int month, int day, int hour) {
-		DateTime dt = new DateTime().withYear(year).withMonthOfYear(month).withDayOfMonth(day).withHourOfDay(hour);
-		AggregateKeyGenerator akg = new AggregateKeyGenerator(getPrefix(), name, dt);
-		return convertToArray(getEntries(akg.getHourKey()), 60, false);
+	/**
+	 * Parse the values of a hash fetched in a pipeline, which are deserialized as Strings.
+	 */
+	private Map<String, Long> toCounts(Map<String, String> fields) {
+		if (fields == null || fields.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Map<String, Long> counts = new LinkedHashMap<String, Long>(fields.size());
+		for (Map.Entry<String, String> field : fields.entrySet()) {
+			counts.put(field.getKey(), Long.valueOf(field.getValue()));
+		}
+		return counts;
 	}
 
-	private Map<String, Long> getEntries(String key) {
-		return hashOperations.entries(key);
+	/**
+	 * Whether no more increments are expected for the bucket. Increments may trail the end of a bucket, for instance
+	 * when they are written behind, so a bucket is only considered closed once it has ended for as long as closed
+	 * buckets are cached.
+	 */
+	private boolean isClosed(Bucket bucket, long now) {
+		return closedBucketCache.isEnabled() && bucket.end.getMillis() < now - closedBucketCache.getTimeToLive();
 	}
 
 	/**
@@ -282,5 +432,113 @@ public class RedisAggregateCounterRepository extends RedisCounterRepository impl
 		// Add metric-meta SET's key
 		otherKeys.add(metricMetaKey);
 		redisOperations.delete(otherKeys);
+		for (String key : otherKeys) {
+			closedBucketCache.evict(key);
+		}
+	}
+
+	/**
+	 * The hash keys and size of a bucket holding the counts of a period at some resolution, e.g. the minutes of an
+	 * hour.
+	 */
+	private static class Bucket {
+
+		private final String key;
+
+		private final DateTime end;
+
+		private final int size;
+
+		private final boolean unitOffset;
+
+		Bucket(String key, DateTime end, int size, boolean unitOffset) {
+			this.key = key;
+			this.end = end;
+			this.size = size;
+			this.unitOffset = unitOffset;
+		}
+
+	}
+
+	/**
+	 * A size-bounded cache of the entries of bucket hashes, each kept for a limited time.
+	 */
+	private static class ClosedBucketCache {
+
+		private final Map<String, CachedEntries> entries;
+
+		private volatile long timeToLive;
+
+		@SuppressWarnings("serial")
+		ClosedBucketCache(final int maxSize, long timeToLive) {
+			this.entries = new LinkedHashMap<String, CachedEntries>(16, 0.75f, true) {
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, CachedEntries> eldest) {
+					return size() > maxSize;
+				}
+
+			};
+			this.timeToLive = timeToLive;
+		}
+
+		boolean isEnabled() {
+			return this.timeToLive > 0;
+		}
+
+		long getTimeToLive() {
+			return this.timeToLive;
+		}
+
+		void setTimeToLive(long timeToLive) {
+			this.timeToLive = timeToLive;
+			if (timeToLive == 0) {
+				synchronized (this.entries) {
+					this.entries.clear();
+				}
+			}
+		}
+
+		Map<String, Long> get(String key, long now) {
+			synchronized (this.entries) {
+				CachedEntries cached = this.entries.get(key);
+				if (cached == null) {
+					return null;
+				}
+				if (cached.expiresAt <= now) {
+					this.entries.remove(key);
+					return null;
+				}
+				return cached.entries;
+			}
+		}
+
+		void put(String key, Map<String, Long> entries, long now) {
+			synchronized (this.entries) {
+				this.entries.put(key, new CachedEntries(entries, now + this.timeToLive));
+			}
+		}
+
+		void evict(String key) {
+			if (isEnabled()) {
+				synchronized (this.entries) {
+					this.entries.remove(key);
+				}
+			}
+		}
+
+	}
+
+	private static class CachedEntries {
+
+		private final Map<String, Long> entries;
+
+		private final long expiresAt;
+
+		CachedEntries(Map<String, Long> entries, long expiresAt) {
+			this.entries = entries;
+			this.expiresAt = expiresAt;
+		}
+
 	}
 }
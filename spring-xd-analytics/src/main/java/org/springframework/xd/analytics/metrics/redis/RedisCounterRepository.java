@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,9 @@
 package org.springframework.xd.analytics.metrics.redis;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
@@ -73,6 +76,15 @@ public class RedisCounterRepository extends AbstractRedisRepository<Counter, Str
 		return string;
 	}
 
+	@Override
+	public Page<Counter> findByNameStartingWith(String prefix, Pageable pageable) {
+		if (prefix == null || prefix.isEmpty()) {
+			// a plain range of the membership set
+			return findAll(new PageRequest(pageable.getPageNumber(), pageable.getPageSize()));
+		}
+		return findAllInRange(prefix, prefix + Character.MAX_VALUE, pageable);
+	}
+
 	@Override
 	public long increment(String name) {
 		return increment(name, 1L);
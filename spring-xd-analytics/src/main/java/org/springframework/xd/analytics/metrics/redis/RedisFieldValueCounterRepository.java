@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.xd.analytics.metrics.redis;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.redis.connection.DataType;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
@@ -23,12 +25,14 @@ import org.springframework.retry.RetryOperations;
 import org.springframework.util.Assert;
 import org.springframework.xd.analytics.metrics.core.FieldValueCounter;
 import org.springframework.xd.analytics.metrics.core.FieldValueCounterRepository;
+import org.springframework.xd.analytics.metrics.core.MetricUtils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
 
 public class RedisFieldValueCounterRepository implements FieldValueCounterRepository {
@@ -152,9 +156,19 @@ public class RedisFieldValueCounterRepository implements FieldValueCounterReposi
 		return results;
 	}
 
+	@Override
+	public Page<FieldValueCounter> findByNameStartingWith(String prefix, Pageable pageable) {
+		return MetricUtils.findPage(this, scanNames(prefix), prefix, pageable);
+	}
+
 	@Override
 	public long count() {
-		return findAll().size();
+		return scanNames(null).size();
+	}
+
+	private NavigableSet<String> scanNames(String prefix) {
+		return RedisUtils.scanNames(this.redisTemplate, this.metricPrefix, prefix,
+				this.metricPrefix + ".+?_\\d{4}\\.\\d{2}\\.\\d{2}-\\d{2}:\\d{2}");
 	}
 
 	@Override
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.redis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.retry.RetryOperations;
+import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.HistogramGauge;
+import org.springframework.xd.analytics.metrics.core.HistogramGaugeRepository;
+import org.springframework.xd.analytics.metrics.core.MetricUtils;
+
+/**
+ * Redis backed implementation of {@link HistogramGaugeRepository}.
+ * <p>
+ * Each histogram is kept in a hash, with a field per non-empty bucket besides its count, sum, minimum and maximum: one
+ * hash for all the values of a gauge, and one per minute that expires after the retention period. A Lua script
+ * records each value in both hashes atomically, so that any number of sink instances can record values in the same
+ * gauge.
+ *
+ * @since 1.3.2
+ */
+public class RedisHistogramGaugeRepository implements HistogramGaugeRepository {
+
+	/**
+	 * The default number of minutes per-minute histograms are kept for.
+	 */
+	public static final int DEFAULT_RETENTION_MINUTES = 1440;
+
+	private static final String METRIC_PREFIX = "histogramgauges.";
+
+	private static final String MINUTES_PREFIX = "metric_meta.histogramgauges.";
+
+	private static final DateTimeFormatter MINUTE_FORMATTER = DateTimeFormat.forPattern("yyyyMMddHHmm").withZoneUTC();
+
+	private static final int MINUTE_SUFFIX_LENGTH = ":yyyyMMddHHmm".length();
+
+	private static final String BUCKET_FIELD_PREFIX = "b";
+
+	private static final String ZERO_FIELD = "zero";
+
+	private static final String COUNT_FIELD = "count";
+
+	private static final String SUM_FIELD = "sum";
+
+	private static final String MIN_FIELD = "min";
+
+	private static final String MAX_FIELD = "max";
+
+	/**
+	 * KEYS: total, minute; ARGV: bucket field, value, minute time to live in seconds.
+	 */
+	private static final RedisScript<Long> RECORD_VALUE_SCRIPT = new DefaultRedisScript<Long>(
+			"local field, value, ttl = ARGV[1], ARGV[2], tonumber(ARGV[3])\n"
+					+ "for _, key in ipairs(KEYS) do\n"
+					+ "  redis.call('HINCRBY', key, field, 1)\n"
+					+ "  redis.call('HINCRBY', key, 'count', 1)\n"
+					+ "  redis.call('HINCRBYFLOAT', key, 'sum', value)\n"
+					+ "  local min = redis.call('HGET', key, 'min')\n"
+					+ "  if not min or tonumber(value) < tonumber(min) then\n"
+					+ "    redis.call('HSET', key, 'min', value)\n"
+					+ "  end\n"
+					+ "  local max = redis.call('HGET', key, 'max')\n"
+					+ "  if not max or tonumber(value) > tonumber(max) then\n"
+					+ "    redis.call('HSET', key, 'max', value)\n"
+					+ "  end\n"
+					+ "end\n"
+					+ "redis.call('EXPIRE', KEYS[2], ttl)\n"
+					+ "return 1\n", Long.class);
+
+	private final StringRedisRetryTemplate redisTemplate;
+
+	private final int retentionMinutes;
+
+	public RedisHistogramGaugeRepository(RedisConnectionFactory connectionFactory, RetryOperations retryOperations) {
+		this(connectionFactory, retryOperations, DEFAULT_RETENTION_MINUTES);
+	}
+
+	/**
+	 * @param retentionMinutes the number of minutes per-minute histograms are kept for
+	 */
+	public RedisHistogramGaugeRepository(RedisConnectionFactory connectionFactory, RetryOperations retryOperations,
+			int retentionMinutes) {
+		Assert.notNull(connectionFactory);
+		Assert.isTrue(retentionMinutes > 0, "retentionMinutes must be greater than 0");
+		this.retentionMinutes = retentionMinutes;
+		redisTemplate = new StringRedisRetryTemplate(connectionFactory, retryOperations);
+		// avoids proxy
+		redisTemplate.setExposeConnection(true);
+		redisTemplate.afterPropertiesSet();
+	}
+
+	@Override
+	public void recordValue(String name, double value) {
+		recordValue(name, value, DateTime.now());
+	}
+
+	@Override
+	public void recordValue(String name, double value, DateTime dateTime) {
+		Assert.notNull(name, "Gauge name can not be null");
+		Assert.isTrue(value >= 0.0, "Histogram gauge values must not be negative");
+		String field = value < HistogramGauge.MIN_VALUE ? ZERO_FIELD
+				: BUCKET_FIELD_PREFIX + HistogramGauge.bucketIndex(value);
+		// the minute outlives the retention period by a minute, as it starts before it is last written to
+		String ttl = Integer.toString((retentionMinutes + 1) * 60);
+		redisTemplate.execute(RECORD_VALUE_SCRIPT,
+				Arrays.asList(getMetricKey(name), getMinuteKey(name, dateTime)), field, Double.toString(value), ttl);
+	}
+
+	@Override
+	public HistogramGauge getHistogram(String name, Interval interval) {
+		Assert.notNull(name, "Gauge name can not be null");
+		Assert.notNull(interval, "The interval can not be null");
+		if (!redisTemplate.hasKey(getMetricKey(name))) {
+			return null;
+		}
+		DateTime start = interval.getStart().minuteOfHour().roundFloorCopy();
+		DateTime retentionStart = DateTime.now().minuteOfHour().roundFloorCopy().minusMinutes(retentionMinutes - 1);
+		if (start.isBefore(retentionStart)) {
+			start = retentionStart;
+		}
+		final List<String> keys = new ArrayList<String>();
+		for (DateTime minute = start; minute.isBefore(interval.getEnd()); minute = minute.plusMinutes(1)) {
+			keys.add(getMinuteKey(name, minute));
+		}
+		HistogramGauge result = new HistogramGauge(name);
+		if (keys.isEmpty()) {
+			return result;
+		}
+		final RedisSerializer<String> serializer = redisTemplate.getStringSerializer();
+		List<Object> hashes = redisTemplate.executePipelined(new RedisCallback<Object>() {
+
+			@Override
+			public Object doInRedis(RedisConnection connection) throws DataAccessException {
+				for (String key : keys) {
+					connection.hGetAll(serializer.serialize(key));
+				}
+				return null;
+			}
+
+		});
+		for (Object hash : hashes) {
+			@SuppressWarnings("unchecked")
+			Map<String, String> fields = (Map<String, String>) hash;
+			if (fields != null && !fields.isEmpty()) {
+				MetricUtils.mergeHistogram(result, toHistogram(name, fields));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void reset(String name) {
+		Assert.notNull(name, "Gauge name can not be null");
+		delete(name);
+		// an empty histogram still has a hash, so that the gauge exists
+		redisTemplate.opsForHash().put(getMetricKey(name), COUNT_FIELD, "0");
+	}
+
+	/*
+	 * Note: The per-minute histograms of the gauge are discarded, as the buckets of the saved histogram can not be
+	 * attributed to minutes.
+	 */
+	@Override
+	public <S extends HistogramGauge> S save(S histogram) {
+		String name = histogram.getName();
+		delete(name);
+		Map<String, String> fields = new HashMap<String, String>();
+		for (Map.Entry<Integer, Long> bucket : histogram.getBuckets().entrySet()) {
+			fields.put(BUCKET_FIELD_PREFIX + bucket.getKey(), Long.toString(bucket.getValue()));
+		}
+		fields.put(COUNT_FIELD, Long.toString(histogram.getCount()));
+		if (histogram.getCount() > 0) {
+			fields.put(ZERO_FIELD, Long.toString(histogram.getZeroCount()));
+			fields.put(SUM_FIELD, Double.toString(histogram.getSum()));
+			fields.put(MIN_FIELD, Double.toString(histogram.getMin()));
+			fields.put(MAX_FIELD, Double.toString(histogram.getMax()));
+		}
+		redisTemplate.opsForHash().putAll(getMetricKey(name), fields);
+		return histogram;
+	}
+
+	@Override
+	public <S extends HistogramGauge> Iterable<S> save(Iterable<S> histograms) {
+		List<S> results = new ArrayList<S>();
+		for (S h : histograms) {
+			results.add(save(h));
+		}
+		return results;
+	}
+
+	@Override
+	public void delete(String name) {
+		Assert.notNull(name, "The name of the HistogramGauge must not be null");
+		Set<String> keys = new HashSet<String>();
+		keys.add(getMetricKey(name));
+		String minutesPrefix = MINUTES_PREFIX + name;
+		for (String key : redisTemplate.keys(minutesPrefix + ":*")) {
+			// leaves the minutes of gauges whose names start with this one's and a colon
+			if (key.length() == minutesPrefix.length() + MINUTE_SUFFIX_LENGTH) {
+				keys.add(key);
+			}
+		}
+		redisTemplate.delete(keys);
+	}
+
+	@Override
+	public void delete(HistogramGauge histogram) {
+		Assert.notNull(histogram, "The HistogramGauge must not be null");
+		delete(histogram.getName());
+	}
+
+	@Override
+	public void delete(Iterable<? extends HistogramGauge> histograms) {
+		for (HistogramGauge histogram : histograms) {
+			delete(histogram);
+		}
+	}
+
+	@Override
+	public HistogramGauge findOne(String name) {
+		Assert.notNull(name, "The name of the HistogramGauge must not be null");
+		Map<String, String> fields = redisTemplate.<String, String> opsForHash().entries(getMetricKey(name));
+		return fields.isEmpty() ? null : toHistogram(name, fields);
+	}
+
+	@Override
+	public boolean exists(String name) {
+		return redisTemplate.hasKey(getMetricKey(name));
+	}
+
+	@Override
+	public List<HistogramGauge> findAll() {
+		List<HistogramGauge> histograms = new ArrayList<HistogramGauge>();
+		for (String key : redisTemplate.keys(METRIC_PREFIX + "*")) {
+			HistogramGauge histogram = findOne(key.substring(METRIC_PREFIX.length()));
+			if (histogram != null) {
+				histograms.add(histogram);
+			}
+		}
+		return histograms;
+	}
+
+	@Override
+	public Iterable<HistogramGauge> findAll(Iterable<String> names) {
+		List<HistogramGauge> results = new ArrayList<HistogramGauge>();
+		for (String name : names) {
+			HistogramGauge histogram = findOne(name);
+			if (histogram != null) {
+				results.add(histogram);
+			}
+		}
+		return results;
+	}
+
+	@Override
+	public Page<HistogramGauge> findByNameStartingWith(String prefix, Pageable pageable) {
+		return MetricUtils.findPage(this, RedisUtils.scanNames(redisTemplate, METRIC_PREFIX, prefix, null), prefix,
+				pageable);
+	}
+
+	@Override
+	public long count() {
+		return RedisUtils.scanNames(redisTemplate, METRIC_PREFIX, null, null).size();
+	}
+
+	@Override
+	public void deleteAll() {
+		Set<String> keys = new HashSet<String>(redisTemplate.keys(METRIC_PREFIX + "*"));
+		keys.addAll(redisTemplate.keys(MINUTES_PREFIX + "*"));
+		if (keys.size() > 0) {
+			redisTemplate.delete(keys);
+		}
+	}
+
+	protected String getMetricKey(String name) {
+		return METRIC_PREFIX + name;
+	}
+
+	protected String getMinuteKey(String name, DateTime dateTime) {
+		return MINUTES_PREFIX + name + ":" + MINUTE_FORMATTER.print(dateTime);
+	}
+
+	private static HistogramGauge toHistogram(String name, Map<String, String> fields) {
+		Map<Integer, Long> buckets = new HashMap<Integer, Long>(fields.size() * 4 / 3 + 1);
+		for (Map.Entry<String, String> field : fields.entrySet()) {
+			if (field.getKey().startsWith(BUCKET_FIELD_PREFIX)) {
+				buckets.put(Integer.valueOf(field.getKey().substring(BUCKET_FIELD_PREFIX.length())),
+						Long.valueOf(field.getValue()));
+			}
+		}
+		return new HistogramGauge(name, buckets, parseLong(fields.get(ZERO_FIELD)),
+				parseLong(fields.get(COUNT_FIELD)), parseDouble(fields.get(SUM_FIELD)),
+				parseDouble(fields.get(MIN_FIELD)), parseDouble(fields.get(MAX_FIELD)));
+	}
+
+	private static long parseLong(String value) {
+		return value == null ? 0L : Long.parseLong(value);
+	}
+
+	private static double parseDouble(String value) {
+		return value == null ? 0.0 : Double.parseDouble(value);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2011-2013 the original author or authors.
+ * Copyright 2011-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,50 +16,64 @@
 
 package org.springframework.xd.analytics.metrics.redis;
 
-import org.springframework.dao.DataAccessException;
-import org.springframework.dao.OptimisticLockingFailureException;
+import java.util.Collections;
+
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.core.RedisOperations;
-import org.springframework.data.redis.core.SessionCallback;
-import org.springframework.retry.RetryCallback;
-import org.springframework.retry.RetryContext;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.retry.RetryOperations;
-import org.springframework.retry.backoff.ExponentialBackOffPolicy;
-import org.springframework.retry.policy.SimpleRetryPolicy;
-import org.springframework.retry.support.RetryTemplate;
+import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
-import org.springframework.xd.analytics.metrics.core.MetricUtils;
+import org.springframework.xd.analytics.metrics.core.BatchRichGaugeRepository;
 import org.springframework.xd.analytics.metrics.core.RichGauge;
-import org.springframework.xd.analytics.metrics.core.RichGaugeRepository;
-
-import java.util.Collections;
-import java.util.List;
 
 /**
  * Repository for rich-gauges backed by Redis.
+ * <p>
+ * Values are recorded by a Lua script that updates the gauge atomically on the server, so that concurrent writers to
+ * the same gauge neither conflict nor retry.
  *
  * @author Luke Taylor
  * @author Eric Bottard
  */
 public class RedisRichGaugeRepository extends
-		AbstractRedisMetricRepository<RichGauge, String> implements RichGaugeRepository {
+		AbstractRedisMetricRepository<RichGauge, String> implements BatchRichGaugeRepository {
 
 	private static final String ZERO = serialize(new RichGauge("ZERO"));
 
-	private RetryTemplate retryTemplate;
+	/**
+	 * Applies the same computation as {@code RichGauge.set()} to each value in turn, on the serialized form of the
+	 * gauge. KEYS: the gauge; ARGV: alpha, then the values. Fails without updating the gauge if the average
+	 * overflows, as {@code %.17g} would write it as {@code inf} or {@code nan}, which cannot be read back.
+	 */
+	private static final RedisScript<Long> RECORD_VALUES_SCRIPT = new DefaultRedisScript<Long>(
+			"local value, average, max, min, count = 0, 0, 0, 0, 0\n"
+					+ "local current = redis.call('GET', KEYS[1])\n"
+					+ "if current then\n"
+					+ "  local parts = {}\n"
+					+ "  for part in string.gmatch(current, '%S+') do parts[#parts + 1] = tonumber(part) end\n"
+					+ "  value, average, max, min, count = parts[1], parts[3], parts[4], parts[5], parts[6]\n"
+					+ "end\n"
+					+ "local alpha = tonumber(ARGV[1])\n"
+					+ "for i = 2, #ARGV do\n"
+					+ "  local v = tonumber(ARGV[i])\n"
+					+ "  if count == 0 then max = v; min = v\n"
+					+ "  elseif v > max then max = v\n"
+					+ "  elseif v < min then min = v end\n"
+					+ "  if alpha > 0 and count > 0 then average = alpha * value + (1 - alpha) * average\n"
+					+ "  else average = (average * count + v) / (count + 1) end\n"
+					+ "  count = count + 1\n"
+					+ "  value = v\n"
+					+ "end\n"
+					+ "if average ~= average or average == math.huge or average == -math.huge then\n"
+					+ "  return redis.error_reply('the average of rich gauge ' .. KEYS[1] .. ' is not finite')\n"
+					+ "end\n"
+					+ "redis.call('SET', KEYS[1], string.format('%.17g %.17g %.17g %.17g %.17g %d',\n"
+					+ "  value, alpha, average, max, min, count))\n"
+					+ "return count\n", Long.class);
 
 	public RedisRichGaugeRepository(RedisConnectionFactory connectionFactory, RetryOperations retryOperations) {
 		super(connectionFactory, "richgauges.", String.class, retryOperations);
-
-		// In case of concurrent access on same key, retry a bit before giving up eventually
-		retryTemplate = new RetryTemplate();
-		retryTemplate.setRetryPolicy(new SimpleRetryPolicy(3, Collections.<Class<? extends Throwable>, Boolean>singletonMap(OptimisticLockingFailureException.class, true)));
-		ExponentialBackOffPolicy backOffPolicy = new ExponentialBackOffPolicy();
-		backOffPolicy.setInitialInterval(50L);
-		backOffPolicy.setMaxInterval(1000L);
-		backOffPolicy.setMultiplier(2);
-		retryTemplate.setBackOffPolicy(backOffPolicy);
-
 	}
 
 	private static String serialize(RichGauge g) {
@@ -93,40 +107,26 @@ public class RedisRichGaugeRepository extends
 	}
 
 	@Override
-	public void recordValue(final String name, final double value, final double alpha) {
-		final String key = getMetricKey(name);
-
-		retryTemplate.execute(new RetryCallback<Void, RuntimeException>() {
-
-			@Override
-			public Void doWithRetry(RetryContext context) {
-				return getRedisOperations().execute(new SessionCallback<Void>() {
-					@Override
-					@SuppressWarnings("unchecked")
-					public <K, V> Void execute(RedisOperations<K, V> operations) throws DataAccessException {
-						operations.watch((K) key);
-						RichGauge g = findOne(name);
-						if (g == null) {
-							g = new RichGauge(name);
-						}
-
-						operations.multi();
-						MetricUtils.setRichGaugeValue(g, value, alpha);
-						operations.opsForValue().set((K) key, (V) serialize(g));
-
-						List<Object> result = operations.exec();
-						if (result == null) {
-							throw new OptimisticLockingFailureException(String.format("Failed to set value of rich-gauge '%s' to %f", name, value));
-						}
-						return null;
-					}
-				});
-			}
-		});
+	public void recordValue(String name, double value, double alpha) {
+		recordValues(name, new double[] { value }, alpha);
 	}
 
-	public void setRetryTemplate(RetryTemplate retryTemplate) {
-		this.retryTemplate = retryTemplate;
+	@Override
+	public void recordValues(String name, double[] values, double alpha) {
+		Assert.notNull(name, "The name of the gauge must not be null");
+		Assert.isTrue(alpha == -1 || (alpha > 0.0 && alpha < 1.0),
+				"Smoothing constant must be between 0 and 1, or -1 to use arithmetic mean");
+		if (values.length == 0) {
+			return;
+		}
+		Object[] args = new Object[values.length + 1];
+		args[0] = Double.toString(alpha);
+		for (int i = 0; i < values.length; i++) {
+			Assert.isTrue(!Double.isNaN(values[i]) && !Double.isInfinite(values[i]),
+					"Rich gauge values must be finite: " + values[i]);
+			args[i + 1] = Double.toString(values[i]);
+		}
+		getRedisOperations().execute(RECORD_VALUES_SCRIPT, Collections.singletonList(getMetricKey(name)), args);
 	}
 
 	@Override
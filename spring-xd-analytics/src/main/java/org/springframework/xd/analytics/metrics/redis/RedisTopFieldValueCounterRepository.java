@@ -0,0 +1,292 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.redis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.retry.RetryOperations;
+import org.springframework.util.Assert;
+import org.springframework.xd.analytics.metrics.core.FieldValueCounter;
+import org.springframework.xd.analytics.metrics.core.MetricUtils;
+import org.springframework.xd.analytics.metrics.core.TopFieldValueCounterRepository;
+import org.springframework.xd.analytics.metrics.core.TopFieldValues;
+import org.springframework.xd.analytics.metrics.core.TopFieldValues.FieldValue;
+
+/**
+ * Redis backed implementation of {@link TopFieldValueCounterRepository}.
+ * <p>
+ * The tracked values of a counter are kept in a sorted set, capped at a fixed number of members by a Space-Saving
+ * eviction that a Lua script applies atomically on each increment. The maximum overestimation of each value is kept in
+ * a hash, the distinct values in a Redis HyperLogLog, and the sum of all counts in a string.
+ *
+ * @since 1.3.2
+ */
+public class RedisTopFieldValueCounterRepository implements TopFieldValueCounterRepository {
+
+	/**
+	 * The default number of values tracked per counter.
+	 */
+	public static final int DEFAULT_CAPACITY = 1000;
+
+	/**
+	 * The relative standard error of Redis' HyperLogLog implementation.
+	 */
+	private static final double DISTINCT_STANDARD_ERROR = 0.0081;
+
+	private static final String METRIC_PREFIX = "topfieldvaluecounters.";
+
+	private static final String META_PREFIX = "metric_meta.topfieldvaluecounters.";
+
+	/**
+	 * KEYS: values, errors, distinct, total; ARGV: value, count, capacity.
+	 */
+	private static final RedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<Long>(
+			"local value, count, capacity = ARGV[1], tonumber(ARGV[2]), tonumber(ARGV[3])\n"
+					+ "redis.call('PFADD', KEYS[3], value)\n"
+					+ "redis.call('INCRBYFLOAT', KEYS[4], count)\n"
+					+ "if redis.call('ZSCORE', KEYS[1], value) then\n"
+					+ "  redis.call('ZINCRBY', KEYS[1], count, value)\n"
+					+ "elseif redis.call('ZCARD', KEYS[1]) < capacity then\n"
+					+ "  redis.call('ZADD', KEYS[1], count, value)\n"
+					+ "else\n"
+					+ "  local min = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')\n"
+					+ "  local minCount = tonumber(min[2])\n"
+					+ "  redis.call('ZREM', KEYS[1], min[1])\n"
+					+ "  redis.call('HDEL', KEYS[2], min[1])\n"
+					+ "  redis.call('ZADD', KEYS[1], minCount + count, value)\n"
+					+ "  redis.call('HSET', KEYS[2], value, min[2])\n"
+					+ "end\n"
+					+ "return 1\n", Long.class);
+
+	private final StringRedisRetryTemplate redisTemplate;
+
+	private final int capacity;
+
+	public RedisTopFieldValueCounterRepository(RedisConnectionFactory connectionFactory,
+			RetryOperations retryOperations) {
+		this(connectionFactory, retryOperations, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity the number of values tracked per counter
+	 */
+	public RedisTopFieldValueCounterRepository(RedisConnectionFactory connectionFactory,
+			RetryOperations retryOperations, int capacity) {
+		Assert.notNull(connectionFactory);
+		Assert.isTrue(capacity > 0, "capacity must be greater than 0");
+		this.capacity = capacity;
+		redisTemplate = new StringRedisRetryTemplate(connectionFactory, retryOperations);
+		// avoids proxy
+		redisTemplate.setExposeConnection(true);
+		redisTemplate.afterPropertiesSet();
+	}
+
+	@Override
+	public void increment(String name, String fieldName) {
+		increment(name, fieldName, 1.0);
+	}
+
+	public void increment(String name, String fieldName, double count) {
+		Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+		Assert.isTrue(count >= 0, "count must not be negative");
+		redisTemplate.execute(INCREMENT_SCRIPT, getKeys(name), fieldName, Double.toString(count),
+				Integer.toString(capacity));
+	}
+
+	@Override
+	public void decrement(String name, String fieldName) {
+		throw new UnsupportedOperationException("Top field value counters can not be decremented");
+	}
+
+	@Override
+	public void reset(String name, String fieldName) {
+		redisTemplate.boundZSetOps(getMetricKey(name)).remove(fieldName);
+		redisTemplate.boundHashOps(getErrorsKey(name)).delete(fieldName);
+	}
+
+	@Override
+	public TopFieldValues findTop(String name, int n) {
+		Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+		Assert.isTrue(n > 0, "n must be greater than 0");
+		String total = redisTemplate.opsForValue().get(getTotalKey(name));
+		if (total == null) {
+			return null;
+		}
+		Set<TypedTuple<String>> top = redisTemplate.boundZSetOps(getMetricKey(name)).reverseRangeWithScores(0, n - 1);
+		List<String> values = new ArrayList<String>(top.size());
+		for (TypedTuple<String> tuple : top) {
+			values.add(tuple.getValue());
+		}
+		List<String> errors = values.isEmpty() ? values
+				: redisTemplate.<String, String> opsForHash().multiGet(getErrorsKey(name), values);
+		List<FieldValue> result = new ArrayList<FieldValue>(top.size());
+		Iterator<TypedTuple<String>> it = top.iterator();
+		for (int i = 0; it.hasNext(); i++) {
+			TypedTuple<String> tuple = it.next();
+			String error = errors.get(i);
+			result.add(new FieldValue(tuple.getValue(), tuple.getScore(),
+					error == null ? 0 : Double.parseDouble(error)));
+		}
+		long distinct = redisTemplate.opsForHyperLogLog().size(getDistinctKey(name));
+		return new TopFieldValues(name, result, Double.parseDouble(total), distinct, DISTINCT_STANDARD_ERROR);
+	}
+
+	/*
+	 * Note: The counter is summarized again from its counts, so its distinct count becomes the number of its values.
+	 */
+	@Override
+	public <S extends FieldValueCounter> S save(S fieldValueCounter) {
+		String name = fieldValueCounter.getName();
+		delete(name);
+		redisTemplate.opsForValue().set(getTotalKey(name), "0");
+		for (Map.Entry<String, Double> entry : fieldValueCounter.getFieldValueCount().entrySet()) {
+			increment(name, entry.getKey(), entry.getValue());
+		}
+		return fieldValueCounter;
+	}
+
+	@Override
+	public <S extends FieldValueCounter> Iterable<S> save(Iterable<S> metrics) {
+		List<S> results = new ArrayList<S>();
+		for (S m : metrics) {
+			results.add(save(m));
+		}
+		return results;
+	}
+
+	@Override
+	public void delete(String name) {
+		Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+		redisTemplate.delete(getKeys(name));
+	}
+
+	@Override
+	public void delete(FieldValueCounter fieldValueCounter) {
+		Assert.notNull(fieldValueCounter, "The FieldValueCounter must not be null");
+		delete(fieldValueCounter.getName());
+	}
+
+	@Override
+	public void delete(Iterable<? extends FieldValueCounter> fvcs) {
+		for (FieldValueCounter fvc : fvcs) {
+			delete(fvc);
+		}
+	}
+
+	/**
+	 * Returns the tracked values of the counter only.
+	 */
+	@Override
+	public FieldValueCounter findOne(String name) {
+		Assert.notNull(name, "The name of the FieldValueCounter must not be null");
+		if (!redisTemplate.hasKey(getTotalKey(name))) {
+			return null;
+		}
+		Set<TypedTuple<String>> rangeWithScores = redisTemplate.boundZSetOps(getMetricKey(name))
+				.rangeWithScores(0, -1);
+		Map<String, Double> values = new HashMap<String, Double>(rangeWithScores.size() * 4 / 3 + 1);
+		for (TypedTuple<String> tuple : rangeWithScores) {
+			values.put(tuple.getValue(), tuple.getScore());
+		}
+		return new FieldValueCounter(name, values);
+	}
+
+	@Override
+	public boolean exists(String name) {
+		return redisTemplate.hasKey(getTotalKey(name));
+	}
+
+	@Override
+	public List<FieldValueCounter> findAll() {
+		List<FieldValueCounter> counters = new ArrayList<FieldValueCounter>();
+		// every counter has a total, even one saved without values
+		String totalPrefix = getTotalKey("");
+		for (String key : redisTemplate.keys(totalPrefix + "*")) {
+			FieldValueCounter counter = findOne(key.substring(totalPrefix.length()));
+			if (counter != null) {
+				counters.add(counter);
+			}
+		}
+		return counters;
+	}
+
+	@Override
+	public Iterable<FieldValueCounter> findAll(Iterable<String> keys) {
+		List<FieldValueCounter> results = new ArrayList<FieldValueCounter>();
+		for (String k : keys) {
+			FieldValueCounter value = findOne(k);
+			if (value != null) {
+				results.add(value);
+			}
+		}
+		return results;
+	}
+
+	@Override
+	public Page<FieldValueCounter> findByNameStartingWith(String prefix, Pageable pageable) {
+		return MetricUtils.findPage(this, RedisUtils.scanNames(redisTemplate, getTotalKey(""), prefix, null), prefix,
+				pageable);
+	}
+
+	@Override
+	public long count() {
+		return RedisUtils.scanNames(redisTemplate, getTotalKey(""), null, null).size();
+	}
+
+	@Override
+	public void deleteAll() {
+		Set<String> keys = new HashSet<String>(redisTemplate.keys(METRIC_PREFIX + "*"));
+		keys.addAll(redisTemplate.keys(META_PREFIX + "*"));
+		if (keys.size() > 0) {
+			redisTemplate.delete(keys);
+		}
+	}
+
+	protected String getMetricKey(String name) {
+		return METRIC_PREFIX + name;
+	}
+
+	protected String getErrorsKey(String name) {
+		return META_PREFIX + "errors." + name;
+	}
+
+	protected String getDistinctKey(String name) {
+		return META_PREFIX + "distinct." + name;
+	}
+
+	protected String getTotalKey(String name) {
+		return META_PREFIX + "total." + name;
+	}
+
+	private List<String> getKeys(String name) {
+		return Arrays.asList(getMetricKey(name), getErrorsKey(name), getDistinctKey(name), getTotalKey(name));
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,19 @@
 
 package org.springframework.xd.analytics.metrics.redis;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.serializer.GenericToStringSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.retry.RetryOperations;
@@ -28,6 +40,15 @@ import org.springframework.retry.RetryOperations;
  */
 class RedisUtils {
 
+	/**
+	 * The number of keys SCAN is asked to look at per call.
+	 */
+	private static final long SCAN_COUNT = 1000;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final Pattern GLOB_SPECIAL_CHARACTERS = Pattern.compile("([*?\\[\\]\\\\])");
+
 	/**
 	 * Create a RedisRetryTemplate for a specific value class and serializer options.
 	 * @param connectionFactory the connection factory to use
@@ -53,4 +74,48 @@ class RedisUtils {
 		redisTemplate.afterPropertiesSet();
 		return redisTemplate;
 	}
+
+	/**
+	 * Return the names of the metrics whose keys are made of the given key prefix and their name, in order. The key
+	 * space is walked with SCAN rather than KEYS, so that Redis keeps serving other clients meanwhile, and only keys are
+	 * read, not values.
+	 * @param redisOperations the template to scan with
+	 * @param keyPrefix the prefix of the keys of the metrics
+	 * @param namePrefix only return names starting with this prefix; may be null
+	 * @param excludedKeys a regular expression matching keys that do not hold a metric; may be null
+	 * @return the names, sorted
+	 */
+	static NavigableSet<String> scanNames(RedisOperations<String, ?> redisOperations, final String keyPrefix,
+			String namePrefix, final String excludedKeys) {
+		final String pattern = GLOB_SPECIAL_CHARACTERS.matcher(keyPrefix + (namePrefix == null ? "" : namePrefix))
+				.replaceAll("\\\\$1") + "*";
+		return redisOperations.execute(new RedisCallback<NavigableSet<String>>() {
+
+			@Override
+			public NavigableSet<String> doInRedis(RedisConnection connection) throws DataAccessException {
+				NavigableSet<String> names = new TreeSet<String>();
+				Cursor<byte[]> cursor = connection.scan(ScanOptions.scanOptions().match(pattern).count(SCAN_COUNT)
+						.build());
+				try {
+					while (cursor.hasNext()) {
+						String key = new String(cursor.next(), UTF_8);
+						if (excludedKeys == null || !key.matches(excludedKeys)) {
+							names.add(key.substring(keyPrefix.length()));
+						}
+					}
+				}
+				finally {
+					try {
+						cursor.close();
+					}
+					catch (IOException e) {
+						// nothing left to read
+					}
+				}
+				return names;
+			}
+
+		});
+	}
+
 }
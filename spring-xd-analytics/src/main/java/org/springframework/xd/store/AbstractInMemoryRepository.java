@@ -1,5 +1,5 @@
 /*
- * Copyright 2013 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.xd.store;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -127,4 +128,20 @@ public abstract class AbstractInMemoryRepository<T, ID extends Serializable & Co
 		return map.subMap(from, fromInclusive, to, toInclusive).values();
 	}
 
+	/**
+	 * Return a page of the entities whose ids range from {@code from} inclusive to {@code to} exclusive, in id order.
+	 */
+	protected Page<T> findAllInRange(ID from, ID to, Pageable pageable) {
+		Collection<T> range = map.subMap(from, true, to, false).values();
+		List<T> data = new ArrayList<T>(pageable.getPageSize());
+		int total = 0;
+		for (T entity : range) {
+			if (total >= pageable.getOffset() && data.size() < pageable.getPageSize()) {
+				data.add(entity);
+			}
+			total++;
+		}
+		return new PageImpl<T>(data, pageable, total);
+	}
+
 }
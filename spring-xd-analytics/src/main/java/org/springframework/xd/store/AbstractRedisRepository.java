@@ -1,5 +1,5 @@
 /*
- * Copyright 2013 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,12 +24,19 @@ import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisZSetCommands.Limit;
+import org.springframework.data.redis.connection.RedisZSetCommands.Range;
+import org.springframework.data.redis.connection.ReturnType;
 import org.springframework.data.redis.core.BoundZSetOperations;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.util.Assert;
 
@@ -49,12 +56,20 @@ import org.springframework.util.Assert;
 public abstract class AbstractRedisRepository<T, ID extends Serializable & Comparable<ID>> implements
 		PagingAndSortingRepository<T, ID>, RangeCapableRepository<T, ID> {
 
+	/**
+	 * Counts the members of a sorted set in a lexicographical range; RedisConnection has no ZLEXCOUNT method.
+	 */
+	private static final byte[] LEX_COUNT_SCRIPT = new StringRedisSerializer().serialize(
+			"return redis.call('ZLEXCOUNT', KEYS[1], ARGV[1], ARGV[2])");
+
 	protected String repoPrefix;
 
 	protected BoundZSetOperations<String, String> zSetOperations;
 
 	protected RedisOperations<String, String> redisOperations;
 
+	private final StringRedisSerializer serializer = new StringRedisSerializer();
+
 	public AbstractRedisRepository(String repoPrefix, RedisOperations<String, String> redisOperations) {
 		Assert.hasText(repoPrefix, "repoPrefix must not be empty or null");
 		Assert.notNull(redisOperations, "redisOperations must not be null");
@@ -196,6 +211,43 @@ public abstract class AbstractRedisRepository<T, ID extends Serializable & Compa
 
 	}
 
+	/**
+	 * Return a page of the entities whose ids range from {@code from} inclusive to {@code to} exclusive, in id order.
+	 * Only the keys of the requested page are read from the membership set, with ZRANGEBYLEX and a LIMIT, and the
+	 * total is counted with ZLEXCOUNT, which requires Redis 2.8.9 or later.
+	 */
+	protected Page<T> findAllInRange(ID from, ID to, Pageable pageable) {
+		final Range range = Range.range().gte(redisKeyFromId(from)).lt(redisKeyFromId(to));
+		final Limit limit = new Limit().offset(pageable.getOffset()).count(pageable.getPageSize());
+		final byte[] min = serializer.serialize("[" + redisKeyFromId(from));
+		final byte[] max = serializer.serialize("(" + redisKeyFromId(to));
+		final byte[] membershipKey = serializer.serialize(repoPrefix);
+		final List<String> redisKeys = new ArrayList<String>(pageable.getPageSize());
+		Long total = redisOperations.execute(new RedisCallback<Long>() {
+
+			@Override
+			public Long doInRedis(RedisConnection connection) throws DataAccessException {
+				// not pipelined, as Jedis does not support ZRANGEBYLEX in a pipeline
+				for (byte[] rawKey : connection.zRangeByLex(membershipKey, range, limit)) {
+					redisKeys.add(serializer.deserialize(rawKey));
+				}
+				return connection.eval(LEX_COUNT_SCRIPT, ReturnType.INTEGER, 1, membershipKey, min, max);
+			}
+
+		});
+		List<T> result = new ArrayList<T>(redisKeys.size());
+		if (!redisKeys.isEmpty()) {
+			Iterator<String> keysIt = redisKeys.iterator();
+			for (String v : redisOperations.opsForValue().multiGet(redisKeys)) {
+				String redisKey = keysIt.next();
+				if (v != null) {
+					result.add(deserialize(idFromRedisKey(redisKey), v));
+				}
+			}
+		}
+		return new PageImpl<T>(result, pageable, total == null ? redisKeys.size() : total);
+	}
+
 	/**
 	 * Perform bookkeeping of entities managed by this repository. Uses a redis sorted set with a dummy value, which
 	 * happens to guarantee that keys for a given score are in sorted order.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -31,6 +32,8 @@ import org.junit.Test;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.xd.analytics.metrics.core.Counter;
 import org.springframework.xd.analytics.metrics.core.CounterRepository;
 
@@ -101,4 +104,33 @@ public abstract class AbstractCounterRepositoryTests {
 	public void findNonExistentRaisesException() throws Exception {
 		counterRepository.findOne("idontexist");
 	}
+
+	@Test
+	public void testFindByNameStartingWith() {
+		for (String name : Arrays.asList("http.500", "jdbc.errors", "http.200", "http.404")) {
+			counterRepository.increment(name);
+		}
+
+		Page<Counter> page = counterRepository.findByNameStartingWith("http.", new PageRequest(0, 2));
+		assertEquals(3, page.getTotalElements());
+		assertEquals(Arrays.asList("http.200", "http.404"), names(page));
+		assertEquals(1L, page.getContent().get(0).getValue());
+
+		page = counterRepository.findByNameStartingWith("http.", new PageRequest(1, 2));
+		assertEquals(Arrays.asList("http.500"), names(page));
+
+		page = counterRepository.findByNameStartingWith(null, new PageRequest(0, 10));
+		assertEquals(Arrays.asList("http.200", "http.404", "http.500", "jdbc.errors"), names(page));
+
+		assertEquals(0, counterRepository.findByNameStartingWith("ftp.", new PageRequest(0, 10)).getTotalElements());
+		assertTrue(counterRepository.findByNameStartingWith(null, new PageRequest(3, 10)).getContent().isEmpty());
+	}
+
+	private List<String> names(Page<Counter> page) {
+		List<String> names = new ArrayList<String>();
+		for (Counter counter : page) {
+			names.add(counter.getName());
+		}
+		return names;
+	}
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.junit.Test;
+
+import org.springframework.xd.analytics.metrics.core.HistogramGauge;
+import org.springframework.xd.analytics.metrics.core.HistogramGaugeRepository;
+
+/**
+ * Base tests for various implementations of {@link HistogramGaugeRepository}, which are expected to keep per-minute
+ * histograms for {@value #RETENTION_MINUTES} minutes.
+ *
+ * @since 1.3.2
+ */
+public abstract class AbstractHistogramGaugeRepositoryTests {
+
+	protected static final int RETENTION_MINUTES = 60;
+
+	protected HistogramGaugeRepository histogramGaugeRepository;
+
+	private final String name = "latency";
+
+	@Test
+	public void testRecordValues() {
+		for (int i = 1; i <= 100; i++) {
+			histogramGaugeRepository.recordValue(name, i);
+		}
+		HistogramGauge h = histogramGaugeRepository.findOne(name);
+		assertThat(h.getName(), equalTo(name));
+		assertThat(h.getCount(), equalTo(100L));
+		assertThat(h.getMin(), equalTo(1.0));
+		assertThat(h.getMax(), equalTo(100.0));
+		assertThat(h.getMean(), closeTo(50.5, 1.0E-9));
+		assertThat(h.getValueAtPercentile(50.0), closeTo(50.0, 0.5));
+		assertThat(h.getValueAtPercentile(99.0), closeTo(99.0, 0.99));
+	}
+
+	@Test
+	public void testWindow() {
+		DateTime now = DateTime.now();
+		histogramGaugeRepository.recordValue(name, 10.0, now.minusMinutes(30));
+		histogramGaugeRepository.recordValue(name, 20.0, now.minusMinutes(5));
+		histogramGaugeRepository.recordValue(name, 30.0, now);
+		// past the retention period, so only counted in the total
+		histogramGaugeRepository.recordValue(name, 40.0, now.minusMinutes(RETENTION_MINUTES + 10));
+
+		HistogramGauge window = histogramGaugeRepository.getHistogram(name, new Interval(now.minusMinutes(10), now));
+		assertThat(window.getCount(), equalTo(2L));
+		assertThat(window.getMin(), equalTo(20.0));
+		assertThat(window.getMax(), equalTo(30.0));
+
+		window = histogramGaugeRepository.getHistogram(name, new Interval(now.minusDays(1), now));
+		assertThat(window.getCount(), equalTo(3L));
+		assertThat(histogramGaugeRepository.findOne(name).getCount(), equalTo(4L));
+	}
+
+	@Test
+	public void testMissingGauge() {
+		assertThat(histogramGaugeRepository.findOne("missing"), is(nullValue()));
+		DateTime now = DateTime.now();
+		assertThat(histogramGaugeRepository.getHistogram("missing", new Interval(now.minusHours(1), now)),
+				is(nullValue()));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testResetSaveAndDelete() {
+		histogramGaugeRepository.recordValue(name, 1.0);
+		histogramGaugeRepository.reset(name);
+		HistogramGauge h = histogramGaugeRepository.findOne(name);
+		assertThat(h.getCount(), equalTo(0L));
+		DateTime now = DateTime.now();
+		assertThat(histogramGaugeRepository.getHistogram(name, new Interval(now.minusHours(1), now)).getCount(),
+				equalTo(0L));
+
+		HistogramGauge other = new HistogramGauge("other");
+		histogramGaugeRepository.save(other);
+		histogramGaugeRepository.recordValue("other", 3.0);
+		assertThat(histogramGaugeRepository.findOne("other").getMax(), equalTo(3.0));
+		assertThat(((List<HistogramGauge>) histogramGaugeRepository.findAll()).size(), equalTo(2));
+		assertThat(histogramGaugeRepository.count(), equalTo(2L));
+
+		histogramGaugeRepository.delete(name);
+		assertThat(histogramGaugeRepository.findOne(name), is(nullValue()));
+		assertThat(histogramGaugeRepository.count(), equalTo(1L));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeValue() {
+		histogramGaugeRepository.recordValue(name, -1.0);
+	}
+
+}
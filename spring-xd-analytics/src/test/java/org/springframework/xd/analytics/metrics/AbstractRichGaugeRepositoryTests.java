@@ -17,9 +17,11 @@
 package org.springframework.xd.analytics.metrics;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
 
 import org.junit.Test;
 
+import org.springframework.xd.analytics.metrics.core.BatchRichGaugeRepository;
 import org.springframework.xd.analytics.metrics.core.RichGauge;
 import org.springframework.xd.analytics.metrics.core.RichGaugeRepository;
 
@@ -69,4 +71,24 @@ public abstract class AbstractRichGaugeRepositoryTests {
 		g = gs.findOne("test");
 		assertEquals(70.71, g.getAverage(), 1E-6);
 	}
+
+	@Test
+	public void testRecordValuesMatchesRecordValue() throws Exception {
+		RichGaugeRepository gs = createService();
+		assumeTrue(gs instanceof BatchRichGaugeRepository);
+		double[] values = { 71.0, 70.0, 69.0, 68.0, 75.5 };
+		for (double value : values) {
+			gs.recordValue("one", value, 0.1D);
+		}
+		((BatchRichGaugeRepository) gs).recordValues("batch", new double[] { 71.0, 70.0 }, 0.1D);
+		((BatchRichGaugeRepository) gs).recordValues("batch", new double[] { 69.0, 68.0, 75.5 }, 0.1D);
+
+		RichGauge one = gs.findOne("one");
+		RichGauge batch = gs.findOne("batch");
+		assertEquals(one.getValue(), batch.getValue(), 1E-9);
+		assertEquals(one.getAverage(), batch.getAverage(), 1E-9);
+		assertEquals(one.getMax(), batch.getMax(), 1E-9);
+		assertEquals(one.getMin(), batch.getMin(), 1E-9);
+		assertEquals(one.getCount(), batch.getCount());
+	}
 }
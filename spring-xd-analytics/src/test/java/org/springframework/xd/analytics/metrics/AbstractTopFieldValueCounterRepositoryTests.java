@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.xd.analytics.metrics.core.FieldValueCounter;
+import org.springframework.xd.analytics.metrics.core.TopFieldValueCounterRepository;
+import org.springframework.xd.analytics.metrics.core.TopFieldValues;
+import org.springframework.xd.analytics.metrics.core.TopFieldValues.FieldValue;
+
+/**
+ * Base tests for various implementations of {@link TopFieldValueCounterRepository}, which are expected to track
+ * {@value #CAPACITY} values per counter.
+ *
+ * @since 1.3.2
+ */
+public abstract class AbstractTopFieldValueCounterRepositoryTests {
+
+	protected static final int CAPACITY = 3;
+
+	protected TopFieldValueCounterRepository topFieldValueCounterRepository;
+
+	private final String name = "tickersTopFieldValueCounter";
+
+	@Test
+	public void testTopValues() {
+		increment("VMW", 5);
+		increment("ORCL", 3);
+		increment("IBM", 1);
+
+		TopFieldValues top = topFieldValueCounterRepository.findTop(name, 2);
+		assertThat(top.getName(), equalTo(name));
+		assertThat(top.getValues().size(), equalTo(2));
+		assertValue(top.getValues().get(0), "VMW", 5.0, 0.0);
+		assertValue(top.getValues().get(1), "ORCL", 3.0, 0.0);
+		assertThat(top.getTotal(), equalTo(9.0));
+		assertThat(top.getDistinct(), equalTo(3L));
+	}
+
+	@Test
+	public void testLowestCountIsEvicted() {
+		increment("VMW", 5);
+		increment("ORCL", 3);
+		increment("IBM", 1);
+		increment("MSFT", 1);
+
+		TopFieldValues top = topFieldValueCounterRepository.findTop(name, 10);
+		assertThat(top.getValues().size(), equalTo(CAPACITY));
+		assertValue(top.getValues().get(0), "VMW", 5.0, 0.0);
+		assertValue(top.getValues().get(1), "ORCL", 3.0, 0.0);
+		// MSFT inherits the count of IBM, which is its maximum overestimation
+		assertValue(top.getValues().get(2), "MSFT", 2.0, 1.0);
+		assertThat(top.getTotal(), equalTo(10.0));
+		assertThat(top.getDistinct(), equalTo(4L));
+
+		Map<String, Double> counts = topFieldValueCounterRepository.findOne(name).getFieldValueCount();
+		assertThat(counts.size(), equalTo(CAPACITY));
+		assertThat(counts.containsKey("IBM"), is(false));
+	}
+
+	@Test
+	public void testFrequentValueIsKept() {
+		for (int i = 0; i < 100; i++) {
+			topFieldValueCounterRepository.increment(name, "VMW");
+			topFieldValueCounterRepository.increment(name, "value" + i);
+		}
+
+		FieldValue first = topFieldValueCounterRepository.findTop(name, 1).getValues().get(0);
+		assertThat(first.getValue(), equalTo("VMW"));
+		assertThat(first.getCount(), greaterThanOrEqualTo(100.0));
+		assertThat(first.getCount() - first.getError(), lessThanOrEqualTo(100.0));
+	}
+
+	@Test
+	public void testReset() {
+		increment("VMW", 2);
+		increment("ORCL", 1);
+		topFieldValueCounterRepository.reset(name, "VMW");
+
+		List<FieldValue> values = topFieldValueCounterRepository.findTop(name, 10).getValues();
+		assertThat(values.size(), equalTo(1));
+		assertValue(values.get(0), "ORCL", 1.0, 0.0);
+	}
+
+	@Test
+	public void testSaveAndDelete() {
+		Map<String, Double> fieldValueCount = new HashMap<String, Double>();
+		fieldValueCount.put("elephant", 1.0);
+		fieldValueCount.put("pig", 2.0);
+		topFieldValueCounterRepository.save(new FieldValueCounter(name, fieldValueCount));
+
+		FieldValueCounter result = topFieldValueCounterRepository.findOne(name);
+		assertThat(result, is(notNullValue()));
+		assertThat(result.getFieldValueCount(), equalTo(fieldValueCount));
+		assertThat(topFieldValueCounterRepository.findTop(name, 10).getTotal(), equalTo(3.0));
+
+		topFieldValueCounterRepository.save(new FieldValueCounter("empty"));
+		assertThat(topFieldValueCounterRepository.findOne("empty").getFieldValueCount().size(), equalTo(0));
+		assertThat(((List<FieldValueCounter>) topFieldValueCounterRepository.findAll()).size(), equalTo(2));
+
+		topFieldValueCounterRepository.delete(name);
+		assertThat(topFieldValueCounterRepository.findOne(name), is(nullValue()));
+		assertThat(topFieldValueCounterRepository.findTop(name, 10), is(nullValue()));
+		assertThat(((List<FieldValueCounter>) topFieldValueCounterRepository.findAll()).size(), equalTo(1));
+	}
+
+	@Test
+	public void testFindTopMissingCounter() {
+		assertThat(topFieldValueCounterRepository.findTop("missing", 10), is(nullValue()));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testDecrementNotSupported() {
+		topFieldValueCounterRepository.decrement(name, "VMW");
+	}
+
+	private void increment(String value, int times) {
+		for (int i = 0; i < times; i++) {
+			topFieldValueCounterRepository.increment(name, value);
+		}
+	}
+
+	private static void assertValue(FieldValue fieldValue, String value, double count, double error) {
+		assertThat(fieldValue.getValue(), equalTo(value));
+		assertThat(fieldValue.getCount(), equalTo(count));
+		assertThat(fieldValue.getError(), equalTo(error));
+	}
+
+}
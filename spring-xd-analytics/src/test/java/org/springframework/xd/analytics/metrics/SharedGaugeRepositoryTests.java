@@ -1,5 +1,5 @@
 /*
- * Copyright 2013 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,6 +30,8 @@ import java.util.List;
 import org.junit.Test;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.xd.analytics.metrics.core.Gauge;
 import org.springframework.xd.analytics.metrics.core.GaugeRepository;
 
@@ -68,6 +70,27 @@ public abstract class SharedGaugeRepositoryTests {
 		assertThat(gaugeRepository.findOne(gaugeName).getValue(), equalTo(0L));
 	}
 
+	@Test
+	public void testFindByNameStartingWith() {
+		gaugeRepository.recordValue("web[1]*.heap", 1);
+		gaugeRepository.recordValue("web[1]*.threads", 2);
+		gaugeRepository.recordValue("web[10].heap", 3);
+		gaugeRepository.recordValue("web1.heap", 4);
+
+		// glob characters in the prefix match literally
+		Page<Gauge> page = gaugeRepository.findByNameStartingWith("web[1]*", new PageRequest(0, 1));
+		assertThat(page.getTotalElements(), equalTo(2L));
+		assertThat(page.getContent().size(), equalTo(1));
+		assertThat(page.getContent().get(0).getName(), equalTo("web[1]*.heap"));
+		assertThat(page.getContent().get(0).getValue(), equalTo(1L));
+
+		page = gaugeRepository.findByNameStartingWith("web[1]*", new PageRequest(1, 1));
+		assertThat(page.getContent().get(0).getName(), equalTo("web[1]*.threads"));
+
+		assertThat(gaugeRepository.findByNameStartingWith("", new PageRequest(0, 10)).getTotalElements(), equalTo(4L));
+		assertThat(gaugeRepository.count(), equalTo(4L));
+	}
+
 	@Test
 	public void testCrud() {
 		GaugeRepository repo = gaugeRepository;
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @since 1.3.2
+ */
+public class HistogramGaugeTests {
+
+	private static double D = 1.0E-9;
+
+	@Test
+	public void emptyHistogram() {
+		HistogramGauge h = new HistogramGauge("blah");
+		assertEquals(0, h.getCount());
+		assertEquals(0.0, h.getMean(), D);
+		assertEquals(0.0, h.getValueAtPercentile(99.0), D);
+	}
+
+	@Test
+	public void countMeanMinAndMaxAreExact() {
+		HistogramGauge h = new HistogramGauge("blah");
+		MetricUtils.recordHistogramValue(h, 2.0);
+		MetricUtils.recordHistogramValue(h, 0.5);
+		MetricUtils.recordHistogramValue(h, 6.5);
+		MetricUtils.recordHistogramValue(h, 0.0);
+
+		assertEquals(4, h.getCount());
+		assertEquals(9.0, h.getSum(), D);
+		assertEquals(2.25, h.getMean(), D);
+		assertEquals(0.0, h.getMin(), D);
+		assertEquals(6.5, h.getMax(), D);
+		assertEquals(1, h.getZeroCount());
+		assertEquals(0.0, h.getValueAtPercentile(0.0), D);
+		assertEquals(6.5, h.getValueAtPercentile(100.0), D);
+	}
+
+	@Test
+	public void percentilesAreWithinRelativeAccuracy() {
+		Random random = new Random(42);
+		double[] values = new double[10000];
+		HistogramGauge h = new HistogramGauge("latency");
+		for (int i = 0; i < values.length; i++) {
+			// log-normal, spanning several orders of magnitude
+			values[i] = Math.exp(random.nextGaussian() * 2);
+			MetricUtils.recordHistogramValue(h, values[i]);
+		}
+		Arrays.sort(values);
+		for (double percentile : new double[] { 1.0, 50.0, 90.0, 99.0, 99.9 }) {
+			double expected = values[(int) Math.ceil(percentile / 100.0 * values.length) - 1];
+			double actual = h.getValueAtPercentile(percentile);
+			assertTrue(percentile + ": " + actual + " vs " + expected,
+					Math.abs(actual - expected) <= expected * HistogramGauge.RELATIVE_ACCURACY);
+		}
+	}
+
+	@Test
+	public void mergeEqualsRecordingAllValues() {
+		Random random = new Random(7);
+		HistogramGauge all = new HistogramGauge("all");
+		HistogramGauge first = new HistogramGauge("first");
+		HistogramGauge second = new HistogramGauge("second");
+		for (int i = 0; i < 1000; i++) {
+			double value = random.nextDouble() * 1000;
+			MetricUtils.recordHistogramValue(all, value);
+			MetricUtils.recordHistogramValue(i % 3 == 0 ? first : second, value);
+		}
+		MetricUtils.mergeHistogram(first, second);
+
+		assertEquals(all.getBuckets(), first.getBuckets());
+		assertEquals(all.getCount(), first.getCount());
+		assertEquals(all.getMin(), first.getMin(), D);
+		assertEquals(all.getMax(), first.getMax(), D);
+		assertEquals(all.getSum(), first.getSum(), 1.0E-6);
+		assertEquals(all.getValueAtPercentile(99.0), first.getValueAtPercentile(99.0), D);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeValuesAreRejected() {
+		MetricUtils.recordHistogramValue(new HistogramGauge("blah"), -1.0);
+	}
+
+}
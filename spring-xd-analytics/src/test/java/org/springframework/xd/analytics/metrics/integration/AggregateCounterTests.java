@@ -27,6 +27,7 @@ import org.junit.Test;
 
 import org.springframework.beans.factory.config.PropertyPlaceholderConfigurer;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -46,6 +47,8 @@ import org.springframework.xd.analytics.metrics.memory.InMemoryAggregateCounterR
  */
 public class AggregateCounterTests {
 
+	private static final long[] NO_COUNTS = new long[] { 0, 0, 0, 0, 0 };
+
 	private MessageChannel input() {
 		return (MessageChannel) applicationContext.getBean("input");
 	}
@@ -92,6 +95,37 @@ public class AggregateCounterTests {
 		assertThat(counts.getCounts(), equalTo(new long[] { 0, 0, 0, 0, 43 }));
 	}
 
+	@Test
+	public void testWriteBehindFlushesOnShutdown() {
+		applicationContext = new AnnotationConfigApplicationContext(
+				WriteBehindAggregateCounterTestsConfig.class);
+		AggregateCounterRepository repository = repository();
+
+		input().send(new GenericMessage<Object>("40"));
+		input().send(new GenericMessage<Object>("2"));
+
+		assertThat(repository.getCounts("foo", 5, AggregateCountResolution.hour).getCounts(), equalTo(NO_COUNTS));
+		((ConfigurableApplicationContext) applicationContext).close();
+		AggregateCount counts = repository.getCounts("foo", 5, AggregateCountResolution.hour);
+		assertThat(counts.getCounts(), equalTo(new long[] { 0, 0, 0, 0, 42 }));
+	}
+
+	@Test
+	public void testWriteBehindFlushesWhenFull() {
+		applicationContext = new AnnotationConfigApplicationContext(
+				WriteBehindAggregateCounterTestsConfig.class);
+
+		for (int i = 0; i < 9; i++) {
+			input().send(new GenericMessage<Object>("1"));
+		}
+		assertThat(repository().getCounts("foo", 5, AggregateCountResolution.hour).getCounts(), equalTo(NO_COUNTS));
+		input().send(new GenericMessage<Object>("1"));
+
+		AggregateCount counts = repository().getCounts("foo", 5, AggregateCountResolution.hour);
+		assertThat(counts.getCounts(), equalTo(new long[] { 0, 0, 0, 0, 10 }));
+		((ConfigurableApplicationContext) applicationContext).close();
+	}
+
 	@Configuration
 	@ImportResource("file:../modules/sink/aggregate-counter/config/aggregate-counter.xml")
 	public static class NullTimefieldAggregateCounterTestsConfig {
@@ -155,6 +189,32 @@ public class AggregateCounterTests {
 		}
 
 
+		@Bean
+		public AggregateCounterRepository aggregateCounterRepository() {
+			return new InMemoryAggregateCounterRepository();
+		}
+	}
+
+	@Configuration
+	@ImportResource("file:../modules/sink/aggregate-counter/config/aggregate-counter.xml")
+	public static class WriteBehindAggregateCounterTestsConfig {
+
+		@Bean
+		public PropertyPlaceholderConfigurer ppc() {
+			PropertyPlaceholderConfigurer propertyPlaceholderConfigurer = new PropertyPlaceholderConfigurer();
+			Properties props = new Properties();
+			props.put("timeField", "null");
+			props.put("dateFormat", "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+			props.put("computedNameExpression", "'foo'");
+			props.put("incrementExpression", "payload");
+			props.put("writeBehind", "true");
+			props.put("flushInterval", "3600000");
+			props.put("flushSize", "10");
+			propertyPlaceholderConfigurer.setProperties(props);
+			return propertyPlaceholderConfigurer;
+		}
+
+
 		@Bean
 		public AggregateCounterRepository aggregateCounterRepository() {
 			return new InMemoryAggregateCounterRepository();
@@ -44,6 +44,11 @@ public class FieldValueCounterHandlerTests {
 		repo = new InMemoryFieldValueCounterRepository();
 	}
 
+	@Test(expected = IllegalArgumentException.class)
+	public void fieldNameWithoutPropertyName() {
+		new FieldValueCounterHandler(repo, "'" + mentionsFieldValueCounterName + "'", ".");
+	}
+
 	@Test
 	public void messageCountTest() {
 
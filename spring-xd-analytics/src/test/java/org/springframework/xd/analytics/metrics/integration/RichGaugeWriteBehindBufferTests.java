@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import org.springframework.xd.analytics.metrics.core.RichGauge;
+import org.springframework.xd.analytics.metrics.memory.InMemoryRichGaugeRepository;
+
+/**
+ * @since 1.3.2
+ */
+public class RichGaugeWriteBehindBufferTests {
+
+	private final InMemoryRichGaugeRepository repository = new InMemoryRichGaugeRepository();
+
+	@Test
+	public void testFlushesWhenFullWithSameOutcome() {
+		RichGaugeWriteBehindBuffer buffer = new RichGaugeWriteBehindBuffer(repository, 0.5, 4);
+		InMemoryRichGaugeRepository expected = new InMemoryRichGaugeRepository();
+		double[] values = { 3.0, 1.0, 7.0 };
+		for (double value : values) {
+			buffer.recordValue("test", value);
+			expected.recordValue("test", value, 0.5);
+		}
+		assertNull(repository.findOne("test"));
+		assertEquals(3, buffer.getBufferedCount());
+
+		buffer.recordValue("other", 2.0);
+		assertEquals(0, buffer.getBufferedCount());
+		assertGaugeEquals(expected.findOne("test"), repository.findOne("test"));
+		assertEquals(1, repository.findOne("other").getCount());
+	}
+
+	@Test
+	public void testStopFlushes() {
+		RichGaugeWriteBehindBuffer buffer = new RichGaugeWriteBehindBuffer(repository, -1, 100);
+		buffer.start(3600000);
+		buffer.recordValue("test", 10.0);
+		buffer.recordValue("test", 20.0);
+		buffer.stop(true);
+
+		RichGauge gauge = repository.findOne("test");
+		assertEquals(2, gauge.getCount());
+		assertEquals(15.0, gauge.getAverage(), 1E-6);
+		assertEquals(20.0, gauge.getValue(), 1E-6);
+	}
+
+	@Test
+	public void testStopDiscards() {
+		RichGaugeWriteBehindBuffer buffer = new RichGaugeWriteBehindBuffer(repository, -1, 100);
+		buffer.start(3600000);
+		buffer.recordValue("test", 10.0);
+		buffer.stop(false);
+
+		assertNull(repository.findOne("test"));
+	}
+
+	private static void assertGaugeEquals(RichGauge expected, RichGauge actual) {
+		assertEquals(expected.getValue(), actual.getValue(), 1E-9);
+		assertEquals(expected.getAverage(), actual.getAverage(), 1E-9);
+		assertEquals(expected.getMax(), actual.getMax(), 1E-9);
+		assertEquals(expected.getMin(), actual.getMin(), 1E-9);
+		assertEquals(expected.getCount(), actual.getCount());
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.memory;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.xd.analytics.metrics.AbstractTopFieldValueCounterRepositoryTests;
+
+/**
+ * @since 1.3.2
+ */
+public class InMemoryTopFieldValueCounterRepositoryTests extends AbstractTopFieldValueCounterRepositoryTests {
+
+	@Before
+	public void setUp() {
+		topFieldValueCounterRepository = new InMemoryTopFieldValueCounterRepository(CAPACITY);
+	}
+
+	@Test
+	public void testDistinctEstimate() {
+		for (int i = 0; i < 100000; i++) {
+			topFieldValueCounterRepository.increment("users", "user" + i);
+			topFieldValueCounterRepository.increment("users", "user" + i);
+		}
+		// within 4 standard errors
+		assertThat((double) topFieldValueCounterRepository.findTop("users", 1).getDistinct(),
+				closeTo(100000, 100000 * 4 * HyperLogLog.STANDARD_ERROR));
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2011-2013 the original author or authors.
+ * Copyright 2011-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,15 +16,28 @@
 
 package org.springframework.xd.analytics.metrics.redis;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joda.time.DateTime;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.retry.RetryOperations;
+
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.xd.analytics.metrics.AbstractAggregateCounterTests;
 import org.springframework.xd.analytics.metrics.common.RedisRepositoriesConfig;
+import org.springframework.xd.analytics.metrics.core.AggregateCountResolution;
 import org.springframework.xd.test.redis.RedisTestSupport;
 
 /**
@@ -40,10 +53,58 @@ public class RedisAggregateCounterTests extends AbstractAggregateCounterTests {
 	@Rule
 	public RedisTestSupport redisAvailableRule = new RedisTestSupport();
 
+	@Autowired
+	private RedisConnectionFactory redisConnectionFactory;
+
+	@Autowired
+	private RetryOperations retryOperations;
+
 	@Before
 	@After
 	public void beforeAndAfter() {
 		aggregateCounterRepository.delete(counterName);
 	}
 
+	@Test
+	public void testIncrementAll() {
+		DateTime start = new DateTime(2013, 6, 28, 23, 58);
+		Map<DateTime, Long> amounts = new HashMap<DateTime, Long>();
+		amounts.put(start, 1L);
+		amounts.put(start.plusMinutes(1), 2L);
+		amounts.put(start.plusMinutes(2), 3L);
+		((RedisAggregateCounterRepository) aggregateCounterRepository).incrementAll(counterName, amounts);
+		((RedisAggregateCounterRepository) aggregateCounterRepository).incrementAll(counterName, amounts);
+
+		assertArrayEquals(new long[] { 2, 4, 6 }, aggregateCounterRepository.getCounts(counterName, 3,
+				start.plusMinutes(2), AggregateCountResolution.minute).getCounts());
+		assertArrayEquals(new long[] { 6, 6 }, aggregateCounterRepository.getCounts(counterName, 2,
+				start.plusMinutes(2), AggregateCountResolution.day).getCounts());
+		assertEquals(12, aggregateCounterRepository.findOne(counterName).getValue());
+	}
+
+	@Test
+	public void testClosedBucketsAreCached() {
+		DateTime start = new DateTime(2013, 6, 28, 23, 58);
+		RedisAggregateCounterRepository other = new RedisAggregateCounterRepository(redisConnectionFactory,
+				retryOperations);
+		aggregateCounterRepository.increment(counterName, 1, start);
+		assertArrayEquals(new long[] { 1, 0 }, aggregateCounterRepository.getCounts(counterName, 2,
+				start.plusMinutes(1), AggregateCountResolution.minute).getCounts());
+
+		other.increment(counterName, 2, start.plusMinutes(1));
+		assertArrayEquals(new long[] { 1, 0 }, aggregateCounterRepository.getCounts(counterName, 2,
+				start.plusMinutes(1), AggregateCountResolution.minute).getCounts());
+		assertArrayEquals(new long[] { 1, 2 }, other.getCounts(counterName, 2,
+				start.plusMinutes(1), AggregateCountResolution.minute).getCounts());
+
+		((RedisAggregateCounterRepository) aggregateCounterRepository).setClosedBucketCacheTtl(0);
+		try {
+			assertArrayEquals(new long[] { 1, 2 }, aggregateCounterRepository.getCounts(counterName, 2,
+					start.plusMinutes(1), AggregateCountResolution.minute).getCounts());
+		}
+		finally {
+			((RedisAggregateCounterRepository) aggregateCounterRepository).setClosedBucketCacheTtl(60000);
+		}
+	}
+
 }
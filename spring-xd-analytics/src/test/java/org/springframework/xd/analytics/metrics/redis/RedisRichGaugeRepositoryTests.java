@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -106,6 +106,21 @@ public class RedisRichGaugeRepositoryTests extends AbstractRichGaugeRepositoryTe
 	}
 
 
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonFiniteValueIsRejected() {
+		repo.recordValue("foo", Double.POSITIVE_INFINITY, -1.0D);
+	}
+
+	@Test
+	public void testOverflowingAverageLeavesGaugeUnchanged() {
+		repo.recordValue("foo", Double.MAX_VALUE, -1.0D);
+		// the arithmetic mean sums the values first; the script error is logged by the recovery callback
+		repo.recordValue("foo", Double.MAX_VALUE, -1.0D);
+		RichGauge result = repo.findOne("foo");
+		assertThat(result.getCount(), equalTo(1L));
+		assertThat(result.getAverage(), equalTo(Double.MAX_VALUE));
+	}
+
 	@Override
 	protected RichGaugeRepository createService() {
 		return repo;
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.analytics.metrics.integration;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.xd.analytics.metrics.memory.InMemoryAggregateCounterRepository;
+import org.springframework.xd.analytics.metrics.memory.InMemoryFieldValueCounterRepository;
+import org.springframework.xd.analytics.metrics.memory.InMemoryRichGaugeRepository;
+import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.TupleBuilder;
+
+/**
+ * JMH benchmarks for the SpEL-based analytics handlers, backed by in-memory repositories so that
+ * the cost of expression evaluation and payload conversion is measured rather than storage.
+ *
+ * @since 1.3.2
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricHandlerBenchmarks {
+
+	private AggregateCounterHandler aggregateCounterHandler;
+
+	private FieldValueCounterHandler fieldValueCounterHandler;
+
+	private RichGaugeHandler richGaugeHandler;
+
+	private Message<Tuple> tupleMessage;
+
+	private Message<String> jsonMessage;
+
+	private Message<Double> numberMessage;
+
+	@Setup
+	public void setUp() {
+		StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
+		this.aggregateCounterHandler = new AggregateCounterHandler(new InMemoryAggregateCounterRepository(),
+				"'counts.' + payload.getString('user')", "payload.getDouble('amount')");
+		this.aggregateCounterHandler.setIntegrationEvaluationContext(evaluationContext);
+		this.fieldValueCounterHandler = new FieldValueCounterHandler(new InMemoryFieldValueCounterRepository(),
+				"'users'", "user");
+		this.fieldValueCounterHandler.setIntegrationEvaluationContext(evaluationContext);
+		this.richGaugeHandler = new RichGaugeHandler(new InMemoryRichGaugeRepository(), "'amounts'", -1d);
+		this.richGaugeHandler.setIntegrationEvaluationContext(evaluationContext);
+		this.tupleMessage = new GenericMessage<Tuple>(TupleBuilder.tuple().of("user", "alice", "amount", 12.5d));
+		this.jsonMessage = new GenericMessage<String>("{\"user\":\"alice\",\"amount\":12.5}");
+		this.numberMessage = new GenericMessage<Double>(12.5d);
+	}
+
+	@Benchmark
+	public Message<?> aggregateCounter() throws Exception {
+		return this.aggregateCounterHandler.process(this.tupleMessage, null);
+	}
+
+	@Benchmark
+	public Message<?> fieldValueCounterTuple() {
+		return this.fieldValueCounterHandler.process(this.tupleMessage);
+	}
+
+	@Benchmark
+	public Message<?> fieldValueCounterJson() {
+		return this.fieldValueCounterHandler.process(this.jsonMessage);
+	}
+
+	@Benchmark
+	public void richGauge() {
+		this.richGaugeHandler.process(this.numberMessage);
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+
+/**
+ * JMH benchmarks for {@link EmbeddedHeadersMessageConverter}, comparing header formats.
+ *
+ * @since 1.3.2
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EmbeddedHeadersBenchmarks {
+
+	@Param({ "json", "binary" })
+	private EmbeddedHeadersMessageConverter.Format format;
+
+	@Param({ "100", "10000" })
+	private int payloadSize;
+
+	private EmbeddedHeadersMessageConverter converter;
+
+	private MessageValues messageValues;
+
+	private Message<byte[]> embedded;
+
+	@Setup
+	public void setUp() throws Exception {
+		this.converter = new EmbeddedHeadersMessageConverter(this.format);
+		Message<byte[]> message = MessageBuilder.withPayload(new byte[this.payloadSize])
+				.setHeader(IntegrationMessageHeaderAccessor.CORRELATION_ID, UUID.randomUUID())
+				.setHeader(IntegrationMessageHeaderAccessor.SEQUENCE_NUMBER, 1)
+				.setHeader(IntegrationMessageHeaderAccessor.SEQUENCE_SIZE, 10)
+				.setHeader(MessageHeaders.CONTENT_TYPE, "application/octet-stream")
+				.setHeader(XdHeaders.XD_ORIGINAL_CONTENT_TYPE, "text/plain")
+				.build();
+		this.messageValues = new MessageValues(message);
+		this.embedded = MessageBuilder.withPayload(this.converter.embedHeaders(this.messageValues,
+				XdHeaders.STANDARD_HEADERS)).build();
+	}
+
+	@Benchmark
+	public byte[] embedHeaders() throws Exception {
+		return this.converter.embedHeaders(this.messageValues, XdHeaders.STANDARD_HEADERS);
+	}
+
+	@Benchmark
+	public MessageValues extractHeaders() throws Exception {
+		return this.converter.extractHeaders(this.embedded, false);
+	}
+
+	@Benchmark
+	public MessageValues extractHeadersPayloadView() throws Exception {
+		return this.converter.extractHeaders(this.embedded, false, true);
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.TupleBuilder;
+
+/**
+ * JMH benchmarks for {@link MessageBusSupport#determinePartition(Message, MessageBusSupport.PartitioningMetadata)}.
+ *
+ * @since 1.3.2
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PartitionBenchmarks {
+
+	@Param({ "expression", "expressionAndSelectorExpression", "extractorClass" })
+	private String strategy;
+
+	private PartitionTestBus bus;
+
+	private MessageBusSupport.PartitioningMetadata metadata;
+
+	private Message<Tuple> message;
+
+	@Setup
+	public void setUp() throws Exception {
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.refresh();
+		this.bus = new PartitionTestBus();
+		this.bus.setApplicationContext(context);
+		this.bus.setIntegrationEvaluationContext(new StandardEvaluationContext());
+		this.bus.afterPropertiesSet();
+		Properties properties = new Properties();
+		if ("extractorClass".equals(this.strategy)) {
+			properties.setProperty(BusProperties.PARTITION_KEY_EXTRACTOR_CLASS, IdExtractor.class.getName());
+		}
+		else {
+			properties.setProperty(BusProperties.PARTITION_KEY_EXPRESSION, "payload.getString('id')");
+			if ("expressionAndSelectorExpression".equals(this.strategy)) {
+				properties.setProperty(BusProperties.PARTITION_SELECTOR_EXPRESSION, "hashCode()");
+			}
+		}
+		this.metadata = new MessageBusSupport.PartitioningMetadata(new AbstractBusPropertiesAccessor(properties) {
+		}, 8);
+		this.message = new GenericMessage<Tuple>(TupleBuilder.tuple().of("id", "customer-42", "amount", 12.5));
+	}
+
+	@Benchmark
+	public int determinePartition() {
+		return this.bus.determinePartition(this.message, this.metadata);
+	}
+
+	public static class IdExtractor implements PartitionKeyExtractorStrategy {
+
+		@Override
+		public Object extractKey(Message<?> message) {
+			return ((Tuple) message.getPayload()).getString("id");
+		}
+
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * JMH benchmarks for building {@link Tuple}s and reading their fields by name.
+ *
+ * @since 1.3.2
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TupleBenchmarks {
+
+	@Param({ "5", "50" })
+	private int fieldCount;
+
+	private List<String> names;
+
+	private List<Object> values;
+
+	private Tuple tuple;
+
+	private String lastFieldName;
+
+	@Setup
+	public void setUp() {
+		this.names = new ArrayList<String>(this.fieldCount);
+		this.values = new ArrayList<Object>(this.fieldCount);
+		for (int i = 0; i < this.fieldCount; i++) {
+			this.names.add("field" + i);
+			this.values.add(i % 2 == 0 ? "value" + i : (Object) i);
+		}
+		this.tuple = TupleBuilder.tuple().ofNamesAndValues(this.names, this.values);
+		this.lastFieldName = this.names.get(this.fieldCount - 1);
+	}
+
+	@Benchmark
+	public Tuple buildWithPut() {
+		TupleBuilder builder = TupleBuilder.tuple();
+		for (int i = 0; i < this.fieldCount; i++) {
+			builder.put(this.names.get(i), this.values.get(i));
+		}
+		return builder.build();
+	}
+
+	@Benchmark
+	public Tuple buildFromNamesAndValues() {
+		return TupleBuilder.tuple().ofNamesAndValues(this.names, this.values);
+	}
+
+	@Benchmark
+	public Object getFirstField() {
+		return this.tuple.getValue("field0");
+	}
+
+	@Benchmark
+	public Object getLastField() {
+		return this.tuple.getValue(this.lastFieldName);
+	}
+
+	@Benchmark
+	public String getLastFieldAsString() {
+		return this.tuple.getString(this.lastFieldName);
+	}
+
+}
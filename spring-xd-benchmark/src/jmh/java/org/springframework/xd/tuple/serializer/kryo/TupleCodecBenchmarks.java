@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple.serializer.kryo;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.integration.codec.Codec;
+import org.springframework.integration.codec.kryo.PojoCodec;
+import org.springframework.xd.dirt.integration.bus.ReusableBufferPojoCodec;
+import org.springframework.xd.tuple.DefaultTuple;
+import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.TupleBuilder;
+
+/**
+ * JMH benchmarks for Kryo serialization of {@link Tuple}s, as performed by the message bus.
+ *
+ * @since 1.3.2
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TupleCodecBenchmarks {
+
+	@Param({ "pojo", "reusableBuffer" })
+	private String codecType;
+
+	@Param({ "10" })
+	private int fieldCount;
+
+	@Param({ "false", "true" })
+	private boolean schemaCaching;
+
+	private Codec codec;
+
+	private Tuple tuple;
+
+	private byte[] encoded;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.codec = "pojo".equals(this.codecType)
+				? new PojoCodec(new TupleKryoRegistrar(this.schemaCaching))
+				: new ReusableBufferPojoCodec(new TupleKryoRegistrar(this.schemaCaching));
+		TupleBuilder builder = TupleBuilder.tuple();
+		for (int i = 0; i < this.fieldCount; i++) {
+			switch (i % 4) {
+				case 0:
+					builder.put("field" + i, "value" + i);
+					break;
+				case 1:
+					builder.put("field" + i, i);
+					break;
+				case 2:
+					builder.put("field" + i, (long) i * 1000L);
+					break;
+				default:
+					builder.put("field" + i, TupleBuilder.tuple().of("nested", Collections.singletonList(i)));
+			}
+		}
+		this.tuple = builder.build();
+		this.encoded = this.codec.encode(this.tuple);
+	}
+
+	@Benchmark
+	public byte[] encode() throws IOException {
+		return this.codec.encode(this.tuple);
+	}
+
+	@Benchmark
+	public Tuple decode() throws IOException {
+		return this.codec.decode(this.encoded, DefaultTuple.class);
+	}
+
+	@Benchmark
+	public Tuple roundTrip() throws IOException {
+		return this.codec.decode(this.codec.encode(this.tuple), DefaultTuple.class);
+	}
+
+}
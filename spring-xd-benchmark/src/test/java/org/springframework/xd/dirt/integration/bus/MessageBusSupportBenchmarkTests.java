@@ -15,12 +15,14 @@
 
 package org.springframework.xd.dirt.integration.bus;
 
+import java.lang.management.ManagementFactory;
 import java.util.Properties;
 
 import org.apache.commons.lang3.StringUtils;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import org.springframework.integration.codec.Codec;
 import org.springframework.integration.codec.kryo.PojoCodec;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
@@ -35,8 +37,13 @@ import org.springframework.xd.tuple.serializer.kryo.TupleKryoRegistrar;
  */
 public class MessageBusSupportBenchmarkTests {
 
+	private static final int ITERATIONS = 1000000;
+
 	private static MessageBusSupport messageBusSupport;
 
+	private final com.sun.management.ThreadMXBean threadMXBean =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
 	/*
 Baseline (before MessageValues):
 
@@ -58,38 +65,42 @@ ms     %     Task name
 */
 
 	@BeforeClass
-	@SuppressWarnings({"unchecked", "rawtypes"})
 	public static void initMessageBus() {
-		TestMessageBus messageBus = new TestMessageBus();
-		messageBus.setCodec(new PojoCodec(new TupleKryoRegistrar()));
-		messageBusSupport = messageBus;
+		messageBusSupport = new TestMessageBus();
 	}
 
 	@Test
 	public void run() {
 		StopWatch watch = new StopWatch("MessageBusSupport");
-		watch.start("simple tuple codec");
-		runBenchmark(TupleBuilder.tuple().of("foo", "bar", "val", 1234));
-		watch.stop();
-		watch.start("string payload");
-		runBenchmark(StringUtils.leftPad("hello", 1000, "*"));
-		watch.stop();
+		runBenchmarks(watch, "pojo codec", new PojoCodec(new TupleKryoRegistrar()));
+		runBenchmarks(watch, "reusable buffer codec", new ReusableBufferPojoCodec(new TupleKryoRegistrar()));
 		System.out.println(watch.prettyPrint());
 	}
 
+	private void runBenchmarks(StopWatch watch, String codecName, Codec codec) {
+		messageBusSupport.setCodec(codec);
+		runBenchmark(watch, "simple tuple (" + codecName + ")", TupleBuilder.tuple().of("foo", "bar", "val", 1234));
+		runBenchmark(watch, "string payload (" + codecName + ")", StringUtils.leftPad("hello", 1000, "*"));
+	}
 
 	@SuppressWarnings({"unchecked", "rawtypes"})
-	private void runBenchmark(Object payload) {
+	private void runBenchmark(StopWatch watch, String taskName, Object payload) {
 		Message<?> message = new GenericMessage(payload);
-		int ITERATIONS = 1000000;
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = this.threadMXBean.getThreadAllocatedBytes(threadId);
+		watch.start(taskName);
 		for (int i = 0; i < ITERATIONS; i++) {
-			MessageValues msg = messageBusSupport.serializePayloadIfNecessary(message
-			);
+			MessageValues msg = messageBusSupport.serializePayloadIfNecessary(message);
 			messageBusSupport.deserializePayloadIfNecessary(msg.toMessage());
 			if (i > 0 && i % 100000 == 0) {
 				System.out.println("completed " + i + " iterations.");
 			}
 		}
+		watch.stop();
+		long allocated = this.threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		long millis = watch.getLastTaskTimeMillis();
+		System.out.println(String.format("%s: %d ms, %d bytes/op, %.1f MB/s allocated", taskName, millis,
+				allocated / ITERATIONS, millis == 0 ? 0d : (allocated / (1024d * 1024d)) / (millis / 1000d)));
 	}
 
 
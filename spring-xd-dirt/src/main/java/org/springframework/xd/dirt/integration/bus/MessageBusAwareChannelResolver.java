@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2014 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,19 @@
 
 package org.springframework.xd.dirt.integration.bus;
 
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.core.BeanFactoryMessageChannelDestinationResolver;
 import org.springframework.messaging.core.DestinationResolutionException;
@@ -25,23 +36,70 @@ import org.springframework.messaging.core.DestinationResolutionException;
 /**
  * A {@link org.springframework.messaging.core.DestinationResolver} implementation that first checks for any channel
  * whose name begins with a colon in the {@link MessageBus}.
+ * <p>
+ * The producers bound for {@code queue:} and {@code topic:} names are cached, so that routing a message to a
+ * destination that has been resolved before does not go through the bean factory or the message bus again. A
+ * producer that has not been used for {@link #setIdleTimeout(long) idleTimeout} milliseconds is unbound from the
+ * bus, and bound again the next time its destination is resolved.
  *
  * @author Mark Fisher
  * @author Gary Russell
  */
-public class MessageBusAwareChannelResolver extends BeanFactoryMessageChannelDestinationResolver {
+@ManagedResource
+public class MessageBusAwareChannelResolver extends BeanFactoryMessageChannelDestinationResolver implements
+		DisposableBean {
+
+	/**
+	 * The default time, in milliseconds, after which an unused dynamic producer is unbound.
+	 */
+	public static final long DEFAULT_IDLE_TIMEOUT = 300000;
+
+	private static final Logger logger = LoggerFactory.getLogger(MessageBusAwareChannelResolver.class);
 
 	private final MessageBus messageBus;
 
 	private final Properties producerProperties;
 
+	private final ConcurrentMap<String, CachedChannel> dynamicChannels = new ConcurrentHashMap<String, CachedChannel>();
+
+	private final AtomicBoolean evicting = new AtomicBoolean();
+
+	private final AtomicLong cacheHits = new AtomicLong();
+
+	private final AtomicLong cacheMisses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private volatile long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+	private volatile long nextEviction;
+
 	public MessageBusAwareChannelResolver(MessageBus messageBus, Properties producerProperties) {
 		this.messageBus = messageBus;
 		this.producerProperties = producerProperties;
 	}
 
+	/**
+	 * Set the time, in milliseconds, after which a dynamic producer that has not been used is unbound from the
+	 * message bus. Idle producers are looked for while resolving destinations, at most once every half of this
+	 * time. 0 or less keeps the producers bound until this resolver is destroyed.
+	 *
+	 * @param idleTimeout the idle timeout in milliseconds
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
 	@Override
 	public MessageChannel resolveDestination(String name) {
+		long now = System.currentTimeMillis();
+		CachedChannel cached = this.dynamicChannels.get(name);
+		if (cached != null) {
+			cached.lastUsed = now;
+			this.cacheHits.incrementAndGet();
+			evictIdle(now);
+			return cached.channel;
+		}
 		MessageChannel channel = null;
 		try {
 			return super.resolveDestination(name);
@@ -50,17 +108,7 @@ public class MessageBusAwareChannelResolver extends BeanFactoryMessageChannelDes
 		}
 		if (name.indexOf(":") != -1) {
 			if (messageBus != null) {
-				String[] tokens = name.split(":", 2);
-				String type = tokens[0];
-				if ("queue".equals(type)) {
-					channel = this.messageBus.bindDynamicProducer(name, this.producerProperties);
-				}
-				else if ("topic".equals(type)) {
-					channel = this.messageBus.bindDynamicPubSubProducer(name, this.producerProperties);
-				}
-				else {
-					throw new IllegalArgumentException("unrecognized channel type: " + type);
-				}
+				channel = bindDynamicProducer(name, now);
 			}
 		}
 		if (channel == null) {
@@ -69,4 +117,118 @@ public class MessageBusAwareChannelResolver extends BeanFactoryMessageChannelDes
 		return channel;
 	}
 
+	private MessageChannel bindDynamicProducer(String name, long now) {
+		MessageChannel channel;
+		String[] tokens = name.split(":", 2);
+		String type = tokens[0];
+		if ("queue".equals(type)) {
+			channel = this.messageBus.bindDynamicProducer(name, this.producerProperties);
+		}
+		else if ("topic".equals(type)) {
+			channel = this.messageBus.bindDynamicPubSubProducer(name, this.producerProperties);
+		}
+		else {
+			throw new IllegalArgumentException("unrecognized channel type: " + type);
+		}
+		if (channel == null) {
+			return null;
+		}
+		this.cacheMisses.incrementAndGet();
+		CachedChannel cached = new CachedChannel(channel, now);
+		CachedChannel existing = this.dynamicChannels.putIfAbsent(name, cached);
+		if (existing != null) {
+			// another thread bound the same producer concurrently; release the binding made by this one
+			this.messageBus.unbindDynamicProducer(name);
+			existing.lastUsed = now;
+			channel = existing.channel;
+		}
+		evictIdle(now);
+		return channel;
+	}
+
+	/**
+	 * Unbind the producers that have not been used for {@code idleTimeout} milliseconds. Only one thread looks for
+	 * idle producers at a time; the others carry on resolving destinations. A message sent on a channel resolved just
+	 * before its producer is evicted may fail, the same as if it had been sent after the producer was unbound
+	 * explicitly.
+	 */
+	private void evictIdle(long now) {
+		long timeout = this.idleTimeout;
+		if (timeout <= 0 || now < this.nextEviction || !this.evicting.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			this.nextEviction = now + timeout / 2;
+			for (Map.Entry<String, CachedChannel> entry : this.dynamicChannels.entrySet()) {
+				CachedChannel cached = entry.getValue();
+				if (now - cached.lastUsed >= timeout && this.dynamicChannels.remove(entry.getKey(), cached)) {
+					release(entry.getKey());
+					this.evictions.incrementAndGet();
+					if (logger.isDebugEnabled()) {
+						logger.debug("Unbound dynamic producer '" + entry.getKey() + "' after being idle for "
+								+ (now - cached.lastUsed) + " ms");
+					}
+				}
+			}
+		}
+		finally {
+			this.evicting.set(false);
+		}
+	}
+
+	private void release(String name) {
+		try {
+			this.messageBus.unbindDynamicProducer(name);
+		}
+		catch (RuntimeException e) {
+			logger.warn("Failed to unbind dynamic producer '" + name + "'", e);
+		}
+	}
+
+	/**
+	 * Unbind all the dynamic producers bound by this resolver.
+	 */
+	@Override
+	public void destroy() {
+		for (String name : this.dynamicChannels.keySet()) {
+			if (this.dynamicChannels.remove(name) != null) {
+				release(name);
+			}
+		}
+	}
+
+	@ManagedAttribute(description = "Number of destinations resolved to an already bound dynamic producer")
+	public long getCacheHits() {
+		return this.cacheHits.get();
+	}
+
+	@ManagedAttribute(description = "Number of dynamic producers bound when resolving a destination")
+	public long getCacheMisses() {
+		return this.cacheMisses.get();
+	}
+
+	@ManagedAttribute(description = "Number of dynamic producers unbound after being idle")
+	public long getEvictions() {
+		return this.evictions.get();
+	}
+
+	@ManagedAttribute(description = "Number of dynamic producers currently bound")
+	public int getDynamicProducerCount() {
+		return this.dynamicChannels.size();
+	}
+
+
+	private static class CachedChannel {
+
+		private final MessageChannel channel;
+
+		private volatile long lastUsed;
+
+		private CachedChannel(MessageChannel channel, long lastUsed) {
+			this.channel = channel;
+			this.lastUsed = lastUsed;
+		}
+
+	}
+
 }
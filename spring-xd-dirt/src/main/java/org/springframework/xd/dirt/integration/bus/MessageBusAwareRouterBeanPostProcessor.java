@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2014 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,30 +17,51 @@
 package org.springframework.xd.dirt.integration.bus;
 
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.beans.factory.support.DefaultSingletonBeanRegistry;
 import org.springframework.integration.router.AbstractMappingMessageRouter;
 
 /**
  * A {@link BeanPostProcessor} that sets a {@link MessageBusAwareChannelResolver} on any bean of type
  * {@link AbstractMappingMessageRouter} within the context.
+ * <p>
+ * The first time a router is found, the resolver is registered as the {@value #CHANNEL_RESOLVER_BEAN_NAME} singleton,
+ * so that its metrics are exported with the other MBeans of the context and its dynamic producers are unbound when
+ * the context is closed. Contexts without a router do not get a resolver bean.
  * 
  * @author Mark Fisher
  * @author Gary Russell
  */
 public class MessageBusAwareRouterBeanPostProcessor implements BeanPostProcessor, BeanFactoryAware {
 
+	/**
+	 * The name the channel resolver is registered with once a router uses it.
+	 */
+	public static final String CHANNEL_RESOLVER_BEAN_NAME = "messageBusAwareChannelResolver";
+
 	private final MessageBusAwareChannelResolver channelResolver;
 
+	private final AtomicBoolean registered = new AtomicBoolean();
+
+	private volatile BeanFactory beanFactory;
+
 	public MessageBusAwareRouterBeanPostProcessor(MessageBus messageBus, Properties producerProperties) {
-		this.channelResolver = new MessageBusAwareChannelResolver(messageBus, producerProperties);
+		this(new MessageBusAwareChannelResolver(messageBus, producerProperties));
+	}
+
+	public MessageBusAwareRouterBeanPostProcessor(MessageBusAwareChannelResolver channelResolver) {
+		this.channelResolver = channelResolver;
 	}
 
 	@Override
 	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		this.beanFactory = beanFactory;
 		channelResolver.setBeanFactory(beanFactory);
 	}
 
@@ -53,8 +74,19 @@ public class MessageBusAwareRouterBeanPostProcessor implements BeanPostProcessor
 	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
 		if (bean instanceof AbstractMappingMessageRouter) {
 			((AbstractMappingMessageRouter) bean).setChannelResolver(channelResolver);
+			if (this.beanFactory instanceof ConfigurableBeanFactory && this.registered.compareAndSet(false, true)) {
+				registerChannelResolver((ConfigurableBeanFactory) this.beanFactory);
+			}
 		}
 		return bean;
 	}
 
+	private void registerChannelResolver(ConfigurableBeanFactory beanFactory) {
+		beanFactory.registerSingleton(CHANNEL_RESOLVER_BEAN_NAME, channelResolver);
+		if (beanFactory instanceof DefaultSingletonBeanRegistry) {
+			((DefaultSingletonBeanRegistry) beanFactory).registerDisposableBean(CHANNEL_RESOLVER_BEAN_NAME,
+					channelResolver);
+		}
+	}
+
 }
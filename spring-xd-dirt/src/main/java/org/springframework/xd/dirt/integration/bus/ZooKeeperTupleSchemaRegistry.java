@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.dirt.integration.bus;
+
+import java.util.Arrays;
+
+import org.apache.zookeeper.KeeperException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.util.Assert;
+import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperUtils;
+import org.springframework.xd.tuple.serializer.kryo.TupleSchemaRegistry;
+
+/**
+ * A {@link TupleSchemaRegistry} that stores the schemas in ZooKeeper, under the
+ * {@link Paths#TUPLE_SCHEMAS} node, so that they are shared by all the containers of the
+ * cluster. A schema that cannot be stored, for instance while ZooKeeper is unavailable,
+ * is written inline by the serializer instead.
+ *
+ * @since 1.3.2
+ */
+public class ZooKeeperTupleSchemaRegistry implements TupleSchemaRegistry {
+
+	private static final Logger logger = LoggerFactory.getLogger(ZooKeeperTupleSchemaRegistry.class);
+
+	private final ZooKeeperConnection zooKeeperConnection;
+
+	public ZooKeeperTupleSchemaRegistry(ZooKeeperConnection zooKeeperConnection) {
+		Assert.notNull(zooKeeperConnection, "'zooKeeperConnection' cannot be null");
+		this.zooKeeperConnection = zooKeeperConnection;
+	}
+
+	@Override
+	public boolean register(long fingerprint, byte[] schema) {
+		if (!this.zooKeeperConnection.isConnected()) {
+			return false;
+		}
+		try {
+			this.zooKeeperConnection.getClient().create().creatingParentsIfNeeded().forPath(path(fingerprint), schema);
+			return true;
+		}
+		catch (KeeperException.NodeExistsException e) {
+			// registered by another producer, unless two schemas share the fingerprint
+			return Arrays.equals(schema, lookup(fingerprint));
+		}
+		catch (Exception e) {
+			logger.warn("Failed to register tuple schema " + Long.toHexString(fingerprint), e);
+			return false;
+		}
+	}
+
+	@Override
+	public byte[] lookup(long fingerprint) {
+		try {
+			return this.zooKeeperConnection.getClient().getData().forPath(path(fingerprint));
+		}
+		catch (KeeperException.NoNodeException e) {
+			return null;
+		}
+		catch (Exception e) {
+			throw ZooKeeperUtils.wrapThrowable(e);
+		}
+	}
+
+	private String path(long fingerprint) {
+		return Paths.build(Paths.TUPLE_SCHEMAS, String.format("%016x", fingerprint));
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2014 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -48,6 +48,10 @@ import org.springframework.xd.module.core.Plugin;
  * <p>
  * In order to initialize modules with the correct application context,
  * this class maintains a reference to the global application context.
+ * <p>
+ * Modules may be deployed and undeployed concurrently; only the registration
+ * of deployed modules is synchronized, so that the application contexts of
+ * several modules can be created at the same time.
  * See <a href="http://docs.spring.io/autorepo/docs/spring-xd/current/reference/html/#XD-Spring-Application-Contexts">
  * the reference documentation</a> for more details.
  *
@@ -93,6 +97,11 @@ public class ModuleDeployer implements ApplicationContextAware, InitializingBean
 	 */
 	private final ModuleFactory moduleFactory;
 
+	/**
+	 * Timings of the deployment phases.
+	 */
+	private volatile ModuleDeploymentMetrics deploymentMetrics = new ModuleDeploymentMetrics(null);
+
 	/**
 	 * Construct a ModuleDeployer.
 	 *
@@ -144,6 +153,17 @@ public class ModuleDeployer implements ApplicationContextAware, InitializingBean
 		this.globalContext = global;
 	}
 
+	/**
+	 * Set the metrics that the duration of the context refresh and bus binding
+	 * phases of each deployment are recorded to.
+	 *
+	 * @param deploymentMetrics the deployment metrics
+	 */
+	public void setDeploymentMetrics(ModuleDeploymentMetrics deploymentMetrics) {
+		Assert.notNull(deploymentMetrics, "deploymentMetrics must not be null");
+		this.deploymentMetrics = deploymentMetrics;
+	}
+
 	@Override
 	public synchronized void afterPropertiesSet() {
 		if (!plugins.isEmpty()) {
@@ -193,18 +213,20 @@ public class ModuleDeployer implements ApplicationContextAware, InitializingBean
 	 * @param module the module to deploy
 	 * @param descriptor descriptor for the module instance
 	 */
-	public synchronized void deploy(Module module, ModuleDescriptor descriptor) {
+	public void deploy(Module module, ModuleDescriptor descriptor) {
 		String group = descriptor.getGroup();
 
 		module.setParentContext(this.globalContext);
 		doDeploy(module);
 		logger.info("Deployed {}", module);
-		Map<Integer, Module> modules = this.deployedModules.get(group);
-		if (modules == null) {
-			modules = new HashMap<Integer, Module>();
-			this.deployedModules.put(group, modules);
+		synchronized (this) {
+			Map<Integer, Module> modules = this.deployedModules.get(group);
+			if (modules == null) {
+				modules = new HashMap<Integer, Module>();
+				this.deployedModules.put(group, modules);
+			}
+			modules.put(descriptor.getIndex(), module);
 		}
-		modules.put(descriptor.getIndex(), module);
 	}
 
 	/**
@@ -213,9 +235,13 @@ public class ModuleDeployer implements ApplicationContextAware, InitializingBean
 	 * @param module module to deploy
 	 */
 	private void doDeploy(Module module) {
+		long start = System.nanoTime();
 		preProcessModule(module);
 		module.initialize();
+		this.deploymentMetrics.record(ModuleDeploymentMetrics.CONTEXT_REFRESH, module, start);
+		start = System.nanoTime();
 		postProcessModule(module);
+		this.deploymentMetrics.record(ModuleDeploymentMetrics.BUS_BINDING, module, start);
 		module.start();
 	}
 
@@ -246,25 +272,27 @@ public class ModuleDeployer implements ApplicationContextAware, InitializingBean
 	 *
 	 * @param moduleDescriptor descriptor for module to be undeployed
 	 */
-	public synchronized void undeploy(ModuleDescriptor moduleDescriptor) {
+	public void undeploy(ModuleDescriptor moduleDescriptor) {
 		Introspector.flushCaches(); // This is to prevent classloader leakage
 		String group = moduleDescriptor.getGroup();
 		int index = moduleDescriptor.getIndex();
-		Map<Integer, Module> modules = deployedModules.get(group);
-		if (modules != null) {
-			Module module = modules.remove(index);
+		Module module;
+		synchronized (this) {
+			Map<Integer, Module> modules = deployedModules.get(group);
+			if (modules == null) {
+				logger.trace("Ignoring undeploy - group not deployed here: {}", group);
+				return;
+			}
+			module = modules.remove(index);
 			if (modules.isEmpty()) {
 				deployedModules.remove(group);
 			}
-			if (module != null) {
-				destroyModule(module);
-			}
-			else {
-				logger.debug("Ignoring undeploy - module with index {} from group {} is not deployed", index, group);
-			}
+		}
+		if (module != null) {
+			destroyModule(module);
 		}
 		else {
-			logger.trace("Ignoring undeploy - group not deployed here: {}", group);
+			logger.debug("Ignoring undeploy - module with index {} from group {} is not deployed", index, group);
 		}
 	}
 
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.module;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.boot.actuate.metrics.GaugeService;
+
+/**
+ * Records how long the phases of a module deployment take in a container. Each phase is submitted, in milliseconds,
+ * as a gauge to the {@link GaugeService} of the container when there is one, and logged at debug level.
+ *
+ * @since 1.3.2
+ */
+public class ModuleDeploymentMetrics {
+
+	/**
+	 * Name of the gauge for the creation and refresh of the module application context.
+	 */
+	public static final String CONTEXT_REFRESH = "xd.deployment.contextRefresh";
+
+	/**
+	 * Name of the gauge for the binding of the module channels to the message bus.
+	 */
+	public static final String BUS_BINDING = "xd.deployment.busBinding";
+
+	/**
+	 * Name of the gauge for the writing of the module deployment status to ZooKeeper.
+	 */
+	public static final String STATUS_WRITE = "xd.deployment.statusWrite";
+
+	private static final Logger logger = LoggerFactory.getLogger(ModuleDeploymentMetrics.class);
+
+	private final GaugeService gaugeService;
+
+	/**
+	 * @param gaugeService the service to submit the timings to; may be {@code null}, in which case they are only
+	 *        logged
+	 */
+	public ModuleDeploymentMetrics(GaugeService gaugeService) {
+		this.gaugeService = gaugeService;
+	}
+
+	/**
+	 * Record the duration of a deployment phase.
+	 *
+	 * @param phase the name of the phase gauge
+	 * @param module the module being deployed, or its key, for logging
+	 * @param startTime the time the phase started, as returned by {@link System#nanoTime()}
+	 */
+	public void record(String phase, Object module, long startTime) {
+		long elapsed = (System.nanoTime() - startTime) / 1000000;
+		if (this.gaugeService != null) {
+			this.gaugeService.submit(phase, elapsed);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("{} of {} took {} ms", phase, module, elapsed);
+		}
+	}
+
+}
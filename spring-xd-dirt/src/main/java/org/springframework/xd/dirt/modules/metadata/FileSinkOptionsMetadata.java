@@ -1,5 +1,5 @@
 /*
- * Copyright 2014-2015 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,8 @@ package org.springframework.xd.dirt.modules.metadata;
 import static org.springframework.xd.dirt.modules.metadata.FileSinkOptionsMetadata.Mode.APPEND;
 import static org.springframework.xd.module.options.spi.ModulePlaceholders.XD_STREAM_NAME;
 
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import org.hibernate.validator.constraints.NotBlank;
@@ -40,6 +42,10 @@ public class FileSinkOptionsMetadata implements ProfileNamesProvider {
 
 	private static final String USE_LITERAL_STRING_PROFILE = "use-string";
 
+	private static final String USE_SPEL_BUFFERED_PROFILE = "use-expression-buffered";
+
+	private static final String USE_LITERAL_STRING_BUFFERED_PROFILE = "use-string-buffered";
+
 	private boolean binary = false;
 
 	private String charset = "UTF-8";
@@ -56,6 +62,18 @@ public class FileSinkOptionsMetadata implements ProfileNamesProvider {
 
 	private String dirExpression;
 
+	private boolean buffered = false;
+
+	private int bufferSize = 8192;
+
+	private long flushInterval = 1000;
+
+	private int maxOpenFiles = 16;
+
+	private long idleTimeout = 60000;
+
+	private FsyncPolicy fsync = FsyncPolicy.NONE;
+
 	@NotNull
 	public Mode getMode() {
 		return mode;
@@ -136,13 +154,87 @@ public class FileSinkOptionsMetadata implements ProfileNamesProvider {
 		this.dirExpression = dirExpression;
 	}
 
+	public boolean isBuffered() {
+		return buffered;
+	}
+
+	@ModuleOption("whether to keep files open and buffer the writes, with mode APPEND")
+	public void setBuffered(boolean buffered) {
+		this.buffered = buffered;
+	}
+
+	@Min(1)
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	@ModuleOption("the size in bytes of the write buffer of each open file, when buffered")
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	public long getFlushInterval() {
+		return flushInterval;
+	}
+
+	@ModuleOption("the interval in milliseconds at which buffered writes are flushed to the files, when buffered (0 to flush only full buffers)")
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	@Min(1)
+	public int getMaxOpenFiles() {
+		return maxOpenFiles;
+	}
+
+	@ModuleOption("the maximum number of files kept open, when buffered")
+	public void setMaxOpenFiles(int maxOpenFiles) {
+		this.maxOpenFiles = maxOpenFiles;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	@ModuleOption("the time in milliseconds after which a file not written to is closed, when buffered (0 to keep it open)")
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	@NotNull
+	public FsyncPolicy getFsync() {
+		return fsync;
+	}
+
+	@ModuleOption("when to force the written data to the storage device, when buffered")
+	public void setFsync(FsyncPolicy fsync) {
+		this.fsync = fsync;
+	}
+
+	@AssertTrue(message = "the 'buffered' option requires mode APPEND")
+	public boolean isBufferedAppending() {
+		return !buffered || mode == APPEND;
+	}
+
 	public static enum Mode {
 		APPEND, REPLACE, FAIL, IGNORE;
 	}
 
+	/**
+	 * When to force the data written to a file to the storage device, when buffered: never, after each periodic flush
+	 * or when a file is closed. Passed by name to the module's handler, which has its own matching enum.
+	 */
+	public static enum FsyncPolicy {
+		NONE, FLUSH, CLOSE;
+	}
+
 	@Override
 	public String[] profilesToActivate() {
-		return (nameExpression != null || dirExpression != null) ? new String[] { USE_SPEL_PROFILE }
-				: new String[] { USE_LITERAL_STRING_PROFILE };
+		boolean useSpel = nameExpression != null || dirExpression != null;
+		if (buffered) {
+			return useSpel ? new String[] { USE_SPEL_BUFFERED_PROFILE }
+					: new String[] { USE_LITERAL_STRING_BUFFERED_PROFILE };
+		}
+		return useSpel ? new String[] { USE_SPEL_PROFILE } : new String[] { USE_LITERAL_STRING_PROFILE };
 	}
 }
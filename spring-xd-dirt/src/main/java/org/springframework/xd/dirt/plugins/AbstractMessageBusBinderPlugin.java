@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2015 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,11 +18,11 @@ package org.springframework.xd.dirt.plugins;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.cache.ChildData;
@@ -89,8 +89,9 @@ public abstract class AbstractMessageBusBinderPlugin extends AbstractPlugin {
 	/**
 	 * Map of channels that can be tapped. The keys are the tap channel names (e.g. tap:stream:ticktock.time.0),
 	 * and the values are the output channels from modules where the actual WireTap interceptors would be added.
+	 * Modules are bound concurrently, and taps are added and removed from the tap listener thread.
 	 */
-	private final Map<String, MessageChannel> tappableChannels = new HashMap<String, MessageChannel>();
+	private final Map<String, MessageChannel> tappableChannels = new ConcurrentHashMap<String, MessageChannel>();
 
 	public AbstractMessageBusBinderPlugin(MessageBus messageBus) {
 		this(messageBus, null);
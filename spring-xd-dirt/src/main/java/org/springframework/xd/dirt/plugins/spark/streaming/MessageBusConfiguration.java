@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 the original author or authors.
+ * Copyright 2015-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.xd.dirt.plugins.spark.streaming;
 
 import java.util.Properties;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.PropertyPlaceholderAutoConfiguration;
 import org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration;
 import org.springframework.boot.autoconfigure.redis.RedisAutoConfiguration;
@@ -25,12 +26,16 @@ import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.ImportResource;
 import org.springframework.core.env.PropertiesPropertySource;
 import org.springframework.xd.dirt.server.MessageBusExtensionsConfiguration;
+import org.springframework.xd.dirt.server.SharedServerContextConfiguration;
 import org.springframework.xd.dirt.util.ConfigLocations;
+import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 
 /**
  * Configuration for the MessageBus used by the {@link MessageBusReceiver} and {@link MessageBusSender}.
@@ -77,6 +82,9 @@ class MessageBusConfiguration {
 				.web(false)
 				.showBanner(false);
 		application.sources(MessageBusExtensionsConfiguration.class);
+		if (properties.containsKey(SharedServerContextConfiguration.ZK_CONNECT)) {
+			application.sources(ZooKeeperConfiguration.class);
+		}
 		if (transport.equals("rabbit")) {
 			application.sources(RabbitAutoConfiguration.class);
 		}
@@ -86,4 +94,23 @@ class MessageBusConfiguration {
 		application.run();
 		return application.context();
 	}
+
+	/**
+	 * Connects to the ZooKeeper ensemble of the XD cluster, so that the codec can look up the
+	 * tuple schemas registered by the containers.
+	 */
+	@Configuration
+	static class ZooKeeperConfiguration {
+
+		@Value("${" + SharedServerContextConfiguration.ZK_CONNECT + "}")
+		private String zkClientConnect;
+
+		@Value("${zk.namespace:" + Paths.XD_NAMESPACE + "}")
+		private String zkNamespace;
+
+		@Bean
+		public ZooKeeperConnection zooKeeperConnection() {
+			return new ZooKeeperConnection(zkClientConnect, zkNamespace);
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 the original author or authors.
+ * Copyright 2015-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -70,6 +70,7 @@ import org.springframework.xd.dirt.integration.bus.MessageBus;
 import org.springframework.xd.dirt.plugins.AbstractStreamPlugin;
 import org.springframework.xd.dirt.plugins.stream.ModuleTypeConversionSupport;
 import org.springframework.xd.dirt.server.MessageBusClassLoaderFactory;
+import org.springframework.xd.dirt.server.SharedServerContextConfiguration;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 import org.springframework.xd.module.ModuleType;
 import org.springframework.xd.module.core.Module;
@@ -103,6 +104,10 @@ public class SparkStreamingPlugin extends AbstractStreamPlugin {
 
 	private static final String MESSAGE_BUS_PROPERTY_PREFIX = "xd.messagebus.";
 
+	private static final String CODEC_PROPERTY_PREFIX = "xd.codec.";
+
+	private static final String ZK_NAMESPACE_PROPERTY = "zk.namespace";
+
 	private PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
 
 	private Map<Module, JavaStreamingContext> streamingContexts = new HashMap<>();
@@ -227,12 +232,22 @@ public class SparkStreamingPlugin extends AbstractStreamPlugin {
 				for (String name : ((EnumerablePropertySource) p).getPropertyNames()) {
 					if ((name.startsWith(REDIS_CONNECTION_PROPERTY_PREFIX)) ||
 							name.startsWith(RABBIT_CONNECTION_PROPERTY_PREFIX) ||
-							name.startsWith(MESSAGE_BUS_PROPERTY_PREFIX)) {
+							name.startsWith(MESSAGE_BUS_PROPERTY_PREFIX) ||
+							name.startsWith(CODEC_PROPERTY_PREFIX)) {
 						busProperties.put(name, env.getProperty(name));
 					}
 				}
 			}
 		}
+		// the executors look up the tuple schemas registered by the containers
+		String zkConnect = env.getProperty(SharedServerContextConfiguration.ZK_CONNECT,
+				env.getProperty(SharedServerContextConfiguration.EMBEDDED_ZK_CONNECT));
+		if (StringUtils.hasText(zkConnect)) {
+			busProperties.put(SharedServerContextConfiguration.ZK_CONNECT, zkConnect);
+			if (env.containsProperty(ZK_NAMESPACE_PROPERTY)) {
+				busProperties.put(ZK_NAMESPACE_PROPERTY, env.getProperty(ZK_NAMESPACE_PROPERTY));
+			}
+		}
 		return busProperties;
 	}
 
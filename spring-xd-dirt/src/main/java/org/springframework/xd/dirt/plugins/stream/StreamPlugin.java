@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2014 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,10 +21,13 @@ import static org.springframework.xd.module.options.spi.ModulePlaceholders.XD_ST
 import java.util.Properties;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.boot.context.event.ApplicationPreparedEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.util.Assert;
 import org.springframework.xd.dirt.integration.bus.MessageBus;
+import org.springframework.xd.dirt.integration.bus.MessageBusAwareChannelResolver;
 import org.springframework.xd.dirt.integration.bus.MessageBusAwareRouterBeanPostProcessor;
 import org.springframework.xd.dirt.plugins.AbstractStreamPlugin;
 import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
@@ -41,6 +44,13 @@ import org.springframework.xd.module.core.Module;
  */
 public class StreamPlugin extends AbstractStreamPlugin {
 
+	/**
+	 * Time, in milliseconds, after which a producer bound by a router sink for a dynamic destination is unbound if
+	 * unused.
+	 */
+	@Value("${xd.messagebus.dynamicProducerIdleTimeout:" + MessageBusAwareChannelResolver.DEFAULT_IDLE_TIMEOUT + "}")
+	private long dynamicProducerIdleTimeout = MessageBusAwareChannelResolver.DEFAULT_IDLE_TIMEOUT;
+
 	@Autowired
 	public StreamPlugin(MessageBus messageBus, ZooKeeperConnection zkConnection) {
 		super(messageBus, zkConnection);
@@ -58,10 +68,15 @@ public class StreamPlugin extends AbstractStreamPlugin {
 				@Override
 				public void onApplicationEvent(ApplicationPreparedEvent event) {
 					Properties producerProperties = extractConsumerProducerProperties(module)[1];
+					ConfigurableListableBeanFactory beanFactory = event.getApplicationContext().getBeanFactory();
+					MessageBusAwareChannelResolver channelResolver =
+							new MessageBusAwareChannelResolver(messageBus, producerProperties);
+					channelResolver.setIdleTimeout(dynamicProducerIdleTimeout);
+					// the resolver is only registered, and exported, if the module has a router
 					MessageBusAwareRouterBeanPostProcessor bpp =
-							new MessageBusAwareRouterBeanPostProcessor(messageBus, producerProperties);
-					bpp.setBeanFactory(event.getApplicationContext().getBeanFactory());
-					event.getApplicationContext().getBeanFactory().addBeanPostProcessor(bpp);
+							new MessageBusAwareRouterBeanPostProcessor(channelResolver);
+					bpp.setBeanFactory(beanFactory);
+					beanFactory.addBeanPostProcessor(bpp);
 				}
 
 			});
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2014 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -42,7 +42,9 @@ import org.springframework.xd.rest.domain.metrics.AggregateCountsResource;
 import org.springframework.xd.rest.domain.metrics.CounterResource;
 import org.springframework.xd.rest.domain.metrics.FieldValueCounterResource;
 import org.springframework.xd.rest.domain.metrics.GaugeResource;
+import org.springframework.xd.rest.domain.metrics.HistogramGaugeResource;
 import org.springframework.xd.rest.domain.metrics.RichGaugeResource;
+import org.springframework.xd.rest.domain.metrics.TopFieldValueCounterResource;
 import org.springframework.xd.rest.domain.security.SecurityInfoResource;
 
 /**
@@ -95,9 +97,11 @@ public class AdminController {
 
 		xdRuntime.add(entityLinks.linkFor(CounterResource.class).withRel("counters"));
 		xdRuntime.add(entityLinks.linkFor(FieldValueCounterResource.class).withRel("field-value-counters"));
+		xdRuntime.add(entityLinks.linkFor(TopFieldValueCounterResource.class).withRel("top-field-value-counters"));
 		xdRuntime.add(entityLinks.linkFor(AggregateCountsResource.class).withRel("aggregate-counters"));
 		xdRuntime.add(entityLinks.linkFor(GaugeResource.class).withRel("gauges"));
 		xdRuntime.add(entityLinks.linkFor(RichGaugeResource.class).withRel("rich-gauges"));
+		xdRuntime.add(entityLinks.linkFor(HistogramGaugeResource.class).withRel("histogram-gauges"));
 		return xdRuntime;
 	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2015 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,10 @@ package org.springframework.xd.dirt.rest;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 
 import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
@@ -38,6 +42,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Controller;
 import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
@@ -88,6 +93,8 @@ public class ContainersController {
 
 	private final static String JOLOKIA_XD_MODULE_MBEAN_URL = "/management/jolokia/read/xd.*:module=*,component=*,name=*";
 
+	private final static String JOLOKIA_XD_BUS_MBEAN_PATH = "/jolokia/read/xd.messagebus:type=*,binding=*,direction=*";
+
 	private final static String INPUT_CHANNEL_NAME = "input";
 
 	private final static String OUTPUT_CHANNEL_NAME = "output";
@@ -172,6 +179,79 @@ public class ContainersController {
 		}
 	}
 
+	/**
+	 * Return the message bus binding metrics of the given container, keyed by binding name
+	 * and then by direction ({@code producer} or {@code consumer}). The metrics are read
+	 * from the container's MBeans via Jolokia, and are only available when JMX is enabled.
+	 *
+	 * @throws NoSuchContainerException
+	 */
+	@RequestMapping(value = "/{containerId}/bindings", method = RequestMethod.GET)
+	@ResponseStatus(HttpStatus.OK)
+	@ResponseBody
+	public Map<String, Map<String, Object>> bindingMetrics(@PathVariable("containerId") String containerId)
+			throws NoSuchContainerException {
+		Container container = this.containerRepository.findOne(containerId);
+		if (container == null) {
+			throw new NoSuchContainerException("Container could not be found with id " + containerId);
+		}
+		Map<String, Map<String, Object>> bindings = new TreeMap<String, Map<String, Object>>();
+		String containerHost = container.getAttributes().getIp();
+		String containerManagementPort = container.getAttributes().getManagementPort();
+		if (!StringUtils.hasText(containerManagementPort)) {
+			return bindings;
+		}
+		String request = CONTAINER_HOST_URI_PROTOCOL + containerHost + ":" + containerManagementPort
+				+ managementContextPath + JOLOKIA_XD_BUS_MBEAN_PATH;
+		try {
+			String response = restTemplate.getForObject(request, String.class);
+			JSONObject value = new JSONObject(response).optJSONObject("value");
+			if (value == null) {
+				// no binding MBeans are registered
+				return bindings;
+			}
+			JSONArray mbeanNames = value.names();
+			for (int i = 0; mbeanNames != null && i < mbeanNames.length(); i++) {
+				String mbeanName = mbeanNames.getString(i);
+				ObjectName objectName = new ObjectName(mbeanName);
+				String binding = ObjectName.unquote(objectName.getKeyProperty("binding"));
+				Map<String, Object> directions = bindings.get(binding);
+				if (directions == null) {
+					directions = new TreeMap<String, Object>();
+					bindings.put(binding, directions);
+				}
+				directions.put(objectName.getKeyProperty("direction"), toMap(value.getJSONObject(mbeanName)));
+			}
+		}
+		catch (RestClientException e) {
+			logger.warn(String.format("Error getting binding metrics for %s", container.getName()), e);
+		}
+		catch (JSONException e) {
+			logger.warn(String.format("Error getting binding metrics for %s", container.getName()), e);
+		}
+		catch (MalformedObjectNameException e) {
+			logger.warn(String.format("Error getting binding metrics for %s", container.getName()), e);
+		}
+		return bindings;
+	}
+
+	private Map<String, Object> toMap(JSONObject jsonObject) throws JSONException {
+		Map<String, Object> map = new TreeMap<String, Object>();
+		JSONArray names = jsonObject.names();
+		for (int i = 0; names != null && i < names.length(); i++) {
+			String name = names.getString(i);
+			Object value = jsonObject.get(name);
+			if (JSONObject.NULL.equals(value)) {
+				value = null;
+			}
+			else if (value instanceof JSONObject) {
+				value = toMap((JSONObject) value);
+			}
+			map.put(name, value);
+		}
+		return map;
+	}
+
 	/**
 	 * Shutdown container by the given containerId.
 	 *
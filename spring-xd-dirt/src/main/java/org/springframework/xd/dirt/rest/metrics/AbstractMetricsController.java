@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,10 +16,7 @@
 
 package org.springframework.xd.dirt.rest.metrics;
 
-import java.util.List;
-
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PagedResourcesAssembler;
 import org.springframework.hateoas.PagedResources;
@@ -64,10 +61,23 @@ abstract class AbstractMetricsController<R extends MetricRepository<M>, M extend
 	protected PagedResources<? extends MetricResource> list(Pageable pageable,
 			PagedResourcesAssembler<M> pagedAssembler,
 			ResourceAssembler<M, ? extends MetricResource> resourceAssembler) {
-		/* Page */Iterable<M> metrics = repository.findAll(/* pageable */);
+		return list(null, pageable, pagedAssembler, resourceAssembler);
+	}
 
-		// Ok for now until we use PagingAndSortingRepo as we know we have lists
-		Page<M> page = new PageImpl<M>((List<M>) metrics);
+	/**
+	 * Lists a page of the metric resources whose name starts with the given prefix. Only the metrics of the requested
+	 * page are loaded from the repository.
+	 *
+	 * @param prefix the prefix of the names to list, or {@code null} for all metrics
+	 * @param pageable the Pageable
+	 * @param pagedAssembler the PagedResourcesAssembler
+	 * @param resourceAssembler the ResourceAssembler
+	 * @return the resources
+	 */
+	protected PagedResources<? extends MetricResource> list(String prefix, Pageable pageable,
+			PagedResourcesAssembler<M> pagedAssembler,
+			ResourceAssembler<M, ? extends MetricResource> resourceAssembler) {
+		Page<M> page = repository.findByNameStartingWith(prefix, pageable);
 		return pagedAssembler.toResource(page,
 				resourceAssembler == null ? this.shallowResourceAssembler : resourceAssembler);
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -71,8 +71,10 @@ public class AggregateCountersController extends AbstractMetricsController<Aggre
 			@RequestParam(value = "detailed", defaultValue = "false") boolean detailed,//
 			@RequestParam(value = "from", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) DateTime from, //
 			@RequestParam(value = "to", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) DateTime to, //
-			@RequestParam(value = "resolution", defaultValue = "hour") AggregateCountResolution resolution) {
-		PagedResources<? extends MetricResource> resources = list(pageable, pagedAssembler, shallowResourceAssembler);
+			@RequestParam(value = "resolution", defaultValue = "hour") AggregateCountResolution resolution, //
+			@RequestParam(value = "prefix", required = false) String prefix) {
+		PagedResources<? extends MetricResource> resources = list(prefix, pageable, pagedAssembler,
+				shallowResourceAssembler);
 		if (detailed) {
 			to = providedOrDefaultToValue(to);
 			from = providedOrDefaultFromValue(from, to, resolution);
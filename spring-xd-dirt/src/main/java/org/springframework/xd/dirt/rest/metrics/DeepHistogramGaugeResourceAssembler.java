@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.rest.metrics;
+
+import org.springframework.hateoas.mvc.ResourceAssemblerSupport;
+import org.springframework.xd.analytics.metrics.core.HistogramGauge;
+import org.springframework.xd.rest.domain.metrics.HistogramGaugeResource;
+
+/**
+ * Knows how to create rich representations of {@link HistogramGauge}s, summarized by their percentiles.
+ *
+ * @since 1.3.2
+ */
+public class DeepHistogramGaugeResourceAssembler extends
+		ResourceAssemblerSupport<HistogramGauge, HistogramGaugeResource> {
+
+	public DeepHistogramGaugeResourceAssembler() {
+		super(HistogramGaugesController.class, HistogramGaugeResource.class);
+	}
+
+	@Override
+	public HistogramGaugeResource toResource(HistogramGauge entity) {
+		return createResourceWithId(entity.getName(), entity);
+	}
+
+	@Override
+	protected HistogramGaugeResource instantiateResource(HistogramGauge entity) {
+		return new HistogramGaugeResource(entity.getName(), entity.getCount(), entity.getMin(), entity.getMax(),
+				entity.getMean(), entity.getValueAtPercentile(50.0), entity.getValueAtPercentile(90.0),
+				entity.getValueAtPercentile(99.0), entity.getValueAtPercentile(99.9),
+				HistogramGauge.RELATIVE_ACCURACY);
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.rest.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.hateoas.mvc.ResourceAssemblerSupport;
+import org.springframework.xd.analytics.metrics.core.TopFieldValues;
+import org.springframework.xd.rest.domain.metrics.TopFieldValueCounterResource;
+
+/**
+ * Knows how to create rich representations of {@link TopFieldValues}.
+ *
+ * @since 1.3.2
+ */
+public class DeepTopFieldValueCounterResourceAssembler extends
+		ResourceAssemblerSupport<TopFieldValues, TopFieldValueCounterResource> {
+
+	public DeepTopFieldValueCounterResourceAssembler() {
+		super(TopFieldValueCountersController.class, TopFieldValueCounterResource.class);
+	}
+
+	@Override
+	public TopFieldValueCounterResource toResource(TopFieldValues entity) {
+		return createResourceWithId(entity.getName(), entity);
+	}
+
+	@Override
+	protected TopFieldValueCounterResource instantiateResource(TopFieldValues entity) {
+		List<TopFieldValueCounterResource.FieldValue> values = new ArrayList<TopFieldValueCounterResource.FieldValue>(
+				entity.getValues().size());
+		for (TopFieldValues.FieldValue value : entity.getValues()) {
+			values.add(new TopFieldValueCounterResource.FieldValue(value.getValue(), value.getCount(),
+					value.getError()));
+		}
+		return new TopFieldValueCounterResource(entity.getName(), values, entity.getTotal(), entity.getDistinct(),
+				entity.getDistinctStandardError());
+	}
+
+}
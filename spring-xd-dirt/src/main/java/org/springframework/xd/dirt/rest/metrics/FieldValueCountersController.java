@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -51,8 +51,8 @@ public class FieldValueCountersController extends
 	private final DeepFieldValueCounterResourceAssembler fvcResourceAssembler = new DeepFieldValueCounterResourceAssembler();
 
 	@Autowired
-	public FieldValueCountersController(FieldValueCounterRepository repository) {
-		super(repository);
+	public FieldValueCountersController(FieldValueCounterRepository fieldValueCounterRepository) {
+		super(fieldValueCounterRepository);
 	}
 
 	/**
@@ -62,8 +62,9 @@ public class FieldValueCountersController extends
 	@RequestMapping(value = "", method = RequestMethod.GET)
 	public PagedResources<? extends MetricResource> list(Pageable pageable,
 			PagedResourcesAssembler<FieldValueCounter> pagedAssembler,
-			@RequestParam(value = "detailed", defaultValue = "false") boolean detailed) {
-		return list(pageable, pagedAssembler, detailed ? fvcResourceAssembler : shallowResourceAssembler);
+			@RequestParam(value = "detailed", defaultValue = "false") boolean detailed,
+			@RequestParam(value = "prefix", required = false) String prefix) {
+		return list(prefix, pageable, pagedAssembler, detailed ? fvcResourceAssembler : shallowResourceAssembler);
 	}
 
 	@ResponseBody
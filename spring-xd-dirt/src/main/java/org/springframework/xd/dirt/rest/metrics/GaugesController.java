@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2015 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -54,8 +54,9 @@ public class GaugesController extends AbstractMetricsController<GaugeRepository,
 	@RequestMapping(value = "", method = RequestMethod.GET)
 	public PagedResources<? extends MetricResource> list(Pageable pageable,
 			PagedResourcesAssembler<Gauge> pagedAssembler,
-			@RequestParam(value = "detailed", defaultValue = "false") boolean detailed) {
-		return list(pageable, pagedAssembler, detailed ? gaugeResourceAssembler : shallowResourceAssembler);
+			@RequestParam(value = "detailed", defaultValue = "false") boolean detailed,
+			@RequestParam(value = "prefix", required = false) String prefix) {
+		return list(prefix, pageable, pagedAssembler, detailed ? gaugeResourceAssembler : shallowResourceAssembler);
 	}
 
 	@ResponseBody
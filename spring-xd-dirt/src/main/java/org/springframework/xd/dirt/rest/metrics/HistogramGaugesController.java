@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.rest.metrics;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.hateoas.ExposesResourceFor;
+import org.springframework.hateoas.PagedResources;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.xd.analytics.metrics.core.HistogramGauge;
+import org.springframework.xd.analytics.metrics.core.HistogramGaugeRepository;
+import org.springframework.xd.dirt.analytics.NoSuchMetricException;
+import org.springframework.xd.rest.domain.metrics.HistogramGaugeResource;
+import org.springframework.xd.rest.domain.metrics.MetricResource;
+
+/**
+ * Exposes the percentiles of {@link HistogramGauge}s, over all their values or over a recent window.
+ *
+ * @since 1.3.2
+ */
+@Controller
+@RequestMapping("/metrics/histogram-gauges")
+@ExposesResourceFor(HistogramGaugeResource.class)
+public class HistogramGaugesController extends AbstractMetricsController<HistogramGaugeRepository, HistogramGauge> {
+
+	private final DeepHistogramGaugeResourceAssembler histogramResourceAssembler = new DeepHistogramGaugeResourceAssembler();
+
+	@Autowired
+	public HistogramGaugesController(HistogramGaugeRepository histogramGaugeRepository) {
+		super(histogramGaugeRepository);
+	}
+
+	@ResponseBody
+	@RequestMapping(value = "", method = RequestMethod.GET)
+	public PagedResources<? extends MetricResource> list(Pageable pageable,
+			PagedResourcesAssembler<HistogramGauge> pagedAssembler,
+			@RequestParam(value = "detailed", defaultValue = "false") boolean detailed,
+			@RequestParam(value = "prefix", required = false) String prefix) {
+		return list(prefix, pageable, pagedAssembler, detailed ? histogramResourceAssembler : shallowResourceAssembler);
+	}
+
+	/**
+	 * Return the percentiles of a gauge.
+	 *
+	 * @param name the name of the gauge
+	 * @param from the start-time of the window, default one hour before {@code to}
+	 * @param to the end-time of the window, default "now"
+	 * @return the percentiles of all the values of the gauge if neither {@code from} nor {@code to} is given, and of
+	 *         the values recorded in the window otherwise
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/{name}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public HistogramGaugeResource display(@PathVariable("name") String name, //
+			@RequestParam(value = "from", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) DateTime from, //
+			@RequestParam(value = "to", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) DateTime to) {
+		HistogramGauge histogram;
+		if (from == null && to == null) {
+			histogram = repository.findOne(name);
+		}
+		else {
+			if (to == null) {
+				to = new DateTime();
+			}
+			if (from == null) {
+				from = to.minusHours(1);
+			}
+			histogram = repository.getHistogram(name, new Interval(from, to));
+		}
+		if (histogram == null) {
+			throw new NoSuchMetricException(name, "There is no histogram gauge named '%s'");
+		}
+		return histogramResourceAssembler.toResource(histogram);
+	}
+
+}
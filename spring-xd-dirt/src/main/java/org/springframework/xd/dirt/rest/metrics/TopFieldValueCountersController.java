@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.rest.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.ExposesResourceFor;
+import org.springframework.hateoas.PagedResources;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.xd.analytics.metrics.core.FieldValueCounter;
+import org.springframework.xd.analytics.metrics.core.TopFieldValueCounterRepository;
+import org.springframework.xd.analytics.metrics.core.TopFieldValues;
+import org.springframework.xd.dirt.analytics.NoSuchMetricException;
+import org.springframework.xd.rest.domain.metrics.MetricResource;
+import org.springframework.xd.rest.domain.metrics.TopFieldValueCounterResource;
+
+/**
+ * Controller that exposes the most frequent values of the field value counters kept by a
+ * {@link TopFieldValueCounterRepository}.
+ *
+ * @since 1.3.2
+ */
+@Controller
+@RequestMapping("/metrics/top-field-value-counters")
+@ExposesResourceFor(TopFieldValueCounterResource.class)
+public class TopFieldValueCountersController extends
+		AbstractMetricsController<TopFieldValueCounterRepository, FieldValueCounter> {
+
+	/**
+	 * Used to create rich representations of {@link TopFieldValues}.
+	 */
+	private final DeepTopFieldValueCounterResourceAssembler topResourceAssembler = new DeepTopFieldValueCounterResourceAssembler();
+
+	@Autowired
+	public TopFieldValueCountersController(TopFieldValueCounterRepository topFieldValueCounterRepository) {
+		super(topFieldValueCounterRepository);
+	}
+
+	/**
+	 * List the names of the top field value counters.
+	 */
+	@ResponseBody
+	@RequestMapping(value = "", method = RequestMethod.GET)
+	public PagedResources<? extends MetricResource> list(Pageable pageable,
+			PagedResourcesAssembler<FieldValueCounter> pagedAssembler,
+			@RequestParam(value = "prefix", required = false) String prefix) {
+		return list(prefix, pageable, pagedAssembler, shallowResourceAssembler);
+	}
+
+	/**
+	 * Return the {@code n} most frequent values of a counter, with the bounds of their counts.
+	 */
+	@ResponseBody
+	@RequestMapping(value = "/{name}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public TopFieldValueCounterResource display(@PathVariable("name") String name,
+			@RequestParam(value = "n", defaultValue = "10") int n) {
+		TopFieldValues top = repository.findTop(name, n);
+		if (top == null) {
+			throw new NoSuchMetricException(name, "There is no top-field-value-counter named '%s'");
+		}
+		return topResourceAssembler.toResource(top);
+	}
+
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.apache.curator.utils.ThreadUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+
+/**
+ * Runs deployment tasks on a bounded pool of threads. Tasks for the same deployment unit (stream or job) run one
+ * at a time, in the order they were submitted, so that the steps of a deployment are still applied in the order
+ * they were requested (for instance sink before processors before source), while the tasks of different
+ * deployment units run in parallel.
+ * <p>
+ * Tasks that affect all deployment units can be submitted with {@link #executeExclusive(Runnable)}: such a task
+ * runs once all the tasks submitted before it have completed, and the tasks submitted after it wait for it to
+ * complete.
+ *
+ * @since 1.3.2
+ */
+public class DeploymentUnitExecutor implements DisposableBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(DeploymentUnitExecutor.class);
+
+	private final ExecutorService executorService;
+
+	private final int concurrency;
+
+	/**
+	 * Tasks waiting for the running task of their deployment unit to complete. A deployment unit has an entry
+	 * in this map for as long as one of its tasks is running or queued in the executor service.
+	 */
+	@GuardedBy("this")
+	private final Map<String, Queue<Runnable>> pendingTasks = new HashMap<String, Queue<Runnable>>();
+
+	/**
+	 * Tasks submitted while an exclusive task is waiting or running, in submission order. The head of this queue,
+	 * if any, is either an exclusive task waiting for the running tasks to complete, or a task waiting for the
+	 * running exclusive task to complete.
+	 */
+	@GuardedBy("this")
+	private final Queue<DeferredTask> deferredTasks = new LinkedList<DeferredTask>();
+
+	@GuardedBy("this")
+	private boolean exclusiveTaskRunning;
+
+	/**
+	 * Incremented by {@link #cancelPending()}, so that the tasks submitted before then are skipped.
+	 */
+	@GuardedBy("this")
+	private long generation;
+
+	@GuardedBy("this")
+	private int runningTasks;
+
+	/**
+	 * Create an executor that runs up to the given number of deployment tasks at a time.
+	 *
+	 * @param concurrency the maximum number of tasks running at a time; 0 or less for the number of available
+	 *        processors
+	 * @param name the name of the executor, used as the prefix of its thread names
+	 */
+	public DeploymentUnitExecutor(int concurrency, String name) {
+		this.concurrency = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+		this.executorService = Executors.newFixedThreadPool(this.concurrency, ThreadUtils.newThreadFactory(name));
+	}
+
+	/**
+	 * Return the maximum number of tasks running at a time.
+	 *
+	 * @return the number of threads of this executor
+	 */
+	public int getConcurrency() {
+		return this.concurrency;
+	}
+
+	/**
+	 * Submit a task, to be run after the previously submitted tasks of the same deployment unit, and the
+	 * previously submitted exclusive tasks, have completed.
+	 *
+	 * @param deploymentUnit the key of the stream or job the task applies to
+	 * @param task the task to run
+	 */
+	public void execute(String deploymentUnit, Runnable task) {
+		Assert.notNull(deploymentUnit, "deploymentUnit must not be null");
+		Assert.notNull(task, "task must not be null");
+		List<UnitTask> ready = new ArrayList<UnitTask>(1);
+		synchronized (this) {
+			if (this.exclusiveTaskRunning || !this.deferredTasks.isEmpty()) {
+				this.deferredTasks.add(new DeferredTask(deploymentUnit, task));
+				return;
+			}
+			schedule(deploymentUnit, task, ready);
+		}
+		dispatch(ready);
+	}
+
+	/**
+	 * Submit a task that applies to all deployment units. It runs once all previously submitted tasks have
+	 * completed, and no other task runs until it completes.
+	 *
+	 * @param task the task to run
+	 */
+	public void executeExclusive(Runnable task) {
+		Assert.notNull(task, "task must not be null");
+		List<UnitTask> ready = new ArrayList<UnitTask>(1);
+		synchronized (this) {
+			this.deferredTasks.add(new DeferredTask(null, task));
+			scheduleDeferred(ready);
+		}
+		dispatch(ready);
+	}
+
+	/**
+	 * Run a task exclusively, as per {@link #executeExclusive(Runnable)}, and wait for it to complete.
+	 *
+	 * @param task the task to run
+	 * @return the result of the task
+	 * @throws Exception the exception thrown by the task, {@link java.util.concurrent.CancellationException} if
+	 *         the task was discarded by {@link #cancelPending()}, or {@link InterruptedException} if interrupted
+	 *         while waiting
+	 */
+	public <T> T callExclusive(Callable<T> task) throws Exception {
+		FutureTask<T> future = new FutureTask<T>(task);
+		executeExclusive(future);
+		try {
+			return future.get();
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Discard the tasks that have not started yet. Tasks that are running are not interrupted; use
+	 * {@link #awaitRunningTasks(long)} to wait for them. Discarded tasks that are {@link Future}s are cancelled,
+	 * outside of the lock of this executor.
+	 *
+	 * @return the number of discarded tasks
+	 */
+	public int cancelPending() {
+		List<Runnable> cancelled = new ArrayList<Runnable>();
+		synchronized (this) {
+			for (Queue<Runnable> queue : this.pendingTasks.values()) {
+				cancelled.addAll(queue);
+			}
+			for (DeferredTask deferred : this.deferredTasks) {
+				cancelled.add(deferred.task);
+			}
+			this.pendingTasks.clear();
+			this.deferredTasks.clear();
+			this.generation++;
+		}
+		for (Runnable task : cancelled) {
+			if (task instanceof Future) {
+				((Future<?>) task).cancel(false);
+			}
+		}
+		return cancelled.size();
+	}
+
+	/**
+	 * Wait for the running tasks to complete.
+	 *
+	 * @param timeout the maximum number of milliseconds to wait
+	 * @return {@code true} if no task is running
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public synchronized boolean awaitRunningTasks(long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		while (this.runningTasks > 0) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				return false;
+			}
+			wait(remaining);
+		}
+		return true;
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		cancelPending();
+		this.executorService.shutdown();
+		if (!this.executorService.awaitTermination(30, TimeUnit.SECONDS)) {
+			logger.warn("Deployment tasks still running after 30 seconds; interrupting them");
+			this.executorService.shutdownNow();
+		}
+	}
+
+	/**
+	 * Queue a task behind the tasks of its deployment unit, or add it to the tasks to dispatch if the deployment
+	 * unit is idle.
+	 */
+	@GuardedBy("this")
+	private void schedule(String deploymentUnit, Runnable task, List<UnitTask> ready) {
+		Queue<Runnable> queue = this.pendingTasks.get(deploymentUnit);
+		if (queue != null) {
+			queue.add(task);
+		}
+		else {
+			this.pendingTasks.put(deploymentUnit, new LinkedList<Runnable>());
+			ready.add(new UnitTask(deploymentUnit, task, this.generation));
+		}
+	}
+
+	/**
+	 * Schedule the deferred tasks, in order, up to the first exclusive task that cannot run yet.
+	 */
+	@GuardedBy("this")
+	private void scheduleDeferred(List<UnitTask> ready) {
+		while (!this.exclusiveTaskRunning && !this.deferredTasks.isEmpty()) {
+			DeferredTask next = this.deferredTasks.peek();
+			if (next.deploymentUnit == null) {
+				if (!this.pendingTasks.isEmpty() || !ready.isEmpty()) {
+					return;
+				}
+				this.exclusiveTaskRunning = true;
+				ready.add(new UnitTask(null, next.task, this.generation));
+			}
+			else {
+				schedule(next.deploymentUnit, next.task, ready);
+			}
+			this.deferredTasks.poll();
+		}
+	}
+
+	private void dispatch(List<UnitTask> ready) {
+		for (UnitTask task : ready) {
+			this.executorService.execute(task);
+		}
+	}
+
+
+	/**
+	 * A task submitted while an exclusive task was waiting or running.
+	 */
+	private static class DeferredTask {
+
+		/**
+		 * The deployment unit of the task, or {@code null} for an exclusive task.
+		 */
+		private final String deploymentUnit;
+
+		private final Runnable task;
+
+		private DeferredTask(String deploymentUnit, Runnable task) {
+			this.deploymentUnit = deploymentUnit;
+			this.task = task;
+		}
+
+	}
+
+	/**
+	 * Runs a task, then submits the tasks that were waiting for it to complete, if any.
+	 */
+	private class UnitTask implements Runnable {
+
+		/**
+		 * The deployment unit of the task, or {@code null} for an exclusive task.
+		 */
+		private final String deploymentUnit;
+
+		private final Runnable task;
+
+		private final long generation;
+
+		UnitTask(String deploymentUnit, Runnable task, long generation) {
+			this.deploymentUnit = deploymentUnit;
+			this.task = task;
+			this.generation = generation;
+		}
+
+		@Override
+		public void run() {
+			if (!begin()) {
+				// discarded by cancelPending(); an exclusive task still has to let the tasks deferred since run
+				if (this.task instanceof Future) {
+					((Future<?>) this.task).cancel(false);
+				}
+				dispatch(end(false));
+				return;
+			}
+			try {
+				this.task.run();
+			}
+			catch (RuntimeException e) {
+				logger.error("Exception running deployment task"
+						+ (this.deploymentUnit == null ? "" : " for " + this.deploymentUnit), e);
+			}
+			finally {
+				dispatch(end(true));
+			}
+		}
+
+		private boolean begin() {
+			synchronized (DeploymentUnitExecutor.this) {
+				if (this.generation != DeploymentUnitExecutor.this.generation) {
+					return false;
+				}
+				runningTasks++;
+				return true;
+			}
+		}
+
+		private List<UnitTask> end(boolean ran) {
+			List<UnitTask> ready = new ArrayList<UnitTask>(1);
+			synchronized (DeploymentUnitExecutor.this) {
+				if (ran) {
+					runningTasks--;
+					DeploymentUnitExecutor.this.notifyAll();
+				}
+				if (this.deploymentUnit == null) {
+					exclusiveTaskRunning = false;
+				}
+				else if (this.generation == DeploymentUnitExecutor.this.generation) {
+					Queue<Runnable> queue = pendingTasks.get(this.deploymentUnit);
+					Runnable next = queue == null ? null : queue.poll();
+					if (next == null) {
+						pendingTasks.remove(this.deploymentUnit);
+					}
+					else {
+						ready.add(new UnitTask(this.deploymentUnit, next, this.generation));
+					}
+				}
+				scheduleDeferred(ready);
+			}
+			return ready;
+		}
+
+	}
+
+}
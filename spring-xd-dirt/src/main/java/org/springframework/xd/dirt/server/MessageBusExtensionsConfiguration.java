@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 the original author or authors.
+ * Copyright 2015-2016 the original author or authors.
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
@@ -28,8 +28,10 @@ import org.springframework.context.annotation.ImportResource;
 import org.springframework.integration.codec.Codec;
 import org.springframework.integration.codec.kryo.FileKryoRegistrar;
 import org.springframework.integration.codec.kryo.KryoRegistrar;
-import org.springframework.integration.codec.kryo.PojoCodec;
+import org.springframework.xd.dirt.integration.bus.ReusableBufferPojoCodec;
+import org.springframework.xd.dirt.integration.bus.ZooKeeperTupleSchemaRegistry;
 import org.springframework.xd.dirt.util.ConfigLocations;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
 import org.springframework.xd.tuple.serializer.kryo.TupleKryoRegistrar;
 
 /**
@@ -44,15 +46,31 @@ public class MessageBusExtensionsConfiguration {
 	@Autowired
 	ApplicationContext applicationContext;
 
+	/**
+	 * Shares the tuple schemas between containers; absent where the bus runs outside of a
+	 * container, for instance in a Spark executor.
+	 */
+	@Autowired(required = false)
+	private ZooKeeperConnection zooKeeperConnection;
+
 	@Value("${xd.codec.kryo.references}")
 	private boolean useReferences;
 
+	@Value("${xd.codec.kryo.maxRetainedBufferSize:65536}")
+	private int maxRetainedBufferSize;
+
+	@Value("${xd.codec.kryo.tupleSchemaCaching:false}")
+	private boolean tupleSchemaCaching;
+
 	@Bean
 	@ConditionalOnMissingBean(name = "codec")
 	public Codec codec() {
 		Map<String, KryoRegistrar> kryoRegistrarMap = applicationContext.getBeansOfType(KryoRegistrar
 				.class);
-		return new PojoCodec(new ArrayList<>(kryoRegistrarMap.values()), useReferences);
+		ReusableBufferPojoCodec codec = new ReusableBufferPojoCodec(new ArrayList<>(kryoRegistrarMap.values()),
+				useReferences);
+		codec.setMaxRetainedBufferSize(maxRetainedBufferSize);
+		return codec;
 	}
 
 	@Bean
@@ -62,6 +80,7 @@ public class MessageBusExtensionsConfiguration {
 
 	@Bean
 	public KryoRegistrar tupleRegistrar() {
-		return new TupleKryoRegistrar();
+		return new TupleKryoRegistrar(tupleSchemaCaching,
+				zooKeeperConnection == null ? null : new ZooKeeperTupleSchemaRegistry(zooKeeperConnection));
 	}
 }
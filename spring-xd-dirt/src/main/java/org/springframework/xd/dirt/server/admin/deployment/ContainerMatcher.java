@@ -1,5 +1,5 @@
 /*
- * Copyright 2014-2015 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,12 +21,14 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.context.expression.MapAccessor;
 import org.springframework.expression.EvaluationException;
+import org.springframework.expression.Expression;
 import org.springframework.expression.spel.SpelEvaluationException;
 import org.springframework.expression.spel.SpelMessage;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
@@ -54,6 +56,8 @@ import org.springframework.xd.module.ModuleDescriptor;
  * <p/>
  * In cases where all containers are not deploying a module, an attempt at container round robin distribution for module
  * deployments will be made (but not guaranteed).
+ * <p/>
+ * This class is thread safe: the deployment handlers of the admin match modules from several threads at once.
  *
  * @author Patrick Peralta
  * @author Mark Fisher
@@ -70,18 +74,13 @@ public class ContainerMatcher {
 	/**
 	 * Current index for iterating over containers.
 	 */
-	private int index;
+	private final AtomicInteger index = new AtomicInteger();
 
 	/**
 	 * Parser for criteria expressions.
 	 */
 	private final SpelExpressionParser expressionParser = new SpelExpressionParser();
 
-	/**
-	 * Evaluation context for criteria expressions.
-	 */
-	private final StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
-
 	/**
 	 * Collection of {@link ContainerFilter}s to apply to the candidate Containers.
 	 */
@@ -89,21 +88,19 @@ public class ContainerMatcher {
 
 
 	/**
-	 * Creates a container matcher instance and prepares the SpEL evaluation context to support Map properties directly.
+	 * Creates a container matcher instance.
 	 */
 	public ContainerMatcher() {
 		this(new ContainerFilter[0]);
 	}
 
 	/**
-	 * Creates a container matcher instance with the provided {@link ContainerFilter}s
-	 * and prepares the SpEL evaluation context to support Map properties directly.
+	 * Creates a container matcher instance with the provided {@link ContainerFilter}s.
 	 */
 	public ContainerMatcher(ContainerFilter... containerFilters) {
 		this.containerFilters = (containerFilters != null)
 				? Collections.unmodifiableList(Arrays.asList(containerFilters))
 				: Collections.<ContainerFilter>emptyList();
-		evaluationContext.addPropertyAccessor(new MapAccessor());
 	}
 
 
@@ -168,15 +165,15 @@ public class ContainerMatcher {
 
 			return candidates;
 		}
-		else if (count == 1) {
-			return Collections.singleton(candidates.get(getAndRotateIndex(candidateCount)));
+		int start = getAndRotateIndex(count, candidateCount);
+		if (count == 1) {
+			return Collections.singleton(candidates.get(start));
 		}
 		else {
 			// create a new list with the specific number of targeted containers;
 			List<Container> targets = new ArrayList<Container>();
-			while (targets.size() < count) {
-				targets.add(candidates.get(getAndRotateIndex(candidateCount)));
-
+			for (int i = 0; i < count; i++) {
+				targets.add(candidates.get((start + i) % candidateCount));
 			}
 			return targets;
 		}
@@ -196,10 +193,18 @@ public class ContainerMatcher {
 		}
 
 		List<Container> candidates = new ArrayList<Container>();
+		Expression expression = null;
+		StandardEvaluationContext evaluationContext = null;
+		if (StringUtils.hasText(criteria)) {
+			// a context per call, as matches may run concurrently
+			expression = expressionParser.parseExpression(criteria);
+			evaluationContext = new StandardEvaluationContext();
+			evaluationContext.addPropertyAccessor(new MapAccessor());
+		}
 
 		for (Container container : containers) {
 			logger.trace("Evaluating container {}", container);
-			if (StringUtils.isEmpty(criteria) || isCandidate(container, criteria)) {
+			if (expression == null || isCandidate(container, expression, evaluationContext)) {
 				logger.trace("\tAdded container {}", container);
 				candidates.add(container);
 			}
@@ -213,16 +218,18 @@ public class ContainerMatcher {
 	 *
 	 * @param container the container instance whose attributes should be considered
 	 * @param criteria the criteria expression to evaluate against the container attributes
+	 * @param evaluationContext the context to evaluate the criteria expression with
 	 * @return whether the container is a candidate
 	 */
-	private boolean isCandidate(Container container, String criteria) {
+	private boolean isCandidate(Container container, Expression criteria,
+			StandardEvaluationContext evaluationContext) {
 		try {
-			return expressionParser.parseExpression(criteria).getValue(evaluationContext, container.getAttributes(),
-					Boolean.class);
+			return criteria.getValue(evaluationContext, container.getAttributes(), Boolean.class);
 		}
 		catch (SpelEvaluationException e) {
 			if (e.getMessageCode().equals(SpelMessage.PROPERTY_OR_FIELD_NOT_READABLE)) {
-				logger.debug("candidate does not contain an attribute referenced in the criteria {}", criteria);
+				logger.debug("candidate does not contain an attribute referenced in the criteria {}",
+						criteria.getExpressionString());
 			}
 			return false;
 		}
@@ -233,18 +240,20 @@ public class ContainerMatcher {
 	}
 
 	/**
-	 * Rotate the cached index over the number of available containers.
+	 * Rotate the cached index over the number of available containers. The positions taken by a call are reserved
+	 * atomically, so that concurrent calls neither reuse nor skip positions.
 	 *
+	 * @param positions the number of consecutive positions to take
 	 * @param availableContainerCount the number of available containers
-	 * @return the current count before rotating
+	 * @return the first position taken, before rotating
 	 */
-	private synchronized int getAndRotateIndex(int availableContainerCount) {
+	private int getAndRotateIndex(int positions, int availableContainerCount) {
 		if (availableContainerCount <= 0) {
 			return 0;
 		}
-		int i = index % availableContainerCount;
-		index = i + 1;
-		return i;
+		int i = (positions == 1) ? index.getAndIncrement() : index.getAndAdd(positions);
+		// the counter may overflow; keep the position positive
+		return (i & Integer.MAX_VALUE) % availableContainerCount;
 	}
 
 }
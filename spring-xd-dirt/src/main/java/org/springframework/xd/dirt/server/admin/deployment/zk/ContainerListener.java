@@ -1,5 +1,5 @@
 /*
- * Copyright 2014-2015 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.xd.dirt.server.admin.deployment.zk;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -37,6 +38,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.xd.dirt.cluster.Container;
 import org.springframework.xd.dirt.container.store.ContainerRepository;
 import org.springframework.xd.dirt.job.JobFactory;
+import org.springframework.xd.dirt.server.DeploymentUnitExecutor;
 import org.springframework.xd.dirt.server.admin.deployment.ContainerMatcher;
 import org.springframework.xd.dirt.server.admin.deployment.DeploymentUnitStateCalculator;
 import org.springframework.xd.dirt.stream.StreamFactory;
@@ -50,6 +52,10 @@ import org.springframework.xd.dirt.zookeeper.ZooKeeperUtils;
  * be scheduled to detect departed containers on a regular basis via
  * {@link #scheduleDepartedContainerDeployer()}. This ensures that departed containers are
  * handled in case a container departing event is missed.
+ * <p/>
+ * Modules are redeployed as exclusive tasks of the {@link DeploymentUnitExecutor}
+ * that processes deployment messages, so that redeployments do not overlap with
+ * stream or job deployments.
  *
  * @author Patrick Peralta
  * @author Mark Fisher
@@ -100,6 +106,11 @@ public class ContainerListener implements PathChildrenCacheListener {
 	 */
 	private final ScheduledExecutorService executorService;
 
+	/**
+	 * Executor that processes the deployment messages.
+	 */
+	private final DeploymentUnitExecutor deploymentExecutor;
+
 	/**
 	 * Container and timestamp info for newest container.
 	 */
@@ -117,6 +128,8 @@ public class ContainerListener implements PathChildrenCacheListener {
 	 * @param containerMatcher matches modules to containers
 	 * @param moduleDeploymentWriter utility that writes deployment requests to zk path
 	 * @param stateCalculator calculator for stream/job state
+	 * @param executorService executor service for scheduling the container deployers
+	 * @param deploymentExecutor executor that processes the deployment messages
 	 * @param quietPeriod AtomicLong indicating quiet period for new container module deployments
 	 */
 	public ContainerListener(ZooKeeperConnection zkConnection,
@@ -125,7 +138,8 @@ public class ContainerListener implements PathChildrenCacheListener {
 			PathChildrenCache streamDeployments, PathChildrenCache jobDeployments,
 			PathChildrenCache moduleDeploymentRequests, ContainerMatcher containerMatcher,
 			ModuleDeploymentWriter moduleDeploymentWriter, DeploymentUnitStateCalculator stateCalculator,
-			ScheduledExecutorService executorService, AtomicLong quietPeriod) {
+			ScheduledExecutorService executorService, DeploymentUnitExecutor deploymentExecutor,
+			AtomicLong quietPeriod) {
 		this.zkConnection = zkConnection;
 		this.containerMatchingModuleRedeployer = new ContainerMatchingModuleRedeployer(zkConnection,
 				containerRepository, streamFactory, jobFactory, streamDeployments, jobDeployments,
@@ -135,6 +149,7 @@ public class ContainerListener implements PathChildrenCacheListener {
 				moduleDeploymentWriter, stateCalculator);
 		this.quietPeriod = quietPeriod;
 		this.executorService = executorService;
+		this.deploymentExecutor = deploymentExecutor;
 	}
 
 	/**
@@ -251,11 +266,18 @@ public class ContainerListener implements PathChildrenCacheListener {
 		@Override
 		public void run() {
 			scheduled.set(false);
-			ContainerArrival containerArrival = latestContainer.get();
+			final ContainerArrival containerArrival = latestContainer.get();
 			if (containerArrival != null) {
 				if (System.currentTimeMillis() >= containerArrival.timestamp + quietPeriod.get()) {
 					try {
-						containerMatchingModuleRedeployer.deployModules(containerArrival.container);
+						deploymentExecutor.callExclusive(new Callable<Void>() {
+
+							@Override
+							public Void call() throws Exception {
+								containerMatchingModuleRedeployer.deployModules(containerArrival.container);
+								return null;
+							}
+						});
 						latestContainer.compareAndSet(containerArrival, null);
 					}
 					catch (Exception e) {
@@ -299,7 +321,7 @@ public class ContainerListener implements PathChildrenCacheListener {
 		public void run() {
 			try {
 				CuratorFramework client = zkConnection.getClient();
-				Set<String> containerDeployments = new HashSet<String>();
+				final Set<String> containerDeployments = new HashSet<String>();
 
 				try {
 					containerDeployments.addAll(client.getChildren().forPath(
@@ -310,9 +332,19 @@ public class ContainerListener implements PathChildrenCacheListener {
 					// ignore
 				}
 
-				for (String containerName : containerDeployments) {
-					Container container = new Container(containerName, Collections.<String, String> emptyMap());
-					departedContainerModuleRedeployer.deployModules(container);
+				if (!containerDeployments.isEmpty()) {
+					deploymentExecutor.callExclusive(new Callable<Void>() {
+
+						@Override
+						public Void call() throws Exception {
+							for (String containerName : containerDeployments) {
+								Container container = new Container(containerName,
+										Collections.<String, String> emptyMap());
+								departedContainerModuleRedeployer.deployModules(container);
+							}
+							return null;
+						}
+					});
 				}
 			}
 			catch (Exception e) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 the original author or authors.
+ * Copyright 2015-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 package org.springframework.xd.dirt.server.admin.deployment.zk;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.autoconfigure.AuditAutoConfiguration;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.batch.BatchAutoConfiguration;
@@ -31,6 +32,7 @@ import org.springframework.xd.dirt.container.store.ZooKeeperAdminRepository;
 import org.springframework.xd.dirt.integration.bus.MessageBus;
 import org.springframework.xd.dirt.job.JobFactory;
 import org.springframework.xd.dirt.module.ModuleRegistry;
+import org.springframework.xd.dirt.server.DeploymentUnitExecutor;
 import org.springframework.xd.dirt.server.admin.deployment.DefaultDeploymentUnitStateCalculator;
 import org.springframework.xd.dirt.server.admin.deployment.DeploymentUnitStateCalculator;
 import org.springframework.xd.dirt.stream.JobDefinitionRepository;
@@ -80,6 +82,12 @@ public class DeploymentConfiguration {
 	@Autowired
 	private MessageBus messageBus;
 
+	/**
+	 * Number of deployment messages processed concurrently; 0 for the number of available processors.
+	 */
+	@Value("${xd.admin.deploymentConcurrency:0}")
+	private int deploymentConcurrency;
+
 	@Bean
 	public XDStreamParser parser() {
 		return new XDStreamParser(streamDefinitionRepository, moduleRegistry, moduleOptionsMetadataResolver);
@@ -160,6 +168,11 @@ public class DeploymentConfiguration {
 		return new DeploymentMessageConsumer();
 	}
 
+	@Bean
+	public DeploymentUnitExecutor deploymentMessageExecutor() {
+		return new DeploymentUnitExecutor(deploymentConcurrency, "DeploymentMessageExecutor");
+	}
+
 	@Bean
 	public AdminRepository adminRepository() {
 		return new ZooKeeperAdminRepository(zkConnection);
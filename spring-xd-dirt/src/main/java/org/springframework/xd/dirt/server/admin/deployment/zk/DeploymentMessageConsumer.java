@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 the original author or authors.
+ * Copyright 2015-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,9 @@
 package org.springframework.xd.dirt.server.admin.deployment.zk;
 
 import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.queue.QueueConsumer;
@@ -24,9 +27,11 @@ import org.apache.curator.framework.state.ConnectionState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.StringUtils;
 import org.springframework.xd.dirt.core.ResourceDeployer;
+import org.springframework.xd.dirt.server.DeploymentUnitExecutor;
 import org.springframework.xd.dirt.server.admin.deployment.DeploymentAction;
 import org.springframework.xd.dirt.server.admin.deployment.DeploymentMessage;
 import org.springframework.xd.dirt.stream.JobDefinition;
@@ -41,10 +46,21 @@ import org.springframework.xd.dirt.zookeeper.ZooKeeperUtils;
  * Consumer for {@link org.springframework.xd.dirt.server.admin.deployment.DeploymentMessage}
  * which delegates to the corresponding @{@link org.springframework.xd.dirt.core.ResourceDeployer}
  * to process the deployment requests.
+ * <p/>
+ * When a {@link DeploymentUnitExecutor} is available, the messages are processed on it:
+ * the messages for a given stream or job are processed in the order they were received,
+ * while those for different streams and jobs are processed concurrently. Messages that
+ * apply to all streams or all jobs are processed once the messages received before them
+ * have been processed, and before any message received after them.
+ * <p/>
+ * A message is removed from the deployment queue before it is consumed, so the consumer
+ * only takes as many messages as the executor has threads before waiting for one of them
+ * to be processed; the other messages stay in ZooKeeper. Messages that are discarded
+ * before being processed, because the leadership is lost, are answered with an error.
  *
  * @author Ilayaperumal Gopinathan
  */
-public class DeploymentMessageConsumer implements QueueConsumer<DeploymentMessage> {
+public class DeploymentMessageConsumer implements QueueConsumer<DeploymentMessage>, InitializingBean {
 
 	private static final Logger logger = LoggerFactory.getLogger(DeploymentMessageConsumer.class);
 
@@ -57,6 +73,25 @@ public class DeploymentMessageConsumer implements QueueConsumer<DeploymentMessag
 	@Autowired
 	private ZooKeeperConnection zkConnection;
 
+	/**
+	 * Executor for processing the deployment messages; if {@code null}, messages
+	 * are processed by the thread that consumes them.
+	 */
+	@Autowired(required = false)
+	private DeploymentUnitExecutor deploymentExecutor;
+
+	/**
+	 * Permits for the messages taken from the queue that have not been processed yet.
+	 */
+	private Semaphore pendingMessages;
+
+	@Override
+	public void afterPropertiesSet() {
+		if (deploymentExecutor != null) {
+			pendingMessages = new Semaphore(deploymentExecutor.getConcurrency());
+		}
+	}
+
 	// todo: for testing only; this will be removed eventually
 	public void consumeMessage(DeploymentMessage message, StreamDeployer streamDeployer, JobDeployer jobDeployer)
 			throws Exception {
@@ -72,7 +107,78 @@ public class DeploymentMessageConsumer implements QueueConsumer<DeploymentMessag
 	 * @throws Exception
 	 */
 	@Override
-	public void consumeMessage(DeploymentMessage deploymentMessage) throws Exception {
+	public void consumeMessage(final DeploymentMessage deploymentMessage) throws Exception {
+		if (deploymentExecutor == null) {
+			processDeploymentMessage(deploymentMessage);
+			return;
+		}
+		try {
+			pendingMessages.acquire();
+		}
+		catch (InterruptedException e) {
+			writeResponse(deploymentMessage, "The deployment request was not processed: the admin was interrupted");
+			throw e;
+		}
+		DeploymentTask task = new DeploymentTask(deploymentMessage);
+		switch (deploymentMessage.getDeploymentAction()) {
+			case undeployAll:
+			case destroyAll:
+				deploymentExecutor.executeExclusive(task);
+				break;
+			default:
+				deploymentExecutor.execute(deploymentMessage.getDeploymentUnitType() + ":"
+						+ deploymentMessage.getUnitName(), task);
+		}
+	}
+
+	/**
+	 * Processes a deployment message on the executor, releasing its permit once it has been processed or
+	 * discarded.
+	 */
+	private class DeploymentTask extends FutureTask<Void> {
+
+		private final DeploymentMessage message;
+
+		DeploymentTask(final DeploymentMessage message) {
+			super(new Runnable() {
+
+				@Override
+				public void run() {
+					processDeploymentMessage(message);
+				}
+			}, null);
+			this.message = message;
+		}
+
+		@Override
+		protected void done() {
+			pendingMessages.release();
+			if (isCancelled()) {
+				writeResponse(message, "The deployment request was discarded: the admin lost its leadership "
+						+ "before processing it");
+				return;
+			}
+			try {
+				get();
+			}
+			catch (ExecutionException e) {
+				// the error has been written to the response of the message
+				logger.error(String.format("Error processing %s of %s '%s'", message.getDeploymentAction(),
+						message.getDeploymentUnitType(), message.getUnitName()), e.getCause());
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+	}
+
+	/**
+	 * Delegate the deployment message to the deployer for its deployment unit type.
+	 *
+	 * @param deploymentMessage the deployment message
+	 */
+	private void processDeploymentMessage(DeploymentMessage deploymentMessage) {
 		switch (deploymentMessage.getDeploymentUnitType()) {
 			case Stream:
 				processDeploymentMessage(streamDeployer, deploymentMessage);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2014-2015 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -49,6 +49,7 @@ import org.springframework.xd.dirt.cluster.AdminAttributes;
 import org.springframework.xd.dirt.container.store.AdminRepository;
 import org.springframework.xd.dirt.container.store.ContainerRepository;
 import org.springframework.xd.dirt.job.JobFactory;
+import org.springframework.xd.dirt.server.DeploymentUnitExecutor;
 import org.springframework.xd.dirt.server.admin.deployment.ContainerMatcher;
 import org.springframework.xd.dirt.server.admin.deployment.DeploymentUnitStateCalculator;
 import org.springframework.xd.dirt.stream.StreamFactory;
@@ -94,6 +95,12 @@ public class DeploymentSupervisor implements ApplicationListener<ApplicationEven
 	@Autowired
 	private DeploymentMessageConsumer deploymentMessageConsumer;
 
+	/**
+	 * Executor that processes the deployment messages.
+	 */
+	@Autowired
+	private DeploymentUnitExecutor deploymentExecutor;
+
 	/**
 	 * Factory to construct {@link org.springframework.xd.dirt.core.Stream} instance
 	 */
@@ -480,6 +487,7 @@ public class DeploymentSupervisor implements ApplicationListener<ApplicationEven
 						moduleDeploymentWriter,
 						stateCalculator,
 						executorService,
+						deploymentExecutor,
 						quietPeriod);
 
 				containers = instantiatePathChildrenCache(client, Paths.CONTAINERS);
@@ -521,6 +529,11 @@ public class DeploymentSupervisor implements ApplicationListener<ApplicationEven
 						logger.warn("Exception closing the distributed queue producer " + e);
 					}
 				}
+				int cancelled = deploymentExecutor.cancelPending();
+				if (cancelled > 0) {
+					logger.warn("Discarded {} deployment message(s) not processed before leadership was lost",
+							cancelled);
+				}
 			}
 		}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2014-2015 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,14 +16,22 @@
 
 package org.springframework.xd.dirt.server.admin.deployment.zk;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
 import org.apache.curator.framework.api.CuratorWatcher;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
@@ -59,6 +67,12 @@ import org.springframework.xd.module.RuntimeModuleDeploymentProperties;
  * </ul>
  * The results may be examined to obtain detailed information about each deployment
  * attempt and its result.
+ * <p/>
+ * The requests passed to a single invocation are written in as few ZooKeeper
+ * transactions as possible, and their results are collected together, so that
+ * deploying a module to many containers (or many modules at once, see
+ * {@link #writeDeployments(Collection)}) costs a handful of round trips and a
+ * single wait.
  *
  * @author Patrick Peralta
  * @author Ilayaperumal Gopinathan
@@ -83,6 +97,13 @@ public class ModuleDeploymentWriter {
 	@Value("${xd.admin.deploymentTimeout:30000}")
 	private long deploymentTimeout;
 
+	/**
+	 * Maximum number of module deployment requests written in a single
+	 * ZooKeeper transaction; each request creates two nodes. This keeps
+	 * transactions well below the maximum size of a ZooKeeper request.
+	 */
+	private static final int MAX_REQUESTS_PER_TRANSACTION = 100;
+
 	/**
 	 * Write a module deployment request for the provided module descriptor
 	 * using the provided properties to the given matched container.
@@ -98,13 +119,8 @@ public class ModuleDeploymentWriter {
 	protected ModuleDeploymentStatus writeDeployment(ModuleDescriptor moduleDescriptor,
 			RuntimeModuleDeploymentProperties deploymentProperties, Container container)
 			throws InterruptedException, NoContainerException {
-		ResultCollector collector = new ResultCollector();
-		writeDeployment(moduleDescriptor, deploymentProperties, container, collector);
-		Collection<ModuleDeploymentStatus> statuses = processResults(collector);
-		if (statuses.isEmpty()) {
-			throw new NoContainerException();
-		}
-		return statuses.iterator().next();
+		return writeDeployments(Collections.singletonList(
+				new ModuleDeploymentRequest(moduleDescriptor, deploymentProperties, container))).iterator().next();
 	}
 
 
@@ -125,9 +141,41 @@ public class ModuleDeploymentWriter {
 			ModuleDeploymentPropertiesProvider<RuntimeModuleDeploymentProperties> provider,
 			Collection<Container> containers)
 			throws InterruptedException, NoContainerException {
-		ResultCollector collector = new ResultCollector();
+		List<ModuleDeploymentRequest> requests = new ArrayList<ModuleDeploymentRequest>(containers.size());
 		for (Container container : containers) {
-			writeDeployment(moduleDescriptor, provider.propertiesForDescriptor(moduleDescriptor), container, collector);
+			requests.add(new ModuleDeploymentRequest(moduleDescriptor,
+					provider.propertiesForDescriptor(moduleDescriptor), container));
+		}
+		return writeDeployments(requests);
+	}
+
+	/**
+	 * Write the provided module deployment requests, possibly for several
+	 * modules and deployment units, and wait for the containers to respond
+	 * to all of them. The requests are written in batched ZooKeeper
+	 * transactions; the caller is responsible for not passing requests
+	 * that have to be deployed in a given order (such as the modules of a
+	 * stream) in the same invocation.
+	 *
+	 * @param requests  the module deployment requests
+	 * @return results of the requests
+	 * @throws InterruptedException if the executing thread is interrupted
+	 * @throws NoContainerException if there are no requests
+	 */
+	protected Collection<ModuleDeploymentStatus> writeDeployments(Collection<ModuleDeploymentRequest> requests)
+			throws InterruptedException, NoContainerException {
+		ResultCollector collector = new ResultCollector();
+		List<ModuleDeploymentRequest> batch = new ArrayList<ModuleDeploymentRequest>(
+				Math.min(requests.size(), MAX_REQUESTS_PER_TRANSACTION));
+		for (ModuleDeploymentRequest request : requests) {
+			batch.add(request);
+			if (batch.size() == MAX_REQUESTS_PER_TRANSACTION) {
+				writeDeployments(batch, collector);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			writeDeployments(batch, collector);
 		}
 		Collection<ModuleDeploymentStatus> statuses = processResults(collector);
 		if (statuses.isEmpty()) {
@@ -137,42 +185,104 @@ public class ModuleDeploymentWriter {
 	}
 
 	/**
-	 * Writes the module deployment to the container.
+	 * Writes a batch of module deployment requests in a single transaction
+	 * and sets the collector as a watch on their status paths.
 	 *
-	 * @param moduleDescriptor			descriptor for module to deploy
-	 * @param runtimeProperties			runtime deployment properties provider for the module
-	 * @param container					the container to deploy
+	 * @param batch						the module deployment requests
 	 * @param collector					the result collector
 	 * @throws InterruptedException 	if the executing thread is interrupted
-	 * @throws NoContainerException 	if there are no containers that match the criteria
-	 *                              	for module deployment
 	 */
-	private void writeDeployment(ModuleDescriptor moduleDescriptor,
-			RuntimeModuleDeploymentProperties runtimeProperties,
-			Container container, ResultCollector collector)
-			throws InterruptedException, NoContainerException {
-		int moduleSequence = runtimeProperties.getSequence();
-		String containerName = container.getName();
-		String deploymentPath = new ModuleDeploymentsPath()
-				.setContainer(containerName)
-				.setDeploymentUnitName(moduleDescriptor.getGroup())
-				.setModuleType(moduleDescriptor.getType().toString())
-				.setModuleLabel(moduleDescriptor.getModuleLabel())
-				.setModuleSequence(String.valueOf(moduleSequence)).build();
-		String statusPath = Paths.build(deploymentPath, Paths.STATUS);
-		collector.addPending(containerName, moduleSequence, moduleDescriptor.createKey());
+	private void writeDeployments(List<ModuleDeploymentRequest> batch, ResultCollector collector)
+			throws InterruptedException {
+		CuratorFramework client = zkConnection.getClient();
+		List<String> deploymentPaths = new ArrayList<String>(batch.size());
+		CuratorTransaction transaction = client.inTransaction();
+		CuratorTransactionFinal operations = null;
+		for (ModuleDeploymentRequest request : batch) {
+			String deploymentPath = request.buildPath();
+			deploymentPaths.add(deploymentPath);
+			collector.addPending(request.container.getName(), request.runtimeProperties.getSequence(),
+					request.moduleDescriptor.createKey());
+			try {
+				operations = transaction
+						.create().forPath(deploymentPath, ZooKeeperUtils.mapToBytes(request.runtimeProperties)).and()
+						.create().forPath(Paths.build(deploymentPath, Paths.STATUS)).and();
+			}
+			catch (Exception e) {
+				throw ZooKeeperUtils.wrapThrowable(e);
+			}
+			transaction = operations;
+		}
+
+		Set<String> failedPaths = new HashSet<String>();
 		try {
-			ensureModuleDeploymentPath(deploymentPath, statusPath, moduleDescriptor,
-					runtimeProperties, container);
+			operations.commit();
+		}
+		catch (InterruptedException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			// the transaction is all or nothing: if one of the modules was
+			// already deployed, or one of the containers departed, write the
+			// requests one at a time so that only those requests are affected
+			logger.debug("Writing {} module deployment requests one at a time: {}", batch.size(), e.toString());
+			for (int i = 0; i < batch.size(); i++) {
+				ModuleDeploymentRequest request = batch.get(i);
+				String deploymentPath = deploymentPaths.get(i);
+				try {
+					ensureModuleDeploymentPath(deploymentPath, Paths.build(deploymentPath, Paths.STATUS),
+							request.moduleDescriptor, request.runtimeProperties, request.container);
+				}
+				catch (InterruptedException ie) {
+					throw ie;
+				}
+				catch (Exception re) {
+					failedPaths.add(deploymentPath);
+					collector.addResult(createResult(deploymentPath, re));
+				}
+			}
+		}
+
+		for (String deploymentPath : deploymentPaths) {
+			if (!failedPaths.contains(deploymentPath)) {
+				watchStatus(deploymentPath, collector);
+			}
+		}
+	}
 
-			// set the collector as a watch; it is possible that
+	/**
+	 * Set the collector as a watch on the status path of a module deployment.
+	 * The status is read in the background, so that the watches for a batch
+	 * of requests are set without waiting for a round trip for each of them.
+	 *
+	 * @param deploymentPath	the module deployment path
+	 * @param collector			the result collector
+	 * @throws InterruptedException if the executing thread is interrupted
+	 */
+	private void watchStatus(final String deploymentPath, final ResultCollector collector)
+			throws InterruptedException {
+		try {
+			// it is possible that
 			// a. that the container has already updated this node (unlikely)
 			// b. the deployment was previously written; in this case read
 			//    the status written by the container
-			byte[] data = zkConnection.getClient().getData().usingWatcher(collector).forPath(statusPath);
-			if (data != null && data.length > 0) {
-				collector.addResult(createResult(deploymentPath, data));
-			}
+			zkConnection.getClient().getData().usingWatcher(collector).inBackground(new BackgroundCallback() {
+
+				@Override
+				public void processResult(CuratorFramework client, CuratorEvent event) {
+					if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+						byte[] data = event.getData();
+						if (data != null && data.length > 0) {
+							collector.addResult(createResult(deploymentPath, data));
+						}
+					}
+					else {
+						collector.addResult(createResult(deploymentPath,
+								KeeperException.create(KeeperException.Code.get(event.getResultCode()),
+										event.getPath())));
+					}
+				}
+			}).forPath(Paths.build(deploymentPath, Paths.STATUS));
 		}
 		catch (InterruptedException e) {
 			throw e;
@@ -301,6 +411,55 @@ public class ModuleDeploymentWriter {
 	}
 
 
+	/**
+	 * A request to deploy a module to a container.
+	 */
+	protected static class ModuleDeploymentRequest {
+
+		/**
+		 * Descriptor for the module to deploy.
+		 */
+		private final ModuleDescriptor moduleDescriptor;
+
+		/**
+		 * Runtime deployment properties for the module.
+		 */
+		private final RuntimeModuleDeploymentProperties runtimeProperties;
+
+		/**
+		 * The container to deploy the module to.
+		 */
+		private final Container container;
+
+		/**
+		 * Construct a {@code ModuleDeploymentRequest}.
+		 *
+		 * @param moduleDescriptor   descriptor for module to deploy
+		 * @param runtimeProperties  runtime deployment properties for the module
+		 * @param container          the container to deploy the module to
+		 */
+		protected ModuleDeploymentRequest(ModuleDescriptor moduleDescriptor,
+				RuntimeModuleDeploymentProperties runtimeProperties, Container container) {
+			this.moduleDescriptor = moduleDescriptor;
+			this.runtimeProperties = runtimeProperties;
+			this.container = container;
+		}
+
+		/**
+		 * Build the ZooKeeper path for this module deployment.
+		 *
+		 * @return the module deployment path
+		 */
+		private String buildPath() {
+			return new ModuleDeploymentsPath()
+					.setContainer(container.getName())
+					.setDeploymentUnitName(moduleDescriptor.getGroup())
+					.setModuleType(moduleDescriptor.getType().toString())
+					.setModuleLabel(moduleDescriptor.getModuleLabel())
+					.setModuleSequence(String.valueOf(runtimeProperties.getSequence())).build();
+		}
+	}
+
 	/**
 	 * Key used to track results of module deployments to a container.
 	 */
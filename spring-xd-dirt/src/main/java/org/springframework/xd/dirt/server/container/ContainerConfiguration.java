@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@
 package org.springframework.xd.dirt.server.container;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.GaugeService;
 import org.springframework.boot.actuate.autoconfigure.AuditAutoConfiguration;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.batch.BatchAutoConfiguration;
@@ -33,7 +35,9 @@ import org.springframework.xd.dirt.cluster.ContainerAttributes;
 import org.springframework.xd.dirt.container.store.ContainerRepository;
 import org.springframework.xd.dirt.job.JobFactory;
 import org.springframework.xd.dirt.module.ModuleDeployer;
+import org.springframework.xd.dirt.module.ModuleDeploymentMetrics;
 import org.springframework.xd.dirt.module.ModuleRegistry;
+import org.springframework.xd.dirt.server.DeploymentUnitExecutor;
 import org.springframework.xd.dirt.stream.JobDefinitionRepository;
 import org.springframework.xd.dirt.stream.StreamDefinitionRepository;
 import org.springframework.xd.dirt.stream.StreamFactory;
@@ -88,6 +92,16 @@ public class ContainerConfiguration {
 	@Autowired
 	private ZooKeeperConnection zooKeeperConnection;
 
+	@Autowired(required = false)
+	private GaugeService gaugeService;
+
+	/**
+	 * The maximum number of modules this container deploys at the same time; 0 for the number of available
+	 * processors.
+	 */
+	@Value("${xd.deployment.concurrency:0}")
+	private int deploymentConcurrency;
+
 	@Bean
 	public ApplicationListener<?> xdInitializer(ApplicationContext context) {
 		XdConfigLoggingInitializer delegate = new XdConfigLoggingInitializer(true);
@@ -104,7 +118,19 @@ public class ContainerConfiguration {
 	@Bean
 	/*(name = "moduleDeployer")*/
 	public ModuleDeployer moduleDeployer() {
-		return new ModuleDeployer(moduleFactory());
+		ModuleDeployer moduleDeployer = new ModuleDeployer(moduleFactory());
+		moduleDeployer.setDeploymentMetrics(moduleDeploymentMetrics());
+		return moduleDeployer;
+	}
+
+	@Bean
+	public ModuleDeploymentMetrics moduleDeploymentMetrics() {
+		return new ModuleDeploymentMetrics(gaugeService);
+	}
+
+	@Bean
+	public DeploymentUnitExecutor moduleDeploymentExecutor() {
+		return new DeploymentUnitExecutor(deploymentConcurrency, "ModuleDeploymentExecutor");
 	}
 
 	@Bean
@@ -123,7 +149,7 @@ public class ContainerConfiguration {
 		JobFactory jobFactory = new JobFactory(jobDefinitionRepository, moduleRegistry,
 				moduleOptionsMetadataResolver);
 		return new DeploymentListener(zooKeeperConnection, moduleDeployer, containerAttributes, jobFactory,
-				streamFactory);
+				streamFactory, moduleDeploymentExecutor(), moduleDeploymentMetrics());
 	}
 
 	private void initializeZooKeeperConnection() {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -44,6 +44,8 @@ import org.springframework.xd.dirt.core.Stream;
 import org.springframework.xd.dirt.core.StreamDeploymentsPath;
 import org.springframework.xd.dirt.job.JobFactory;
 import org.springframework.xd.dirt.module.ModuleDeployer;
+import org.springframework.xd.dirt.module.ModuleDeploymentMetrics;
+import org.springframework.xd.dirt.server.DeploymentUnitExecutor;
 import org.springframework.xd.dirt.server.admin.deployment.zk.DeploymentLoader;
 import org.springframework.xd.dirt.server.admin.deployment.ModuleDeploymentStatus;
 import org.springframework.xd.dirt.stream.StreamFactory;
@@ -86,6 +88,16 @@ class DeploymentListener implements PathChildrenCacheListener {
 	 */
 	private final ModuleDeployer moduleDeployer;
 
+	/**
+	 * The executor that deploys and undeploys modules, in parallel across deployment units.
+	 */
+	private final DeploymentUnitExecutor deploymentExecutor;
+
+	/**
+	 * Timings of the deployment phases.
+	 */
+	private final ModuleDeploymentMetrics deploymentMetrics;
+
 	/**
 	 * Metadata for the current Container.
 	 */
@@ -106,6 +118,11 @@ class DeploymentListener implements PathChildrenCacheListener {
 	 */
 	private static final String TAP_CHANNEL_PREFIX = "tap:";
 
+	/**
+	 * Number of milliseconds to wait for running deployments to complete before undeploying all modules.
+	 */
+	private static final long DEPLOYMENT_DRAIN_TIMEOUT = 30000;
+
 	/**
 	 * Map of deployed modules.
 	 */
@@ -124,13 +141,18 @@ class DeploymentListener implements PathChildrenCacheListener {
 	 * @param jobFactory factory to construct {@link Job}
 	 * @param moduleDeployer module deployer
 	 * @param zkConnection ZooKeeper connection
+	 * @param deploymentExecutor executor for module deployments and undeployments
+	 * @param deploymentMetrics timings of the deployment phases
 	 */
 	public DeploymentListener(ZooKeeperConnection zkConnection, ModuleDeployer moduleDeployer,
-			ContainerAttributes containerAttributes, JobFactory jobFactory, StreamFactory streamFactory) {
+			ContainerAttributes containerAttributes, JobFactory jobFactory, StreamFactory streamFactory,
+			DeploymentUnitExecutor deploymentExecutor, ModuleDeploymentMetrics deploymentMetrics) {
 		this.zkConnection = zkConnection;
 		this.jobModuleWatcher = new JobModuleWatcher();
 		this.streamModuleWatcher = new StreamModuleWatcher();
 		this.moduleDeployer = moduleDeployer;
+		this.deploymentExecutor = deploymentExecutor;
+		this.deploymentMetrics = deploymentMetrics;
 		this.containerAttributes = containerAttributes;
 		this.jobFactory = jobFactory;
 		this.streamFactory = streamFactory;
@@ -138,24 +160,63 @@ class DeploymentListener implements PathChildrenCacheListener {
 
 	/**
 	 * {@inheritDoc}
+	 * <p>
+	 * Deployment requests and removals are handed to the {@link DeploymentUnitExecutor}, which handles those of
+	 * a stream or job in the order they are received, and those of different streams and jobs in parallel.
 	 */
 	@Override
-	public void childEvent(CuratorFramework client, PathChildrenCacheEvent event) throws Exception {
+	public void childEvent(final CuratorFramework client, PathChildrenCacheEvent event) throws Exception {
 		ZooKeeperUtils.logCacheEvent(logger, event);
+		final ChildData data = event.getData();
 		switch (event.getType()) {
 			case INITIALIZED:
 				break;
 			case CHILD_ADDED:
-				onChildAdded(client, event.getData());
+				deploymentExecutor.execute(deploymentUnitKey(data), new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							onChildAdded(client, data);
+						}
+						catch (Exception e) {
+							throw ZooKeeperUtils.wrapThrowable(e);
+						}
+					}
+				});
 				break;
 			case CHILD_REMOVED:
-				onChildRemoved(client, event.getData());
+				deploymentExecutor.execute(deploymentUnitKey(data), new Runnable() {
+
+					@Override
+					public void run() {
+						try {
+							onChildRemoved(client, data);
+						}
+						catch (Exception e) {
+							throw ZooKeeperUtils.wrapThrowable(e);
+						}
+					}
+				});
 				break;
 			default:
 				break;
 		}
 	}
 
+	/**
+	 * Return the key that orders the deployments of a stream or job, which is qualified by the module type so that
+	 * a job and a stream with the same name do not wait for each other.
+	 *
+	 * @param data module deployment data
+	 * @return the deployment unit key
+	 */
+	private String deploymentUnitKey(ChildData data) {
+		ModuleDeploymentsPath moduleDeploymentsPath = new ModuleDeploymentsPath(data.getPath());
+		String kind = ModuleType.job.toString().equals(moduleDeploymentsPath.getModuleType()) ? "job" : "stream";
+		return kind + ":" + moduleDeploymentsPath.getDeploymentUnitName();
+	}
+
 	/**
 	 * Event handler for new module deployments.
 	 *
@@ -196,9 +257,11 @@ class DeploymentListener implements PathChildrenCacheListener {
 			logger.error("Exception deploying module", e);
 		}
 
+		long start = System.nanoTime();
 		try {
 			writeModuleMetadata(client, module, path);
 			client.setData().forPath(status.buildPath(), ZooKeeperUtils.mapToBytes(status.toMap()));
+			deploymentMetrics.record(ModuleDeploymentMetrics.STATUS_WRITE, key, start);
 		}
 		catch (KeeperException.NoNodeException e) {
 			logger.warn("During deployment of module {} of type {} for {} with sequence number {}," +
@@ -465,6 +528,19 @@ class DeploymentListener implements PathChildrenCacheListener {
 	}
 
 	void undeployAllModules() {
+		int cancelled = deploymentExecutor.cancelPending();
+		if (cancelled > 0) {
+			logger.info("Cancelled {} pending module deployment request(s)", cancelled);
+		}
+		try {
+			if (!deploymentExecutor.awaitRunningTasks(DEPLOYMENT_DRAIN_TIMEOUT)) {
+				logger.warn("Module deployments still running after {} ms; undeploying the deployed modules",
+						DEPLOYMENT_DRAIN_TIMEOUT);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
 		for (Iterator<ModuleDescriptor.Key> iterator = mapDeployedModules.keySet().iterator(); iterator.hasNext(); ) {
 			ModuleDescriptor.Key key = iterator.next();
 			try {
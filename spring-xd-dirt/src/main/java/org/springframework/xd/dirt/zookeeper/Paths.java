@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -117,6 +117,12 @@ public class Paths {
 	 */
 	public static final String RESPONSES = "responses";
 
+	/**
+	 * Name of tuple schemas node. Serialized tuple schemas are written as children of this node,
+	 * named after their fingerprint.
+	 */
+	public static final String TUPLE_SCHEMAS = "tupleschemas";
+
 	/**
 	 * Name of module deployments node. Module deployment requests for
 	 * individual containers are written as children of this node.
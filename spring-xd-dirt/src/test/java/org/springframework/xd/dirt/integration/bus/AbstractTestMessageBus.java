@@ -1,5 +1,5 @@
 /*
- * Copyright 2014-2015 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -129,6 +129,11 @@ public abstract class AbstractTestMessageBus<C extends MessageBusSupport> implem
 		return this.messageBus.bindDynamicPubSubProducer(name, properties);
 	}
 
+	@Override
+	public void unbindDynamicProducer(String name) {
+		this.messageBus.unbindDynamicProducer(name);
+	}
+
 	@Override
 	public boolean isCapable(Capability capability) {
 		return this.messageBus.isCapable(capability);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2014 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,11 +17,14 @@
 package org.springframework.xd.dirt.integration.bus;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.util.ArrayList;
@@ -167,4 +170,56 @@ public class MessageBusAwareChannelResolverTests {
 		verify(bus).bindDynamicPubSubProducer("topic:bar", properties);
 	}
 
+	@Test
+	public void dynamicProducerBoundOnce() {
+		Properties properties = new Properties();
+		MessageBus bus = mock(MessageBus.class);
+		DirectChannel channel = new DirectChannel();
+		doReturn(channel).when(bus).bindDynamicProducer("queue:foo", properties);
+		MessageBusAwareChannelResolver resolver = new MessageBusAwareChannelResolver(bus, properties);
+		resolver.setBeanFactory(new DefaultListableBeanFactory());
+		for (int i = 0; i < 10; i++) {
+			assertSame(channel, resolver.resolveDestination("queue:foo"));
+		}
+		verify(bus, times(1)).bindDynamicProducer("queue:foo", properties);
+		assertEquals(9, resolver.getCacheHits());
+		assertEquals(1, resolver.getCacheMisses());
+		assertEquals(1, resolver.getDynamicProducerCount());
+		resolver.destroy();
+		verify(bus).unbindDynamicProducer("queue:foo");
+		assertEquals(0, resolver.getDynamicProducerCount());
+	}
+
+	@Test
+	public void idleDynamicProducerUnbound() throws Exception {
+		Properties properties = new Properties();
+		MessageBus bus = mock(MessageBus.class);
+		doReturn(new DirectChannel()).when(bus).bindDynamicProducer("queue:foo", properties);
+		doReturn(new DirectChannel()).when(bus).bindDynamicPubSubProducer("topic:bar", properties);
+		MessageBusAwareChannelResolver resolver = new MessageBusAwareChannelResolver(bus, properties);
+		resolver.setBeanFactory(new DefaultListableBeanFactory());
+		resolver.setIdleTimeout(50);
+		resolver.resolveDestination("queue:foo");
+		Thread.sleep(100);
+		resolver.resolveDestination("topic:bar");
+		verify(bus).unbindDynamicProducer("queue:foo");
+		verify(bus, never()).unbindDynamicProducer("topic:bar");
+		assertEquals(1, resolver.getEvictions());
+		assertEquals(1, resolver.getDynamicProducerCount());
+		resolver.resolveDestination("queue:foo");
+		verify(bus, times(2)).bindDynamicProducer("queue:foo", properties);
+	}
+
+	@Test
+	public void dynamicProducerUnboundFromBus() {
+		MessageChannel channel = resolver.resolveDestination("queue:foo");
+		assertSame(channel, resolver.resolveDestination("queue:foo"));
+		assertEquals(1, bus.getDynamicProducerCount());
+		assertTrue(context.containsBean("dynamic.output.to.queue:foo"));
+		resolver.destroy();
+		assertEquals(0, bus.getDynamicProducerCount());
+		assertFalse(context.containsBean("dynamic.output.to.queue:foo"));
+		context.close();
+	}
+
 }
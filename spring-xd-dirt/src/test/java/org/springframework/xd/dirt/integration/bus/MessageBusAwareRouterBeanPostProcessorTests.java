@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.router.HeaderValueRouter;
+import org.springframework.integration.test.util.TestUtils;
+
+/**
+ * Tests for {@link MessageBusAwareRouterBeanPostProcessor}.
+ *
+ * @since 1.3.2
+ */
+public class MessageBusAwareRouterBeanPostProcessorTests {
+
+	private final StaticApplicationContext context = new StaticApplicationContext();
+
+	private final MessageBus bus = mock(MessageBus.class);
+
+	private MessageBusAwareChannelResolver resolver;
+
+	@Before
+	public void setupContext() {
+		this.resolver = new MessageBusAwareChannelResolver(this.bus, new Properties());
+		MessageBusAwareRouterBeanPostProcessor bpp = new MessageBusAwareRouterBeanPostProcessor(this.resolver);
+		bpp.setBeanFactory(this.context.getBeanFactory());
+		this.context.getBeanFactory().addBeanPostProcessor(bpp);
+	}
+
+	@After
+	public void closeContext() {
+		this.context.close();
+	}
+
+	@Test
+	public void channelResolverRegisteredWithRouter() {
+		registerRouter();
+		this.context.refresh();
+		assertSame(this.resolver, TestUtils.getPropertyValue(this.context.getBean("router"), "channelResolver"));
+		assertSame(this.resolver,
+				this.context.getBean(MessageBusAwareRouterBeanPostProcessor.CHANNEL_RESOLVER_BEAN_NAME));
+	}
+
+	@Test
+	public void channelResolverNotRegisteredWithoutRouter() {
+		this.context.registerSingleton("channel", DirectChannel.class);
+		this.context.refresh();
+		assertFalse(this.context.containsBean(MessageBusAwareRouterBeanPostProcessor.CHANNEL_RESOLVER_BEAN_NAME));
+	}
+
+	@Test
+	public void dynamicProducersUnboundOnClose() {
+		when(this.bus.bindDynamicProducer(any(String.class), any(Properties.class))).thenReturn(new DirectChannel());
+		registerRouter();
+		this.context.refresh();
+		this.resolver.resolveDestination("queue:foo");
+		this.context.close();
+		verify(this.bus).unbindDynamicProducer("queue:foo");
+	}
+
+	private void registerRouter() {
+		RootBeanDefinition router = new RootBeanDefinition(HeaderValueRouter.class);
+		router.getConstructorArgumentValues().addGenericArgumentValue("destination");
+		this.context.registerBeanDefinition("router", router);
+	}
+
+}
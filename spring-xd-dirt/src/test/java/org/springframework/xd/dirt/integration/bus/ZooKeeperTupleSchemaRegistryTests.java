@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.dirt.integration.bus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
+
+/**
+ * Tests for {@link ZooKeeperTupleSchemaRegistry}.
+ *
+ * @since 1.3.2
+ */
+public class ZooKeeperTupleSchemaRegistryTests {
+
+	private TestingServer zookeeper;
+
+	private ZooKeeperConnection zooKeeperConnection;
+
+	private ZooKeeperTupleSchemaRegistry registry;
+
+	@Before
+	public void setUp() throws Exception {
+		this.zookeeper = new TestingServer();
+		this.zooKeeperConnection = new ZooKeeperConnection(this.zookeeper.getConnectString());
+		this.zooKeeperConnection.start();
+		for (int i = 0; i < 100 && !this.zooKeeperConnection.isConnected(); i++) {
+			Thread.sleep(100);
+		}
+		assertTrue(this.zooKeeperConnection.isConnected());
+		this.registry = new ZooKeeperTupleSchemaRegistry(this.zooKeeperConnection);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.zooKeeperConnection.stop();
+		this.zookeeper.close();
+	}
+
+	@Test
+	public void testRegisterAndLookup() {
+		assertNull(this.registry.lookup(42L));
+		assertTrue(this.registry.register(42L, new byte[] { 1, 2, 3 }));
+		assertArrayEquals(new byte[] { 1, 2, 3 }, this.registry.lookup(42L));
+		// registering the same schema again, for instance from another container, is harmless
+		assertTrue(new ZooKeeperTupleSchemaRegistry(this.zooKeeperConnection).register(42L, new byte[] { 1, 2, 3 }));
+	}
+
+	@Test
+	public void testFingerprintCollisionIsNotRegistered() {
+		assertTrue(this.registry.register(-1L, new byte[] { 1, 2, 3 }));
+		assertFalse(this.registry.register(-1L, new byte[] { 4, 5, 6 }));
+		assertArrayEquals(new byte[] { 1, 2, 3 }, this.registry.lookup(-1L));
+	}
+
+	@Test
+	public void testNotRegisteredWhileDisconnected() {
+		ZooKeeperConnection disconnected = new ZooKeeperConnection(this.zookeeper.getConnectString());
+		assertFalse(new ZooKeeperTupleSchemaRegistry(disconnected).register(42L, new byte[] { 1, 2, 3 }));
+		assertNull(this.registry.lookup(42L));
+	}
+
+}
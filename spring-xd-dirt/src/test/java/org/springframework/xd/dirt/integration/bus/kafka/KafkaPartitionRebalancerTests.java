@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.dirt.integration.bus.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.I0Itec.zkclient.ZkClient;
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.xd.dirt.integration.kafka.KafkaMessageBus;
+import org.springframework.xd.dirt.integration.kafka.KafkaPartitionCoordinator;
+import org.springframework.xd.dirt.integration.kafka.KafkaPartitionRebalancer;
+import org.springframework.xd.dirt.integration.kafka.LagAwarePartitionAssignor;
+
+/**
+ * Tests the dynamic partition assignment of two members of a group, against an embedded ZooKeeper.
+ *
+ * @since 1.3.2
+ */
+public class KafkaPartitionRebalancerTests {
+
+	private static final List<Integer> PARTITIONS = Arrays.asList(0, 1, 2, 3);
+
+	private final List<String> events = new ArrayList<String>();
+
+	private TestingServer zookeeper;
+
+	private ZkClient zkClient;
+
+	private RecordingConsumer consumerA;
+
+	private RecordingConsumer consumerB;
+
+	private KafkaPartitionRebalancer memberA;
+
+	private KafkaPartitionRebalancer memberB;
+
+	@Before
+	public void setUp() throws Exception {
+		this.zookeeper = new TestingServer();
+		this.zkClient = new ZkClient(this.zookeeper.getConnectString(), 10000, 10000, KafkaMessageBus.utf8Serializer);
+		this.consumerA = new RecordingConsumer("A");
+		this.consumerB = new RecordingConsumer("B");
+		this.memberA = createMember(this.consumerA);
+		this.memberB = createMember(this.consumerB);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.zkClient.close();
+		this.zookeeper.close();
+	}
+
+	@Test
+	public void testPartitionsAreHandedOverOnlyOnceReleased() {
+		this.memberA.rebalance();
+		this.memberB.rebalance();
+		assertEquals(Arrays.asList("A:start[0, 1, 2, 3]"), this.events);
+		List<String> members = coordinator().getMembers();
+		assign(members, Arrays.asList(0, 2), Arrays.asList(1, 3));
+		// partitions 1 and 3 are still owned by A
+		this.memberB.rebalance();
+		assertTrue(this.memberB.getOwnedPartitions().isEmpty());
+		this.memberA.rebalance();
+		this.memberB.rebalance();
+		assertEquals(Arrays.asList("A:start[0, 1, 2, 3]", "A:stop", "A:start[0, 2]", "B:start[1, 3]"), this.events);
+	}
+
+	@Test
+	public void testLeaderReassignsLaggingPartitions() {
+		this.memberA.rebalance();
+		this.memberB.rebalance();
+		List<String> members = coordinator().getMembers();
+		assign(members, Arrays.asList(0, 1), Arrays.asList(2, 3));
+		this.memberA.rebalance();
+		this.memberB.rebalance();
+		// without lag, the assignment is kept
+		this.memberB.rebalance();
+		this.memberA.rebalance();
+		assertEquals(Arrays.asList(0, 1), coordinator().readAssignment().get(members.get(0)));
+		// both partitions of A lag behind; the leader spreads them
+		this.consumerA.lags.put(0, 1000L);
+		this.consumerA.lags.put(1, 1000L);
+		this.memberB.rebalance();
+		this.memberA.rebalance();
+		Map<String, List<Integer>> assignment = coordinator().readAssignment();
+		assertEquals(Arrays.asList(0, 2), assignment.get(members.get(0)));
+		assertEquals(Arrays.asList(1, 3), assignment.get(members.get(1)));
+		// partition 2 can only be claimed by A once B has released it
+		assertEquals(Arrays.asList(0), new ArrayList<Integer>(this.memberA.getOwnedPartitions()));
+		this.memberB.rebalance();
+		this.memberA.rebalance();
+		assertEquals(Arrays.asList(0, 2), new ArrayList<Integer>(this.memberA.getOwnedPartitions()));
+		assertEquals(Arrays.asList(1, 3), new ArrayList<Integer>(this.memberB.getOwnedPartitions()));
+	}
+
+	@Test
+	public void testLeavingMemberHandsOverItsPartitions() {
+		this.memberA.rebalance();
+		this.memberB.rebalance();
+		this.memberA.rebalance();
+		this.memberB.rebalance();
+		assertEquals(2, this.memberB.getOwnedPartitions().size());
+		this.memberA.leave();
+		this.memberB.rebalance();
+		assertEquals(Collections.singleton(coordinator().getMembers().get(0)), coordinator().readAssignment()
+				.keySet());
+		assertEquals(PARTITIONS, new ArrayList<Integer>(this.memberB.getOwnedPartitions()));
+		assertEquals(Arrays.asList("A:start[0, 1, 2, 3]", "A:stop", "A:start[0, 2]", "B:start[1, 3]", "A:stop",
+				"B:stop", "B:start[0, 1, 2, 3]"), this.events);
+	}
+
+	private KafkaPartitionRebalancer createMember(RecordingConsumer consumer) {
+		return new KafkaPartitionRebalancer(consumer.name, coordinator(), PARTITIONS, consumer,
+				new LagAwarePartitionAssignor(), 1.5);
+	}
+
+	private KafkaPartitionCoordinator coordinator() {
+		return new KafkaPartitionCoordinator(this.zkClient, "group", "topic");
+	}
+
+	private void assign(List<String> members, List<Integer> first, List<Integer> second) {
+		Map<String, List<Integer>> assignment = new HashMap<String, List<Integer>>();
+		assignment.put(members.get(0), first);
+		assignment.put(members.get(1), second);
+		coordinator().writeAssignment(assignment);
+	}
+
+	private class RecordingConsumer implements KafkaPartitionRebalancer.PartitionConsumer {
+
+		private final String name;
+
+		private final Map<Integer, Long> lags = new HashMap<Integer, Long>();
+
+		private RecordingConsumer(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public void start(Set<Integer> partitions) {
+			events.add(this.name + ":start" + partitions);
+		}
+
+		@Override
+		public void stop() {
+			events.add(this.name + ":stop");
+		}
+
+		@Override
+		public long getReceivedCount() {
+			return 0;
+		}
+
+		@Override
+		public Map<Integer, Long> getPartitionLags() {
+			return this.lags;
+		}
+
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.xd.dirt.integration.kafka.KafkaPartitionCoordinator.MemberState;
+import org.springframework.xd.dirt.integration.kafka.LagAwarePartitionAssignor;
+
+/**
+ * @since 1.3.2
+ */
+public class LagAwarePartitionAssignorTests {
+
+	private final LagAwarePartitionAssignor assignor = new LagAwarePartitionAssignor();
+
+	private final List<String> members = Arrays.asList("member-01", "member-02");
+
+	private final List<Integer> partitions = Arrays.asList(0, 1, 2, 3);
+
+	@Test
+	public void testEvenWithoutLag() {
+		Map<String, Double> capacities = this.assignor.capacities(rates(10, 10), Collections.<String>emptySet());
+		Map<String, List<Integer>> assignment = this.assignor.assign(this.members, this.partitions,
+				Collections.<Integer, Long>emptyMap(), capacities);
+		assertEquals(Arrays.asList(0, 2), assignment.get("member-01"));
+		assertEquals(Arrays.asList(1, 3), assignment.get("member-02"));
+	}
+
+	@Test
+	public void testLaggingPartitionsAreSpread() {
+		Map<Integer, Long> lags = new HashMap<Integer, Long>();
+		lags.put(0, 1000L);
+		lags.put(1, 1000L);
+		Map<String, Double> capacities = this.assignor.capacities(rates(10, 10), Collections.<String>emptySet());
+		Map<String, List<Integer>> fixed = new HashMap<String, List<Integer>>();
+		fixed.put("member-01", Arrays.asList(0, 1));
+		fixed.put("member-02", Arrays.asList(2, 3));
+		Map<String, List<Integer>> assignment = this.assignor.assign(this.members, this.partitions, lags, capacities);
+		assertEquals(Arrays.asList(0, 2), assignment.get("member-01"));
+		assertEquals(Arrays.asList(1, 3), assignment.get("member-02"));
+		assertTrue(this.assignor.drainTime(fixed, lags, capacities)
+				> 1.5 * this.assignor.drainTime(assignment, lags, capacities));
+	}
+
+	@Test
+	public void testSlowMemberGetsLessLoad() {
+		Map<Integer, Long> lags = new HashMap<Integer, Long>();
+		for (Integer partition : this.partitions) {
+			lags.put(partition, 100L);
+		}
+		// member-01 is saturated at 10 msg/s, member-02 keeps up
+		Map<String, Double> capacities = this.assignor.capacities(rates(10, 5), Collections.singleton("member-01"));
+		assertEquals(10, capacities.get("member-01"), 0);
+		assertEquals(10, capacities.get("member-02"), 0);
+		capacities = this.assignor.capacities(rates(10, 35), Arrays.asList("member-01", "member-02"));
+		Map<String, List<Integer>> assignment = this.assignor.assign(this.members, this.partitions, lags, capacities);
+		assertEquals(Arrays.asList(3), assignment.get("member-01"));
+		assertEquals(Arrays.asList(0, 1, 2), assignment.get("member-02"));
+	}
+
+	@Test
+	public void testMemberStateRoundTrip() {
+		Map<Integer, Long> lags = new HashMap<Integer, Long>();
+		lags.put(3, 42L);
+		lags.put(7, 0L);
+		MemberState state = new MemberState(12.5, true, lags);
+		MemberState parsed = MemberState.parse(state.toString());
+		assertEquals(12.5, parsed.getRate(), 0);
+		assertTrue(parsed.isSaturated());
+		assertEquals(lags, parsed.getLags());
+		MemberState empty = MemberState.parse(new MemberState(0, false,
+				Collections.<Integer, Long>emptyMap()).toString());
+		assertFalse(empty.isSaturated());
+		assertTrue(empty.getLags().isEmpty());
+	}
+
+	private Map<String, Double> rates(double first, double second) {
+		Map<String, Double> rates = new HashMap<String, Double>();
+		rates.put("member-01", first);
+		rates.put("member-02", second);
+		return rates;
+	}
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus.local;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.support.DefaultMessageBuilderFactory;
+import org.springframework.integration.support.utils.IntegrationUtils;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.xd.dirt.integration.bus.MessageBus;
+import org.springframework.xd.dirt.integration.bus.local.RingBufferChannel.FullQueuePolicy;
+
+/**
+ * Runs the local bus tests in bounded mode.
+ *
+ * @since 1.3.2
+ */
+public class BoundedLocalMessageBusTests extends LocalMessageBusTests {
+
+	@Override
+	protected MessageBus getMessageBus() throws Exception {
+		return createBus(new GenericApplicationContext(), false);
+	}
+
+	private LocalMessageBus createBus(GenericApplicationContext applicationContext, boolean bindingMetricsEnabled)
+			throws Exception {
+		LocalMessageBus bus = new LocalMessageBus();
+		applicationContext.getBeanFactory().registerSingleton(
+				IntegrationUtils.INTEGRATION_MESSAGE_BUILDER_FACTORY_BEAN_NAME,
+				new DefaultMessageBuilderFactory());
+		applicationContext.refresh();
+		bus.setApplicationContext(applicationContext);
+		bus.setExecutorCorePoolSize(2);
+		bus.setExecutorMaxPoolSize(10);
+		bus.setExecutorKeepAliveSeconds(59);
+		bus.setExecutorQueueSize(Integer.MAX_VALUE - 1);
+		bus.setBounded(true);
+		bus.setBoundedQueueCapacity(16);
+		bus.setDispatcherPoolSize(2);
+		bus.setBindingMetricsEnabled(bindingMetricsEnabled);
+		bus.afterPropertiesSet();
+		return bus;
+	}
+
+	@Test
+	public void testNamedQueueBuffersUntilBound() throws Exception {
+		LocalMessageBus bus = (LocalMessageBus) getMessageBus();
+		DirectChannel moduleOutputChannel = new DirectChannel();
+		bus.bindProducer("queue:bounded", moduleOutputChannel, null);
+		for (int i = 0; i < 3; i++) {
+			moduleOutputChannel.send(new GenericMessage<Integer>(i));
+		}
+		assertEquals(Integer.valueOf(3), bus.getQueueDepths().get("queue:bounded"));
+		QueueChannel moduleInputChannel = new QueueChannel();
+		bus.bindConsumer("queue:bounded", moduleInputChannel, null);
+		for (int i = 0; i < 3; i++) {
+			Message<?> received = moduleInputChannel.receive(10000);
+			assertNotNull(received);
+			assertEquals(i, received.getPayload());
+		}
+		assertEquals(Integer.valueOf(0), bus.getQueueDepths().get("queue:bounded"));
+		bus.unbindConsumers("queue:bounded");
+		bus.unbindProducers("queue:bounded");
+	}
+
+	@Test
+	public void testChannelAndMetricsRemovedOnUnbind() throws Exception {
+		GenericApplicationContext applicationContext = new GenericApplicationContext();
+		LocalMessageBus bus = createBus(applicationContext, true);
+		ObjectName metricsName = new ObjectName("xd.messagebus:type=local,binding="
+				+ ObjectName.quote("queue:released") + ",direction=consumer");
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			DirectChannel moduleOutputChannel = new DirectChannel();
+			bus.bindProducer("queue:released", moduleOutputChannel, null);
+			moduleOutputChannel.send(new GenericMessage<Integer>(1));
+			assertTrue(server.isRegistered(metricsName));
+			bus.unbindProducers("queue:released");
+			// kept for the next consumer, as it holds a message
+			assertTrue(bus.getQueueDepths().containsKey("queue:released"));
+			QueueChannel moduleInputChannel = new QueueChannel();
+			bus.bindConsumer("queue:released", moduleInputChannel, null);
+			assertNotNull(moduleInputChannel.receive(10000));
+			bus.unbindConsumers("queue:released");
+			assertFalse(bus.getQueueDepths().containsKey("queue:released"));
+			assertFalse(server.isRegistered(metricsName));
+			assertFalse(applicationContext.containsBean("queue:released"));
+		}
+		finally {
+			bus.destroy();
+		}
+	}
+
+	@Test
+	public void testDropOldest() throws Exception {
+		RingBufferChannel channel = new RingBufferChannel(4, new SimpleAsyncTaskExecutor(), false,
+				FullQueuePolicy.DROP_OLDEST);
+		for (int i = 0; i < 6; i++) {
+			assertTrue(channel.send(new GenericMessage<Integer>(i)));
+		}
+		assertEquals(4, channel.getQueueSize());
+		assertEquals(2, channel.getDroppedCount());
+		QueueChannel received = new QueueChannel();
+		channel.subscribe(forwardTo(received));
+		for (int i = 2; i < 6; i++) {
+			Message<?> message = received.receive(10000);
+			assertNotNull(message);
+			assertEquals(i, message.getPayload());
+		}
+	}
+
+	@Test
+	public void testCallerRuns() throws Exception {
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		RingBufferChannel channel = new RingBufferChannel(2, new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+
+		}, false, FullQueuePolicy.CALLER_RUNS);
+		final List<Thread> threads = new ArrayList<Thread>();
+		channel.subscribe(new MessageHandler() {
+
+			@Override
+			public void handleMessage(Message<?> message) throws MessagingException {
+				threads.add(Thread.currentThread());
+			}
+
+		});
+		assertTrue(channel.send(new GenericMessage<String>("queued")));
+		assertTrue(channel.send(new GenericMessage<String>("queued")));
+		assertTrue(channel.send(new GenericMessage<String>("runs")));
+		assertEquals(1, channel.getCallerRunsCount());
+		assertEquals(1, threads.size());
+		assertSame(Thread.currentThread(), threads.get(0));
+		assertEquals(1, tasks.size());
+		tasks.get(0).run();
+		assertEquals(3, threads.size());
+		assertEquals(0, channel.getQueueSize());
+	}
+
+	@Test
+	public void testBlockTimesOut() throws Exception {
+		RingBufferChannel channel = new RingBufferChannel(2, new SimpleAsyncTaskExecutor(), false,
+				FullQueuePolicy.BLOCK);
+		assertTrue(channel.send(new GenericMessage<String>("queued")));
+		assertTrue(channel.send(new GenericMessage<String>("queued")));
+		assertFalse(channel.send(new GenericMessage<String>("blocked"), 100));
+		assertEquals(1, channel.getBlockedSendCount());
+		assertEquals(2, channel.getQueueSize());
+		assertEquals(0, channel.getRemainingCapacity());
+	}
+
+	private MessageHandler forwardTo(final QueueChannel channel) {
+		return new MessageHandler() {
+
+			@Override
+			public void handleMessage(Message<?> message) throws MessagingException {
+				channel.send(message);
+			}
+
+		};
+	}
+
+}
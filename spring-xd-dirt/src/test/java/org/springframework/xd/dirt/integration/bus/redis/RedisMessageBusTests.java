@@ -42,9 +42,11 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.expression.Expression;
 import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.QueueChannel;
 import org.springframework.integration.endpoint.AbstractEndpoint;
 import org.springframework.integration.redis.inbound.RedisQueueMessageDrivenEndpoint;
 import org.springframework.integration.test.util.TestUtils;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.support.GenericMessage;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.xd.dirt.integration.bus.Binding;
@@ -53,6 +55,8 @@ import org.springframework.xd.dirt.integration.bus.EmbeddedHeadersMessageConvert
 import org.springframework.xd.dirt.integration.bus.MessageBus;
 import org.springframework.xd.dirt.integration.bus.PartitionCapableBusTests;
 import org.springframework.xd.dirt.integration.redis.RedisMessageBus;
+import org.springframework.xd.dirt.integration.redis.RedisQueueBatchingMessageDrivenEndpoint;
+import org.springframework.xd.dirt.integration.redis.RedisQueueBatchingMessageHandler;
 import org.springframework.xd.test.redis.RedisTestSupport;
 
 /**
@@ -336,6 +340,36 @@ public class RedisMessageBusTests extends PartitionCapableBusTests {
 		assertThat(new String((byte[]) rightPop), containsString("foo"));
 	}
 
+	@Test
+	public void testBatchingProducerAndConsumer() throws Exception {
+		RedisTestMessageBus bus = new RedisTestMessageBus(redisAvailableRule.getResource(), getCodec());
+		bus.getCoreMessageBus().setConsumerBatchSize(10);
+		DirectChannel moduleOutputChannel = new DirectChannel();
+		QueueChannel moduleInputChannel = new QueueChannel();
+		Properties properties = new Properties();
+		properties.put(BusProperties.BATCHING_ENABLED, "true");
+		properties.put(BusProperties.BATCH_SIZE, "7");
+		properties.put(BusProperties.BATCH_TIMEOUT, "100");
+		bus.bindProducer("batching.0", moduleOutputChannel, properties);
+		bus.bindConsumer("batching.0", moduleInputChannel, null);
+		@SuppressWarnings("unchecked")
+		List<Binding> bindings = TestUtils.getPropertyValue(bus, "messageBus.bindings", List.class);
+		assertThat(TestUtils.getPropertyValue(bindings.get(0).getEndpoint(), "handler.delegate"),
+				instanceOf(RedisQueueBatchingMessageHandler.class));
+		assertThat(bindings.get(1).getEndpoint(), instanceOf(RedisQueueBatchingMessageDrivenEndpoint.class));
+		for (int i = 0; i < 25; i++) {
+			moduleOutputChannel.send(new GenericMessage<String>("foo" + i));
+		}
+		for (int i = 0; i < 25; i++) {
+			Message<?> inbound = moduleInputChannel.receive(5000);
+			assertNotNull(inbound);
+			assertEquals("foo" + i, inbound.getPayload());
+		}
+		bus.unbindProducers("batching.0");
+		bus.unbindConsumers("batching.0");
+		bus.cleanup();
+	}
+
 	@Test
 	public void testMoreHeaders() {
 		RedisMessageBus bus = new RedisMessageBus(mock(RedisConnectionFactory.class), getCodec(), "foo", "bar");
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.dirt.integration.bus.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.xd.dirt.integration.redis.RedisQueueBatchingMessageHandler;
+
+/**
+ * Tests that the batches of a {@link RedisQueueBatchingMessageHandler} survive failed pushes.
+ *
+ * @since 1.3.2
+ */
+public class RedisQueueBatchingMessageHandlerTests {
+
+	private final RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+
+	private final RedisConnection connection = mock(RedisConnection.class);
+
+	/**
+	 * The pushes attempted, as "queue:[values]".
+	 */
+	private final List<String> pushes = new ArrayList<String>();
+
+	/**
+	 * The failures thrown by the next pushes, until empty.
+	 */
+	private final Queue<RuntimeException> failures = new LinkedList<RuntimeException>();
+
+	@Before
+	public void setUp() {
+		when(this.connectionFactory.getConnection()).thenReturn(this.connection);
+		doAnswer(new Answer<Long>() {
+
+			@Override
+			public Long answer(InvocationOnMock invocation) {
+				Object[] arguments = invocation.getArguments();
+				StringBuilder values = new StringBuilder();
+				for (int i = 1; i < arguments.length; i++) {
+					values.append(values.length() == 0 ? "" : ",").append(((byte[]) arguments[i])[0]);
+				}
+				pushes.add(new String((byte[]) arguments[0]) + ":[" + values + "]");
+				RuntimeException failure = failures.poll();
+				if (failure != null) {
+					throw failure;
+				}
+				return (long) arguments.length - 1;
+			}
+
+		}).when(this.connection).lPush((byte[]) any(), (byte[][]) anyVararg());
+	}
+
+	@Test
+	public void testFailedPushKeepsEarlierMessages() throws Exception {
+		RedisQueueBatchingMessageHandler handler = createHandler("queue", 3);
+		RedisConnectionFailureException failure = new RedisConnectionFailureException("down");
+		this.failures.add(failure);
+		handler.handleMessage(new GenericMessage<byte[]>(bytes(1)));
+		handler.handleMessage(new GenericMessage<byte[]>(bytes(2)));
+		try {
+			handler.handleMessage(new GenericMessage<byte[]>(bytes(3)));
+			fail("Expected the push failure");
+		}
+		catch (MessageHandlingException e) {
+			assertSame(failure, e.getCause());
+		}
+		handler.handleMessage(new GenericMessage<byte[]>(bytes(4)));
+		handler.flush();
+		assertEquals(Arrays.asList("queue:[1,2,3]", "queue:[1,2,4]"), this.pushes);
+	}
+
+	@Test
+	public void testFailedFlushKeepsBatches() throws Exception {
+		RedisQueueBatchingMessageHandler handler = createHandler("queue", 10);
+		this.failures.add(new RedisConnectionFailureException("down"));
+		handler.handleMessage(new GenericMessage<byte[]>(bytes(1)));
+		handler.handleMessage(new GenericMessage<byte[]>(bytes(2)));
+		try {
+			handler.flush();
+			fail("Expected the push failure");
+		}
+		catch (RedisConnectionFailureException e) {
+			// expected
+		}
+		handler.flush();
+		handler.flush();
+		assertEquals(Arrays.asList("queue:[1,2]", "queue:[1,2]"), this.pushes);
+	}
+
+	@Test
+	public void testFailedPipelineKeepsOnlyFailedBatches() throws Exception {
+		RedisQueueBatchingMessageHandler handler = createHandler(
+				new SpelExpressionParser().parseExpression("headers['queue']"), 10);
+		doThrow(new RedisPipelineException("partial", Arrays.<Object> asList(1L, new RuntimeException("oops"))))
+				.doReturn(null).when(this.connection).closePipeline();
+		handler.handleMessage(message("a", 1));
+		handler.handleMessage(message("b", 2));
+		try {
+			handler.flush();
+			fail("Expected the pipeline failure");
+		}
+		catch (RedisPipelineException e) {
+			// expected
+		}
+		handler.flush();
+		assertEquals(Arrays.asList("a:[1]", "b:[2]", "b:[2]"), this.pushes);
+	}
+
+	private RedisQueueBatchingMessageHandler createHandler(String queueName, int batchSize) throws Exception {
+		return init(new RedisQueueBatchingMessageHandler(queueName, this.connectionFactory, batchSize, 0));
+	}
+
+	private RedisQueueBatchingMessageHandler createHandler(Expression queueNameExpression, int batchSize)
+			throws Exception {
+		return init(new RedisQueueBatchingMessageHandler(queueNameExpression, this.connectionFactory, batchSize, 0));
+	}
+
+	private RedisQueueBatchingMessageHandler init(RedisQueueBatchingMessageHandler handler) throws Exception {
+		handler.setBeanFactory(new DefaultListableBeanFactory());
+		handler.afterPropertiesSet();
+		return handler;
+	}
+
+	private static GenericMessage<byte[]> message(String queue, int value) {
+		return new GenericMessage<byte[]>(bytes(value), Collections.<String, Object> singletonMap("queue", queue));
+	}
+
+	private static byte[] bytes(int value) {
+		return new byte[] { (byte) value };
+	}
+
+}
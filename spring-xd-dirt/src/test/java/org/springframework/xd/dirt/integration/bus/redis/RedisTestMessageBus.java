@@ -53,6 +53,7 @@ public class RedisTestMessageBus extends AbstractTestMessageBus<RedisMessageBus>
 		ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
 		taskScheduler.afterPropertiesSet();
 		channelRegistry.setTaskScheduler(taskScheduler);
+		context.getBeanFactory().registerSingleton(IntegrationContextUtils.TASK_SCHEDULER_BEAN_NAME, taskScheduler);
 		context.getBeanFactory().registerSingleton(
 				IntegrationContextUtils.INTEGRATION_HEADER_CHANNEL_REGISTRY_BEAN_NAME,
 				channelRegistry);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2015 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -412,6 +412,11 @@ public class JobPluginTests extends RandomConfigurationSupport {
 			return null;
 		}
 
+		@Override
+		public void unbindDynamicProducer(String name) {
+			Assert.fail("Should not be called.");
+		}
+
 		@Override
 		public boolean isCapable(Capability capability) {
 			return false;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2015 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import static org.hamcrest.Matchers.contains;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -88,4 +89,18 @@ public class ContainersControllerIntegrationTests extends AbstractControllerInte
 				status().isNotFound()).andExpect(
 				jsonPath("$[0].message", Matchers.is("Container could not be found with id " + containerId)));
 	}
+
+	@Test
+	public void testBindingMetricsNonExistingContainer() throws Exception {
+		String containerId = "random";
+		mockMvc.perform(get("/runtime/containers/" + containerId + "/bindings").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isNotFound()).andExpect(
+				jsonPath("$[0].message", Matchers.is("Container could not be found with id " + containerId)));
+	}
+
+	@Test
+	public void testBindingMetricsWithoutManagementPort() throws Exception {
+		mockMvc.perform(get("/runtime/containers/1/bindings").accept(MediaType.APPLICATION_JSON)).andExpect(
+				status().isOk()).andExpect(content().string("{}"));
+	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2015 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -38,7 +38,9 @@ import org.springframework.xd.analytics.metrics.core.AggregateCounterRepository;
 import org.springframework.xd.analytics.metrics.core.CounterRepository;
 import org.springframework.xd.analytics.metrics.core.FieldValueCounterRepository;
 import org.springframework.xd.analytics.metrics.core.GaugeRepository;
+import org.springframework.xd.analytics.metrics.core.HistogramGaugeRepository;
 import org.springframework.xd.analytics.metrics.core.RichGaugeRepository;
+import org.springframework.xd.analytics.metrics.core.TopFieldValueCounterRepository;
 import org.springframework.xd.dirt.container.store.ContainerRepository;
 import org.springframework.xd.dirt.integration.bus.MessageBus;
 import org.springframework.xd.dirt.integration.bus.local.LocalMessageBus;
@@ -119,11 +121,21 @@ public class Dependencies {
 		return mock(RichGaugeRepository.class);
 	}
 
+	@Bean
+	public HistogramGaugeRepository histogramGaugeRepository() {
+		return mock(HistogramGaugeRepository.class);
+	}
+
 	@Bean
 	public FieldValueCounterRepository fieldValueCounterRepository() {
 		return mock(FieldValueCounterRepository.class);
 	}
 
+	@Bean
+	public TopFieldValueCounterRepository topFieldValueCounterRepository() {
+		return mock(TopFieldValueCounterRepository.class);
+	}
+
 	@Bean
 	public ThreadPoolTaskScheduler taskScheduler() {
 		return new ThreadPoolTaskScheduler();
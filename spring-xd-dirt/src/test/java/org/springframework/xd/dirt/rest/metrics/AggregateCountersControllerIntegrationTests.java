@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 the original author or authors.
+ * Copyright 2015-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -13,6 +13,8 @@
 
 package org.springframework.xd.dirt.rest.metrics;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -26,6 +28,8 @@ import org.joda.time.Interval;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
@@ -63,7 +67,8 @@ public class AggregateCountersControllerIntegrationTests extends AbstractControl
 					org.mockito.Matchers.any(Interval.class), org.mockito.Matchers.eq(resolution))).thenReturn(
 							aggCounters[i]);
 		}
-		when(aggregateCounterRepository.findAll()).thenReturn(Arrays.asList(counters));
+		when(aggregateCounterRepository.findByNameStartingWith((String) isNull(), any(Pageable.class))).thenReturn(
+				new PageImpl<>(Arrays.asList(counters)));
 	}
 
 	@Test
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,9 @@
 
 package org.springframework.xd.dirt.rest.metrics;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -29,6 +32,9 @@ import org.hamcrest.Matchers;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
@@ -70,7 +76,8 @@ public class CountersControllerIntegrationTests extends AbstractControllerIntegr
 		for (int i = 0; i < counters.length; i++) {
 			counters[i] = new Counter("c" + i, i);
 		}
-		when(counterRepository.findAll()).thenReturn(Arrays.asList(counters));
+		when(counterRepository.findByNameStartingWith((String) isNull(), any(Pageable.class))).thenReturn(
+				new PageImpl<>(Arrays.asList(counters)));
 
 		ResultActions resActions = mockMvc.perform(get("/metrics/counters")).andExpect(status().isOk())//
 		.andExpect(jsonPath("$.content", Matchers.hasSize(10)));
@@ -87,7 +94,8 @@ public class CountersControllerIntegrationTests extends AbstractControllerIntegr
 		for (int i = 0; i < counters.length; i++) {
 			counters[i] = new Counter("c" + i, i);
 		}
-		when(counterRepository.findAll()).thenReturn(Arrays.asList(counters));
+		when(counterRepository.findByNameStartingWith((String) isNull(), any(Pageable.class))).thenReturn(
+				new PageImpl<>(Arrays.asList(counters)));
 
 		ResultActions resActions = mockMvc.perform(get("/metrics/counters?detailed=true")).andExpect(status().isOk())//
 		.andExpect(jsonPath("$.content", Matchers.hasSize(10)));
@@ -98,6 +106,21 @@ public class CountersControllerIntegrationTests extends AbstractControllerIntegr
 		}
 	}
 
+	@Test
+	public void testCounterListingByPrefix() throws Exception {
+		when(counterRepository.findByNameStartingWith(eq("http."), any(Pageable.class))).thenReturn(
+				new PageImpl<>(Arrays.asList(new Counter("http.404", 4)), new PageRequest(1, 2), 3));
+
+		mockMvc.perform(get("/metrics/counters?prefix=http.&page=1&size=2")).andExpect(status().isOk())//
+		.andExpect(jsonPath("$.content", Matchers.hasSize(1)))//
+		.andExpect(jsonPath("$.content[0].name").value("http.404"))//
+		.andExpect(jsonPath("$.page.number").value(1))//
+		.andExpect(jsonPath("$.page.totalElements").value(3))//
+		.andExpect(jsonPath("$.page.totalPages").value(2));
+
+		verify(counterRepository).findByNameStartingWith("http.", new PageRequest(1, 2));
+	}
+
 	@Test
 	public void testInexistantCounterDeletion() throws Exception {
 		mockMvc.perform(delete("/metrics/counters/{name}", "deleteme")).andExpect(status().isNotFound());
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.xd.dirt.rest.metrics;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -31,6 +33,8 @@ import org.hamcrest.Matchers;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
@@ -78,7 +82,8 @@ public class FieldValueCountersControllerIntegrationTests extends AbstractContro
 		for (int i = 0; i < counters.length; i++) {
 			counters[i] = new FieldValueCounter("c" + i, fieldValueCount);
 		}
-		when(fieldValueCounterRepository.findAll()).thenReturn(Arrays.asList(counters));
+		when(fieldValueCounterRepository.findByNameStartingWith((String) isNull(), any(Pageable.class))).thenReturn(
+				new PageImpl<>(Arrays.asList(counters)));
 
 		ResultActions resActions = mockMvc.perform(get("/metrics/field-value-counters")).andExpect(status().isOk())//
 		.andExpect(jsonPath("$.content", Matchers.hasSize(10)));
@@ -97,7 +102,8 @@ public class FieldValueCountersControllerIntegrationTests extends AbstractContro
 		for (int i = 0; i < counters.length; i++) {
 			counters[i] = new FieldValueCounter("c" + i, fieldValueCount);
 		}
-		when(fieldValueCounterRepository.findAll()).thenReturn(Arrays.asList(counters));
+		when(fieldValueCounterRepository.findByNameStartingWith((String) isNull(), any(Pageable.class))).thenReturn(
+				new PageImpl<>(Arrays.asList(counters)));
 
 		ResultActions resActions = mockMvc.perform(get("/metrics/field-value-counters?detailed=true")).andExpect(
 				status().isOk())//
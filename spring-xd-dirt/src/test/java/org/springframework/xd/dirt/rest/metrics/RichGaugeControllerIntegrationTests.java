@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2015 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -13,6 +13,8 @@
 
 package org.springframework.xd.dirt.rest.metrics;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -27,6 +29,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import org.springframework.http.MediaType;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
@@ -76,7 +80,8 @@ public class RichGaugeControllerIntegrationTests extends AbstractControllerInteg
 		for (int i = 0; i < counters.length; i++) {
 			counters[i] = new RichGauge("c" + i, 15, 0.5, 16, 20, 10, 100);
 		}
-		when(richGaugeRepository.findAll()).thenReturn(Arrays.asList(counters));
+		when(richGaugeRepository.findByNameStartingWith((String) isNull(), any(Pageable.class))).thenReturn(
+				new PageImpl<>(Arrays.asList(counters)));
 
 		ResultActions resActions = mockMvc.perform(get("/metrics/rich-gauges")).andExpect(status().isOk())//
 		.andExpect(jsonPath("$.content", Matchers.hasSize(10)));
@@ -98,7 +103,8 @@ public class RichGaugeControllerIntegrationTests extends AbstractControllerInteg
 		for (int i = 0; i < counters.length; i++) {
 			counters[i] = new RichGauge("c" + i, 15, 0.5, 16, 20, 10, 100);
 		}
-		when(richGaugeRepository.findAll()).thenReturn(Arrays.asList(counters));
+		when(richGaugeRepository.findByNameStartingWith((String) isNull(), any(Pageable.class))).thenReturn(
+				new PageImpl<>(Arrays.asList(counters)));
 
 		ResultActions resActions = mockMvc.perform(get("/metrics/rich-gauges?detailed=true")).andExpect(status().isOk())//
 		.andExpect(jsonPath("$.content", Matchers.hasSize(10)));
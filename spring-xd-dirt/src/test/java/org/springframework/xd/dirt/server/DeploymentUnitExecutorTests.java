@@ -0,0 +1,237 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link DeploymentUnitExecutor}.
+ *
+ * @since 1.3.2
+ */
+public class DeploymentUnitExecutorTests {
+
+	private final DeploymentUnitExecutor executor = new DeploymentUnitExecutor(4, "DeploymentUnitExecutorTests");
+
+	@After
+	public void destroy() throws Exception {
+		executor.destroy();
+	}
+
+	@Test
+	public void testTasksOfUnitRunInOrder() throws Exception {
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(20);
+		for (int i = 0; i < 20; i++) {
+			final int index = i;
+			executor.execute("stream:ticktock", new Runnable() {
+
+				@Override
+				public void run() {
+					int current = running.incrementAndGet();
+					maxRunning.set(Math.max(maxRunning.get(), current));
+					order.add(index);
+					Thread.yield();
+					running.decrementAndGet();
+					done.countDown();
+				}
+			});
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(1, maxRunning.get());
+		for (int i = 0; i < 20; i++) {
+			assertEquals(Integer.valueOf(i), order.get(i));
+		}
+	}
+
+	@Test
+	public void testUnitsRunInParallel() throws Exception {
+		final CountDownLatch bothRunning = new CountDownLatch(2);
+		final CountDownLatch done = new CountDownLatch(2);
+		for (String unit : new String[] { "stream:foo", "stream:bar" }) {
+			executor.execute(unit, new Runnable() {
+
+				@Override
+				public void run() {
+					bothRunning.countDown();
+					try {
+						if (bothRunning.await(10, TimeUnit.SECONDS)) {
+							done.countDown();
+						}
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testFailedTaskDoesNotBlockUnit() throws Exception {
+		final CountDownLatch done = new CountDownLatch(1);
+		executor.execute("job:foo", new Runnable() {
+
+			@Override
+			public void run() {
+				throw new IllegalStateException("expected");
+			}
+		});
+		executor.execute("job:foo", new Runnable() {
+
+			@Override
+			public void run() {
+				done.countDown();
+			}
+		});
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testCancelPending() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger executed = new AtomicInteger();
+		executor.execute("stream:foo", new Runnable() {
+
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		Runnable counting = new Runnable() {
+
+			@Override
+			public void run() {
+				executed.incrementAndGet();
+			}
+		};
+		executor.execute("stream:foo", counting);
+		executor.execute("stream:foo", counting);
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		assertEquals(2, executor.cancelPending());
+		assertFalse(executor.awaitRunningTasks(50));
+		release.countDown();
+		assertTrue(executor.awaitRunningTasks(10000));
+		assertEquals(0, executed.get());
+
+		// the unit accepts new tasks after a cancellation
+		final CountDownLatch done = new CountDownLatch(1);
+		executor.execute("stream:foo", new Runnable() {
+
+			@Override
+			public void run() {
+				done.countDown();
+			}
+		});
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testExclusiveTaskRunsAlone() throws Exception {
+		final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(1);
+		executor.execute("stream:foo", new Runnable() {
+
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				order.add("foo");
+			}
+		});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		executor.executeExclusive(new Runnable() {
+
+			@Override
+			public void run() {
+				order.add("all");
+			}
+		});
+		executor.execute("stream:bar", new Runnable() {
+
+			@Override
+			public void run() {
+				order.add("bar");
+				done.countDown();
+			}
+		});
+
+		Thread.sleep(50);
+		assertTrue(order.isEmpty());
+		release.countDown();
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("foo", "all", "bar"), order);
+	}
+
+	@Test
+	public void testCallExclusive() throws Exception {
+		assertEquals("done", executor.callExclusive(new Callable<String>() {
+
+			@Override
+			public String call() throws Exception {
+				return "done";
+			}
+		}));
+		try {
+			executor.callExclusive(new Callable<String>() {
+
+				@Override
+				public String call() throws Exception {
+					throw new IllegalStateException("expected");
+				}
+			});
+			fail("IllegalStateException expected");
+		}
+		catch (IllegalStateException e) {
+			assertEquals("expected", e.getMessage());
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,13 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -250,4 +257,55 @@ public class DefaultContainerMatcherTests {
 				containers);
 		assertEquals(0, matched.size());
 	}
+
+	@Test
+	public void concurrentMatchesDistributedEvenly() throws Exception {
+		final int threads = 8;
+		final int matchesPerThread = 300;
+		deploymentProperties.setCount(2);
+		deploymentProperties.setCriteria("color=='green' or color=='blue'");
+		final Map<String, AtomicInteger> deployments = new ConcurrentHashMap<String, AtomicInteger>();
+		for (Container container : containers) {
+			deployments.put(container.getName(), new AtomicInteger());
+		}
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() throws Exception {
+						start.await();
+						for (int i = 0; i < matchesPerThread; i++) {
+							Collection<Container> matched = containerMatcher.match(moduleDescriptor,
+									deploymentProperties, containers);
+							// each match takes consecutive containers of the rotation
+							Iterator<Container> iterator = matched.iterator();
+							int first = containers.indexOf(iterator.next());
+							assertEquals((first + 1) % containers.size(), containers.indexOf(iterator.next()));
+							for (Container container : matched) {
+								deployments.get(container.getName()).incrementAndGet();
+							}
+						}
+						return null;
+					}
+
+				}));
+			}
+			start.countDown();
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		int expected = threads * matchesPerThread * 2 / containers.size();
+		for (Container container : containers) {
+			assertEquals(container.getName(), expected, deployments.get(container.getName()).get());
+		}
+	}
+
 }
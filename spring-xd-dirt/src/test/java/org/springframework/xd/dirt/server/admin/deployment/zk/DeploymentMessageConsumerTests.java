@@ -0,0 +1,180 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.dirt.server.admin.deployment.zk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.test.TestingServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.xd.dirt.server.DeploymentUnitExecutor;
+import org.springframework.xd.dirt.server.admin.deployment.DeploymentAction;
+import org.springframework.xd.dirt.server.admin.deployment.DeploymentMessage;
+import org.springframework.xd.dirt.server.admin.deployment.DeploymentUnitType;
+import org.springframework.xd.dirt.stream.JobDeployer;
+import org.springframework.xd.dirt.stream.StreamDeployer;
+import org.springframework.xd.dirt.zookeeper.Paths;
+import org.springframework.xd.dirt.zookeeper.ZooKeeperConnection;
+
+/**
+ * Tests for {@link DeploymentMessageConsumer}.
+ *
+ * @since 1.3.2
+ */
+public class DeploymentMessageConsumerTests {
+
+	private TestingServer zookeeper;
+
+	private ZooKeeperConnection zooKeeperConnection;
+
+	private DeploymentUnitExecutor executor;
+
+	private StreamDeployer streamDeployer;
+
+	private DeploymentMessageConsumer consumer;
+
+	private final CountDownLatch deploying = new CountDownLatch(1);
+
+	private final CountDownLatch deployed = new CountDownLatch(1);
+
+	@Before
+	public void setUp() throws Exception {
+		this.zookeeper = new TestingServer();
+		this.zooKeeperConnection = new ZooKeeperConnection(this.zookeeper.getConnectString());
+		this.zooKeeperConnection.start();
+		for (int i = 0; i < 100 && !this.zooKeeperConnection.isConnected(); i++) {
+			Thread.sleep(100);
+		}
+		assertTrue(this.zooKeeperConnection.isConnected());
+		this.executor = new DeploymentUnitExecutor(2, "DeploymentMessageConsumerTests");
+		this.streamDeployer = mock(StreamDeployer.class);
+		// deploying "blocked" waits until the test lets it complete
+		doAnswer(new Answer<Void>() {
+
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				deploying.countDown();
+				assertTrue(deployed.await(10, TimeUnit.SECONDS));
+				return null;
+			}
+		}).when(this.streamDeployer).deploy(eq("blocked"), anyMapOf(String.class, String.class));
+		this.consumer = new DeploymentMessageConsumer();
+		ReflectionTestUtils.setField(this.consumer, "streamDeployer", this.streamDeployer);
+		ReflectionTestUtils.setField(this.consumer, "jobDeployer", mock(JobDeployer.class));
+		ReflectionTestUtils.setField(this.consumer, "zkConnection", this.zooKeeperConnection);
+		ReflectionTestUtils.setField(this.consumer, "deploymentExecutor", this.executor);
+		this.consumer.afterPropertiesSet();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.deployed.countDown();
+		this.executor.destroy();
+		this.zooKeeperConnection.stop();
+		this.zookeeper.close();
+	}
+
+	@Test
+	public void testMessagesAreTakenOnlyAsFastAsTheyAreProcessed() throws Exception {
+		this.consumer.consumeMessage(deploy("first", "blocked"));
+		assertTrue(this.deploying.await(10, TimeUnit.SECONDS));
+		// queued behind the running deployment of the same stream
+		this.consumer.consumeMessage(deploy("second", "blocked"));
+
+		Thread third = consumeInBackground(deploy("third", "other"));
+		third.join(500);
+		assertTrue("a third message should wait for one of the two taken to be processed", third.isAlive());
+
+		this.deployed.countDown();
+		third.join(10000);
+		assertEquals(ZKDeploymentMessagePublisher.SUCCESS, awaitResponse("first"));
+		assertEquals(ZKDeploymentMessagePublisher.SUCCESS, awaitResponse("second"));
+		assertEquals(ZKDeploymentMessagePublisher.SUCCESS, awaitResponse("third"));
+	}
+
+	@Test
+	public void testDiscardedMessagesAreAnsweredWithAnError() throws Exception {
+		this.consumer.consumeMessage(deploy("first", "blocked"));
+		assertTrue(this.deploying.await(10, TimeUnit.SECONDS));
+		this.consumer.consumeMessage(deploy("second", "blocked"));
+		Thread third = consumeInBackground(deploy("third", "other"));
+
+		assertEquals(1, this.executor.cancelPending());
+		assertEquals(ZKDeploymentMessagePublisher.ERROR, awaitResponse("second"));
+		// the permit of the discarded message lets the next one be taken
+		third.join(10000);
+		assertEquals(ZKDeploymentMessagePublisher.SUCCESS, awaitResponse("third"));
+
+		this.deployed.countDown();
+		assertEquals(ZKDeploymentMessagePublisher.SUCCESS, awaitResponse("first"));
+	}
+
+	private DeploymentMessage deploy(String requestId, String streamName) throws Exception {
+		// the publisher creates the node the response is written under
+		this.zooKeeperConnection.getClient().create().creatingParentsIfNeeded()
+				.forPath(Paths.build(Paths.DEPLOYMENTS, Paths.RESPONSES, requestId));
+		return new DeploymentMessage(DeploymentUnitType.Stream)
+				.setRequestId(requestId)
+				.setUnitName(streamName)
+				.setDeploymentAction(DeploymentAction.deploy);
+	}
+
+	private Thread consumeInBackground(final DeploymentMessage message) {
+		Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					consumer.consumeMessage(message);
+				}
+				catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+	private String awaitResponse(String requestId) throws Exception {
+		String path = Paths.build(Paths.DEPLOYMENTS, Paths.RESPONSES, requestId);
+		for (int i = 0; i < 100; i++) {
+			List<String> children = this.zooKeeperConnection.getClient().getChildren().forPath(path);
+			if (!children.isEmpty()) {
+				return children.get(0);
+			}
+			Thread.sleep(100);
+		}
+		throw new AssertionError("no response to " + requestId);
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.kafka;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.integration.kafka.core.BrokerAddress;
+import org.springframework.integration.kafka.core.ConnectionFactory;
+import org.springframework.integration.kafka.core.Partition;
+import org.springframework.integration.kafka.core.Result;
+import org.springframework.integration.kafka.listener.KafkaMessageListenerContainer;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.util.Assert;
+
+import kafka.api.OffsetRequest;
+
+/**
+ * Metrics of a Kafka consumer binding. The lag of each listened partition is computed on
+ * demand, as the difference between the partition's log end offset, fetched from its
+ * leader, and the offset held by the listener container's offset manager.
+ *
+ * @since 1.3.2
+ */
+@ManagedResource
+public class KafkaConsumerMetrics {
+
+	private final String bindingName;
+
+	private final ConnectionFactory connectionFactory;
+
+	private final KafkaMessageListenerContainer messageListenerContainer;
+
+	private final Collection<Partition> partitions;
+
+	public KafkaConsumerMetrics(String bindingName, ConnectionFactory connectionFactory,
+			KafkaMessageListenerContainer messageListenerContainer, Collection<Partition> partitions) {
+		Assert.hasText(bindingName, "'bindingName' is required");
+		Assert.notNull(connectionFactory, "'connectionFactory' cannot be null");
+		Assert.notNull(messageListenerContainer, "'messageListenerContainer' cannot be null");
+		Assert.notEmpty(partitions, "'partitions' cannot be empty");
+		this.bindingName = bindingName;
+		this.connectionFactory = connectionFactory;
+		this.messageListenerContainer = messageListenerContainer;
+		this.partitions = new ArrayList<Partition>(partitions);
+	}
+
+	@ManagedAttribute(description = "Binding name")
+	public String getBindingName() {
+		return this.bindingName;
+	}
+
+	@ManagedAttribute(description = "Kafka topic")
+	public String getTopic() {
+		return this.partitions.iterator().next().getTopic();
+	}
+
+	@ManagedAttribute(description = "Number of listened partitions")
+	public int getPartitionCount() {
+		return this.partitions.size();
+	}
+
+	@ManagedAttribute(description = "Messages not yet consumed, by partition id")
+	public Map<Integer, Long> getPartitionLags() {
+		Map<Integer, Long> lags = new TreeMap<Integer, Long>();
+		for (Map.Entry<Partition, Long> entry : fetchLags().entrySet()) {
+			lags.put(entry.getKey().getId(), entry.getValue());
+		}
+		return lags;
+	}
+
+	@ManagedAttribute(description = "Messages not yet consumed, across all listened partitions")
+	public long getTotalLag() {
+		long total = 0;
+		for (Long lag : fetchLags().values()) {
+			total += lag;
+		}
+		return total;
+	}
+
+	private Map<Partition, Long> fetchLags() {
+		Map<BrokerAddress, List<Partition>> partitionsByLeader = new HashMap<BrokerAddress, List<Partition>>();
+		for (Map.Entry<Partition, BrokerAddress> entry : this.connectionFactory.getLeaders(this.partitions).entrySet()) {
+			List<Partition> led = partitionsByLeader.get(entry.getValue());
+			if (led == null) {
+				led = new ArrayList<Partition>();
+				partitionsByLeader.put(entry.getValue(), led);
+			}
+			led.add(entry.getKey());
+		}
+		Map<Partition, Long> lags = new HashMap<Partition, Long>();
+		for (Map.Entry<BrokerAddress, List<Partition>> entry : partitionsByLeader.entrySet()) {
+			List<Partition> led = entry.getValue();
+			Result<Long> logEndOffsets = this.connectionFactory.connect(entry.getKey())
+					.fetchInitialOffset(OffsetRequest.LatestTime(), led.toArray(new Partition[led.size()]));
+			for (Map.Entry<Partition, Long> logEndOffset : logEndOffsets.getResults().entrySet()) {
+				long consumed = this.messageListenerContainer.getOffsetManager().getOffset(logEndOffset.getKey());
+				lags.put(logEndOffset.getKey(), Math.max(0, logEndOffset.getValue() - consumed));
+			}
+		}
+		return lags;
+	}
+
+}
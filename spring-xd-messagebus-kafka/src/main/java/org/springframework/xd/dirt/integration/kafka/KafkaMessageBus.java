@@ -24,19 +24,27 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.I0Itec.zkclient.ZkClient;
 import org.I0Itec.zkclient.exception.ZkMarshallingError;
 import org.I0Itec.zkclient.serialize.ZkSerializer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.ByteArraySerializer;
 
 import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.Lifecycle;
 import org.springframework.http.MediaType;
 import org.springframework.integration.channel.FixedSubscriberChannel;
 import org.springframework.integration.codec.Codec;
@@ -71,6 +79,7 @@ import org.springframework.retry.RetryOperations;
 import org.springframework.retry.backoff.ExponentialBackOffPolicy;
 import org.springframework.retry.policy.SimpleRetryPolicy;
 import org.springframework.retry.support.RetryTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
@@ -149,6 +158,8 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 
 	public static final String SYNC_PRODUCER_TIMEOUT = "syncProducerTimeout";
 
+	public static final String PARTITION_ASSIGNMENT = "partitionAssignment";
+
 	private static final String DEFAULT_COMPRESSION_CODEC = "none";
 
 	private static final int DEFAULT_REQUIRED_ACKS = 1;
@@ -203,6 +214,7 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 			.add(AUTO_COMMIT_OFFSET_ENABLED)
 			.add(FETCH_SIZE)
 			.add(QUEUE_SIZE)
+			.add(PARTITION_ASSIGNMENT)
 			.build();
 
 	/**
@@ -263,9 +275,6 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 			.addAll(PRODUCER_COMPRESSION_PROPERTIES)
 			.build();
 
-	private final EmbeddedHeadersMessageConverter embeddedHeadersMessageConverter = new
-			EmbeddedHeadersMessageConverter();
-
 	private final ZookeeperConnect zookeeperConnect;
 
 	private String brokers;
@@ -329,6 +338,16 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 
 	private ZkClient zkClient;
 
+	private PartitionAssignment defaultPartitionAssignment = PartitionAssignment.fixed;
+
+	private int partitionRebalanceInterval = 30000;
+
+	private double partitionRebalanceThreshold = 1.5;
+
+	private final LagAwarePartitionAssignor partitionAssignor = new LagAwarePartitionAssignor();
+
+	private ScheduledExecutorService rebalanceExecutor;
+
 	public KafkaMessageBus(ZookeeperConnect zookeeperConnect, String brokers, String zkAddress,
 			Codec codec, String... headersToMap) {
 		this.zookeeperConnect = zookeeperConnect;
@@ -434,8 +453,26 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 		}
 	}
 
+	/**
+	 * @return the single thread that rebalances the partitions of the dynamically assigned
+	 * consumers, created on first use.
+	 */
+	private synchronized ScheduledExecutorService getRebalanceExecutor() {
+		if (this.rebalanceExecutor == null) {
+			this.rebalanceExecutor = Executors.newSingleThreadScheduledExecutor(
+					new CustomizableThreadFactory("kafka-partition-rebalancer-"));
+		}
+		return this.rebalanceExecutor;
+	}
+
 	@Override
 	public void destroy() throws Exception {
+		synchronized (this) {
+			if (this.rebalanceExecutor != null) {
+				this.rebalanceExecutor.shutdownNow();
+			}
+		}
+		destroyBindingMetrics();
 		zkClient.close();
 	}
 
@@ -533,6 +570,35 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 		this.offsetManagement = offsetManagement;
 	}
 
+	/**
+	 * Set the default {@link PartitionAssignment} of consumers. Default:
+	 * {@link PartitionAssignment#fixed}.
+	 * @param defaultPartitionAssignment the default partition assignment.
+	 */
+	public void setDefaultPartitionAssignment(PartitionAssignment defaultPartitionAssignment) {
+		this.defaultPartitionAssignment = defaultPartitionAssignment;
+	}
+
+	/**
+	 * Set how often consumers with {@link PartitionAssignment#dynamic} assignment report their
+	 * throughput and lag, and check for a new assignment. Default 30000 milliseconds.
+	 * @param partitionRebalanceInterval the interval in milliseconds.
+	 */
+	public void setPartitionRebalanceInterval(int partitionRebalanceInterval) {
+		Assert.isTrue(partitionRebalanceInterval > 0, "'partitionRebalanceInterval' must be greater than 0");
+		this.partitionRebalanceInterval = partitionRebalanceInterval;
+	}
+
+	/**
+	 * Set how much longer than with the best assignment the slowest consumer of a group must
+	 * be expected to take to drain its backlog before partitions are reassigned. Default 1.5.
+	 * @param partitionRebalanceThreshold the threshold; must be at least 1.
+	 */
+	public void setPartitionRebalanceThreshold(double partitionRebalanceThreshold) {
+		Assert.isTrue(partitionRebalanceThreshold >= 1, "'partitionRebalanceThreshold' must be at least 1");
+		this.partitionRebalanceThreshold = partitionRebalanceThreshold;
+	}
+
 	@Override
 	public void bindConsumer(String name, final MessageChannel moduleInputChannel, Properties properties) {
 		// Point-to-point consumers reset at the earliest time, which allows them to catch up with all messages
@@ -584,10 +650,11 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 					additionalProps);
 
 			try {
+				Producer<byte[], byte[]> producer = producerFB.getObject();
 				final ProducerConfiguration<byte[], byte[]> producerConfiguration = new ProducerConfiguration<>(
-						producerMetadata, producerFB.getObject());
+						producerMetadata, producer);
 				MessageHandler handler = new SendingHandler(topicName, accessor, partitions.size(),
-						producerConfiguration);
+						producerConfiguration, new KafkaProducerMetrics(name, topicName, producer));
 				EventDrivenConsumer consumer = new EventDrivenConsumer((SubscribableChannel) moduleOutputChannel,
 						handler);
 				consumer.setBeanFactory(this.getBeanFactory());
@@ -605,7 +672,12 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 
 	}
 
-	private Collection<Partition> initializePartitions(String name, String topicName, int defaultPartitionCount) {
+	/**
+	 * Synchronized, as modules of different streams may bind to the same named channel or tap concurrently, and the
+	 * check for an existing topic must not race with its creation.
+	 */
+	private synchronized Collection<Partition> initializePartitions(String name, String topicName,
+			int defaultPartitionCount) {
 		Collection<Partition> partitions;
 		try {
 			// existing topics for named channels or taps should never be repartitioned
@@ -729,14 +801,23 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 		Collection<Partition> partitions = initializePartitions(
 				unqualifiedName, listenedTopicName, partitionCountFromConfiguration);
 
-		Decoder<byte[]> valueDecoder = new DefaultDecoder(null);
-		Decoder<byte[]> keyDecoder = new DefaultDecoder(null);
+		String group = pubSub ? BusUtils.getGroupFromPubSub(name) : POINT_TO_POINT_SEMANTICS_CONSUMER_GROUP;
+
+		boolean resetOffsets = pubSub && !accessor.isDurable(defaultDurableSubscription);
+
+		boolean dynamicAssignment = PartitionAssignment.dynamic.equals(
+				accessor.getPartitionAssignment(this.defaultPartitionAssignment));
+		if (dynamicAssignment && (accessor.getPartitionIndex() != -1 || resetOffsets)) {
+			logger.warn("Dynamic partition assignment is not supported for partitioned or non-durable consumers, "
+					+ "using fixed assignment for " + name);
+			dynamicAssignment = false;
+		}
 
 		Collection<Partition> listenedPartitions;
 
 		int moduleCount = accessor.getCount();
 
-		if (moduleCount == 1) {
+		if (moduleCount == 1 || dynamicAssignment) {
 			listenedPartitions = partitions;
 		}
 		else {
@@ -769,16 +850,39 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 		final FixedSubscriberChannel bridge = new FixedSubscriberChannel(rh);
 		bridge.setBeanName("bridge." + name);
 
-		String group = pubSub ? BusUtils.getGroupFromPubSub(name) : POINT_TO_POINT_SEMANTICS_CONSUMER_GROUP;
+		EventDrivenConsumer edc;
+		if (dynamicAssignment) {
+			edc = new RebalancingKafkaConsumerBusAdapter(name, bridge, rh, accessor, group, listenedTopicName,
+					listenedPartitions, maxConcurrency, referencePoint);
+		}
+		else {
+			final KafkaMessageListenerContainer messageListenerContainer =
+					createMessageListenerContainer(accessor,
+							group, maxConcurrency, listenedPartitions,
+							referencePoint, resetOffsets);
+
+			final KafkaMessageDrivenChannelAdapter kafkaMessageDrivenChannelAdapter =
+					createMessageDrivenChannelAdapter(messageListenerContainer, bridge, accessor);
+			kafkaMessageDrivenChannelAdapter.start();
+
+			edc = new KafkaConsumerBusAdapter(bridge, rh, kafkaMessageDrivenChannelAdapter,
+					messageListenerContainer, new KafkaConsumerMetrics(name, connectionFactory,
+							messageListenerContainer, listenedPartitions));
+		}
+		edc.setBeanName("inbound." + name);
 
-		boolean resetOffsets = pubSub && !accessor.isDurable(defaultDurableSubscription);
+		Binding consumerBinding = Binding.forConsumer(name, edc, moduleInputChannel, accessor);
+		addBinding(consumerBinding);
+		consumerBinding.start();
 
-		final KafkaMessageListenerContainer messageListenerContainer =
-				createMessageListenerContainer(accessor,
-						group, maxConcurrency, listenedPartitions,
-						referencePoint, resetOffsets);
+	}
 
-		final KafkaMessageDrivenChannelAdapter kafkaMessageDrivenChannelAdapter =
+	private KafkaMessageDrivenChannelAdapter createMessageDrivenChannelAdapter(
+			KafkaMessageListenerContainer messageListenerContainer, MessageChannel bridge,
+			KafkaPropertiesAccessor accessor) {
+		Decoder<byte[]> valueDecoder = new DefaultDecoder(null);
+		Decoder<byte[]> keyDecoder = new DefaultDecoder(null);
+		KafkaMessageDrivenChannelAdapter kafkaMessageDrivenChannelAdapter =
 				new KafkaMessageDrivenChannelAdapter(messageListenerContainer);
 		kafkaMessageDrivenChannelAdapter.setBeanFactory(this.getBeanFactory());
 		kafkaMessageDrivenChannelAdapter.setKeyDecoder(keyDecoder);
@@ -787,16 +891,23 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 		kafkaMessageDrivenChannelAdapter.setAutoCommitOffset(
 				accessor.getAutoCommitOffsetEnabled(this.defaultAutoCommitOffsetEnabled));
 		kafkaMessageDrivenChannelAdapter.afterPropertiesSet();
-		kafkaMessageDrivenChannelAdapter.start();
-
-
-		EventDrivenConsumer edc = new KafkaConsumerBusAdapter(bridge, rh, kafkaMessageDrivenChannelAdapter, messageListenerContainer);
-		edc.setBeanName("inbound." + name);
-
-		Binding consumerBinding = Binding.forConsumer(name, edc, moduleInputChannel, accessor);
-		addBinding(consumerBinding);
-		consumerBinding.start();
+		return kafkaMessageDrivenChannelAdapter;
+	}
 
+	/**
+	 * Stop a channel adapter and flush the offsets of its container, by closing its offset manager.
+	 */
+	private void stopMessageDrivenChannelAdapter(KafkaMessageDrivenChannelAdapter kafkaMessageDrivenChannelAdapter,
+			KafkaMessageListenerContainer messageListenerContainer) {
+		kafkaMessageDrivenChannelAdapter.stop();
+		if (messageListenerContainer.getOffsetManager() instanceof DisposableBean) {
+			try {
+				((DisposableBean) messageListenerContainer.getOffsetManager()).destroy();
+			}
+			catch (Exception e) {
+				logger.error("Error while closing the offset manager", e);
+			}
+		}
 	}
 
 	private boolean topicExists(String tappedTopicName) {
@@ -900,33 +1011,179 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 		}
 	}
 
-	private static class KafkaConsumerBusAdapter extends EventDrivenConsumer {
+	private class KafkaConsumerBusAdapter extends EventDrivenConsumer {
 
 		private final KafkaMessageDrivenChannelAdapter kafkaMessageDrivenChannelAdapter;
 
 		private final KafkaMessageListenerContainer messageListenerContainer;
 
-		public KafkaConsumerBusAdapter(FixedSubscriberChannel bridge, ReceivingHandler rh, KafkaMessageDrivenChannelAdapter kafkaMessageDrivenChannelAdapter, KafkaMessageListenerContainer messageListenerContainer) {
+		private final KafkaConsumerMetrics metrics;
+
+		public KafkaConsumerBusAdapter(FixedSubscriberChannel bridge, ReceivingHandler rh,
+				KafkaMessageDrivenChannelAdapter kafkaMessageDrivenChannelAdapter,
+				KafkaMessageListenerContainer messageListenerContainer, KafkaConsumerMetrics metrics) {
 			super(bridge, rh);
 			this.kafkaMessageDrivenChannelAdapter = kafkaMessageDrivenChannelAdapter;
 			this.messageListenerContainer = messageListenerContainer;
+			this.metrics = metrics;
+		}
+
+		@Override
+		protected void doStart() {
+			super.doStart();
+			registerBindingMetrics(metrics.getBindingName(), "consumer", metrics);
 		}
 
 		@Override
 		protected void doStop() {
+			unregisterBindingMetrics(metrics.getBindingName(), "consumer");
 			// stop the offset manager and the channel adapter before unbinding
 			// this means that the upstream channel adapter has a chance to stop
-			kafkaMessageDrivenChannelAdapter.stop();
-			if (messageListenerContainer.getOffsetManager() instanceof DisposableBean) {
-				try {
-					((DisposableBean) messageListenerContainer.getOffsetManager()).destroy();
-				}
-				catch (Exception e) {
-					logger.error("Error while closing the offset manager", e);
+			stopMessageDrivenChannelAdapter(kafkaMessageDrivenChannelAdapter, messageListenerContainer);
+			super.doStop();
+		}
+	}
+
+	/**
+	 * A consumer whose partitions are assigned dynamically among the members of its group,
+	 * by a {@link KafkaPartitionRebalancer} that runs at every rebalance interval on the
+	 * rebalance executor of the bus, rather than on the shared task scheduler, as it makes
+	 * blocking ZooKeeper calls and stops and starts listener containers.
+	 */
+	private class RebalancingKafkaConsumerBusAdapter extends EventDrivenConsumer {
+
+		private final String name;
+
+		private final MessageChannel bridge;
+
+		private final ReceivingHandler receivingHandler;
+
+		private final KafkaPropertiesAccessor accessor;
+
+		private final String group;
+
+		private final Map<Integer, Partition> partitions = new TreeMap<Integer, Partition>();
+
+		private final int maxConcurrency;
+
+		private final long referencePoint;
+
+		private final KafkaPartitionRebalancer rebalancer;
+
+		private volatile boolean active;
+
+		private ScheduledFuture<?> rebalanceTask;
+
+		private KafkaMessageListenerContainer messageListenerContainer;
+
+		private KafkaMessageDrivenChannelAdapter kafkaMessageDrivenChannelAdapter;
+
+		private KafkaConsumerMetrics metrics;
+
+		public RebalancingKafkaConsumerBusAdapter(String name, FixedSubscriberChannel bridge, ReceivingHandler rh,
+				KafkaPropertiesAccessor accessor, String group, String topic, Collection<Partition> partitions,
+				int maxConcurrency, long referencePoint) {
+			super(bridge, rh);
+			this.name = name;
+			this.bridge = bridge;
+			this.receivingHandler = rh;
+			this.accessor = accessor;
+			this.group = group;
+			for (Partition partition : partitions) {
+				this.partitions.put(partition.getId(), partition);
+			}
+			this.maxConcurrency = maxConcurrency;
+			this.referencePoint = referencePoint;
+			this.rebalancer = new KafkaPartitionRebalancer(name + " in group " + group,
+					new KafkaPartitionCoordinator(zkClient, group, topic), this.partitions.keySet(),
+					new KafkaPartitionRebalancer.PartitionConsumer() {
+
+						@Override
+						public void start(Set<Integer> partitionIds) {
+							startConsuming(partitionIds);
+						}
+
+						@Override
+						public void stop() {
+							stopConsuming();
+						}
+
+						@Override
+						public long getReceivedCount() {
+							return receivingHandler.getReceivedCount();
+						}
+
+						@Override
+						public Map<Integer, Long> getPartitionLags() {
+							return metrics.getPartitionLags();
+						}
+
+					}, partitionAssignor, partitionRebalanceThreshold);
+		}
+
+		@Override
+		protected void doStart() {
+			super.doStart();
+			this.active = true;
+			this.rebalanceTask = getRebalanceExecutor().scheduleAtFixedRate(new Runnable() {
+
+				@Override
+				public void run() {
+					if (active) {
+						try {
+							rebalancer.rebalance();
+						}
+						catch (Exception e) {
+							logger.error("Error while rebalancing the partitions of " + name, e);
+						}
+					}
 				}
+
+			}, 0, partitionRebalanceInterval, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		protected void doStop() {
+			this.active = false;
+			if (this.rebalanceTask != null) {
+				this.rebalanceTask.cancel(false);
+				this.rebalanceTask = null;
+			}
+			try {
+				this.rebalancer.leave();
+			}
+			catch (Exception e) {
+				logger.error("Error while leaving the consumer group of " + this.name, e);
 			}
 			super.doStop();
 		}
+
+		private void startConsuming(Set<Integer> partitionIds) {
+			List<Partition> listenedPartitions = new ArrayList<Partition>();
+			for (Integer partitionId : partitionIds) {
+				listenedPartitions.add(this.partitions.get(partitionId));
+			}
+			// a new offset manager starts from the offsets stored by the previous owners
+			this.messageListenerContainer = createMessageListenerContainer(this.accessor, this.group,
+					this.maxConcurrency, listenedPartitions, this.referencePoint, false);
+			this.kafkaMessageDrivenChannelAdapter = createMessageDrivenChannelAdapter(this.messageListenerContainer,
+					this.bridge, this.accessor);
+			this.kafkaMessageDrivenChannelAdapter.start();
+			this.metrics = new KafkaConsumerMetrics(this.name, connectionFactory, this.messageListenerContainer,
+					listenedPartitions);
+			registerBindingMetrics(this.name, "consumer", this.metrics);
+		}
+
+		private void stopConsuming() {
+			if (this.kafkaMessageDrivenChannelAdapter != null) {
+				unregisterBindingMetrics(this.name, "consumer");
+				stopMessageDrivenChannelAdapter(this.kafkaMessageDrivenChannelAdapter, this.messageListenerContainer);
+				this.kafkaMessageDrivenChannelAdapter = null;
+				this.messageListenerContainer = null;
+				this.metrics = null;
+			}
+		}
+
 	}
 
 	private class KafkaPropertiesAccessor extends AbstractBusPropertiesAccessor {
@@ -978,22 +1235,35 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 		public int getSyncProducerTimeout(int defaultSyncProducerTimeout) {
 			return getProperty(SYNC_PRODUCER_TIMEOUT, defaultSyncProducerTimeout);
 		}
+
+		public PartitionAssignment getPartitionAssignment(PartitionAssignment defaultPartitionAssignment) {
+			String partitionAssignment = getProperty(PARTITION_ASSIGNMENT);
+			return partitionAssignment == null ? defaultPartitionAssignment
+					: PartitionAssignment.valueOf(partitionAssignment);
+		}
 	}
 
 	private class ReceivingHandler extends AbstractReplyProducingMessageHandler {
 
+		private final AtomicLong receivedCount = new AtomicLong();
+
 		public ReceivingHandler() {
 			this.setBeanFactory(KafkaMessageBus.this.getBeanFactory());
 		}
 
+		public long getReceivedCount() {
+			return this.receivedCount.get();
+		}
+
 		@Override
 		@SuppressWarnings("unchecked")
 		protected Object handleRequestMessage(Message<?> requestMessage) {
+			this.receivedCount.incrementAndGet();
 			if (Mode.embeddedHeaders.equals(mode)) {
 				MessageValues messageValues;
 				try {
-					messageValues = embeddedHeadersMessageConverter.extractHeaders((Message<byte[]>) requestMessage,
-							true);
+					messageValues = getEmbeddedHeadersMessageConverter().extractHeaders(
+							(Message<byte[]>) requestMessage, true, true);
 				}
 				catch (Exception e) {
 					logger.error(EmbeddedHeadersMessageConverter.decodeExceptionMessage(requestMessage), e);
@@ -1024,7 +1294,7 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 		}
 	}
 
-	private class SendingHandler extends AbstractMessageHandler {
+	private class SendingHandler extends AbstractMessageHandler implements Lifecycle {
 
 		private final PartitioningMetadata partitioningMetadata;
 
@@ -1036,14 +1306,43 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 
 		private final ProducerConfiguration<byte[], byte[]> producerConfiguration;
 
+		private final KafkaProducerMetrics metrics;
+
+		private volatile boolean running;
+
 
 		private SendingHandler(String topicName, KafkaPropertiesAccessor properties, int numberOfPartitions,
-				ProducerConfiguration<byte[], byte[]> producerConfiguration) {
+				ProducerConfiguration<byte[], byte[]> producerConfiguration, KafkaProducerMetrics metrics) {
 			this.topicName = topicName;
 			this.numberOfKafkaPartitions = numberOfPartitions;
 			this.partitioningMetadata = new PartitioningMetadata(properties, numberOfPartitions);
 			this.setBeanFactory(KafkaMessageBus.this.getBeanFactory());
 			this.producerConfiguration = producerConfiguration;
+			this.metrics = metrics;
+			if (this.partitioningMetadata.isPartitionedModule()) {
+				metrics.setPartitionMetrics(this.partitioningMetadata.getPartitionMetrics());
+			}
+		}
+
+		@Override
+		public void start() {
+			if (!this.running) {
+				this.running = true;
+				registerBindingMetrics(metrics.getBindingName(), "producer", metrics);
+			}
+		}
+
+		@Override
+		public void stop() {
+			if (this.running) {
+				this.running = false;
+				unregisterBindingMetrics(metrics.getBindingName(), "producer");
+			}
+		}
+
+		@Override
+		public boolean isRunning() {
+			return this.running;
 		}
 
 		@Override
@@ -1058,9 +1357,10 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 
 			if (Mode.embeddedHeaders.equals(mode)) {
 				MessageValues transformed = serializePayloadIfNecessary(message);
-				byte[] messageToSend = embeddedHeadersMessageConverter.embedHeaders(transformed,
+				byte[] messageToSend = getEmbeddedHeadersMessageConverter().embedHeaders(transformed,
 						KafkaMessageBus.this.headersToMap);
 				producerConfiguration.send(topicName, targetPartition, null, messageToSend);
+				metrics.recordSent(messageToSend.length);
 			}
 			else if (Mode.raw.equals(mode)) {
 				Object contentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
@@ -1070,7 +1370,9 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 							+ message.getPayload().getClass());
 				}
 				if (message.getPayload() instanceof byte[]) {
-					producerConfiguration.send(topicName, targetPartition, null, (byte[]) message.getPayload());
+					byte[] messageToSend = (byte[]) message.getPayload();
+					producerConfiguration.send(topicName, targetPartition, null, messageToSend);
+					metrics.recordSent(messageToSend.length);
 				}
 				else {
 					logger.error("Raw mode supports only byte[] payloads but value sent was of type "
@@ -1099,4 +1401,21 @@ public class KafkaMessageBus extends MessageBusSupport implements DisposableBean
 		kafkaNative
 	}
 
+	/**
+	 * How the partitions of a topic are assigned to the instances of a consuming module.
+	 */
+	public enum PartitionAssignment {
+
+		/**
+		 * Partitions are divided by module sequence (or partition index), and never move.
+		 */
+		fixed,
+
+		/**
+		 * Partitions are reassigned among the module instances based on their lag and
+		 * throughput; see {@link KafkaMessageBus#setPartitionRebalanceInterval(int)}.
+		 */
+		dynamic
+	}
+
 }
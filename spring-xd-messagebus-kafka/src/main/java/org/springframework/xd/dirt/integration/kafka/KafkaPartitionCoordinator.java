@@ -0,0 +1,311 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.kafka;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.I0Itec.zkclient.ZkClient;
+import org.I0Itec.zkclient.exception.ZkNoNodeException;
+import org.I0Itec.zkclient.exception.ZkNodeExistsException;
+
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Coordinates the members of a consumer group that share the partitions of a topic,
+ * through ZooKeeper. The nodes of a group live under
+ * {@code /springxd/messagebus/kafka/assignments/<group>/<topic>}:
+ * <ul>
+ * <li>{@code members/member-<sequence>} - an ephemeral node per member, holding its
+ * last reported {@link MemberState}; the member with the lowest sequence is the leader,
+ * which computes the assignment;</li>
+ * <li>{@code assignment} - the partitions assigned to each member, written by the leader;</li>
+ * <li>{@code owners/<partition>} - an ephemeral node per partition, holding the id of the
+ * member that consumes it. A member may only consume a partition it owns, and releases it
+ * only after its offsets have been flushed, so that a partition is never consumed by two
+ * members at once.</li>
+ * </ul>
+ *
+ * @since 1.3.2
+ */
+public class KafkaPartitionCoordinator {
+
+	public static final String ROOT_PATH = "/springxd/messagebus/kafka/assignments";
+
+	private static final String MEMBER_PREFIX = "member-";
+
+	private final ZkClient zkClient;
+
+	private final String membersPath;
+
+	private final String ownersPath;
+
+	private final String assignmentPath;
+
+	private volatile String memberId;
+
+	public KafkaPartitionCoordinator(ZkClient zkClient, String group, String topic) {
+		Assert.notNull(zkClient, "'zkClient' cannot be null");
+		Assert.hasText(group, "'group' is required");
+		Assert.hasText(topic, "'topic' is required");
+		this.zkClient = zkClient;
+		String groupPath = ROOT_PATH + "/" + group + "/" + topic;
+		this.membersPath = groupPath + "/members";
+		this.ownersPath = groupPath + "/owners";
+		this.assignmentPath = groupPath + "/assignment";
+	}
+
+	/**
+	 * Join the group, or join it again if the member node was lost with the ZooKeeper session.
+	 * @param state the initial state of this member.
+	 * @return the id of this member.
+	 */
+	public synchronized String join(MemberState state) {
+		if (this.memberId == null || !this.zkClient.exists(memberPath(this.memberId))) {
+			this.zkClient.createPersistent(this.membersPath, true);
+			this.zkClient.createPersistent(this.ownersPath, true);
+			String path = this.zkClient.createEphemeralSequential(this.membersPath + "/" + MEMBER_PREFIX,
+					state.toString());
+			this.memberId = path.substring(path.lastIndexOf('/') + 1);
+		}
+		return this.memberId;
+	}
+
+	/**
+	 * Release the partitions owned by this member and leave the group.
+	 */
+	public synchronized void leave() {
+		if (this.memberId != null) {
+			for (Integer partition : getOwnedPartitions()) {
+				release(partition);
+			}
+			deleteIfExists(memberPath(this.memberId));
+			this.memberId = null;
+		}
+	}
+
+	public String getMemberId() {
+		return this.memberId;
+	}
+
+	public boolean isLeader() {
+		List<String> members = getMembers();
+		return !members.isEmpty() && members.get(0).equals(this.memberId);
+	}
+
+	public void updateState(MemberState state) {
+		this.zkClient.writeData(memberPath(this.memberId), state.toString());
+	}
+
+	/**
+	 * @return the ids of the current members, leader first.
+	 */
+	public List<String> getMembers() {
+		List<String> members;
+		try {
+			members = new ArrayList<String>(this.zkClient.getChildren(this.membersPath));
+		}
+		catch (ZkNoNodeException e) {
+			return Collections.emptyList();
+		}
+		// sequence numbers are zero-padded, so they sort lexically
+		Collections.sort(members);
+		return members;
+	}
+
+	/**
+	 * @return the last reported state of each current member.
+	 */
+	public Map<String, MemberState> getMemberStates() {
+		Map<String, MemberState> states = new TreeMap<String, MemberState>();
+		for (String member : getMembers()) {
+			String data = this.zkClient.readData(memberPath(member), true);
+			if (data != null) {
+				states.put(member, MemberState.parse(data));
+			}
+		}
+		return states;
+	}
+
+	/**
+	 * @return the partitions assigned to each member, empty if no assignment has been written.
+	 */
+	public Map<String, List<Integer>> readAssignment() {
+		Map<String, List<Integer>> assignment = new TreeMap<String, List<Integer>>();
+		String data = this.zkClient.readData(this.assignmentPath, true);
+		if (StringUtils.hasText(data)) {
+			for (String line : StringUtils.tokenizeToStringArray(data, "\n")) {
+				int separator = line.indexOf('=');
+				assignment.put(line.substring(0, separator), parsePartitions(line.substring(separator + 1)));
+			}
+		}
+		return assignment;
+	}
+
+	public void writeAssignment(Map<String, List<Integer>> assignment) {
+		StringBuilder data = new StringBuilder();
+		for (Map.Entry<String, List<Integer>> entry : assignment.entrySet()) {
+			data.append(entry.getKey()).append('=')
+					.append(StringUtils.collectionToCommaDelimitedString(entry.getValue())).append('\n');
+		}
+		if (!this.zkClient.exists(this.assignmentPath)) {
+			try {
+				this.zkClient.createPersistent(this.assignmentPath, data.toString());
+				return;
+			}
+			catch (ZkNodeExistsException e) {
+				// created concurrently by a previous leader; overwrite it
+			}
+		}
+		this.zkClient.writeData(this.assignmentPath, data.toString());
+	}
+
+	/**
+	 * Take ownership of a partition.
+	 * @param partition the partition id.
+	 * @return true if this member owns the partition.
+	 */
+	public boolean claim(int partition) {
+		try {
+			this.zkClient.createEphemeral(ownerPath(partition), this.memberId);
+			return true;
+		}
+		catch (ZkNodeExistsException e) {
+			return this.memberId.equals(this.zkClient.readData(ownerPath(partition), true));
+		}
+	}
+
+	/**
+	 * Give up ownership of a partition, if owned by this member.
+	 * @param partition the partition id.
+	 */
+	public void release(int partition) {
+		if (this.memberId != null && this.memberId.equals(this.zkClient.readData(ownerPath(partition), true))) {
+			deleteIfExists(ownerPath(partition));
+		}
+	}
+
+	private List<Integer> getOwnedPartitions() {
+		List<Integer> owned = new ArrayList<Integer>();
+		try {
+			for (String partition : this.zkClient.getChildren(this.ownersPath)) {
+				if (this.memberId.equals(this.zkClient.readData(this.ownersPath + "/" + partition, true))) {
+					owned.add(Integer.valueOf(partition));
+				}
+			}
+		}
+		catch (ZkNoNodeException e) {
+			// nothing owned
+		}
+		return owned;
+	}
+
+	private void deleteIfExists(String path) {
+		try {
+			this.zkClient.delete(path);
+		}
+		catch (ZkNoNodeException e) {
+			// already gone
+		}
+	}
+
+	private String memberPath(String member) {
+		return this.membersPath + "/" + member;
+	}
+
+	private String ownerPath(int partition) {
+		return this.ownersPath + "/" + partition;
+	}
+
+	private static List<Integer> parsePartitions(String value) {
+		List<Integer> partitions = new ArrayList<Integer>();
+		for (String partition : StringUtils.commaDelimitedListToStringArray(value)) {
+			if (StringUtils.hasText(partition)) {
+				partitions.add(Integer.valueOf(partition.trim()));
+			}
+		}
+		return partitions;
+	}
+
+	/**
+	 * The state a member reports to the leader: its throughput over the last rebalance
+	 * interval, whether it is saturated (its backlog grew over that interval), and the lag
+	 * of each partition it consumes.
+	 */
+	public static class MemberState {
+
+		private final double rate;
+
+		private final boolean saturated;
+
+		private final Map<Integer, Long> lags;
+
+		public MemberState(double rate, boolean saturated, Map<Integer, Long> lags) {
+			this.rate = rate;
+			this.saturated = saturated;
+			this.lags = lags;
+		}
+
+		public double getRate() {
+			return this.rate;
+		}
+
+		public boolean isSaturated() {
+			return this.saturated;
+		}
+
+		public Map<Integer, Long> getLags() {
+			return this.lags;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder data = new StringBuilder();
+			data.append(this.rate).append(';').append(this.saturated).append(';');
+			boolean first = true;
+			for (Map.Entry<Integer, Long> entry : this.lags.entrySet()) {
+				if (!first) {
+					data.append(',');
+				}
+				data.append(entry.getKey()).append(':').append(entry.getValue());
+				first = false;
+			}
+			return data.toString();
+		}
+
+		public static MemberState parse(String data) {
+			String[] fields = data.split(";", -1);
+			Map<Integer, Long> lags = new TreeMap<Integer, Long>();
+			if (fields.length > 2) {
+				for (String lag : StringUtils.commaDelimitedListToStringArray(fields[2])) {
+					int separator = lag.indexOf(':');
+					if (separator > 0) {
+						lags.put(Integer.valueOf(lag.substring(0, separator)), Long.valueOf(lag.substring(separator + 1)));
+					}
+				}
+			}
+			return new MemberState(Double.parseDouble(fields[0]),
+					fields.length > 1 && Boolean.parseBoolean(fields[1]), lags);
+		}
+
+	}
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.dirt.integration.kafka;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.util.Assert;
+import org.springframework.xd.dirt.integration.kafka.KafkaPartitionCoordinator.MemberState;
+
+/**
+ * Applies the dynamic partition assignment of a consumer group member. At each
+ * {@link #rebalance()}, the member reports its state through the
+ * {@link KafkaPartitionCoordinator}; the group leader writes a new assignment if it would
+ * drain the backlog significantly faster (see {@link LagAwarePartitionAssignor}); and the
+ * member applies its assignment to its {@link PartitionConsumer}.
+ * <p>
+ * Partitions that are no longer assigned are only released once the consumer has stopped,
+ * so that their offsets have been flushed, and newly assigned partitions are only consumed
+ * once released by their previous owner.
+ *
+ * @since 1.3.2
+ */
+public class KafkaPartitionRebalancer {
+
+	private static final Logger logger = LoggerFactory.getLogger(KafkaPartitionRebalancer.class);
+
+	private final String name;
+
+	private final KafkaPartitionCoordinator coordinator;
+
+	private final Set<Integer> partitions;
+
+	private final PartitionConsumer consumer;
+
+	private final LagAwarePartitionAssignor partitionAssignor;
+
+	private final double rebalanceThreshold;
+
+	private final Set<Integer> owned = new TreeSet<Integer>();
+
+	private boolean consuming;
+
+	private String memberId;
+
+	private long lastReceivedCount;
+
+	private long lastReportTime;
+
+	private long lastTotalLag = -1;
+
+	private Set<Integer> lastOwned = Collections.emptySet();
+
+	/**
+	 * @param name the name of the consumer, for logging.
+	 * @param coordinator the coordinator of the group.
+	 * @param partitions the ids of the partitions shared by the group.
+	 * @param consumer the consumer of the partitions assigned to this member.
+	 * @param partitionAssignor the assignor used when this member is the group leader.
+	 * @param rebalanceThreshold how many times faster a new assignment must drain the
+	 * backlog to be written.
+	 */
+	public KafkaPartitionRebalancer(String name, KafkaPartitionCoordinator coordinator,
+			Collection<Integer> partitions, PartitionConsumer consumer, LagAwarePartitionAssignor partitionAssignor,
+			double rebalanceThreshold) {
+		Assert.notNull(coordinator, "'coordinator' cannot be null");
+		Assert.notNull(consumer, "'consumer' cannot be null");
+		Assert.notNull(partitionAssignor, "'partitionAssignor' cannot be null");
+		this.name = name;
+		this.coordinator = coordinator;
+		this.partitions = new TreeSet<Integer>(partitions);
+		this.consumer = consumer;
+		this.partitionAssignor = partitionAssignor;
+		this.rebalanceThreshold = rebalanceThreshold;
+	}
+
+	/**
+	 * @return the partitions this member currently consumes.
+	 */
+	public synchronized Set<Integer> getOwnedPartitions() {
+		return new TreeSet<Integer>(this.owned);
+	}
+
+	/**
+	 * Report the state of this member, reassign the partitions of the group if this member
+	 * is its leader, and apply the assignment of this member.
+	 */
+	public synchronized void rebalance() {
+		MemberState state = currentState();
+		String member = this.coordinator.join(state);
+		if (!member.equals(this.memberId)) {
+			// first join, or our ownerships were lost with the ZooKeeper session
+			stopConsuming();
+			this.owned.clear();
+			this.memberId = member;
+		}
+		else {
+			this.coordinator.updateState(state);
+		}
+		if (this.coordinator.isLeader()) {
+			reassignIfNeeded();
+		}
+		List<Integer> assigned = this.coordinator.readAssignment().get(this.memberId);
+		apply(assigned == null ? Collections.<Integer>emptySet() : new TreeSet<Integer>(assigned));
+	}
+
+	/**
+	 * Stop consuming, then release the partitions of this member and leave the group.
+	 */
+	public synchronized void leave() {
+		stopConsuming();
+		try {
+			this.coordinator.leave();
+		}
+		finally {
+			this.owned.clear();
+			this.memberId = null;
+		}
+	}
+
+	private MemberState currentState() {
+		long now = System.currentTimeMillis();
+		long receivedCount = this.consumer.getReceivedCount();
+		double rate = this.lastReportTime > 0
+				? (receivedCount - this.lastReceivedCount) * 1000.0 / Math.max(1, now - this.lastReportTime)
+				: 0;
+		Map<Integer, Long> lags = this.consuming
+				? this.consumer.getPartitionLags() : Collections.<Integer, Long>emptyMap();
+		long totalLag = 0;
+		for (Long lag : lags.values()) {
+			totalLag += lag;
+		}
+		boolean saturated = this.owned.equals(this.lastOwned) && this.lastTotalLag >= 0
+				&& totalLag > this.lastTotalLag;
+		this.lastReceivedCount = receivedCount;
+		this.lastReportTime = now;
+		this.lastTotalLag = totalLag;
+		this.lastOwned = new TreeSet<Integer>(this.owned);
+		return new MemberState(rate, saturated, lags);
+	}
+
+	private void reassignIfNeeded() {
+		Map<String, MemberState> states = this.coordinator.getMemberStates();
+		if (states.isEmpty()) {
+			return;
+		}
+		Map<Integer, Long> lags = new HashMap<Integer, Long>();
+		Map<String, Double> rates = new HashMap<String, Double>();
+		Set<String> saturated = new HashSet<String>();
+		for (Map.Entry<String, MemberState> entry : states.entrySet()) {
+			lags.putAll(entry.getValue().getLags());
+			rates.put(entry.getKey(), entry.getValue().getRate());
+			if (entry.getValue().isSaturated()) {
+				saturated.add(entry.getKey());
+			}
+		}
+		Map<String, Double> capacities = this.partitionAssignor.capacities(rates, saturated);
+		Map<String, List<Integer>> current = this.coordinator.readAssignment();
+		Map<String, List<Integer>> proposed = this.partitionAssignor.assign(states.keySet(), this.partitions, lags,
+				capacities);
+		if (!isComplete(current, states.keySet())
+				|| this.partitionAssignor.drainTime(current, lags, capacities) > this.rebalanceThreshold
+						* this.partitionAssignor.drainTime(proposed, lags, capacities)) {
+			if (logger.isInfoEnabled()) {
+				logger.info("Reassigning the partitions of " + this.name + ": " + proposed);
+			}
+			this.coordinator.writeAssignment(proposed);
+		}
+	}
+
+	/**
+	 * Whether an assignment is for exactly the given members and covers every partition once.
+	 */
+	private boolean isComplete(Map<String, List<Integer>> assignment, Set<String> members) {
+		if (!assignment.keySet().equals(members)) {
+			return false;
+		}
+		Set<Integer> assigned = new HashSet<Integer>();
+		for (List<Integer> partitionIds : assignment.values()) {
+			for (Integer partitionId : partitionIds) {
+				if (!assigned.add(partitionId)) {
+					return false;
+				}
+			}
+		}
+		return assigned.equals(this.partitions);
+	}
+
+	private void apply(Set<Integer> assigned) {
+		Set<Integer> gained = new TreeSet<Integer>();
+		for (Integer partitionId : assigned) {
+			// a partition can only be claimed once its previous owner has released it
+			if (!this.owned.contains(partitionId) && this.partitions.contains(partitionId)
+					&& this.coordinator.claim(partitionId)) {
+				gained.add(partitionId);
+			}
+		}
+		Set<Integer> lost = new TreeSet<Integer>(this.owned);
+		lost.removeAll(assigned);
+		if (gained.isEmpty() && lost.isEmpty()) {
+			return;
+		}
+		// the offsets of lost partitions are flushed before they are released
+		stopConsuming();
+		for (Integer partitionId : lost) {
+			this.coordinator.release(partitionId);
+		}
+		this.owned.removeAll(lost);
+		this.owned.addAll(gained);
+		if (!this.owned.isEmpty()) {
+			if (logger.isInfoEnabled()) {
+				logger.info("Consuming partitions " + this.owned + " of " + this.name);
+			}
+			this.consumer.start(Collections.unmodifiableSet(new TreeSet<Integer>(this.owned)));
+			this.consuming = true;
+		}
+	}
+
+	private void stopConsuming() {
+		if (this.consuming) {
+			this.consuming = false;
+			this.consumer.stop();
+		}
+	}
+
+	/**
+	 * Consumes the partitions assigned to a member.
+	 */
+	public interface PartitionConsumer {
+
+		/**
+		 * Start consuming the given partitions, from their stored offsets.
+		 * @param partitions the partition ids.
+		 */
+		void start(Set<Integer> partitions);
+
+		/**
+		 * Stop consuming and flush the offsets of the consumed partitions.
+		 */
+		void stop();
+
+		/**
+		 * @return the number of messages received so far.
+		 */
+		long getReceivedCount();
+
+		/**
+		 * @return the lag of each consumed partition; only called while consuming.
+		 */
+		Map<Integer, Long> getPartitionLags();
+
+	}
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.kafka;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.util.Assert;
+import org.springframework.xd.dirt.integration.bus.PartitionMetrics;
+
+/**
+ * Metrics of a Kafka producer binding. Rates and averages are read on demand from the
+ * metrics of the binding's Kafka producer; the record and byte counts before
+ * compression are maintained by the bus as messages are sent.
+ * <p>
+ * Averages for which the producer has not yet recorded a sample are reported as 0.
+ *
+ * @since 1.3.2
+ */
+@ManagedResource
+public class KafkaProducerMetrics {
+
+	private static final String PRODUCER_METRICS_GROUP = "producer-metrics";
+
+	private final String bindingName;
+
+	private final String topic;
+
+	private final Producer<?, ?> producer;
+
+	private final AtomicLong recordsSent = new AtomicLong();
+
+	private final AtomicLong uncompressedBytesSent = new AtomicLong();
+
+	private volatile PartitionMetrics partitionMetrics;
+
+	public KafkaProducerMetrics(String bindingName, String topic, Producer<?, ?> producer) {
+		Assert.hasText(bindingName, "'bindingName' is required");
+		Assert.notNull(producer, "'producer' cannot be null");
+		this.bindingName = bindingName;
+		this.topic = topic;
+		this.producer = producer;
+	}
+
+	/**
+	 * Set the metrics of the partitions selected by the bus, when the binding is partitioned by a key.
+	 * @param partitionMetrics the partition metrics.
+	 */
+	public void setPartitionMetrics(PartitionMetrics partitionMetrics) {
+		this.partitionMetrics = partitionMetrics;
+	}
+
+	/**
+	 * Record that a message has been handed to the producer.
+	 * @param uncompressedBytes the size of the record value, before compression.
+	 */
+	public void recordSent(int uncompressedBytes) {
+		this.recordsSent.incrementAndGet();
+		this.uncompressedBytesSent.addAndGet(uncompressedBytes);
+	}
+
+	@ManagedAttribute(description = "Binding name")
+	public String getBindingName() {
+		return this.bindingName;
+	}
+
+	@ManagedAttribute(description = "Kafka topic")
+	public String getTopic() {
+		return this.topic;
+	}
+
+	@ManagedAttribute(description = "Records handed to the producer")
+	public long getRecordsSent() {
+		return this.recordsSent.get();
+	}
+
+	@ManagedAttribute(description = "Record bytes handed to the producer, before compression")
+	public long getUncompressedBytesSent() {
+		return this.uncompressedBytesSent.get();
+	}
+
+	@ManagedAttribute(description = "Records sent per second")
+	public double getRecordSendRate() {
+		return metric("record-send-rate");
+	}
+
+	@ManagedAttribute(description = "Records per second that resulted in errors")
+	public double getRecordErrorRate() {
+		return metric("record-error-rate");
+	}
+
+	@ManagedAttribute(description = "Bytes sent to the brokers per second, after compression")
+	public double getOutgoingByteRate() {
+		return metric("outgoing-byte-rate");
+	}
+
+	@ManagedAttribute(description = "Average ratio of compressed to uncompressed batch size")
+	public double getCompressionRateAvg() {
+		return metric("compression-rate-avg");
+	}
+
+	@ManagedAttribute(description = "Average batch size in bytes")
+	public double getBatchSizeAvg() {
+		return metric("batch-size-avg");
+	}
+
+	@ManagedAttribute(description = "Average record size in bytes")
+	public double getRecordSizeAvg() {
+		return metric("record-size-avg");
+	}
+
+	@ManagedAttribute(description = "Average time in ms a record spends in the send buffer")
+	public double getRecordQueueTimeAvg() {
+		return metric("record-queue-time-avg");
+	}
+
+	@ManagedAttribute(description = "Average request latency in ms")
+	public double getRequestLatencyAvg() {
+		return metric("request-latency-avg");
+	}
+
+	@ManagedAttribute(description = "Messages sent to each partition, when partitioned by a key")
+	public long[] getPartitionSendCounts() {
+		PartitionMetrics partitionMetrics = this.partitionMetrics;
+		return partitionMetrics == null ? new long[0] : partitionMetrics.getPartitionSendCounts();
+	}
+
+	@ManagedAttribute(description = "Messages sent to the busiest partition divided by the mean per partition, "
+			+ "when partitioned by a key")
+	public double getPartitionSkew() {
+		PartitionMetrics partitionMetrics = this.partitionMetrics;
+		return partitionMetrics == null ? 0 : partitionMetrics.getPartitionSkew();
+	}
+
+	private double metric(String name) {
+		for (Map.Entry<MetricName, ? extends Metric> entry : this.producer.metrics().entrySet()) {
+			MetricName metricName = entry.getKey();
+			if (name.equals(metricName.name()) && PRODUCER_METRICS_GROUP.equals(metricName.group())) {
+				double value = entry.getValue().value();
+				return Double.isNaN(value) || Double.isInfinite(value) ? 0 : value;
+			}
+		}
+		return 0;
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.kafka;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.util.Assert;
+
+/**
+ * Assigns the partitions of a topic to the members of a consumer group, so that the
+ * estimated time for each member to drain its backlog is as even as possible.
+ * <p>
+ * The load of a partition is its lag plus one, so that partitions without a backlog are
+ * still spread across members. The capacity of a member is its observed throughput when
+ * it is saturated (its lag is growing); members that keep up are assumed to be as fast as
+ * the fastest saturated member. When no member is saturated, all members are considered
+ * equal.
+ *
+ * @since 1.3.2
+ */
+public class LagAwarePartitionAssignor {
+
+	/**
+	 * Compute an assignment of the given partitions.
+	 * @param members the member ids.
+	 * @param partitions the partition ids.
+	 * @param lags the last known lag, by partition id; partitions without one count as no lag.
+	 * @param capacities the relative capacity of each member, as returned by {@link #capacities}.
+	 * @return the partition ids assigned to each member, sorted.
+	 */
+	public Map<String, List<Integer>> assign(Collection<String> members, Collection<Integer> partitions,
+			final Map<Integer, Long> lags, Map<String, Double> capacities) {
+		Assert.notEmpty(members, "'members' cannot be empty");
+		List<Integer> byLoad = new ArrayList<Integer>(partitions);
+		Collections.sort(byLoad, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer p1, Integer p2) {
+				int result = Long.compare(load(p2, lags), load(p1, lags));
+				return result != 0 ? result : p1.compareTo(p2);
+			}
+
+		});
+		Map<String, List<Integer>> assignment = new TreeMap<String, List<Integer>>();
+		Map<String, Long> assignedLoad = new TreeMap<String, Long>();
+		for (String member : members) {
+			assignment.put(member, new ArrayList<Integer>());
+			assignedLoad.put(member, 0L);
+		}
+		for (Integer partition : byLoad) {
+			long load = load(partition, lags);
+			String best = null;
+			double bestCost = Double.MAX_VALUE;
+			for (String member : assignment.keySet()) {
+				double cost = (assignedLoad.get(member) + load) / capacities.get(member);
+				if (best == null || cost < bestCost
+						|| (cost == bestCost && assignment.get(member).size() < assignment.get(best).size())) {
+					best = member;
+					bestCost = cost;
+				}
+			}
+			assignment.get(best).add(partition);
+			assignedLoad.put(best, assignedLoad.get(best) + load);
+		}
+		for (List<Integer> assigned : assignment.values()) {
+			Collections.sort(assigned);
+		}
+		return assignment;
+	}
+
+	/**
+	 * Estimate the relative capacity of each member.
+	 * @param rates the observed throughput of each member, in messages per second.
+	 * @param saturated the members whose lag is growing, i.e. whose throughput is their capacity.
+	 * @return the capacity of each member; always positive.
+	 */
+	public Map<String, Double> capacities(Map<String, Double> rates, Collection<String> saturated) {
+		double fastestSaturated = 0;
+		for (String member : saturated) {
+			Double rate = rates.get(member);
+			if (rate != null) {
+				fastestSaturated = Math.max(fastestSaturated, rate);
+			}
+		}
+		Map<String, Double> capacities = new TreeMap<String, Double>();
+		for (Map.Entry<String, Double> entry : rates.entrySet()) {
+			double capacity = 1;
+			if (fastestSaturated > 0) {
+				capacity = saturated.contains(entry.getKey()) ? entry.getValue() : fastestSaturated;
+				// never let a stalled member's capacity reach zero
+				capacity = Math.max(capacity, fastestSaturated / 100);
+			}
+			capacities.put(entry.getKey(), capacity);
+		}
+		return capacities;
+	}
+
+	/**
+	 * Return the estimated time for the slowest member to drain its partitions under the
+	 * given assignment, in arbitrary units. Partitions assigned to unknown members are ignored.
+	 * @param assignment the partition ids assigned to each member.
+	 * @param lags the last known lag, by partition id.
+	 * @param capacities the relative capacity of each member.
+	 * @return the drain time of the slowest member.
+	 */
+	public double drainTime(Map<String, List<Integer>> assignment, Map<Integer, Long> lags,
+			Map<String, Double> capacities) {
+		double max = 0;
+		for (Map.Entry<String, List<Integer>> entry : assignment.entrySet()) {
+			Double capacity = capacities.get(entry.getKey());
+			if (capacity != null) {
+				long load = 0;
+				for (Integer partition : entry.getValue()) {
+					load += load(partition, lags);
+				}
+				max = Math.max(max, load / capacity);
+			}
+		}
+		return max;
+	}
+
+	private static long load(Integer partition, Map<Integer, Long> lags) {
+		Long lag = lags.get(partition);
+		return (lag == null ? 0 : lag) + 1;
+	}
+
+}
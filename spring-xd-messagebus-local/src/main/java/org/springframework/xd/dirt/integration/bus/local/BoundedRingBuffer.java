@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus.local;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.util.Assert;
+
+/**
+ * A bounded, lock-free, multi-producer multi-consumer queue backed by an array whose
+ * size is a power of two.
+ * <p>
+ * Each slot carries a sequence number that tells producers and consumers whether the
+ * slot is free for the current lap of the ring; producers and consumers claim a position
+ * with a compare-and-set on the tail or head counter, then publish the slot by advancing
+ * its sequence. Neither {@link #offer} nor {@link #poll} ever blocks.
+ *
+ * @since 1.3.2
+ */
+public class BoundedRingBuffer<E> {
+
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	private final Object[] elements;
+
+	private final AtomicLongArray sequences;
+
+	private final int mask;
+
+	private final AtomicLong head = new AtomicLong();
+
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * @param capacity the minimum capacity, rounded up to the next power of two, and to at least 2.
+	 */
+	public BoundedRingBuffer(int capacity) {
+		Assert.isTrue(capacity > 0 && capacity <= MAX_CAPACITY, "'capacity' must be between 1 and " + MAX_CAPACITY);
+		// a slot's sequence must differ between laps, which takes at least two slots
+		int size = Math.max(2, Integer.highestOneBit(capacity));
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.elements = new Object[size];
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			this.sequences.set(i, i);
+		}
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Insert an element at the tail of the buffer, if there is room.
+	 * @param element the element.
+	 * @return false if the buffer is full.
+	 */
+	public boolean offer(E element) {
+		Assert.notNull(element, "'element' cannot be null");
+		long position = this.tail.get();
+		while (true) {
+			int index = (int) position & this.mask;
+			long available = this.sequences.get(index) - position;
+			if (available == 0) {
+				if (this.tail.compareAndSet(position, position + 1)) {
+					this.elements[index] = element;
+					this.sequences.lazySet(index, position + 1);
+					return true;
+				}
+			}
+			else if (available < 0) {
+				// the slot still holds the element from the previous lap
+				return false;
+			}
+			position = this.tail.get();
+		}
+	}
+
+	/**
+	 * Remove the element at the head of the buffer.
+	 * @return the element, or null if the buffer is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public E poll() {
+		long position = this.head.get();
+		while (true) {
+			int index = (int) position & this.mask;
+			long available = this.sequences.get(index) - (position + 1);
+			if (available == 0) {
+				if (this.head.compareAndSet(position, position + 1)) {
+					E element = (E) this.elements[index];
+					this.elements[index] = null;
+					this.sequences.lazySet(index, position + this.mask + 1);
+					return element;
+				}
+			}
+			else if (available < 0) {
+				// the slot has not been published yet
+				return null;
+			}
+			position = this.head.get();
+		}
+	}
+
+	/**
+	 * @return the number of elements in the buffer; only an estimate while the buffer is
+	 * being modified concurrently.
+	 */
+	public int size() {
+		long head = this.head.get();
+		long size = this.tail.get() - head;
+		return (int) Math.max(0, Math.min(size, capacity()));
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public int capacity() {
+		return this.mask + 1;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2015 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -14,12 +14,13 @@
 package org.springframework.xd.dirt.integration.bus.local;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.channel.ExecutorChannel;
 import org.springframework.integration.channel.PublishSubscribeChannel;
@@ -47,6 +48,9 @@ import org.springframework.xd.dirt.integration.bus.MessageBusSupport;
  * {@link DirectChannel} or a {@link QueueChannel} depending on whether the binding is aliased or not then bridges the
  * passed {@link MessageChannel} to the channel which is registered in the given application context. If that channel
  * does not yet exist, it will be created.
+ * <p>
+ * In bounded mode, named and publish-subscribe channels are {@link RingBufferChannel}s of a fixed capacity instead,
+ * all drained by a single shared pool of dispatcher threads.
  *
  * @author David Turanski
  * @author Mark Fisher
@@ -55,7 +59,7 @@ import org.springframework.xd.dirt.integration.bus.MessageBusSupport;
  * @author Ilayaperumal Gopinathan
  * @since 1.0
  */
-public class LocalMessageBus extends MessageBusSupport {
+public class LocalMessageBus extends MessageBusSupport implements DisposableBean {
 
 	private static final int DEFAULT_EXECUTOR_CORE_POOL_SIZE = 0;
 
@@ -67,6 +71,8 @@ public class LocalMessageBus extends MessageBusSupport {
 
 	private static final int DEFAULT_REQ_REPLY_CONCURRENCY = 1;
 
+	private static final int DEFAULT_BOUNDED_QUEUE_CAPACITY = 8192;
+
 	protected static final Set<Object> CONSUMER_REQUEST_REPLY_PROPERTIES = new SetBuilder()
 			.addAll(CONSUMER_STANDARD_PROPERTIES)
 			.add(BusProperties.CONCURRENCY)
@@ -74,7 +80,7 @@ public class LocalMessageBus extends MessageBusSupport {
 
 	private volatile PollerMetadata poller;
 
-	private final Map<String, ExecutorChannel> requestReplyChannels = new HashMap<String, ExecutorChannel>();
+	private final Map<String, ExecutorChannel> requestReplyChannels = new ConcurrentHashMap<>();
 
 	private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
 
@@ -90,6 +96,18 @@ public class LocalMessageBus extends MessageBusSupport {
 
 	private final Map<String, ThreadPoolTaskExecutor> reqRepExecutors = new ConcurrentHashMap<>();
 
+	private volatile boolean bounded;
+
+	private volatile int boundedQueueCapacity = DEFAULT_BOUNDED_QUEUE_CAPACITY;
+
+	private volatile RingBufferChannel.FullQueuePolicy fullQueuePolicy = RingBufferChannel.FullQueuePolicy.BLOCK;
+
+	private volatile int dispatcherPoolSize = Runtime.getRuntime().availableProcessors();
+
+	private final ThreadPoolTaskExecutor dispatcher = new ThreadPoolTaskExecutor();
+
+	private final Map<String, RingBufferChannel> boundedChannels = new ConcurrentHashMap<>();
+
 	/**
 	 * Used to create and customize {@link QueueChannel}s when the binding operation involves aliased names.
 	 */
@@ -114,6 +132,30 @@ public class LocalMessageBus extends MessageBusSupport {
 		}
 	};
 
+	/**
+	 * Used instead of the queue channel provider in bounded mode.
+	 */
+	private final SharedChannelProvider<RingBufferChannel> boundedQueueChannelProvider =
+			new SharedChannelProvider<RingBufferChannel>(RingBufferChannel.class) {
+
+		@Override
+		protected RingBufferChannel createSharedChannel(String name) {
+			return createBoundedChannel(name, false);
+		}
+	};
+
+	/**
+	 * Used instead of the pub/sub channel provider in bounded mode.
+	 */
+	private final SharedChannelProvider<RingBufferChannel> boundedPubsubChannelProvider =
+			new SharedChannelProvider<RingBufferChannel>(RingBufferChannel.class) {
+
+		@Override
+		protected RingBufferChannel createSharedChannel(String name) {
+			return createBoundedChannel(name, true);
+		}
+	};
+
 	/**
 	 * Set the poller to use when QueueChannels are used.
 	 */
@@ -167,6 +209,57 @@ public class LocalMessageBus extends MessageBusSupport {
 		this.executorKeepAliveSeconds = executorKeepAliveSeconds;
 	}
 
+	/**
+	 * Set whether named and pub/sub channels are bounded {@link RingBufferChannel}s, drained
+	 * by a shared pool of dispatcher threads, rather than unbounded queues.
+	 * Default: false.
+	 * @param bounded true to bound the channels.
+	 */
+	public void setBounded(boolean bounded) {
+		this.bounded = bounded;
+	}
+
+	/**
+	 * Set the capacity of each bounded channel; rounded up to the next power of two.
+	 * Default: 8192.
+	 * @param boundedQueueCapacity the capacity.
+	 */
+	public void setBoundedQueueCapacity(int boundedQueueCapacity) {
+		Assert.isTrue(boundedQueueCapacity > 0, "'boundedQueueCapacity' must be greater than 0");
+		this.boundedQueueCapacity = boundedQueueCapacity;
+	}
+
+	/**
+	 * Set what happens to a message sent to a full bounded channel.
+	 * Default: {@link RingBufferChannel.FullQueuePolicy#BLOCK}.
+	 * @param fullQueuePolicy the policy.
+	 */
+	public void setFullQueuePolicy(RingBufferChannel.FullQueuePolicy fullQueuePolicy) {
+		Assert.notNull(fullQueuePolicy, "'fullQueuePolicy' cannot be null");
+		this.fullQueuePolicy = fullQueuePolicy;
+	}
+
+	/**
+	 * Set the number of threads delivering the messages of all bounded channels.
+	 * Default: the number of available processors.
+	 * @param dispatcherPoolSize the pool size.
+	 */
+	public void setDispatcherPoolSize(int dispatcherPoolSize) {
+		Assert.isTrue(dispatcherPoolSize > 0, "'dispatcherPoolSize' must be greater than 0");
+		this.dispatcherPoolSize = dispatcherPoolSize;
+	}
+
+	/**
+	 * @return the number of messages waiting in each bounded channel, by channel name.
+	 */
+	public Map<String, Integer> getQueueDepths() {
+		Map<String, Integer> depths = new TreeMap<String, Integer>();
+		for (Map.Entry<String, RingBufferChannel> entry : this.boundedChannels.entrySet()) {
+			depths.put(entry.getKey(), entry.getValue().getQueueSize());
+		}
+		return depths;
+	}
+
 	@Override
 	protected void onInit() {
 		this.executor.setCorePoolSize(this.executorCorePoolSize);
@@ -175,6 +268,54 @@ public class LocalMessageBus extends MessageBusSupport {
 		this.executor.setKeepAliveSeconds(this.executorKeepAliveSeconds);
 		this.executor.setThreadNamePrefix("xd.localbus-");
 		this.executor.initialize();
+		if (this.bounded) {
+			// a channel has at most one drain task queued at a time
+			this.dispatcher.setCorePoolSize(this.dispatcherPoolSize);
+			this.dispatcher.setMaxPoolSize(this.dispatcherPoolSize);
+			this.dispatcher.setThreadNamePrefix("xd.localbus.dispatcher-");
+			this.dispatcher.initialize();
+		}
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		destroyBindingMetrics();
+		if (this.bounded) {
+			this.dispatcher.shutdown();
+		}
+	}
+
+	private RingBufferChannel createBoundedChannel(String name, boolean pubSub) {
+		RingBufferChannel channel = new RingBufferChannel(this.boundedQueueCapacity, this.dispatcher, pubSub,
+				this.fullQueuePolicy);
+		this.boundedChannels.put(name, channel);
+		// the queue depth is registered as xd.messagebus:type=local,binding=<name>,direction=consumer
+		registerBindingMetrics(name, "consumer", new LocalQueueMetrics(name, channel));
+		return channel;
+	}
+
+	/**
+	 * Remove the bounded channel of the given name, with its metrics, once nothing is bound
+	 * to it any more. A named channel that still holds messages is kept, so that they are
+	 * delivered to the next consumer, as with an unbounded queue.
+	 * @param name the channel name.
+	 */
+	private void releaseBoundedChannelIfUnused(String name) {
+		RingBufferChannel channel = this.boundedChannels.get(name);
+		if (channel == null) {
+			return;
+		}
+		// lookups of shared channels are synchronized on their provider
+		synchronized (channel.isPubSub() ? this.boundedPubsubChannelProvider : this.boundedQueueChannelProvider) {
+			if (isBound(name) || channel.getQueueSize() > 0 || !this.boundedChannels.remove(name, channel)) {
+				return;
+			}
+			unregisterBindingMetrics(name, "consumer");
+			destroyCreatedChannel(name, channel);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Removed bounded channel " + name);
+		}
 	}
 
 	/**
@@ -202,11 +343,15 @@ public class LocalMessageBus extends MessageBusSupport {
 		// Use queue channel provider in case of named channels:
 		// point-to-point type syntax (queue:) and job input channel syntax (job:)
 		if (name.startsWith(P2P_NAMED_CHANNEL_TYPE_PREFIX) || name.startsWith(JOB_CHANNEL_TYPE_PREFIX)) {
-			channelProvider = queueChannelProvider;
+			channelProvider = this.bounded ? this.boundedQueueChannelProvider : this.queueChannelProvider;
 		}
 		return channelProvider;
 	}
 
+	private SharedChannelProvider<?> getPubSubChannelProvider() {
+		return this.bounded ? this.boundedPubsubChannelProvider : this.pubsubChannelProvider;
+	}
+
 	/**
 	 * Looks up or creates a DirectChannel with the given name and creates a bridge from that channel to the provided
 	 * channel instance.
@@ -220,7 +365,7 @@ public class LocalMessageBus extends MessageBusSupport {
 	@Override
 	public void bindPubSubConsumer(String name, MessageChannel moduleInputChannel, Properties properties) {
 		validateConsumerProperties(name, properties, CONSUMER_STANDARD_PROPERTIES);
-		doRegisterConsumer(name, moduleInputChannel, this.pubsubChannelProvider, properties);
+		doRegisterConsumer(name, moduleInputChannel, getPubSubChannelProvider(), properties);
 	}
 
 	private void doRegisterConsumer(String name, MessageChannel moduleInputChannel,
@@ -247,7 +392,7 @@ public class LocalMessageBus extends MessageBusSupport {
 	public void bindPubSubProducer(String name, MessageChannel moduleOutputChannel,
 			Properties properties) {
 		validateConsumerProperties(name, properties, PRODUCER_STANDARD_PROPERTIES);
-		doRegisterProducer(name, moduleOutputChannel, this.pubsubChannelProvider, properties);
+		doRegisterProducer(name, moduleOutputChannel, getPubSubChannelProvider(), properties);
 	}
 
 	private void doRegisterProducer(String name, MessageChannel moduleOutputChannel,
@@ -332,12 +477,31 @@ public class LocalMessageBus extends MessageBusSupport {
 		return executor;
 	}
 
+	@Override
+	public void unbindConsumers(String name) {
+		super.unbindConsumers(name);
+		releaseBoundedChannelIfUnused(name);
+	}
+
+	@Override
+	public void unbindProducers(String name) {
+		super.unbindProducers(name);
+		releaseBoundedChannelIfUnused(name);
+	}
+
+	@Override
+	public void unbindConsumer(String name, MessageChannel channel) {
+		super.unbindConsumer(name, channel);
+		releaseBoundedChannelIfUnused(name);
+	}
+
 	@Override
 	public void unbindProducer(String name, MessageChannel channel) {
 		this.requestReplyChannels.remove("replier." + name);
 		MessageChannel requestChannel = this.requestReplyChannels.remove("requestor." + name);
 		if (requestChannel == null) {
 			super.unbindProducer(name, channel);
+			releaseBoundedChannelIfUnused(name);
 		}
 		ThreadPoolTaskExecutor executor = this.reqRepExecutors.remove(name);
 		if (executor != null) {
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus.local;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.util.Assert;
+
+/**
+ * Queue depth gauges of a bounded local bus binding, read from its {@link RingBufferChannel}.
+ *
+ * @since 1.3.2
+ */
+@ManagedResource
+public class LocalQueueMetrics {
+
+	private final String bindingName;
+
+	private final RingBufferChannel channel;
+
+	public LocalQueueMetrics(String bindingName, RingBufferChannel channel) {
+		Assert.hasText(bindingName, "'bindingName' is required");
+		Assert.notNull(channel, "'channel' cannot be null");
+		this.bindingName = bindingName;
+		this.channel = channel;
+	}
+
+	@ManagedAttribute(description = "Binding name")
+	public String getBindingName() {
+		return this.bindingName;
+	}
+
+	@ManagedAttribute(description = "Messages waiting to be delivered")
+	public int getQueueSize() {
+		return this.channel.getQueueSize();
+	}
+
+	@ManagedAttribute(description = "Queue capacity")
+	public int getCapacity() {
+		return this.channel.getCapacity();
+	}
+
+	@ManagedAttribute(description = "Messages that can be queued before the full queue policy applies")
+	public int getRemainingCapacity() {
+		return this.channel.getRemainingCapacity();
+	}
+
+	@ManagedAttribute(description = "Full queue policy")
+	public String getFullQueuePolicy() {
+		return this.channel.getFullQueuePolicy().name();
+	}
+
+	@ManagedAttribute(description = "Messages discarded to make room for newer ones")
+	public long getDroppedCount() {
+		return this.channel.getDroppedCount();
+	}
+
+	@ManagedAttribute(description = "Messages delivered on the sending thread because the queue was full")
+	public long getCallerRunsCount() {
+		return this.channel.getCallerRunsCount();
+	}
+
+	@ManagedAttribute(description = "Sends that waited for room in the queue")
+	public long getBlockedSendCount() {
+		return this.channel.getBlockedSendCount();
+	}
+
+}
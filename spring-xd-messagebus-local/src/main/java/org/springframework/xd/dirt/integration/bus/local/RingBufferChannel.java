@@ -0,0 +1,314 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus.local;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.integration.channel.AbstractSubscribableChannel;
+import org.springframework.integration.channel.MessagePublishingErrorHandler;
+import org.springframework.integration.dispatcher.AbstractDispatcher;
+import org.springframework.integration.dispatcher.BroadcastingDispatcher;
+import org.springframework.integration.dispatcher.UnicastingDispatcher;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.util.Assert;
+
+/**
+ * A bounded {@link org.springframework.messaging.SubscribableChannel} that buffers sent
+ * messages in a {@link BoundedRingBuffer} and hands them to its subscribers from a shared
+ * {@link Executor}.
+ * <p>
+ * At most one task per channel drains the buffer at any time, so messages are delivered
+ * in the order they were sent; a task hands back its thread after a batch of messages so
+ * that channels sharing the executor are served fairly. A point-to-point channel keeps
+ * its messages until it has a subscriber, and load-balances them across subscribers; a
+ * publish-subscribe channel delivers each message to all current subscribers, dropping
+ * it if there are none.
+ * <p>
+ * When the buffer is full, the {@link FullQueuePolicy} decides what happens to a sent
+ * message.
+ *
+ * @since 1.3.2
+ */
+public class RingBufferChannel extends AbstractSubscribableChannel {
+
+	private static final int DRAIN_BATCH_SIZE = 256;
+
+	private static final long BLOCKED_SEND_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/**
+	 * Whether the current thread is delivering messages for a ring buffer channel.
+	 */
+	private static final ThreadLocal<Boolean> DRAINING_THREAD = new ThreadLocal<Boolean>();
+
+	private final BoundedRingBuffer<Message<?>> buffer;
+
+	private final Executor executor;
+
+	private final boolean pubSub;
+
+	private final FullQueuePolicy fullQueuePolicy;
+
+	private final AbstractDispatcher dispatcher;
+
+	private final MessagePublishingErrorHandler errorHandler = new MessagePublishingErrorHandler();
+
+	private final AtomicBoolean draining = new AtomicBoolean();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	private final AtomicLong callerRunsCount = new AtomicLong();
+
+	private final AtomicLong blockedSendCount = new AtomicLong();
+
+	private final Runnable drainTask = new Runnable() {
+
+		@Override
+		public void run() {
+			try {
+				drainBatch();
+			}
+			finally {
+				draining.set(false);
+			}
+			// messages may have arrived after the last poll
+			scheduleDrain();
+		}
+
+	};
+
+	/**
+	 * @param capacity the capacity of the buffer, rounded up to the next power of two.
+	 * @param executor the executor that delivers messages to subscribers.
+	 * @param pubSub true to deliver each message to all subscribers.
+	 * @param fullQueuePolicy what to do with messages sent while the buffer is full.
+	 */
+	public RingBufferChannel(int capacity, Executor executor, boolean pubSub, FullQueuePolicy fullQueuePolicy) {
+		Assert.notNull(executor, "'executor' cannot be null");
+		Assert.notNull(fullQueuePolicy, "'fullQueuePolicy' cannot be null");
+		this.buffer = new BoundedRingBuffer<Message<?>>(capacity);
+		this.executor = executor;
+		this.pubSub = pubSub;
+		this.fullQueuePolicy = fullQueuePolicy;
+		if (pubSub) {
+			BroadcastingDispatcher broadcastingDispatcher = new BroadcastingDispatcher();
+			broadcastingDispatcher.setIgnoreFailures(true);
+			this.dispatcher = broadcastingDispatcher;
+		}
+		else {
+			this.dispatcher = new UnicastingDispatcher();
+		}
+	}
+
+	@Override
+	protected AbstractDispatcher getDispatcher() {
+		return this.dispatcher;
+	}
+
+	@Override
+	protected void onInit() throws Exception {
+		super.onInit();
+		if (getBeanFactory() != null) {
+			if (this.dispatcher instanceof BroadcastingDispatcher) {
+				((BroadcastingDispatcher) this.dispatcher).setBeanFactory(getBeanFactory());
+			}
+			this.errorHandler.setBeanFactory(getBeanFactory());
+		}
+	}
+
+	@Override
+	public boolean subscribe(MessageHandler handler) {
+		boolean added = super.subscribe(handler);
+		// deliver the messages buffered while there was no subscriber
+		scheduleDrain();
+		return added;
+	}
+
+	@Override
+	protected boolean doSend(Message<?> message, long timeout) {
+		if (this.buffer.offer(message)) {
+			scheduleDrain();
+			return true;
+		}
+		switch (this.fullQueuePolicy) {
+		case DROP_OLDEST:
+			do {
+				if (this.buffer.poll() != null) {
+					this.droppedCount.incrementAndGet();
+				}
+			}
+			while (!this.buffer.offer(message));
+			scheduleDrain();
+			return true;
+		case CALLER_RUNS:
+			this.callerRunsCount.incrementAndGet();
+			return this.dispatcher.dispatch(message);
+		default:
+			return blockUntilBuffered(message, timeout);
+		}
+	}
+
+	private boolean blockUntilBuffered(Message<?> message, long timeout) {
+		this.blockedSendCount.incrementAndGet();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		while (!this.buffer.offer(message)) {
+			if (timeout >= 0 && System.nanoTime() - deadline >= 0) {
+				return false;
+			}
+			// a delivery thread helps rather than waits, so that a chain of full channels
+			// cannot tie up every thread of the shared executor
+			if (!(Boolean.TRUE.equals(DRAINING_THREAD.get()) && drainInline())) {
+				LockSupport.parkNanos(BLOCKED_SEND_PARK_NANOS);
+			}
+			if (Thread.interrupted()) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		scheduleDrain();
+		return true;
+	}
+
+	private boolean drainInline() {
+		if (canDeliver() && this.draining.compareAndSet(false, true)) {
+			try {
+				drainBatch();
+			}
+			finally {
+				this.draining.set(false);
+			}
+			scheduleDrain();
+			return true;
+		}
+		return false;
+	}
+
+	private void scheduleDrain() {
+		if (!this.buffer.isEmpty() && canDeliver() && this.draining.compareAndSet(false, true)) {
+			try {
+				this.executor.execute(this.drainTask);
+			}
+			catch (RejectedExecutionException e) {
+				this.draining.set(false);
+				throw e;
+			}
+		}
+	}
+
+	private boolean canDeliver() {
+		return this.pubSub || this.dispatcher.getHandlerCount() > 0;
+	}
+
+	private void drainBatch() {
+		Boolean wasDraining = DRAINING_THREAD.get();
+		DRAINING_THREAD.set(Boolean.TRUE);
+		try {
+			for (int i = 0; i < DRAIN_BATCH_SIZE && canDeliver(); i++) {
+				Message<?> message = this.buffer.poll();
+				if (message == null) {
+					break;
+				}
+				try {
+					this.dispatcher.dispatch(message);
+				}
+				catch (Throwable t) {
+					this.errorHandler.handleError(t);
+				}
+			}
+		}
+		finally {
+			if (wasDraining == null) {
+				DRAINING_THREAD.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of messages waiting to be delivered.
+	 */
+	public int getQueueSize() {
+		return this.buffer.size();
+	}
+
+	public int getCapacity() {
+		return this.buffer.capacity();
+	}
+
+	public int getRemainingCapacity() {
+		return getCapacity() - getQueueSize();
+	}
+
+	/**
+	 * @return true if each message is delivered to all subscribers.
+	 */
+	public boolean isPubSub() {
+		return this.pubSub;
+	}
+
+	public FullQueuePolicy getFullQueuePolicy() {
+		return this.fullQueuePolicy;
+	}
+
+	/**
+	 * @return the number of messages discarded by the {@link FullQueuePolicy#DROP_OLDEST} policy.
+	 */
+	public long getDroppedCount() {
+		return this.droppedCount.get();
+	}
+
+	/**
+	 * @return the number of messages delivered on the sending thread by the
+	 * {@link FullQueuePolicy#CALLER_RUNS} policy.
+	 */
+	public long getCallerRunsCount() {
+		return this.callerRunsCount.get();
+	}
+
+	/**
+	 * @return the number of sends that had to wait under the {@link FullQueuePolicy#BLOCK} policy.
+	 */
+	public long getBlockedSendCount() {
+		return this.blockedSendCount.get();
+	}
+
+	/**
+	 * What to do with a message sent to a full channel.
+	 */
+	public enum FullQueuePolicy {
+
+		/**
+		 * Wait until there is room in the buffer, or the send times out.
+		 */
+		BLOCK,
+
+		/**
+		 * Discard the oldest buffered message to make room.
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * Deliver the message on the sending thread, ahead of the buffered messages.
+		 */
+		CALLER_RUNS
+	}
+
+}
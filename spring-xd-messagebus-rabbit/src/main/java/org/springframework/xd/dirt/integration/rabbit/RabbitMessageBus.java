@@ -747,7 +747,7 @@ public class RabbitMessageBus extends MessageBusSupport implements DisposableBea
 	private void doRegisterProducer(final String name, MessageChannel moduleOutputChannel,
 			AmqpOutboundEndpoint delegate, String replyTo, RabbitPropertiesAccessor properties) {
 		Assert.isInstanceOf(SubscribableChannel.class, moduleOutputChannel);
-		MessageHandler handler = new SendingHandler(delegate, replyTo, properties);
+		MessageHandler handler = new SendingHandler(name, delegate, replyTo, properties);
 		EventDrivenConsumer consumer = new EventDrivenConsumer((SubscribableChannel) moduleOutputChannel, handler);
 		consumer.setBeanFactory(getBeanFactory());
 		consumer.setBeanName("outbound." + name);
@@ -894,6 +894,7 @@ public class RabbitMessageBus extends MessageBusSupport implements DisposableBea
 	@Override
 	public void destroy() {
 		stopBindings();
+		destroyBindingMetrics();
 	}
 
 	@Override
@@ -920,13 +921,17 @@ public class RabbitMessageBus extends MessageBusSupport implements DisposableBea
 
 	private class SendingHandler extends AbstractMessageHandler implements Lifecycle {
 
+		private final String name;
+
 		private final MessageHandler delegate;
 
 		private final String replyTo;
 
 		private final PartitioningMetadata partitioningMetadata;
 
-		private SendingHandler(MessageHandler delegate, String replyTo, RabbitPropertiesAccessor properties) {
+		private SendingHandler(String name, MessageHandler delegate, String replyTo,
+				RabbitPropertiesAccessor properties) {
+			this.name = name;
 			this.delegate = delegate;
 			this.replyTo = replyTo;
 			this.partitioningMetadata = new PartitioningMetadata(properties, properties.getNextModuleCount());
@@ -952,10 +957,16 @@ public class RabbitMessageBus extends MessageBusSupport implements DisposableBea
 			if (this.delegate instanceof Lifecycle) {
 				((Lifecycle) this.delegate).start();
 			}
+			if (this.partitioningMetadata.isPartitionedModule()) {
+				registerBindingMetrics(this.name, "producer", this.partitioningMetadata.getPartitionMetrics());
+			}
 		}
 
 		@Override
 		public void stop() {
+			if (this.partitioningMetadata.isPartitionedModule()) {
+				unregisterBindingMetrics(this.name, "producer");
+			}
 			if (this.delegate instanceof Lifecycle) {
 				((Lifecycle) this.delegate).stop();
 			}
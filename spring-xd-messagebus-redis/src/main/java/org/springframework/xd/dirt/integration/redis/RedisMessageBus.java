@@ -1,5 +1,5 @@
 /*
- * Copyright 2014-2015 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,11 +23,14 @@ import java.util.Properties;
 import java.util.Set;
 
 import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.Lifecycle;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.expression.Expression;
+import org.springframework.expression.common.LiteralExpression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.codec.Codec;
+import org.springframework.integration.context.IntegrationContextUtils;
 import org.springframework.integration.endpoint.EventDrivenConsumer;
 import org.springframework.integration.endpoint.MessageProducerSupport;
 import org.springframework.integration.handler.AbstractMessageHandler;
@@ -45,6 +48,7 @@ import org.springframework.retry.RecoveryCallback;
 import org.springframework.retry.RetryCallback;
 import org.springframework.retry.RetryContext;
 import org.springframework.retry.support.RetryTemplate;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import org.springframework.xd.dirt.integration.bus.AbstractBusPropertiesAccessor;
@@ -112,16 +116,20 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 	private static final Set<Object> SUPPORTED_PUBSUB_PRODUCER_PROPERTIES = PRODUCER_STANDARD_PROPERTIES;
 
 	/**
-	 * None.
+	 * Batching.
 	 */
-	private static final Set<Object> SUPPORTED_NAMED_PRODUCER_PROPERTIES = PRODUCER_STANDARD_PROPERTIES;
+	private static final Set<Object> SUPPORTED_NAMED_PRODUCER_PROPERTIES = new SetBuilder()
+			.addAll(PRODUCER_STANDARD_PROPERTIES)
+			.addAll(PRODUCER_BATCHING_BASIC_PROPERTIES)
+			.build();
 
 	/**
-	 * Partitioning.
+	 * Partitioning + batching.
 	 */
 	private static final Set<Object> SUPPORTED_PRODUCER_PROPERTIES = new SetBuilder()
 			.addAll(PRODUCER_PARTITIONING_PROPERTIES)
 			.addAll(PRODUCER_STANDARD_PROPERTIES)
+			.addAll(PRODUCER_BATCHING_BASIC_PROPERTIES)
 			.add(BusProperties.DIRECT_BINDING_ALLOWED)
 			.build();
 
@@ -136,11 +144,10 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 
 	private final RedisConnectionFactory connectionFactory;
 
-	private final EmbeddedHeadersMessageConverter embeddedHeadersMessageConverter = new
-			EmbeddedHeadersMessageConverter();
-
 	private final RedisQueueOutboundChannelAdapter errorAdapter;
 
+	private volatile int consumerBatchSize = 1;
+
 	public RedisMessageBus(RedisConnectionFactory connectionFactory, Codec codec) {
 		this(connectionFactory, codec, new String[0]);
 	}
@@ -166,6 +173,16 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 		}
 	}
 
+	/**
+	 * Set the maximum number of messages a consumer pops from a queue in one round trip.
+	 * Default 1 (one {@code BRPOP} per message).
+	 * @param consumerBatchSize the batch size.
+	 */
+	public void setConsumerBatchSize(int consumerBatchSize) {
+		Assert.isTrue(consumerBatchSize > 0, "'consumerBatchSize' must be greater than 0");
+		this.consumerBatchSize = consumerBatchSize;
+	}
+
 	@Override
 	protected void onInit() {
 		this.errorAdapter.setIntegrationEvaluationContext(this.evaluationContext);
@@ -196,11 +213,7 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 		int concurrency = accessor.getConcurrency(this.defaultConcurrency);
 		concurrency = concurrency > 0 ? concurrency : 1;
 		if (concurrency == 1) {
-			RedisQueueMessageDrivenEndpoint single = new RedisQueueMessageDrivenEndpoint(queueName,
-					this.connectionFactory);
-			single.setBeanFactory(getBeanFactory());
-			single.setSerializer(null);
-			adapter = single;
+			adapter = createQueueConsumer(queueName);
 		}
 		else {
 			adapter = new CompositeRedisQueueMessageDrivenEndpoint(queueName, concurrency);
@@ -208,6 +221,20 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 		return adapter;
 	}
 
+	private MessageProducerSupport createQueueConsumer(String queueName) {
+		if (this.consumerBatchSize > 1) {
+			RedisQueueBatchingMessageDrivenEndpoint batching = new RedisQueueBatchingMessageDrivenEndpoint(queueName,
+					this.connectionFactory, this.consumerBatchSize);
+			batching.setBeanFactory(getBeanFactory());
+			return batching;
+		}
+		RedisQueueMessageDrivenEndpoint single = new RedisQueueMessageDrivenEndpoint(queueName,
+				this.connectionFactory);
+		single.setBeanFactory(getBeanFactory());
+		single.setSerializer(null);
+		return single;
+	}
+
 	@Override
 	public void bindPubSubConsumer(final String name, MessageChannel moduleInputChannel,
 			Properties properties) {
@@ -312,22 +339,43 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 		if (!bindNewProducerDirectlyIfPossible(name, (SubscribableChannel) moduleOutputChannel, accessor)) {
 			String partitionKeyExtractorClass = accessor.getPartitionKeyExtractorClass();
 			Expression partitionKeyExpression = accessor.getPartitionKeyExpression();
-			RedisQueueOutboundChannelAdapter queue;
+			Expression queueNameExpression;
 			String queueName = "queue." + name;
 			if (partitionKeyExpression == null && !StringUtils.hasText(partitionKeyExtractorClass)) {
-				queue = new RedisQueueOutboundChannelAdapter(queueName, this.connectionFactory);
+				queueNameExpression = new LiteralExpression(queueName);
 			}
 			else {
-				queue = new RedisQueueOutboundChannelAdapter(
-						parser.parseExpression(buildPartitionRoutingExpression(queueName)), this.connectionFactory);
+				queueNameExpression = parser.parseExpression(buildPartitionRoutingExpression(queueName));
+			}
+			MessageHandler queue;
+			if (accessor.isBatchingEnabled(this.defaultBatchingEnabled)) {
+				queue = createBatchingQueueHandler(queueNameExpression, accessor);
+			}
+			else {
+				RedisQueueOutboundChannelAdapter adapter = new RedisQueueOutboundChannelAdapter(queueNameExpression,
+						this.connectionFactory);
+				adapter.setIntegrationEvaluationContext(this.evaluationContext);
+				adapter.setBeanFactory(this.getBeanFactory());
+				adapter.afterPropertiesSet();
+				queue = adapter;
 			}
-			queue.setIntegrationEvaluationContext(this.evaluationContext);
-			queue.setBeanFactory(this.getBeanFactory());
-			queue.afterPropertiesSet();
 			doRegisterProducer(name, moduleOutputChannel, queue, accessor);
 		}
 	}
 
+	private MessageHandler createBatchingQueueHandler(Expression queueNameExpression,
+			RedisPropertiesAccessor accessor) {
+		RedisQueueBatchingMessageHandler handler = new RedisQueueBatchingMessageHandler(queueNameExpression,
+				this.connectionFactory, accessor.getBatchSize(this.defaultBatchSize),
+				accessor.getBatchTimeout(this.defaultBatchTimeout));
+		handler.setTaskScheduler(getApplicationContext().getBean(IntegrationContextUtils.TASK_SCHEDULER_BEAN_NAME,
+				TaskScheduler.class));
+		handler.setIntegrationEvaluationContext(this.evaluationContext);
+		handler.setBeanFactory(this.getBeanFactory());
+		handler.afterPropertiesSet();
+		return handler;
+	}
+
 	@Override
 	public void bindPubSubProducer(final String name, MessageChannel moduleOutputChannel,
 			Properties properties) {
@@ -347,7 +395,7 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 	private void doRegisterProducer(final String name, MessageChannel moduleOutputChannel, MessageHandler delegate,
 			String replyTo, RedisPropertiesAccessor properties) {
 		Assert.isInstanceOf(SubscribableChannel.class, moduleOutputChannel);
-		MessageHandler handler = new SendingHandler(delegate, replyTo, properties);
+		MessageHandler handler = new SendingHandler(name, delegate, replyTo, properties);
 		EventDrivenConsumer consumer = new EventDrivenConsumer((SubscribableChannel) moduleOutputChannel, handler);
 		consumer.setBeanFactory(this.getBeanFactory());
 		consumer.setBeanName("outbound." + name);
@@ -399,9 +447,12 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 	@Override
 	public void destroy() {
 		stopBindings();
+		destroyBindingMetrics();
 	}
 
-	private class SendingHandler extends AbstractMessageHandler {
+	private class SendingHandler extends AbstractMessageHandler implements Lifecycle {
+
+		private final String name;
 
 		private final MessageHandler delegate;
 
@@ -410,7 +461,9 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 		private final PartitioningMetadata partitioningMetadata;
 
 
-		private SendingHandler(MessageHandler delegate, String replyTo, RedisPropertiesAccessor properties) {
+		private SendingHandler(String name, MessageHandler delegate, String replyTo,
+				RedisPropertiesAccessor properties) {
+			this.name = name;
 			this.delegate = delegate;
 			this.replyTo = replyTo;
 			this.partitioningMetadata = new PartitioningMetadata(properties, properties.getNextModuleCount());
@@ -429,11 +482,36 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 				transformed.put(PARTITION_HEADER, determinePartition(message, this.partitioningMetadata));
 			}
 
-			byte[] messageToSend = embeddedHeadersMessageConverter.embedHeaders(transformed,
+			byte[] messageToSend = getEmbeddedHeadersMessageConverter().embedHeaders(transformed,
 					RedisMessageBus.this.headersToMap);
 			delegate.handleMessage(MessageBuilder.withPayload(messageToSend).copyHeaders(transformed).build());
 		}
 
+		@Override
+		public void start() {
+			if (this.delegate instanceof Lifecycle) {
+				((Lifecycle) this.delegate).start();
+			}
+			if (this.partitioningMetadata.isPartitionedModule()) {
+				registerBindingMetrics(this.name, "producer", this.partitioningMetadata.getPartitionMetrics());
+			}
+		}
+
+		@Override
+		public void stop() {
+			if (this.partitioningMetadata.isPartitionedModule()) {
+				unregisterBindingMetrics(this.name, "producer");
+			}
+			if (this.delegate instanceof Lifecycle) {
+				((Lifecycle) this.delegate).stop();
+			}
+		}
+
+		@Override
+		public boolean isRunning() {
+			return !(this.delegate instanceof Lifecycle) || ((Lifecycle) this.delegate).isRunning();
+		}
+
 	}
 
 	private class ReceivingHandler extends AbstractReplyProducingMessageHandler {
@@ -448,7 +526,8 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 		protected Object handleRequestMessage(Message<?> requestMessage) {
 			MessageValues theRequestMessage;
 			try {
-				theRequestMessage = embeddedHeadersMessageConverter.extractHeaders((Message<byte[]>) requestMessage, true);
+				theRequestMessage = getEmbeddedHeadersMessageConverter().extractHeaders(
+						(Message<byte[]>) requestMessage, true, true);
 			}
 			catch (Exception e) {
 				logger.error(EmbeddedHeadersMessageConverter.decodeExceptionMessage(requestMessage), e);
@@ -477,15 +556,11 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 	 */
 	private class CompositeRedisQueueMessageDrivenEndpoint extends MessageProducerSupport {
 
-		private final List<RedisQueueMessageDrivenEndpoint> consumers = new
-				ArrayList<RedisQueueMessageDrivenEndpoint>();
+		private final List<MessageProducerSupport> consumers = new ArrayList<MessageProducerSupport>();
 
 		public CompositeRedisQueueMessageDrivenEndpoint(String queueName, int concurrency) {
 			for (int i = 0; i < concurrency; i++) {
-				RedisQueueMessageDrivenEndpoint adapter = new RedisQueueMessageDrivenEndpoint(queueName,
-						connectionFactory);
-				adapter.setBeanFactory(RedisMessageBus.this.getBeanFactory());
-				adapter.setSerializer(null);
+				MessageProducerSupport adapter = createQueueConsumer(queueName);
 				adapter.setBeanName("inbound." + queueName + "." + i);
 				this.consumers.add(adapter);
 			}
@@ -494,35 +569,35 @@ public class RedisMessageBus extends MessageBusSupport implements DisposableBean
 
 		@Override
 		protected void onInit() {
-			for (RedisQueueMessageDrivenEndpoint consumer : consumers) {
+			for (MessageProducerSupport consumer : consumers) {
 				consumer.afterPropertiesSet();
 			}
 		}
 
 		@Override
 		protected void doStart() {
-			for (RedisQueueMessageDrivenEndpoint consumer : consumers) {
+			for (MessageProducerSupport consumer : consumers) {
 				consumer.start();
 			}
 		}
 
 		@Override
 		protected void doStop() {
-			for (RedisQueueMessageDrivenEndpoint consumer : consumers) {
+			for (MessageProducerSupport consumer : consumers) {
 				consumer.stop();
 			}
 		}
 
 		@Override
 		public void setOutputChannel(MessageChannel outputChannel) {
-			for (RedisQueueMessageDrivenEndpoint consumer : consumers) {
+			for (MessageProducerSupport consumer : consumers) {
 				consumer.setOutputChannel(outputChannel);
 			}
 		}
 
 		@Override
 		public void setErrorChannel(MessageChannel errorChannel) {
-			for (RedisQueueMessageDrivenEndpoint consumer : consumers) {
+			for (MessageProducerSupport consumer : consumers) {
 				consumer.setErrorChannel(errorChannel);
 			}
 		}
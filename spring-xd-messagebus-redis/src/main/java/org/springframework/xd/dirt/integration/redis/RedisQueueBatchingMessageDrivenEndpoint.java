@@ -0,0 +1,218 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.redis;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisConnectionUtils;
+import org.springframework.integration.endpoint.MessageProducerSupport;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+
+/**
+ * A message-driven endpoint that pops up to {@code batchSize} {@code byte[]} messages from
+ * the right of a Redis list in a single round trip ({@code MULTI/LRANGE/LTRIM/EXEC}),
+ * emitting them oldest first. When the list is empty it blocks on {@code BRPOP} for the
+ * next message, so an idle queue costs no more than with one-at-a-time consumption.
+ * Messages popped after the endpoint has been stopped are returned to the queue.
+ *
+ * @since 1.3.2
+ */
+public class RedisQueueBatchingMessageDrivenEndpoint extends MessageProducerSupport {
+
+	public static final long DEFAULT_RECEIVE_TIMEOUT = 1000;
+
+	public static final long DEFAULT_RECOVERY_INTERVAL = 5000;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final String queueName;
+
+	private final byte[] queueKey;
+
+	private final RedisConnectionFactory connectionFactory;
+
+	private final int batchSize;
+
+	private volatile Executor taskExecutor;
+
+	private volatile long receiveTimeout = DEFAULT_RECEIVE_TIMEOUT;
+
+	private volatile long recoveryInterval = DEFAULT_RECOVERY_INTERVAL;
+
+	private volatile boolean active;
+
+	public RedisQueueBatchingMessageDrivenEndpoint(String queueName, RedisConnectionFactory connectionFactory,
+			int batchSize) {
+		Assert.hasText(queueName, "'queueName' is required");
+		Assert.notNull(connectionFactory, "'connectionFactory' cannot be null");
+		Assert.isTrue(batchSize > 0, "'batchSize' must be greater than 0");
+		this.queueName = queueName;
+		this.queueKey = queueName.getBytes(UTF8);
+		this.connectionFactory = connectionFactory;
+		this.batchSize = batchSize;
+	}
+
+	public void setTaskExecutor(Executor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Set the time to block waiting for a message when the queue is empty; rounded up to whole seconds.
+	 * Default 1000 milliseconds.
+	 * @param receiveTimeout the timeout in milliseconds.
+	 */
+	public void setReceiveTimeout(long receiveTimeout) {
+		Assert.isTrue(receiveTimeout > 0, "'receiveTimeout' must be greater than 0");
+		this.receiveTimeout = receiveTimeout;
+	}
+
+	/**
+	 * Set the time to wait before popping again after a connection failure. Default 5000 milliseconds.
+	 * @param recoveryInterval the interval in milliseconds.
+	 */
+	public void setRecoveryInterval(long recoveryInterval) {
+		this.recoveryInterval = recoveryInterval;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "redis:batching-queue-inbound-channel-adapter";
+	}
+
+	@Override
+	protected void onInit() {
+		super.onInit();
+		if (this.taskExecutor == null) {
+			String beanName = getComponentName();
+			this.taskExecutor = new SimpleAsyncTaskExecutor((beanName == null ? "" : beanName + "-")
+					+ getComponentType());
+		}
+	}
+
+	@Override
+	protected void doStart() {
+		if (!this.active) {
+			this.active = true;
+			this.taskExecutor.execute(new ListenerTask());
+		}
+	}
+
+	@Override
+	protected void doStop() {
+		this.active = false;
+	}
+
+	private List<byte[]> pop() {
+		RedisConnection connection = RedisConnectionUtils.getConnection(this.connectionFactory);
+		try {
+			connection.multi();
+			connection.lRange(this.queueKey, -this.batchSize, -1);
+			connection.lTrim(this.queueKey, 0, -this.batchSize - 1);
+			List<Object> results = connection.exec();
+			@SuppressWarnings("unchecked")
+			List<byte[]> values = CollectionUtils.isEmpty(results) ? null : (List<byte[]>) results.get(0);
+			if (!CollectionUtils.isEmpty(values)) {
+				// the oldest message is at the right
+				List<byte[]> batch = new ArrayList<byte[]>(values);
+				Collections.reverse(batch);
+				return batch;
+			}
+			int timeout = (int) Math.max(1, (this.receiveTimeout + 999) / 1000);
+			List<byte[]> popped = connection.bRPop(timeout, this.queueKey);
+			if (CollectionUtils.isEmpty(popped)) {
+				return Collections.emptyList();
+			}
+			// [key, value]
+			return Collections.singletonList(popped.get(1));
+		}
+		finally {
+			RedisConnectionUtils.releaseConnection(connection, this.connectionFactory);
+		}
+	}
+
+	/**
+	 * Return messages popped after the endpoint was stopped to the right of the list, so
+	 * that they are consumed next, in their original order.
+	 * @param batch the messages, oldest first.
+	 */
+	private void requeue(List<byte[]> batch) {
+		List<byte[]> newestFirst = new ArrayList<byte[]>(batch);
+		Collections.reverse(newestFirst);
+		RedisConnection connection = RedisConnectionUtils.getConnection(this.connectionFactory);
+		try {
+			connection.rPush(this.queueKey, newestFirst.toArray(new byte[newestFirst.size()][]));
+		}
+		finally {
+			RedisConnectionUtils.releaseConnection(connection, this.connectionFactory);
+		}
+	}
+
+	private class ListenerTask implements Runnable {
+
+		@Override
+		public void run() {
+			while (active) {
+				List<byte[]> batch;
+				try {
+					batch = pop();
+				}
+				catch (Exception e) {
+					if (active) {
+						logger.error("Failed to pop messages from '" + queueName + "'; retrying in "
+								+ recoveryInterval + "ms", e);
+						try {
+							Thread.sleep(recoveryInterval);
+						}
+						catch (InterruptedException ie) {
+							Thread.currentThread().interrupt();
+							active = false;
+						}
+					}
+					continue;
+				}
+				if (!active && !batch.isEmpty()) {
+					try {
+						requeue(batch);
+						continue;
+					}
+					catch (Exception e) {
+						logger.error("Failed to return messages to '" + queueName
+								+ "' after stop; delivering them", e);
+					}
+				}
+				for (byte[] value : batch) {
+					try {
+						sendMessage(getMessageBuilderFactory().withPayload(value).build());
+					}
+					catch (Exception e) {
+						logger.error("Failed to send message popped from '" + queueName + "'", e);
+					}
+				}
+			}
+		}
+
+	}
+
+}
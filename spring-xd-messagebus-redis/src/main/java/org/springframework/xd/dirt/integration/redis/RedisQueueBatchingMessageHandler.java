@@ -0,0 +1,273 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.redis;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+
+import org.springframework.context.Lifecycle;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.core.RedisConnectionUtils;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.common.LiteralExpression;
+import org.springframework.integration.expression.ExpressionUtils;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
+
+/**
+ * A message handler that accumulates {@code byte[]} payloads per destination queue and
+ * pushes each batch with a single multi-value {@code LPUSH}; when several queues (e.g.
+ * partitions) are released together, the pushes are pipelined.
+ * <p>
+ * A batch is released when it reaches {@code batchSize} messages or, if
+ * {@code batchTimeout} is positive, when that many milliseconds have elapsed since the
+ * first message of the batch was received. Pending messages are also released when the
+ * handler is stopped. Messages are pushed in arrival order, so a consumer popping from
+ * the right still receives them in order.
+ * <p>
+ * A batch is only discarded once it has been pushed. If pushing a batch that the current
+ * message completed fails, that message is removed from the batch and the error is
+ * thrown to the caller, so that the message can be retried or dead-lettered as with an
+ * unbatched producer; the messages accepted before it stay pending. Pending batches that
+ * fail to be pushed on timeout are pushed again after another {@code batchTimeout}.
+ *
+ * @since 1.3.2
+ */
+public class RedisQueueBatchingMessageHandler extends AbstractMessageHandler implements Lifecycle {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final Expression queueNameExpression;
+
+	private final RedisConnectionFactory connectionFactory;
+
+	private final int batchSize;
+
+	private final long batchTimeout;
+
+	private final Map<String, List<byte[]>> batches = new LinkedHashMap<String, List<byte[]>>();
+
+	private final Object lock = new Object();
+
+	private volatile TaskScheduler taskScheduler;
+
+	private volatile EvaluationContext evaluationContext;
+
+	private volatile boolean running;
+
+	private ScheduledFuture<?> scheduledRelease;
+
+	public RedisQueueBatchingMessageHandler(String queueName, RedisConnectionFactory connectionFactory,
+			int batchSize, long batchTimeout) {
+		this(new LiteralExpression(queueName), connectionFactory, batchSize, batchTimeout);
+	}
+
+	public RedisQueueBatchingMessageHandler(Expression queueNameExpression, RedisConnectionFactory connectionFactory,
+			int batchSize, long batchTimeout) {
+		Assert.notNull(queueNameExpression, "'queueNameExpression' cannot be null");
+		Assert.notNull(connectionFactory, "'connectionFactory' cannot be null");
+		Assert.isTrue(batchSize > 0, "'batchSize' must be greater than 0");
+		this.queueNameExpression = queueNameExpression;
+		this.connectionFactory = connectionFactory;
+		this.batchSize = batchSize;
+		this.batchTimeout = batchTimeout;
+	}
+
+	/**
+	 * Set the scheduler used to release partial batches; required when {@code batchTimeout} is positive.
+	 * @param taskScheduler the scheduler.
+	 */
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+	}
+
+	public void setIntegrationEvaluationContext(EvaluationContext evaluationContext) {
+		this.evaluationContext = evaluationContext;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "redis:batching-queue-outbound-channel-adapter";
+	}
+
+	@Override
+	protected void onInit() throws Exception {
+		super.onInit();
+		Assert.isTrue(this.batchTimeout <= 0 || this.taskScheduler != null,
+				"A 'taskScheduler' is required when 'batchTimeout' is positive");
+		if (this.evaluationContext == null) {
+			this.evaluationContext = ExpressionUtils.createStandardEvaluationContext(getBeanFactory());
+		}
+	}
+
+	@Override
+	protected void handleMessageInternal(Message<?> message) throws Exception {
+		Assert.isInstanceOf(byte[].class, message.getPayload(), "Only byte[] payloads are supported");
+		String queueName = this.queueNameExpression.getValue(this.evaluationContext, message, String.class);
+		Assert.hasText(queueName, "Failed to determine the queue name for message " + message);
+		synchronized (this.lock) {
+			List<byte[]> batch = this.batches.get(queueName);
+			if (batch == null) {
+				batch = new ArrayList<byte[]>(this.batchSize);
+				this.batches.put(queueName, batch);
+			}
+			batch.add((byte[]) message.getPayload());
+			try {
+				if (batch.size() >= this.batchSize) {
+					push(Collections.singletonList(queueName));
+				}
+			}
+			catch (RuntimeException e) {
+				// the caller retries or dead-letters this message; the others were accepted earlier
+				batch.remove(batch.size() - 1);
+				if (batch.isEmpty()) {
+					this.batches.remove(queueName);
+				}
+				throw e;
+			}
+			finally {
+				scheduleRelease();
+			}
+		}
+	}
+
+	/**
+	 * Push all pending batches now. Batches that cannot be pushed stay pending.
+	 */
+	public void flush() {
+		synchronized (this.lock) {
+			cancelScheduledRelease();
+			try {
+				if (!this.batches.isEmpty()) {
+					push(new ArrayList<String>(this.batches.keySet()));
+				}
+			}
+			finally {
+				scheduleRelease();
+			}
+		}
+	}
+
+	private void releaseOnTimeout() {
+		synchronized (this.lock) {
+			this.scheduledRelease = null;
+			try {
+				flush();
+			}
+			catch (RuntimeException e) {
+				logger.error("Failed to push pending batches to redis; retrying in " + this.batchTimeout + " ms", e);
+			}
+		}
+	}
+
+	/**
+	 * Schedule the release of the pending batches, if any, unless it is already scheduled.
+	 */
+	private void scheduleRelease() {
+		if (this.batches.isEmpty()) {
+			cancelScheduledRelease();
+		}
+		else if (this.scheduledRelease == null && this.batchTimeout > 0) {
+			this.scheduledRelease = this.taskScheduler.schedule(new Runnable() {
+
+				@Override
+				public void run() {
+					releaseOnTimeout();
+				}
+
+			}, new Date(System.currentTimeMillis() + this.batchTimeout));
+		}
+	}
+
+	private void cancelScheduledRelease() {
+		if (this.scheduledRelease != null) {
+			this.scheduledRelease.cancel(false);
+			this.scheduledRelease = null;
+		}
+	}
+
+	/**
+	 * Push the pending batches of the given queues, removing each batch once it has been pushed.
+	 * @param queueNames the queues.
+	 */
+	private void push(List<String> queueNames) {
+		RedisConnection connection = RedisConnectionUtils.getConnection(this.connectionFactory);
+		try {
+			if (queueNames.size() == 1) {
+				String queueName = queueNames.get(0);
+				lPush(connection, queueName);
+				this.batches.remove(queueName);
+				return;
+			}
+			connection.openPipeline();
+			for (String queueName : queueNames) {
+				lPush(connection, queueName);
+			}
+			try {
+				connection.closePipeline();
+			}
+			catch (RedisPipelineException e) {
+				List<Object> results = e.getPipelineResult();
+				for (int i = 0; i < queueNames.size() && i < results.size(); i++) {
+					if (!(results.get(i) instanceof Exception)) {
+						this.batches.remove(queueNames.get(i));
+					}
+				}
+				throw e;
+			}
+			for (String queueName : queueNames) {
+				this.batches.remove(queueName);
+			}
+		}
+		finally {
+			RedisConnectionUtils.releaseConnection(connection, this.connectionFactory);
+		}
+	}
+
+	private void lPush(RedisConnection connection, String queueName) {
+		List<byte[]> values = this.batches.get(queueName);
+		connection.lPush(queueName.getBytes(UTF8), values.toArray(new byte[values.size()][]));
+	}
+
+	@Override
+	public void start() {
+		this.running = true;
+	}
+
+	@Override
+	public void stop() {
+		this.running = false;
+		flush();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+}
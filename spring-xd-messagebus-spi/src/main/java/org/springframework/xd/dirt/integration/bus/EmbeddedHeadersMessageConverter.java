@@ -18,14 +18,19 @@ package org.springframework.xd.dirt.integration.bus;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.bind.DatatypeConverter;
 
 import org.springframework.integration.IntegrationMessageHeaderAccessor;
 import org.springframework.integration.support.json.Jackson2JsonObjectMapper;
 import org.springframework.messaging.Message;
+import org.springframework.util.Assert;
 
 /**
  * Encodes requested headers into payload with format
@@ -36,14 +41,70 @@ import org.springframework.messaging.Message;
  * <p>
  * Previously, there was no leading 0xff; the value length was 1 byte and only
  * String header values were supported (no JSON conversion).
+ * <p>
+ * When the {@link Format#binary} format is selected, headers are encoded with format
+ * {@code 0xfe, n(1), [ [lenHdr(1), hdr, type(1), value] ... ]}. The value is written
+ * according to its type tag: {@code String} (length (int) followed by UTF-8 bytes),
+ * {@code Integer} (4 bytes), {@code Long} (8 bytes) and {@code UUID} (16 bytes); any
+ * other type is written as length-prefixed JSON.
+ * <p>
+ * All formats are always decoded, regardless of the format selected for encoding, so
+ * that producers and consumers can be upgraded independently.
  *
  * @author Eric Bottard
  * @author Gary Russell
  */
 public class EmbeddedHeadersMessageConverter {
 
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final int JSON_FORMAT = 0xff;
+
+	private static final int BINARY_FORMAT = 0xfe;
+
+	private static final byte TYPE_STRING = 1;
+
+	private static final byte TYPE_INTEGER = 2;
+
+	private static final byte TYPE_LONG = 3;
+
+	private static final byte TYPE_UUID = 4;
+
+	private static final byte TYPE_JSON = 5;
+
 	private final Jackson2JsonObjectMapper objectMapper = new Jackson2JsonObjectMapper();
 
+	private final ConcurrentMap<String, byte[]> headerNameCache = new ConcurrentHashMap<String, byte[]>();
+
+	private volatile Format format = Format.json;
+
+	/**
+	 * Create a converter that encodes header values as JSON.
+	 */
+	public EmbeddedHeadersMessageConverter() {
+	}
+
+	/**
+	 * Create a converter that encodes header values using the supplied format.
+	 * @param format the format used for encoding.
+	 */
+	public EmbeddedHeadersMessageConverter(Format format) {
+		setFormat(format);
+	}
+
+	/**
+	 * Set the format used when embedding headers; decoding always supports all formats.
+	 * @param format the format (default {@link Format#json}).
+	 */
+	public void setFormat(Format format) {
+		Assert.notNull(format, "'format' cannot be null");
+		this.format = format;
+	}
+
+	public Format getFormat() {
+		return this.format;
+	}
+
 	public static String decodeExceptionMessage(Message<?> requestMessage) {
 		return "Could not convert message: " + DatatypeConverter.printHexBinary((byte[]) requestMessage.getPayload());
 	}
@@ -54,6 +115,9 @@ public class EmbeddedHeadersMessageConverter {
 	 * have been embedded into the new message payload.
 	 */
 	public byte[] embedHeaders(MessageValues original, String... headers) throws Exception {
+		if (Format.binary.equals(this.format)) {
+			return embedHeadersBinary(original, headers);
+		}
 		byte[][] headerValues = new byte[headers.length][];
 		int n = 0;
 		int headerCount = 0;
@@ -89,6 +153,85 @@ public class EmbeddedHeadersMessageConverter {
 		return byteBuffer.array();
 	}
 
+	private byte[] embedHeadersBinary(MessageValues original, String... headers) throws Exception {
+		byte[] payload = (byte[]) original.getPayload();
+		Object[] headerValues = new Object[headers.length];
+		int headerCount = 0;
+		int headersLength = 0;
+		for (int i = 0; i < headers.length; i++) {
+			Object value = original.get(headers[i]);
+			if (value != null) {
+				if (value instanceof String) {
+					value = ((String) value).getBytes(UTF_8);
+					headersLength += 4 + ((byte[]) value).length;
+				}
+				else if (value instanceof Integer) {
+					headersLength += 4;
+				}
+				else if (value instanceof Long) {
+					headersLength += 8;
+				}
+				else if (value instanceof UUID) {
+					headersLength += 16;
+				}
+				else {
+					value = new JsonValue(this.objectMapper.toJson(value).getBytes(UTF_8));
+					headersLength += 4 + ((JsonValue) value).bytes.length;
+				}
+				headerValues[i] = value;
+				headerCount++;
+				headersLength += 2 + headerNameBytes(headers[i]).length;
+			}
+		}
+		// 0xfe, n(1), [ [lenHdr(1), hdr, type(1), value] ... ]
+		ByteBuffer byteBuffer = ByteBuffer.allocate(payload.length + headersLength + 2);
+		byteBuffer.put((byte) BINARY_FORMAT);
+		byteBuffer.put((byte) headerCount);
+		for (int i = 0; i < headers.length; i++) {
+			Object value = headerValues[i];
+			if (value != null) {
+				byte[] name = headerNameBytes(headers[i]);
+				byteBuffer.put((byte) name.length);
+				byteBuffer.put(name);
+				if (value instanceof byte[]) {
+					byteBuffer.put(TYPE_STRING);
+					byteBuffer.putInt(((byte[]) value).length);
+					byteBuffer.put((byte[]) value);
+				}
+				else if (value instanceof Integer) {
+					byteBuffer.put(TYPE_INTEGER);
+					byteBuffer.putInt((Integer) value);
+				}
+				else if (value instanceof Long) {
+					byteBuffer.put(TYPE_LONG);
+					byteBuffer.putLong((Long) value);
+				}
+				else if (value instanceof UUID) {
+					byteBuffer.put(TYPE_UUID);
+					byteBuffer.putLong(((UUID) value).getMostSignificantBits());
+					byteBuffer.putLong(((UUID) value).getLeastSignificantBits());
+				}
+				else {
+					byteBuffer.put(TYPE_JSON);
+					byteBuffer.putInt(((JsonValue) value).bytes.length);
+					byteBuffer.put(((JsonValue) value).bytes);
+				}
+			}
+		}
+		byteBuffer.put(payload);
+		return byteBuffer.array();
+	}
+
+	private byte[] headerNameBytes(String header) {
+		byte[] bytes = this.headerNameCache.get(header);
+		if (bytes == null) {
+			bytes = header.getBytes(UTF_8);
+			Assert.isTrue(bytes.length < 256, "Header names must be less than 256 bytes: " + header);
+			this.headerNameCache.putIfAbsent(header, bytes);
+		}
+		return bytes;
+	}
+
 	/**
 	 * Return a message where headers, that were originally embedded into the payload, have been promoted
 	 * back to actual headers. The new payload is now the original payload.
@@ -97,11 +240,29 @@ public class EmbeddedHeadersMessageConverter {
 	 * @param copyRequestHeaders boolean value to specify if original headers should be copied
 	 */
 	public MessageValues extractHeaders(Message<byte[]> message, boolean copyRequestHeaders) throws Exception {
+		return extractHeaders(message, copyRequestHeaders, false);
+	}
+
+	/**
+	 * Return a message where headers, that were originally embedded into the payload, have been promoted
+	 * back to actual headers. When {@code payloadView} is true, the payload is a {@link ByteBuffer} that
+	 * is a view of the original payload region of the message (the bytes are not copied); otherwise
+	 * the payload is a new {@code byte[]}.
+	 *
+	 * @param message the message to extract headers
+	 * @param copyRequestHeaders boolean value to specify if original headers should be copied
+	 * @param payloadView true to return the payload as a {@link ByteBuffer} view
+	 */
+	public MessageValues extractHeaders(Message<byte[]> message, boolean copyRequestHeaders, boolean payloadView)
+			throws Exception {
 		byte[] bytes = message.getPayload();
 		ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
 		int headerCount = byteBuffer.get() & 0xff;
-		if (headerCount < 255) {
-			return oldExtractHeaders(byteBuffer, bytes, headerCount, message, copyRequestHeaders);
+		if (headerCount == BINARY_FORMAT) {
+			return binaryExtractHeaders(byteBuffer, bytes, message, copyRequestHeaders, payloadView);
+		}
+		else if (headerCount < JSON_FORMAT) {
+			return oldExtractHeaders(byteBuffer, bytes, headerCount, message, copyRequestHeaders, payloadView);
 		}
 		else {
 			headerCount = byteBuffer.get() & 0xff;
@@ -116,14 +277,51 @@ public class EmbeddedHeadersMessageConverter {
 				headers.put(headerName, headerContent);
 				byteBuffer.position(byteBuffer.position() + len);
 			}
-			byte[] newPayload = new byte[byteBuffer.remaining()];
-			byteBuffer.get(newPayload);
-			return buildMessageValues(message, newPayload, headers, copyRequestHeaders);
+			return buildMessageValues(message, payload(byteBuffer, payloadView), headers, copyRequestHeaders);
+		}
+	}
+
+	private MessageValues binaryExtractHeaders(ByteBuffer byteBuffer, byte[] bytes, Message<byte[]> message,
+			boolean copyRequestHeaders, boolean payloadView) throws Exception {
+		int headerCount = byteBuffer.get() & 0xff;
+		Map<String, Object> headers = new HashMap<String, Object>();
+		for (int i = 0; i < headerCount; i++) {
+			int len = byteBuffer.get() & 0xff;
+			String headerName = new String(bytes, byteBuffer.position(), len, UTF_8);
+			byteBuffer.position(byteBuffer.position() + len);
+			byte type = byteBuffer.get();
+			Object headerContent;
+			switch (type) {
+				case TYPE_STRING:
+					len = byteBuffer.getInt();
+					headerContent = new String(bytes, byteBuffer.position(), len, UTF_8);
+					byteBuffer.position(byteBuffer.position() + len);
+					break;
+				case TYPE_INTEGER:
+					headerContent = byteBuffer.getInt();
+					break;
+				case TYPE_LONG:
+					headerContent = byteBuffer.getLong();
+					break;
+				case TYPE_UUID:
+					headerContent = new UUID(byteBuffer.getLong(), byteBuffer.getLong());
+					break;
+				case TYPE_JSON:
+					len = byteBuffer.getInt();
+					headerContent = this.objectMapper.fromJson(new String(bytes, byteBuffer.position(), len, UTF_8),
+							Object.class);
+					byteBuffer.position(byteBuffer.position() + len);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown type " + type + " for header " + headerName);
+			}
+			headers.put(headerName, headerContent);
 		}
+		return buildMessageValues(message, payload(byteBuffer, payloadView), headers, copyRequestHeaders);
 	}
 
 	private MessageValues oldExtractHeaders(ByteBuffer byteBuffer, byte[] bytes, int headerCount,
-			Message<byte[]> message, boolean copyRequestHeaders)
+			Message<byte[]> message, boolean copyRequestHeaders, boolean payloadView)
 			throws UnsupportedEncodingException {
 		Map<String, Object> headers = new HashMap<String, Object>();
 		for (int i = 0; i < headerCount; i++) {
@@ -141,12 +339,19 @@ public class EmbeddedHeadersMessageConverter {
 				headers.put(headerName, headerValue);
 			}
 		}
+		return buildMessageValues(message, payload(byteBuffer, payloadView), headers, copyRequestHeaders);
+	}
+
+	private Object payload(ByteBuffer byteBuffer, boolean payloadView) {
+		if (payloadView) {
+			return byteBuffer.slice();
+		}
 		byte[] newPayload = new byte[byteBuffer.remaining()];
 		byteBuffer.get(newPayload);
-		return buildMessageValues(message, newPayload, headers, copyRequestHeaders);
+		return newPayload;
 	}
 
-	private MessageValues buildMessageValues(Message<byte[]> message, byte[] payload, Map<String, Object> headers,
+	private MessageValues buildMessageValues(Message<byte[]> message, Object payload, Map<String, Object> headers,
 			boolean copyRequestHeaders) {
 		MessageValues messageValues = new MessageValues(payload, headers);
 		if (copyRequestHeaders) {
@@ -155,4 +360,30 @@ public class EmbeddedHeadersMessageConverter {
 		return messageValues;
 	}
 
+	/**
+	 * The format used when embedding headers.
+	 */
+	public enum Format {
+
+		/**
+		 * Header values are encoded as JSON (the default).
+		 */
+		json,
+
+		/**
+		 * Header values are encoded as type-tagged binary values.
+		 */
+		binary
+	}
+
+	private static class JsonValue {
+
+		private final byte[] bytes;
+
+		private JsonValue(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+	}
+
 }
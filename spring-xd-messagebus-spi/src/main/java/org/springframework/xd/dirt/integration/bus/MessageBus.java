@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2014 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -21,6 +21,9 @@ import org.springframework.messaging.MessageChannel;
  * A strategy interface used to bind a {@link MessageChannel} to a logical name. The name is intended to identify a
  * logical consumer or producer of messages. This may be a queue, a channel adapter, another message channel, a Spring
  * bean, etc.
+ * <p>
+ * A container binds and unbinds the modules of different streams and jobs concurrently, so implementations must be
+ * thread-safe; only the modules of one stream or job are bound one at a time.
  *
  * @author Mark Fisher
  * @author David Turanski
@@ -138,6 +141,14 @@ public interface MessageBus {
 	 */
 	MessageChannel bindDynamicPubSubProducer(String name, Properties properties);
 
+	/**
+	 * Release a producer bound by {@link #bindDynamicProducer(String, Properties)} or
+	 * {@link #bindDynamicPubSubProducer(String, Properties)}. The producer is unbound, and its channel destroyed,
+	 * once each of its bindings has been released.
+	 * @param name The name of the "queue:" or "topic:" channel.
+	 */
+	void unbindDynamicProducer(String name);
+
 	/**
 	 * Return true if the bus supports the capability.
 	 * @param capability the capability.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2015 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -19,12 +19,14 @@ import static org.springframework.util.MimeTypeUtils.APPLICATION_OCTET_STREAM_VA
 import static org.springframework.util.MimeTypeUtils.TEXT_PLAIN;
 import static org.springframework.util.MimeTypeUtils.TEXT_PLAIN_VALUE;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -36,6 +38,9 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,10 +55,18 @@ import org.springframework.context.Lifecycle;
 import org.springframework.context.support.AbstractApplicationContext;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.codec.Codec;
 import org.springframework.integration.context.IntegrationContextUtils;
 import org.springframework.integration.endpoint.EventDrivenConsumer;
+import org.springframework.jmx.export.MBeanExporter;
+import org.springframework.jmx.export.annotation.AnnotationMBeanExporter;
+import org.springframework.jmx.support.RegistrationPolicy;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
@@ -88,6 +101,8 @@ public abstract class MessageBusSupport
 
 	protected static final String PARTITION_HEADER = "partition";
 
+	private static final String BINDING_METRICS_DOMAIN = "xd.messagebus";
+
 	protected final Logger logger = LoggerFactory.getLogger(getClass());
 
 	private volatile AbstractApplicationContext applicationContext;
@@ -96,6 +111,9 @@ public abstract class MessageBusSupport
 
 	private final StringConvertingContentTypeResolver contentTypeResolver = new StringConvertingContentTypeResolver();
 
+	private final EmbeddedHeadersMessageConverter embeddedHeadersMessageConverter =
+			new EmbeddedHeadersMessageConverter();
+
 	private final ThreadLocal<Boolean> revertingDirectBinding = new ThreadLocal<Boolean>();
 
 	protected static final List<MimeType> MEDIATYPES_MEDIATYPE_ALL = Collections.singletonList(ALL);
@@ -160,12 +178,22 @@ public abstract class MessageBusSupport
 
 	private final List<Binding> bindings = Collections.synchronizedList(new ArrayList<Binding>());
 
+	/**
+	 * The producers bound by {@link #bindDynamicProducer(String, Properties)} and
+	 * {@link #bindDynamicPubSubProducer(String, Properties)}, by name.
+	 */
+	private final Map<String, DynamicProducer> dynamicProducers = new HashMap<String, DynamicProducer>();
+
 	private final IdGenerator idGenerator = new AlternativeJdkIdGenerator();
 
 	protected volatile EvaluationContext evaluationContext;
 
 	private volatile PartitionSelectorStrategy partitionSelector = new DefaultPartitionSelector();
 
+	private volatile boolean bindingMetricsEnabled;
+
+	private MBeanExporter bindingMetricsExporter;
+
 	/**
 	 * Used in the canonical case, when the binding does not involve an alias name.
 	 */
@@ -261,6 +289,19 @@ public abstract class MessageBusSupport
 		this.codec = codec;
 	}
 
+	/**
+	 * Set the format used by bus implementations that embed headers in the payload. Messages
+	 * in any format are always decoded, so this can be changed during a rolling upgrade.
+	 * @param embeddedHeadersFormat the format (default {@code json}).
+	 */
+	public void setEmbeddedHeadersFormat(EmbeddedHeadersMessageConverter.Format embeddedHeadersFormat) {
+		this.embeddedHeadersMessageConverter.setFormat(embeddedHeadersFormat);
+	}
+
+	protected EmbeddedHeadersMessageConverter getEmbeddedHeadersMessageConverter() {
+		return this.embeddedHeadersMessageConverter;
+	}
+
 	protected IdGenerator getIdGenerator() {
 		return idGenerator;
 	}
@@ -384,6 +425,78 @@ public abstract class MessageBusSupport
 	protected void onInit() {
 	}
 
+	/**
+	 * Whether to register the metrics of each binding as MBeans, under the {@code xd.messagebus} domain.
+	 * Default false.
+	 * @param bindingMetricsEnabled true to register binding metrics.
+	 */
+	public void setBindingMetricsEnabled(boolean bindingMetricsEnabled) {
+		this.bindingMetricsEnabled = bindingMetricsEnabled;
+	}
+
+	/**
+	 * Register the metrics of a binding as an MBean named
+	 * {@code xd.messagebus:type=<bus type>,binding=<binding name>,direction=<direction>}, if binding metrics are
+	 * enabled.
+	 * @param bindingName the binding name.
+	 * @param direction the direction of the binding ({@code producer} or {@code consumer}).
+	 * @param metrics the metrics, an {@code @ManagedResource}.
+	 */
+	protected void registerBindingMetrics(String bindingName, String direction, Object metrics) {
+		MBeanExporter exporter = getBindingMetricsExporter();
+		if (exporter != null) {
+			try {
+				exporter.registerManagedResource(metrics, bindingMetricsName(bindingName, direction));
+			}
+			catch (Exception e) {
+				logger.warn("Failed to register " + direction + " metrics for binding " + bindingName, e);
+			}
+		}
+	}
+
+	/**
+	 * Unregister the metrics registered by {@link #registerBindingMetrics(String, String, Object)}.
+	 * @param bindingName the binding name.
+	 * @param direction the direction of the binding.
+	 */
+	protected void unregisterBindingMetrics(String bindingName, String direction) {
+		MBeanExporter exporter = getBindingMetricsExporter();
+		if (exporter != null) {
+			try {
+				exporter.unregisterManagedResource(bindingMetricsName(bindingName, direction));
+			}
+			catch (Exception e) {
+				logger.warn("Failed to unregister " + direction + " metrics for binding " + bindingName, e);
+			}
+		}
+	}
+
+	/**
+	 * Unregister all the binding metrics; called when the bus is destroyed.
+	 */
+	protected synchronized void destroyBindingMetrics() {
+		if (this.bindingMetricsExporter != null) {
+			this.bindingMetricsExporter.destroy();
+			this.bindingMetricsExporter = null;
+		}
+	}
+
+	private synchronized MBeanExporter getBindingMetricsExporter() {
+		if (this.bindingMetricsExporter == null && this.bindingMetricsEnabled) {
+			AnnotationMBeanExporter exporter = new AnnotationMBeanExporter();
+			exporter.setRegistrationPolicy(RegistrationPolicy.REPLACE_EXISTING);
+			exporter.afterPropertiesSet();
+			this.bindingMetricsExporter = exporter;
+		}
+		return this.bindingMetricsExporter;
+	}
+
+	private ObjectName bindingMetricsName(String bindingName, String direction) throws MalformedObjectNameException {
+		String type = StringUtils.uncapitalize(getClass().getSimpleName().replaceFirst("MessageBus$", ""));
+		return new ObjectName(BINDING_METRICS_DOMAIN + ":type=" + type + ",binding=" + ObjectName.quote(bindingName)
+				+ ",direction=" + direction);
+	}
+
 	/**
 	 * Dynamically create a producer for the named channel.
 	 * @param name The name.
@@ -416,6 +529,10 @@ public abstract class MessageBusSupport
 				throw new MessageBusException(
 						"Failed to bind dynamic channel '" + name + "' with properties " + properties, e);
 			}
+			this.dynamicProducers.put(name, new DynamicProducer(channelName, channel));
+		}
+		else {
+			retainDynamicProducer(name, channel);
 		}
 		return channel;
 	}
@@ -454,11 +571,50 @@ public abstract class MessageBusSupport
 				throw new MessageBusException(
 						"Failed to bind dynamic channel '" + name + "' with properties " + properties, e);
 			}
+			this.dynamicProducers.put(name, new DynamicProducer(channelName, channel));
+		}
+		else {
+			retainDynamicProducer(name, channel);
 		}
 		return channel;
 	}
 
-	private void destroyCreatedChannel(String name, MessageChannel channel) {
+	private void retainDynamicProducer(String name, MessageChannel channel) {
+		DynamicProducer producer = this.dynamicProducers.get(name);
+		if (producer != null && producer.channel == channel) {
+			producer.references++;
+		}
+	}
+
+	@Override
+	public synchronized void unbindDynamicProducer(String name) {
+		DynamicProducer producer = this.dynamicProducers.get(name);
+		if (producer == null || --producer.references > 0) {
+			return;
+		}
+		this.dynamicProducers.remove(name);
+		unbindProducer(name, producer.channel);
+		destroyCreatedChannel(producer.channelName, producer.channel);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Unbound dynamic producer " + name);
+		}
+	}
+
+	/**
+	 * Return the number of producers currently bound by {@link #bindDynamicProducer(String, Properties)} and
+	 * {@link #bindDynamicPubSubProducer(String, Properties)}.
+	 * @return the number of dynamic producers.
+	 */
+	public synchronized int getDynamicProducerCount() {
+		return this.dynamicProducers.size();
+	}
+
+	/**
+	 * Destroy a channel registered by the bus in the application context.
+	 * @param name the bean name of the channel.
+	 * @param channel the channel.
+	 */
+	protected void destroyCreatedChannel(String name, MessageChannel channel) {
 		BeanFactory beanFactory = this.applicationContext.getBeanFactory();
 		if (beanFactory.containsBean(name)) {
 			if (beanFactory instanceof DefaultListableBeanFactory) {
@@ -492,6 +648,21 @@ public abstract class MessageBusSupport
 		return false;
 	}
 
+	/**
+	 * @param name the binding name.
+	 * @return true if a producer or consumer is still bound with the given name.
+	 */
+	protected boolean isBound(String name) {
+		synchronized (this.bindings) {
+			for (Binding binding : this.bindings) {
+				if (binding.getName().equals(name)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	protected void addBinding(Binding binding) {
 		this.bindings.add(binding);
 	}
@@ -580,13 +751,12 @@ public abstract class MessageBusSupport
 			return (byte[]) originalPayload;
 		}
 		else {
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
 			try {
 				if (originalPayload instanceof String) {
 					return ((String) originalPayload).getBytes("UTF-8");
 				}
-				this.codec.encode(originalPayload, bos);
-				return bos.toByteArray();
+				// let the codec manage (and possibly reuse) its own buffers
+				return this.codec.encode(originalPayload);
 			}
 			catch (IOException e) {
 				throw new SerializationException("unable to serialize payload ["
@@ -615,6 +785,23 @@ public abstract class MessageBusSupport
 	}
 
 	private Object deserializePayload(Object payload, MimeType contentType) {
+		if (payload instanceof ByteBuffer) {
+			// a view of the payload region of a message with embedded headers
+			ByteBuffer buffer = (ByteBuffer) payload;
+			if (contentType == null || APPLICATION_OCTET_STREAM.equals(contentType)) {
+				byte[] bytes = buffer.array();
+				if (buffer.arrayOffset() == 0 && buffer.remaining() == bytes.length) {
+					return bytes;
+				}
+				bytes = new byte[buffer.remaining()];
+				buffer.duplicate().get(bytes);
+				return bytes;
+			}
+			else {
+				return deserializePayload(buffer.array(), buffer.arrayOffset() + buffer.position(),
+						buffer.remaining(), contentType);
+			}
+		}
 		if (payload instanceof byte[]) {
 			if (contentType == null || APPLICATION_OCTET_STREAM.equals(contentType)) {
 				return payload;
@@ -627,9 +814,13 @@ public abstract class MessageBusSupport
 	}
 
 	private Object deserializePayload(byte[] bytes, MimeType contentType) {
+		return deserializePayload(bytes, 0, bytes.length, contentType);
+	}
+
+	private Object deserializePayload(byte[] bytes, int offset, int length, MimeType contentType) {
 		if (TEXT_PLAIN.equals(contentType)) {
 			try {
-				return new String(bytes, "UTF-8");
+				return new String(bytes, offset, length, "UTF-8");
 			}
 			catch (UnsupportedEncodingException e) {
 				throw new SerializationException("unable to deserialize [java.lang.String]. Encoding not supported.", e);
@@ -644,7 +835,10 @@ public abstract class MessageBusSupport
 					targetType = ClassUtils.forName(className, null);
 					payloadTypeCache.put(className, targetType);
 				}
-				return codec.decode(bytes, targetType);
+				if (offset == 0 && length == bytes.length) {
+					return codec.decode(bytes, targetType);
+				}
+				return codec.decode(new ByteArrayInputStream(bytes, offset, length), targetType);
 			} catch (ClassNotFoundException e) {
 				throw new SerializationException("unable to deserialize [" + className + "]. Class not found.", e);//NOSONAR
 			} catch (IOException e) {
@@ -668,15 +862,15 @@ public abstract class MessageBusSupport
 	protected int determinePartition(Message<?> message, PartitioningMetadata meta) {
 		Object key = null;
 		if (StringUtils.hasText(meta.partitionKeyExtractorClass)) {
-			key = invokeExtractor(meta.partitionKeyExtractorClass, message);
+			key = resolvePartitionKeyExtractor(meta).extractKey(message);
 		}
 		else if (meta.partitionKeyExpression != null) {
-			key = meta.partitionKeyExpression.getValue(this.evaluationContext, message);
+			key = meta.partitionKeyExpression.getValue(this.evaluationContext, message, Object.class);
 		}
 		Assert.notNull(key, "Partition key cannot be null");
 		int partition;
 		if (StringUtils.hasText(meta.partitionSelectorClass)) {
-			partition = invokePartitionSelector(meta.partitionSelectorClass, key, meta.partitionCount);
+			partition = resolvePartitionSelector(meta).selectPartition(key, meta.partitionCount);
 		}
 		else if (meta.partitionSelectorExpression != null) {
 			partition = meta.partitionSelectorExpression.getValue(this.evaluationContext, key, Integer.class);
@@ -688,59 +882,73 @@ public abstract class MessageBusSupport
 		if (partition < 0) { // protection in case a user selector returns a negative.
 			partition = Math.abs(partition);
 		}
+		meta.partitionMetrics.recordSend(partition);
 		return partition;
 	}
 
-	private Object invokeExtractor(String partitionKeyExtractorClassName, Message<?> message) {
-		if (this.applicationContext.containsBean(partitionKeyExtractorClassName)) {
-			return this.applicationContext.getBean(partitionKeyExtractorClassName, PartitionKeyExtractorStrategy.class)
-					.extractKey(message);
-		}
-		Class<?> clazz;
-		try {
-			clazz = ClassUtils.forName(partitionKeyExtractorClassName, this.applicationContext.getClassLoader());
-		}
-		catch (Exception e) {
-			logger.error("Failed to load key extractor", e);
-			throw new MessageBusException("Failed to load key extractor: " + partitionKeyExtractorClassName, e);
-		}
-		try {
-			Object extractor = clazz.newInstance();
-			Assert.isInstanceOf(PartitionKeyExtractorStrategy.class, extractor);
-			this.applicationContext.getBeanFactory().registerSingleton(partitionKeyExtractorClassName, extractor);
-			this.applicationContext.getBeanFactory().initializeBean(extractor, partitionKeyExtractorClassName);
-			return ((PartitionKeyExtractorStrategy) extractor).extractKey(message);
-		}
-		catch (Exception e) {
-			logger.error("Failed to instantiate key extractor", e);
-			throw new MessageBusException("Failed to instantiate key extractor: " + partitionKeyExtractorClassName, e);
+	/**
+	 * Return the key extractor for the metadata, looking up (or creating) the bean on first use only.
+	 * @param meta the partitioning metadata.
+	 * @return the extractor.
+	 */
+	private PartitionKeyExtractorStrategy resolvePartitionKeyExtractor(PartitioningMetadata meta) {
+		PartitionKeyExtractorStrategy extractor = meta.partitionKeyExtractor;
+		if (extractor == null) {
+			synchronized (meta) {
+				extractor = meta.partitionKeyExtractor;
+				if (extractor == null) {
+					extractor = getOrCreatePartitionStrategy(meta.partitionKeyExtractorClass,
+							PartitionKeyExtractorStrategy.class, "key extractor");
+					meta.partitionKeyExtractor = extractor;
+				}
+			}
 		}
+		return extractor;
 	}
 
-	private int invokePartitionSelector(String partitionSelectorClassName, Object key, int partitionCount) {
-		if (this.applicationContext.containsBean(partitionSelectorClassName)) {
-			return this.applicationContext.getBean(partitionSelectorClassName, PartitionSelectorStrategy.class)
-					.selectPartition(key, partitionCount);
-		}
-		Class<?> clazz;
-		try {
-			clazz = ClassUtils.forName(partitionSelectorClassName, this.applicationContext.getClassLoader());
-		}
-		catch (Exception e) {
-			logger.error("Failed to load partition selector", e);
-			throw new MessageBusException("Failed to load partition selector: " + partitionSelectorClassName, e);
-		}
-		try {
-			Object extractor = clazz.newInstance();
-			Assert.isInstanceOf(PartitionKeyExtractorStrategy.class, extractor);
-			this.applicationContext.getBeanFactory().registerSingleton(partitionSelectorClassName, extractor);
-			this.applicationContext.getBeanFactory().initializeBean(extractor, partitionSelectorClassName);
-			return ((PartitionSelectorStrategy) extractor).selectPartition(key, partitionCount);
+	/**
+	 * Return the partition selector for the metadata, looking up (or creating) the bean on first use only.
+	 * @param meta the partitioning metadata.
+	 * @return the selector.
+	 */
+	private PartitionSelectorStrategy resolvePartitionSelector(PartitioningMetadata meta) {
+		PartitionSelectorStrategy selector = meta.partitionSelector;
+		if (selector == null) {
+			synchronized (meta) {
+				selector = meta.partitionSelector;
+				if (selector == null) {
+					selector = getOrCreatePartitionStrategy(meta.partitionSelectorClass,
+							PartitionSelectorStrategy.class, "partition selector");
+					meta.partitionSelector = selector;
+				}
+			}
 		}
-		catch (Exception e) {
-			logger.error("Failed to instantiate partition selector", e);
-			throw new MessageBusException("Failed to instantiate partition selector: " + partitionSelectorClassName,
-					e);
+		return selector;
+	}
+
+	private <T> T getOrCreatePartitionStrategy(String className, Class<T> type, String description) {
+		synchronized (this.applicationContext) {
+			if (this.applicationContext.containsBean(className)) {
+				return this.applicationContext.getBean(className, type);
+			}
+			Class<?> clazz;
+			try {
+				clazz = ClassUtils.forName(className, this.applicationContext.getClassLoader());
+			}
+			catch (Exception e) {
+				logger.error("Failed to load " + description, e);
+				throw new MessageBusException("Failed to load " + description + ": " + className, e);
+			}
+			try {
+				Object strategy = clazz.newInstance();
+				Assert.isInstanceOf(type, strategy);
+				this.applicationContext.getBeanFactory().registerSingleton(className, strategy);
+				return type.cast(this.applicationContext.getBeanFactory().initializeBean(strategy, className));
+			}
+			catch (Exception e) {
+				logger.error("Failed to instantiate " + description, e);
+				throw new MessageBusException("Failed to instantiate " + description + ": " + className, e);
+			}
 		}
 	}
 
@@ -981,20 +1189,27 @@ public abstract class MessageBusSupport
 
 		private final String partitionKeyExtractorClass;
 
-		private final Expression partitionKeyExpression;
+		private final CompilableExpression partitionKeyExpression;
 
 		private final String partitionSelectorClass;
 
-		private final Expression partitionSelectorExpression;
+		private final CompilableExpression partitionSelectorExpression;
 
 		private final int partitionCount;
 
+		private final PartitionMetrics partitionMetrics;
+
+		private volatile PartitionKeyExtractorStrategy partitionKeyExtractor;
+
+		private volatile PartitionSelectorStrategy partitionSelector;
+
 		public PartitioningMetadata(AbstractBusPropertiesAccessor properties, int partitionCount) {
 			this.partitionCount = partitionCount;
 			this.partitionKeyExtractorClass = properties.getPartitionKeyExtractorClass();
-			this.partitionKeyExpression = properties.getPartitionKeyExpression();
+			this.partitionKeyExpression = CompilableExpression.from(properties.getPartitionKeyExpression());
 			this.partitionSelectorClass = properties.getPartitionSelectorClass();
-			this.partitionSelectorExpression = properties.getPartitionSelectorExpression();
+			this.partitionSelectorExpression = CompilableExpression.from(properties.getPartitionSelectorExpression());
+			this.partitionMetrics = new PartitionMetrics(partitionCount);
 		}
 
 		public boolean isPartitionedModule() {
@@ -1004,6 +1219,109 @@ public abstract class MessageBusSupport
 		public int getPartitionCount() {
 			return partitionCount;
 		}
+
+		/**
+		 * Return the number of messages sent to each partition so far, to be exported with the metrics of the
+		 * producer binding.
+		 * @return the partition metrics.
+		 */
+		public PartitionMetrics getPartitionMetrics() {
+			return this.partitionMetrics;
+		}
+
+		/**
+		 * Return the number of messages sent to each partition so far; useful to detect skew in the key
+		 * distribution.
+		 * @return the send counts, indexed by partition.
+		 */
+		public long[] getPartitionSendCounts() {
+			return this.partitionMetrics.getPartitionSendCounts();
+		}
+
+	}
+
+	/**
+	 * Evaluates a SpEL expression using a version compiled to bytecode; if the expression cannot be parsed for
+	 * compilation, or the compiled form fails because the types it was compiled against change, it falls back to the
+	 * interpreted expression for the remainder of its life. Other evaluation errors are propagated.
+	 */
+	static final class CompilableExpression {
+
+		private static final Logger logger = LoggerFactory.getLogger(CompilableExpression.class);
+
+		private final Expression interpreted;
+
+		private volatile Expression compiled;
+
+		private CompilableExpression(Expression interpreted) {
+			this.interpreted = interpreted;
+			Expression compiled = null;
+			try {
+				SpelExpressionParser parser = new SpelExpressionParser(new SpelParserConfiguration(
+						SpelCompilerMode.IMMEDIATE, ClassUtils.getDefaultClassLoader()));
+				compiled = parser.parseExpression(interpreted.getExpressionString());
+			}
+			catch (RuntimeException e) {
+				logger.debug("Expression '" + interpreted.getExpressionString()
+						+ "' will be interpreted; failed to parse it for compilation", e);
+			}
+			this.compiled = compiled;
+		}
+
+		static CompilableExpression from(Expression expression) {
+			return expression == null ? null : new CompilableExpression(expression);
+		}
+
+		<T> T getValue(EvaluationContext context, Object rootObject, Class<T> desiredResultType) {
+			Expression compiled = this.compiled;
+			if (compiled != null) {
+				try {
+					return compiled.getValue(context, rootObject, desiredResultType);
+				}
+				catch (SpelEvaluationException e) {
+					if (!isCompiledTypeMismatch(e)) {
+						throw e;
+					}
+					this.compiled = null;
+					logger.debug("Falling back to interpreted mode for expression '"
+							+ this.interpreted.getExpressionString() + "'", e);
+				}
+			}
+			return this.interpreted.getValue(context, rootObject, desiredResultType);
+		}
+
+		/**
+		 * Whether the compiled expression failed because it casts a value to a type it no longer has; any other
+		 * failure would also occur when interpreting the expression.
+		 */
+		private static boolean isCompiledTypeMismatch(SpelEvaluationException e) {
+			return e.getMessageCode() == SpelMessage.EXCEPTION_RUNNING_COMPILED_EXPRESSION
+					&& e.getCause() instanceof ClassCastException;
+		}
+
+		boolean isCompiled() {
+			return this.compiled != null;
+		}
+
+	}
+
+	/**
+	 * A producer bound by {@link #bindDynamicProducer(String, Properties)} or
+	 * {@link #bindDynamicPubSubProducer(String, Properties)}, with the number of bindings not yet released.
+	 */
+	private static class DynamicProducer {
+
+		private final String channelName;
+
+		private final MessageChannel channel;
+
+		private int references = 1;
+
+		private DynamicProducer(String channelName, MessageChannel channel) {
+			this.channelName = channelName;
+			this.channel = channel;
+		}
+
 	}
 
 	/**
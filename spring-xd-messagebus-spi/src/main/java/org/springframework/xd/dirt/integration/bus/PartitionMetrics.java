@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.dirt.integration.bus;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * The number of messages a partitioned producer binding has sent to each partition, to make skew in the
+ * distribution of partition keys visible.
+ *
+ * @since 1.3.2
+ */
+@ManagedResource
+public class PartitionMetrics {
+
+	private final AtomicLongArray sendCounts;
+
+	public PartitionMetrics(int partitionCount) {
+		this.sendCounts = new AtomicLongArray(Math.max(partitionCount, 1));
+	}
+
+	/**
+	 * Record that a message has been sent to a partition.
+	 * @param partition the partition.
+	 */
+	public void recordSend(int partition) {
+		this.sendCounts.incrementAndGet(partition);
+	}
+
+	@ManagedAttribute(description = "Number of partitions")
+	public int getPartitionCount() {
+		return this.sendCounts.length();
+	}
+
+	@ManagedAttribute(description = "Messages sent to each partition")
+	public long[] getPartitionSendCounts() {
+		long[] counts = new long[this.sendCounts.length()];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = this.sendCounts.get(i);
+		}
+		return counts;
+	}
+
+	@ManagedAttribute(description = "Messages sent to the busiest partition divided by the mean per partition "
+			+ "(1 when evenly distributed, 0 before any message is sent)")
+	public double getPartitionSkew() {
+		long total = 0;
+		long max = 0;
+		for (long count : getPartitionSendCounts()) {
+			total += count;
+			max = Math.max(max, count);
+		}
+		return total == 0 ? 0 : (double) max * this.sendCounts.length() / total;
+	}
+
+}
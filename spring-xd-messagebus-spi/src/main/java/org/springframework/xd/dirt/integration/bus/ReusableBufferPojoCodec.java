@@ -0,0 +1,226 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoCallback;
+
+import org.springframework.integration.codec.kryo.KryoRegistrar;
+import org.springframework.integration.codec.kryo.PojoCodec;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link PojoCodec} that keeps its Kryo {@link Output} and {@link Input} buffers
+ * confined to the calling thread and reuses them across invocations, instead of
+ * allocating new buffers (and intermediate streams) for every payload.
+ * <p>
+ * Buffers that grow beyond {@link #setMaxRetainedBufferSize(int) maxRetainedBufferSize}
+ * while encoding a large payload are discarded after use, so that the memory retained
+ * per thread is bounded.
+ *
+ * @since 1.3.2
+ */
+public class ReusableBufferPojoCodec extends PojoCodec {
+
+	private static final int DEFAULT_BUFFER_SIZE = 4096;
+
+	private static final int DEFAULT_MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+	private static final byte[] EMPTY_BUFFER = new byte[0];
+
+	private final ThreadLocal<Output> outputs = new ThreadLocal<Output>();
+
+	private final ThreadLocal<Output> streamOutputs = new ThreadLocal<Output>();
+
+	private final ThreadLocal<Input> inputs = new ThreadLocal<Input>();
+
+	private final ThreadLocal<Input> streamInputs = new ThreadLocal<Input>();
+
+	private volatile int maxRetainedBufferSize = DEFAULT_MAX_RETAINED_BUFFER_SIZE;
+
+	public ReusableBufferPojoCodec() {
+		super();
+	}
+
+	public ReusableBufferPojoCodec(KryoRegistrar kryoRegistrar) {
+		super(kryoRegistrar);
+	}
+
+	public ReusableBufferPojoCodec(List<KryoRegistrar> kryoRegistrars) {
+		super(kryoRegistrars);
+	}
+
+	public ReusableBufferPojoCodec(KryoRegistrar kryoRegistrar, boolean useReferences) {
+		super(kryoRegistrar, useReferences);
+	}
+
+	public ReusableBufferPojoCodec(List<KryoRegistrar> kryoRegistrars, boolean useReferences) {
+		super(kryoRegistrars, useReferences);
+	}
+
+	/**
+	 * Set the maximum size of an encoding buffer that will be retained by a thread for
+	 * reuse; larger buffers are released after use. Default 65536.
+	 * @param maxRetainedBufferSize the maximum retained buffer size, in bytes.
+	 */
+	public void setMaxRetainedBufferSize(int maxRetainedBufferSize) {
+		Assert.isTrue(maxRetainedBufferSize >= DEFAULT_BUFFER_SIZE,
+				"'maxRetainedBufferSize' must be at least " + DEFAULT_BUFFER_SIZE);
+		this.maxRetainedBufferSize = maxRetainedBufferSize;
+	}
+
+	@Override
+	public byte[] encode(final Object object) throws IOException {
+		Assert.notNull(object, "cannot encode a null object");
+		final Output output = getOutput();
+		try {
+			this.pool.run(new KryoCallback<Object>() {
+
+				@Override
+				public Object execute(Kryo kryo) {
+					doEncode(kryo, object, output);
+					return null;
+				}
+
+			});
+			return output.toBytes();
+		}
+		finally {
+			if (output.getBuffer().length > this.maxRetainedBufferSize) {
+				this.outputs.remove();
+			}
+			output.clear();
+		}
+	}
+
+	@Override
+	public void encode(final Object object, OutputStream outputStream) throws IOException {
+		Assert.notNull(object, "cannot encode a null object");
+		Assert.notNull(outputStream, "'outputStream' cannot be null");
+		final Output output = getStreamOutput();
+		output.setOutputStream(outputStream);
+		try {
+			this.pool.run(new KryoCallback<Object>() {
+
+				@Override
+				public Object execute(Kryo kryo) {
+					doEncode(kryo, object, output);
+					return null;
+				}
+
+			});
+			output.close();
+		}
+		finally {
+			output.setOutputStream(null);
+		}
+	}
+
+	@Override
+	public <T> T decode(byte[] bytes, final Class<T> type) throws IOException {
+		Assert.notNull(bytes, "'bytes' cannot be null");
+		final Input input = getInput();
+		input.setBuffer(bytes);
+		try {
+			return decode(input, type);
+		}
+		finally {
+			input.setBuffer(EMPTY_BUFFER);
+		}
+	}
+
+	@Override
+	public <T> T decode(InputStream inputStream, final Class<T> type) throws IOException {
+		Assert.notNull(inputStream, "'inputStream' cannot be null");
+		if (inputStream instanceof Input) {
+			return decode((Input) inputStream, type);
+		}
+		final Input input = getStreamInput();
+		input.setInputStream(inputStream);
+		try {
+			return decode(input, type);
+		}
+		finally {
+			input.setInputStream(null);
+		}
+	}
+
+	private <T> T decode(final Input input, final Class<T> type) {
+		Assert.notNull(type, "'type' cannot be null");
+		return this.pool.run(new KryoCallback<T>() {
+
+			@Override
+			public T execute(Kryo kryo) {
+				return doDecode(kryo, input, type);
+			}
+
+		});
+	}
+
+	/**
+	 * Return the size of the encoding buffer retained by the calling thread.
+	 * @return the buffer size in bytes, or 0 if no buffer is retained.
+	 */
+	int getRetainedBufferSize() {
+		Output output = this.outputs.get();
+		return output == null ? 0 : output.getBuffer().length;
+	}
+
+	private Output getOutput() {
+		Output output = this.outputs.get();
+		if (output == null) {
+			output = new Output(DEFAULT_BUFFER_SIZE, -1);
+			this.outputs.set(output);
+		}
+		return output;
+	}
+
+	private Output getStreamOutput() {
+		Output output = this.streamOutputs.get();
+		if (output == null) {
+			output = new Output(DEFAULT_BUFFER_SIZE);
+			this.streamOutputs.set(output);
+		}
+		return output;
+	}
+
+	private Input getInput() {
+		Input input = this.inputs.get();
+		if (input == null) {
+			input = new Input();
+			this.inputs.set(input);
+		}
+		return input;
+	}
+
+	private Input getStreamInput() {
+		Input input = this.streamInputs.get();
+		if (input == null) {
+			input = new Input(DEFAULT_BUFFER_SIZE);
+			this.streamInputs.set(input);
+		}
+		return input;
+	}
+
+}
@@ -19,8 +19,15 @@ package org.springframework.xd.dirt.integration.bus;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -95,6 +102,77 @@ public class MessageConverterTests {
 		assertEquals("quxx", extracted.get("baz"));
 	}
 
+	@Test
+	public void testBinaryHeaderEmbedding() throws Exception {
+		EmbeddedHeadersMessageConverter converter =
+				new EmbeddedHeadersMessageConverter(EmbeddedHeadersMessageConverter.Format.binary);
+		UUID correlationId = UUID.randomUUID();
+		Message<byte[]> message = MessageBuilder.withPayload("Hello".getBytes())
+				.setHeader("foo", "bar")
+				.setHeader("int", 42)
+				.setHeader("long", 123456789012L)
+				.setHeader("uuid", correlationId)
+				.setHeader("history", Collections.singletonList(Collections.singletonMap("baz", "quxx")))
+				.build();
+		byte[] embedded = converter.embedHeaders(new MessageValues(message), "foo", "int", "long", "uuid",
+				"history", "missing");
+		assertEquals(0xfe, embedded[0] & 0xff);
+		assertEquals(5, embedded[1]);
+
+		MessageValues extracted = converter.extractHeaders(MessageBuilder.withPayload(embedded).build(), false);
+		assertEquals("Hello", new String((byte[]) extracted.getPayload()));
+		assertEquals("bar", extracted.get("foo"));
+		assertEquals(42, extracted.get("int"));
+		assertEquals(123456789012L, extracted.get("long"));
+		assertEquals(correlationId, extracted.get("uuid"));
+		@SuppressWarnings("unchecked")
+		List<Map<String, String>> history = (List<Map<String, String>>) extracted.get("history");
+		assertEquals("quxx", history.get(0).get("baz"));
+	}
+
+	@Test
+	public void testPayloadView() throws Exception {
+		EmbeddedHeadersMessageConverter converter =
+				new EmbeddedHeadersMessageConverter(EmbeddedHeadersMessageConverter.Format.binary);
+		Message<byte[]> message = MessageBuilder.withPayload("Hello".getBytes())
+				.setHeader("foo", "\u00d8\u00d8")
+				.build();
+		byte[] embedded = converter.embedHeaders(new MessageValues(message), "foo");
+		MessageValues extracted = converter.extractHeaders(MessageBuilder.withPayload(embedded).build(), false,
+				true);
+		assertEquals("\u00d8\u00d8", extracted.get("foo"));
+		ByteBuffer payload = (ByteBuffer) extracted.getPayload();
+		assertSame(embedded, payload.array());
+		assertEquals(5, payload.remaining());
+		assertEquals("Hello", new String(payload.array(), payload.arrayOffset() + payload.position(),
+				payload.remaining(), "UTF-8"));
+	}
+
+	@Test
+	public void testBinaryConverterDecodesOtherFormats() throws Exception {
+		EmbeddedHeadersMessageConverter jsonConverter = new EmbeddedHeadersMessageConverter();
+		EmbeddedHeadersMessageConverter binaryConverter =
+				new EmbeddedHeadersMessageConverter(EmbeddedHeadersMessageConverter.Format.binary);
+		Message<byte[]> message = MessageBuilder.withPayload("Hello".getBytes())
+				.setHeader("foo", "bar")
+				.build();
+
+		byte[] embedded = jsonConverter.embedHeaders(new MessageValues(message), "foo");
+		MessageValues extracted = binaryConverter.extractHeaders(MessageBuilder.withPayload(embedded).build(), false);
+		assertEquals("Hello", new String((byte[]) extracted.getPayload()));
+		assertEquals("bar", extracted.get("foo"));
+
+		embedded = binaryConverter.embedHeaders(new MessageValues(message), "foo");
+		extracted = jsonConverter.extractHeaders(MessageBuilder.withPayload(embedded).build(), false);
+		assertEquals("Hello", new String((byte[]) extracted.getPayload()));
+		assertEquals("bar", extracted.get("foo"));
+
+		byte[] bytes = "\u0002\u0003foo\u0003bar\u0003baz\u0004quxxHello".getBytes("UTF-8");
+		extracted = binaryConverter.extractHeaders(new GenericMessage<byte[]>(bytes), false);
+		assertEquals("Hello", new String((byte[]) extracted.getPayload()));
+		assertEquals("quxx", extracted.get("baz"));
+	}
+
 	@Test
 	public void testBadDecode() throws Exception {
 		EmbeddedHeadersMessageConverter converter = new EmbeddedHeadersMessageConverter();
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.dirt.integration.bus;
+
+import java.util.Properties;
+
+import org.springframework.messaging.MessageChannel;
+
+/**
+ * A {@link MessageBusSupport} that binds nothing, for exercising its partitioning support.
+ *
+ * @since 1.3.2
+ */
+public class PartitionTestBus extends MessageBusSupport {
+
+	@Override
+	public void bindConsumer(String name, MessageChannel channel, Properties properties) {
+	}
+
+	@Override
+	public void bindPubSubConsumer(String name, MessageChannel moduleInputChannel, Properties properties) {
+	}
+
+	@Override
+	public void bindPubSubProducer(String name, MessageChannel moduleOutputChannel, Properties properties) {
+	}
+
+	@Override
+	public void bindProducer(String name, MessageChannel channel, Properties properties) {
+	}
+
+	@Override
+	public void bindRequestor(String name, MessageChannel requests, MessageChannel replies,
+			Properties properties) {
+	}
+
+	@Override
+	public void bindReplier(String name, MessageChannel requests, MessageChannel replies,
+			Properties properties) {
+	}
+
+}
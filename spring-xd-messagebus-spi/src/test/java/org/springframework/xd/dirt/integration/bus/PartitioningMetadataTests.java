@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.xd.dirt.integration.bus.MessageBusSupport.CompilableExpression;
+import org.springframework.xd.dirt.integration.bus.MessageBusSupport.PartitioningMetadata;
+
+/**
+ * @since 1.3.2
+ */
+public class PartitioningMetadataTests {
+
+	private final GenericApplicationContext context = new GenericApplicationContext();
+
+	private final PartitionTestBus bus = new PartitionTestBus();
+
+	private static final AtomicInteger evaluations = new AtomicInteger();
+
+	@Before
+	public void setUp() throws Exception {
+		this.context.refresh();
+		this.bus.setApplicationContext(this.context);
+		this.bus.setIntegrationEvaluationContext(new StandardEvaluationContext());
+		this.bus.afterPropertiesSet();
+		CountingExtractor.instances.set(0);
+		evaluations.set(0);
+	}
+
+	@Test
+	public void testStrategiesResolvedOnce() {
+		Properties properties = new Properties();
+		properties.setProperty(BusProperties.PARTITION_KEY_EXTRACTOR_CLASS, CountingExtractor.class.getName());
+		properties.setProperty(BusProperties.PARTITION_SELECTOR_CLASS, FirstPartitionSelector.class.getName());
+		PartitioningMetadata meta = metadata(properties, 3);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, this.bus.determinePartition(new GenericMessage<String>("foo"), meta));
+		}
+		assertEquals(1, CountingExtractor.instances.get());
+		assertSame(this.context.getBean(CountingExtractor.class.getName()),
+				this.context.getBean(CountingExtractor.class.getName(), PartitionKeyExtractorStrategy.class));
+
+		PartitioningMetadata other = metadata(properties, 3);
+		this.bus.determinePartition(new GenericMessage<String>("foo"), other);
+		assertEquals(1, CountingExtractor.instances.get());
+		assertArrayEquals(new long[] { 5, 0, 0 }, meta.getPartitionSendCounts());
+	}
+
+	@Test
+	public void testExpressionsAndSendCounts() {
+		Properties properties = new Properties();
+		properties.setProperty(BusProperties.PARTITION_KEY_EXPRESSION, "payload.length()");
+		properties.setProperty(BusProperties.PARTITION_SELECTOR_EXPRESSION, "intValue() * 2");
+		PartitioningMetadata meta = metadata(properties, 4);
+		for (String payload : Arrays.asList("a", "ab", "abc", "abcd", "a")) {
+			assertEquals((payload.length() * 2) % 4, this.bus.determinePartition(new GenericMessage<String>(payload),
+					meta));
+		}
+		assertArrayEquals(new long[] { 2, 0, 3, 0 }, meta.getPartitionSendCounts());
+	}
+
+	@Test
+	public void testCompiledExpressionFallsBackToInterpreted() {
+		Properties properties = new Properties();
+		properties.setProperty(BusProperties.PARTITION_KEY_EXPRESSION, "payload.size()");
+		PartitioningMetadata meta = metadata(properties, 10);
+		assertEquals(2, this.bus.determinePartition(
+				new GenericMessage<ArrayList<String>>(new ArrayList<String>(Arrays.asList("a", "b"))), meta));
+		assertEquals(2, this.bus.determinePartition(
+				new GenericMessage<ArrayList<String>>(new ArrayList<String>(Arrays.asList("a", "b"))), meta));
+		// the compiled expression casts to ArrayList
+		assertEquals(3, this.bus.determinePartition(
+				new GenericMessage<LinkedList<String>>(new LinkedList<String>(Arrays.asList("a", "b", "c"))), meta));
+		assertEquals(1, this.bus.determinePartition(
+				new GenericMessage<ArrayList<String>>(new ArrayList<String>(Arrays.asList("a"))), meta));
+	}
+
+	@Test
+	public void testEvaluationErrorPropagatedWithoutDisablingCompilation() {
+		CompilableExpression expression = CompilableExpression.from(new SpelExpressionParser().parseExpression(
+				"T(" + PartitioningMetadataTests.class.getName() + ").key(#root)"));
+		StandardEvaluationContext context = new StandardEvaluationContext();
+		for (int i = 0; i < 3; i++) {
+			assertEquals(Integer.valueOf(3), expression.getValue(context, "foo", Integer.class));
+		}
+		assertTrue(expression.isCompiled());
+		evaluations.set(0);
+		try {
+			expression.getValue(context, "", Integer.class);
+			fail("expected an evaluation error");
+		}
+		catch (SpelEvaluationException e) {
+			assertTrue(e.getCause() instanceof IllegalArgumentException);
+		}
+		assertEquals(1, evaluations.get());
+		assertTrue(expression.isCompiled());
+		assertEquals(Integer.valueOf(2), expression.getValue(context, "ab", Integer.class));
+	}
+
+	@Test
+	public void testPartitionMetricsExported() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty(BusProperties.PARTITION_KEY_EXPRESSION, "payload");
+		properties.setProperty(BusProperties.PARTITION_SELECTOR_EXPRESSION, "length()");
+		PartitioningMetadata meta = metadata(properties, 2);
+		for (String payload : Arrays.asList("a", "b", "c", "dd")) {
+			this.bus.determinePartition(new GenericMessage<String>(payload), meta);
+		}
+		this.bus.setBindingMetricsEnabled(true);
+		this.bus.registerBindingMetrics("foo.0", "producer", meta.getPartitionMetrics());
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("xd.messagebus:type=partitionTestBus,binding=\"foo.0\",direction=producer");
+		try {
+			assertArrayEquals(new long[] { 1, 3 }, (long[]) server.getAttribute(name, "PartitionSendCounts"));
+			assertEquals(1.5, (Double) server.getAttribute(name, "PartitionSkew"), 0.0001);
+		}
+		finally {
+			this.bus.unregisterBindingMetrics("foo.0", "producer");
+			this.bus.destroyBindingMetrics();
+		}
+		assertFalse(server.isRegistered(name));
+	}
+
+	public static int key(String value) {
+		evaluations.incrementAndGet();
+		if (value.isEmpty()) {
+			throw new IllegalArgumentException("empty key");
+		}
+		return value.length();
+	}
+
+	private PartitioningMetadata metadata(Properties properties, int partitionCount) {
+		return new PartitioningMetadata(new AbstractBusPropertiesAccessor(properties) {
+		}, partitionCount);
+	}
+
+	public static class CountingExtractor implements PartitionKeyExtractorStrategy {
+
+		private static final AtomicInteger instances = new AtomicInteger();
+
+		public CountingExtractor() {
+			instances.incrementAndGet();
+		}
+
+		@Override
+		public Object extractKey(Message<?> message) {
+			return message.getPayload();
+		}
+
+	}
+
+	public static class FirstPartitionSelector implements PartitionSelectorStrategy {
+
+		@Override
+		public int selectPartition(Object key, int partitionCount) {
+			return 0;
+		}
+
+	}
+
+}
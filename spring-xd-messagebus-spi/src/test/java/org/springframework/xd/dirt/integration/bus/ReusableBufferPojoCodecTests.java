@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.dirt.integration.bus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.integration.codec.kryo.PojoCodec;
+
+/**
+ * @since 1.3.2
+ */
+public class ReusableBufferPojoCodecTests {
+
+	@Test
+	public void testReusedBuffersRoundTrip() throws Exception {
+		ReusableBufferPojoCodec codec = new ReusableBufferPojoCodec();
+		for (int i = 0; i < 3; i++) {
+			List<String> list = new ArrayList<String>(Arrays.asList("foo", "bar", Integer.toString(i)));
+			byte[] bytes = codec.encode(list);
+			assertEquals(list, codec.decode(bytes, ArrayList.class));
+			assertEquals(list, codec.decode(new ByteArrayInputStream(bytes), ArrayList.class));
+		}
+	}
+
+	@Test
+	public void testCompatibleWithPojoCodec() throws Exception {
+		ReusableBufferPojoCodec codec = new ReusableBufferPojoCodec();
+		PojoCodec pojoCodec = new PojoCodec();
+		List<String> list = new ArrayList<String>(Arrays.asList("foo", "bar"));
+		byte[] bytes = codec.encode(list);
+		assertArrayEquals(pojoCodec.encode(list), bytes);
+		assertEquals(list, pojoCodec.decode(bytes, ArrayList.class));
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		codec.encode(list, bos);
+		assertArrayEquals(bytes, bos.toByteArray());
+	}
+
+	@Test
+	public void testLargePayloadBufferNotRetained() throws Exception {
+		ReusableBufferPojoCodec codec = new ReusableBufferPojoCodec();
+		codec.setMaxRetainedBufferSize(4096);
+		char[] chars = new char[100000];
+		Arrays.fill(chars, 'x');
+		String large = new String(chars);
+		assertEquals("small", codec.decode(codec.encode("small"), String.class));
+		assertEquals(4096, codec.getRetainedBufferSize());
+		byte[] bytes = codec.encode(large);
+		assertEquals(0, codec.getRetainedBufferSize());
+		assertEquals(large, codec.decode(bytes, String.class));
+		assertEquals("small", codec.decode(codec.encode("small"), String.class));
+		assertEquals(4096, codec.getRetainedBufferSize());
+	}
+
+}
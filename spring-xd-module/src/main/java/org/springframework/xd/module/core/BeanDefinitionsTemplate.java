@@ -0,0 +1,317 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.module.core;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.annotation.AnnotatedGenericBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.ConstructorArgumentValues.ValueHolder;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.beans.factory.support.ManagedArray;
+import org.springframework.beans.factory.support.ManagedList;
+import org.springframework.beans.factory.support.ManagedMap;
+import org.springframework.beans.factory.support.ManagedProperties;
+import org.springframework.beans.factory.support.ManagedSet;
+import org.springframework.core.CollectionFactory;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.StandardAnnotationMetadata;
+
+/**
+ * The bean definitions that a module configuration file registered in a module application context, kept so that
+ * they can be registered in the contexts of other instances of the module without parsing the file again.
+ * <p>
+ * Definitions are deep copied when captured and when registered, since application contexts modify the definitions
+ * they hold, for instance when resolving placeholders. A template can only be captured if none of its definitions
+ * refers to a class loaded by the module class loader, as caching it would leak the class loader of an undeployed
+ * module, and the next instance of the module would use classes of the wrong class loader.
+ *
+ * @since 1.3.2
+ */
+final class BeanDefinitionsTemplate {
+
+	private final Map<String, BeanDefinition> beanDefinitions;
+
+	private final Map<String, String[]> aliases;
+
+	private final boolean importingResources;
+
+	private BeanDefinitionsTemplate(Map<String, BeanDefinition> beanDefinitions, Map<String, String[]> aliases,
+			boolean importingResources) {
+		this.beanDefinitions = beanDefinitions;
+		this.aliases = aliases;
+		this.importingResources = importingResources;
+	}
+
+	/**
+	 * Capture the given bean definitions of a registry, and their aliases.
+	 *
+	 * @param registry the registry the definitions were loaded into
+	 * @param beanNames the names of the definitions to capture, in registration order
+	 * @param moduleClassLoader the class loader of the module
+	 * @param importingResources whether the configuration imported other resources
+	 * @return the template, or {@code null} if a definition refers to a class of the module class loader
+	 */
+	static BeanDefinitionsTemplate capture(BeanDefinitionRegistry registry, Collection<String> beanNames,
+			ClassLoader moduleClassLoader, boolean importingResources) {
+		Copier copier = new Copier(moduleClassLoader);
+		Map<String, BeanDefinition> beanDefinitions = new LinkedHashMap<String, BeanDefinition>();
+		Map<String, String[]> aliases = new LinkedHashMap<String, String[]>();
+		for (String beanName : beanNames) {
+			BeanDefinition copy = copier.copyBeanDefinition(registry.getBeanDefinition(beanName));
+			if (!copier.cacheSafe) {
+				return null;
+			}
+			if (copy instanceof AbstractBeanDefinition) {
+				// do not hold on to the module configuration file
+				((AbstractBeanDefinition) copy).setResource(null);
+			}
+			beanDefinitions.put(beanName, copy);
+			String[] beanAliases = registry.getAliases(beanName);
+			if (beanAliases.length > 0) {
+				aliases.put(beanName, beanAliases);
+			}
+		}
+		return new BeanDefinitionsTemplate(beanDefinitions, aliases, importingResources);
+	}
+
+	/**
+	 * Register copies of the bean definitions of this template, and their aliases, with the given registry.
+	 */
+	void registerWith(BeanDefinitionRegistry registry) {
+		Copier copier = new Copier(null);
+		for (Map.Entry<String, BeanDefinition> entry : this.beanDefinitions.entrySet()) {
+			registry.registerBeanDefinition(entry.getKey(), copier.copyBeanDefinition(entry.getValue()));
+		}
+		for (Map.Entry<String, String[]> entry : this.aliases.entrySet()) {
+			for (String alias : entry.getValue()) {
+				registry.registerAlias(entry.getKey(), alias);
+			}
+		}
+	}
+
+	/**
+	 * Whether the configuration the definitions were parsed from imported other resources, whose locations may
+	 * depend on option values.
+	 */
+	boolean isImportingResources() {
+		return this.importingResources;
+	}
+
+
+	/**
+	 * Deep copies bean definitions, checking the classes they refer to on the way.
+	 */
+	private static class Copier {
+
+		private final ClassLoader moduleClassLoader;
+
+		private boolean cacheSafe = true;
+
+		/**
+		 * @param moduleClassLoader the class loader whose classes make a definition not cache safe, or
+		 *        {@code null} not to check
+		 */
+		private Copier(ClassLoader moduleClassLoader) {
+			this.moduleClassLoader = moduleClassLoader;
+		}
+
+		private BeanDefinition copyBeanDefinition(BeanDefinition definition) {
+			AbstractBeanDefinition copy;
+			if (definition instanceof AnnotatedBeanDefinition) {
+				AnnotationMetadata metadata = ((AnnotatedBeanDefinition) definition).getMetadata();
+				if (metadata instanceof StandardAnnotationMetadata) {
+					checkClass(((StandardAnnotationMetadata) metadata).getIntrospectedClass());
+				}
+				AnnotatedGenericBeanDefinition annotated = new AnnotatedGenericBeanDefinition(metadata);
+				annotated.overrideFrom(definition);
+				annotated.setParentName(definition.getParentName());
+				copy = annotated;
+			}
+			else {
+				copy = new GenericBeanDefinition(definition);
+			}
+			if (copy.hasBeanClass()) {
+				checkClass(copy.getBeanClass());
+			}
+			MutablePropertyValues propertyValues = copy.getPropertyValues();
+			for (int i = 0; i < propertyValues.size(); i++) {
+				PropertyValue pv = propertyValues.getPropertyValueList().get(i);
+				propertyValues.setPropertyValueAt(new PropertyValue(pv, copyValue(pv.getValue())), i);
+			}
+			ConstructorArgumentValues args = copy.getConstructorArgumentValues();
+			ConstructorArgumentValues argsCopy = new ConstructorArgumentValues();
+			for (Map.Entry<Integer, ValueHolder> entry : args.getIndexedArgumentValues().entrySet()) {
+				argsCopy.addIndexedArgumentValue(entry.getKey(), copyValueHolder(entry.getValue()));
+			}
+			for (ValueHolder holder : args.getGenericArgumentValues()) {
+				argsCopy.addGenericArgumentValue(copyValueHolder(holder));
+			}
+			copy.setConstructorArgumentValues(argsCopy);
+			return copy;
+		}
+
+		private ValueHolder copyValueHolder(ValueHolder holder) {
+			ValueHolder copy = holder.copy();
+			copy.setValue(copyValue(holder.getValue()));
+			return copy;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private Object copyValue(Object value) {
+			if (value == null) {
+				return null;
+			}
+			else if (value instanceof BeanDefinitionHolder) {
+				BeanDefinitionHolder holder = (BeanDefinitionHolder) value;
+				return new BeanDefinitionHolder(copyBeanDefinition(holder.getBeanDefinition()), holder.getBeanName(),
+						holder.getAliases());
+			}
+			else if (value instanceof BeanDefinition) {
+				return copyBeanDefinition((BeanDefinition) value);
+			}
+			else if (value instanceof TypedStringValue) {
+				TypedStringValue typed = (TypedStringValue) value;
+				TypedStringValue copy = new TypedStringValue(typed.getValue());
+				if (typed.hasTargetType()) {
+					copy.setTargetType(checkClass(typed.getTargetType()));
+				}
+				else if (typed.getTargetTypeName() != null) {
+					copy.setTargetTypeName(typed.getTargetTypeName());
+				}
+				copy.setSource(typed.getSource());
+				copy.setSpecifiedTypeName(typed.getSpecifiedTypeName());
+				if (typed.isDynamic()) {
+					copy.setDynamic();
+				}
+				return copy;
+			}
+			else if (value instanceof ManagedArray) {
+				ManagedArray array = (ManagedArray) value;
+				ManagedArray copy = new ManagedArray(array.getElementTypeName(), array.size());
+				copyCollection(array, copy);
+				copy.setMergeEnabled(array.isMergeEnabled());
+				return copy;
+			}
+			else if (value instanceof ManagedList) {
+				ManagedList list = (ManagedList) value;
+				ManagedList copy = new ManagedList(list.size());
+				copy.setElementTypeName(list.getElementTypeName());
+				copy.setMergeEnabled(list.isMergeEnabled());
+				copyCollection(list, copy);
+				return copy;
+			}
+			else if (value instanceof ManagedSet) {
+				ManagedSet set = (ManagedSet) value;
+				ManagedSet copy = new ManagedSet(set.size());
+				copy.setElementTypeName(set.getElementTypeName());
+				copy.setMergeEnabled(set.isMergeEnabled());
+				copyCollection(set, copy);
+				return copy;
+			}
+			else if (value instanceof ManagedMap) {
+				ManagedMap map = (ManagedMap) value;
+				ManagedMap copy = new ManagedMap(map.size());
+				copy.setKeyTypeName(map.getKeyTypeName());
+				copy.setValueTypeName(map.getValueTypeName());
+				copy.setMergeEnabled(map.isMergeEnabled());
+				copyMap(map, copy);
+				return copy;
+			}
+			else if (value instanceof ManagedProperties) {
+				ManagedProperties properties = (ManagedProperties) value;
+				ManagedProperties copy = new ManagedProperties();
+				copy.setMergeEnabled(properties.isMergeEnabled());
+				copyMap(properties, copy);
+				return copy;
+			}
+			else if (value instanceof Properties) {
+				Properties copy = new Properties();
+				copyMap((Properties) value, copy);
+				return copy;
+			}
+			else if (value instanceof Collection) {
+				Collection collection = (Collection) value;
+				Collection copy = CollectionFactory.createApproximateCollection(collection, collection.size());
+				copyCollection(collection, copy);
+				return copy;
+			}
+			else if (value instanceof Map) {
+				Map map = (Map) value;
+				Map copy = CollectionFactory.createApproximateMap(map, map.size());
+				copyMap(map, copy);
+				return copy;
+			}
+			else if (value instanceof Object[]) {
+				Object[] array = (Object[]) value;
+				Object[] copy = (Object[]) Array.newInstance(
+						checkClass(array.getClass().getComponentType()), array.length);
+				for (int i = 0; i < array.length; i++) {
+					copy[i] = copyValue(array[i]);
+				}
+				return copy;
+			}
+			else if (value instanceof Class) {
+				return checkClass((Class<?>) value);
+			}
+			else if (!(value instanceof String || value instanceof RuntimeBeanReference
+					|| value instanceof RuntimeBeanNameReference)) {
+				// other values are shared, which is only safe for immutable ones such as numbers and enums
+				checkClass(value.getClass());
+			}
+			return value;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private void copyCollection(Collection source, Collection target) {
+			for (Object element : source) {
+				target.add(copyValue(element));
+			}
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private void copyMap(Map<?, ?> source, Map target) {
+			for (Map.Entry<?, ?> entry : source.entrySet()) {
+				target.put(copyValue(entry.getKey()), copyValue(entry.getValue()));
+			}
+		}
+
+		private Class<?> checkClass(Class<?> type) {
+			if (this.moduleClassLoader != null && type.getClassLoader() == this.moduleClassLoader) {
+				this.cacheSafe = false;
+			}
+			return type;
+		}
+
+	}
+
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.module.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.xd.module.ModuleDefinition;
+import org.springframework.xd.module.SimpleModuleDefinition;
+import org.springframework.xd.module.options.ModuleOptionsMetadata;
+import org.springframework.xd.module.options.ModuleOptionsMetadataResolver;
+
+/**
+ * Caches, per module definition, what {@link ModuleFactory} would otherwise compute again for every instance of a
+ * module: the resolved {@link ModuleOptionsMetadata}, and the bean definitions parsed from the XML configuration of
+ * the module.
+ * <p>
+ * Entries are keyed by module type and name, and are discarded as soon as the module archive changes, which is
+ * detected using the {@code .md5} file stored next to uploaded modules, or else the modification time of the module
+ * archive (or of its {@code config} directory, for exploded modules). Modules whose version cannot be determined, for
+ * instance because they have been deleted, are not cached, and their entry is discarded.
+ * <p>
+ * The options metadata of modules that ship classes, in a {@code lib} directory or at the root of the archive, is not
+ * cached: it may hold an options class loaded by the module discovery class loader, which would then never be
+ * released. Likewise, bean definitions that refer to classes of the module class loader are not cached.
+ *
+ * @since 1.3.2
+ */
+public class ModuleDefinitionCache {
+
+	/**
+	 * The maximum number of bean definition templates kept per module definition. Modules whose configuration
+	 * depends on option values may produce a template per distinct set of values.
+	 */
+	private static final int MAX_TEMPLATES_PER_MODULE = 16;
+
+	private static final Logger logger = LoggerFactory.getLogger(ModuleDefinitionCache.class);
+
+	private final ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	/**
+	 * Return the options metadata of a module definition, resolving it with the given resolver if it is not cached
+	 * yet.
+	 */
+	public ModuleOptionsMetadata getOptionsMetadata(SimpleModuleDefinition definition,
+			ModuleOptionsMetadataResolver resolver) {
+		Entry entry = entryFor(definition);
+		if (entry == null) {
+			return resolver.resolve(definition);
+		}
+		ModuleOptionsMetadata metadata = entry.optionsMetadata;
+		if (metadata == null) {
+			metadata = resolver.resolve(definition);
+			if (entry.shipsClasses == null) {
+				entry.shipsClasses = containsClasses(definition);
+			}
+			if (!entry.shipsClasses) {
+				entry.optionsMetadata = metadata;
+			}
+		}
+		return metadata;
+	}
+
+	/**
+	 * Remove the cached data of a module definition.
+	 */
+	public void evict(ModuleDefinition definition) {
+		this.entries.remove(key(definition));
+	}
+
+	/**
+	 * Remove the cached data of all module definitions.
+	 */
+	public void clear() {
+		this.entries.clear();
+	}
+
+	/**
+	 * Return the bean definitions parsed from the configuration of a module, for the given variant of its
+	 * configuration, or {@code null} if they are not cached.
+	 */
+	BeanDefinitionsTemplate getBeanDefinitions(SimpleModuleDefinition definition, String variant) {
+		Entry entry = entryFor(definition);
+		return entry == null ? null : entry.beanDefinitions.get(variant);
+	}
+
+	void putBeanDefinitions(SimpleModuleDefinition definition, String variant, BeanDefinitionsTemplate template) {
+		Entry entry = entryFor(definition);
+		if (entry != null) {
+			entry.beanDefinitions.put(variant, template);
+		}
+	}
+
+	/**
+	 * Return the entry of a module definition, replacing it if the module archive has changed since it was
+	 * created, or {@code null} if the version of the module cannot be determined.
+	 */
+	private Entry entryFor(SimpleModuleDefinition definition) {
+		String key = key(definition);
+		String version = version(definition);
+		if (version == null) {
+			this.entries.remove(key);
+			return null;
+		}
+		Entry entry = this.entries.get(key);
+		if (entry == null || !entry.version.equals(version)) {
+			// when racing with another thread, the last entry wins, which at worst costs another resolution
+			entry = new Entry(version);
+			this.entries.put(key, entry);
+		}
+		return entry;
+	}
+
+	private String version(SimpleModuleDefinition definition) {
+		String location = definition.getLocation();
+		if (location == null) {
+			return null;
+		}
+		try {
+			Resource md5 = this.resolver.getResource(location + ".md5");
+			if (md5.isReadable()) {
+				ByteArrayOutputStream bos = new ByteArrayOutputStream();
+				FileCopyUtils.copy(md5.getInputStream(), bos);
+				return location + "#" + bos.toString();
+			}
+			File archive = this.resolver.getResource(location).getFile();
+			if (archive.isDirectory()) {
+				long lastModified = 0;
+				File[] files = new File(archive, "config").listFiles();
+				if (files != null) {
+					for (File file : files) {
+						lastModified = Math.max(lastModified, file.lastModified());
+					}
+				}
+				return location + "@" + lastModified;
+			}
+			return archive.exists() ? location + "@" + archive.lastModified() : null;
+		}
+		catch (IOException e) {
+			logger.debug("Cannot determine the version of {}, not caching it: {}", definition, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Whether the module archive contains classes or libraries, which the module discovery class loader would load;
+	 * {@code true} when it cannot be read.
+	 */
+	private boolean containsClasses(SimpleModuleDefinition definition) {
+		try {
+			File archive = this.resolver.getResource(definition.getLocation()).getFile();
+			if (archive.isDirectory()) {
+				return containsClasses(archive);
+			}
+			ZipFile zip = new ZipFile(archive);
+			try {
+				for (Enumeration<? extends ZipEntry> zipEntries = zip.entries(); zipEntries.hasMoreElements();) {
+					if (isClassOrLibrary(zipEntries.nextElement().getName())) {
+						return true;
+					}
+				}
+				return false;
+			}
+			finally {
+				zip.close();
+			}
+		}
+		catch (IOException e) {
+			logger.debug("Cannot read the archive of {}, not caching its options: {}", definition, e.getMessage());
+			return true;
+		}
+	}
+
+	private boolean containsClasses(File directory) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return false;
+		}
+		for (File file : files) {
+			if (file.isDirectory() ? containsClasses(file) : isClassOrLibrary(file.getPath())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isClassOrLibrary(String path) {
+		return path.endsWith(".class") || path.endsWith(".jar") || path.endsWith(".zip");
+	}
+
+	private static String key(ModuleDefinition definition) {
+		return definition.getType() + ":" + definition.getName();
+	}
+
+
+	private static class Entry {
+
+		private final String version;
+
+		private volatile ModuleOptionsMetadata optionsMetadata;
+
+		private final Map<String, BeanDefinitionsTemplate> beanDefinitions = Collections.synchronizedMap(
+				new LinkedHashMap<String, BeanDefinitionsTemplate>(16, 0.75f, true) {
+
+					@Override
+					protected boolean removeEldestEntry(Map.Entry<String, BeanDefinitionsTemplate> eldest) {
+						return size() > MAX_TEMPLATES_PER_MODULE;
+					}
+
+				});
+
+		/**
+		 * Whether the module archive contains classes, computed on first use.
+		 */
+		private volatile Boolean shipsClasses;
+
+		private Entry(String version) {
+			this.version = version;
+		}
+
+	}
+
+}
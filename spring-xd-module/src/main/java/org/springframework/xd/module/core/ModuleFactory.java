@@ -1,5 +1,5 @@
 /*
- * Copyright 2014-2015 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.BeanClassLoaderAware;
 import org.springframework.util.Assert;
 import org.springframework.validation.BindException;
+import org.springframework.xd.module.ModuleDefinition;
 import org.springframework.xd.module.ModuleDeploymentProperties;
 import org.springframework.xd.module.ModuleDescriptor;
 import org.springframework.xd.module.SimpleModuleDefinition;
@@ -52,6 +53,8 @@ public class ModuleFactory implements BeanClassLoaderAware {
 
 	private volatile ClassLoader parentClassLoader = ModuleFactory.class.getClassLoader();
 
+	private volatile ModuleDefinitionCache moduleDefinitionCache = new ModuleDefinitionCache();
+
 	/**
 	 * This key is used by the module to define the execution framework(spark streaming, reactor etc.,) to be used when
 	 * deploying it.
@@ -122,8 +125,12 @@ public class ModuleFactory implements BeanClassLoaderAware {
 		Assert.notNull(moduleClass,
 				String.format("Required module artifacts are either missing or invalid. Unable to determine module type for module definition: '%s:%s'.",
 						moduleDescriptor.getType(), moduleDescriptor.getModuleName()));
-		return SimpleModuleCreator
+		SimpleModule module = SimpleModuleCreator
 				.createModule(moduleDescriptor, deploymentProperties, moduleClassLoader, moduleOptions, moduleClass);
+		if (module instanceof ResourceConfiguredModule) {
+			((ResourceConfiguredModule) module).setModuleDefinitionCache(this.moduleDefinitionCache);
+		}
+		return module;
 	}
 
 	private Class<? extends SimpleModule> determineModuleClass(SimpleModuleDefinition moduleDefinition,
@@ -180,8 +187,11 @@ public class ModuleFactory implements BeanClassLoaderAware {
 	 */
 	private ModuleOptions safeModuleOptionsInterpolate(ModuleDescriptor descriptor) {
 		Map<String, String> parameters = descriptor.getParameters();
-		ModuleOptionsMetadata moduleOptionsMetadata =
-				moduleOptionsMetadataResolver.resolve(descriptor.getModuleDefinition());
+		ModuleDefinition definition = descriptor.getModuleDefinition();
+		ModuleDefinitionCache cache = this.moduleDefinitionCache;
+		ModuleOptionsMetadata moduleOptionsMetadata = cache != null && definition instanceof SimpleModuleDefinition
+				? cache.getOptionsMetadata((SimpleModuleDefinition) definition, moduleOptionsMetadataResolver)
+				: moduleOptionsMetadataResolver.resolve(definition);
 		try {
 			return moduleOptionsMetadata.interpolate(parameters);
 		}
@@ -191,6 +201,14 @@ public class ModuleFactory implements BeanClassLoaderAware {
 		}
 	}
 
+	/**
+	 * Set the cache of the data derived from module definitions, shared by the instances of a module. Defaults to a
+	 * cache private to this factory; {@code null} to disable caching.
+	 */
+	public void setModuleDefinitionCache(ModuleDefinitionCache moduleDefinitionCache) {
+		this.moduleDefinitionCache = moduleDefinitionCache;
+	}
+
 	@Override
 	public void setBeanClassLoader(ClassLoader classLoader) {
 		this.parentClassLoader = classLoader;
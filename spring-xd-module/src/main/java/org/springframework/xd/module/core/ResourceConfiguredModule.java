@@ -1,5 +1,5 @@
 /*
- * Copyright 2014 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,27 @@
 
 package org.springframework.xd.module.core;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.parsing.EmptyReaderEventListener;
+import org.springframework.beans.factory.parsing.ImportDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.EnumerablePropertySource;
 import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
 import org.springframework.xd.module.ModuleDeploymentProperties;
 import org.springframework.xd.module.ModuleDescriptor;
 import org.springframework.xd.module.SimpleModuleDefinition;
@@ -26,12 +46,22 @@ import org.springframework.xd.module.options.ModuleUtils;
 /**
  * A {@link org.springframework.xd.module.core.SimpleModule} configured using a bean definition resource (XML or
  * Groovy)
+ * <p>
+ * XML configuration is parsed when the module is initialized. When a {@link ModuleDefinitionCache} is set, the bean
+ * definitions parsed for a module are kept in it, and later instances of the same module, with the same active
+ * profiles, register copies of them instead of parsing the file again. Placeholders are resolved later, in each
+ * context, so instances with different option values share the same definitions, unless the configuration imports
+ * other resources.
  *
  * @author David Turanski
  * @author Eric Bottard
  */
 public class ResourceConfiguredModule extends SimpleModule {
 
+	private static final Logger logger = LoggerFactory.getLogger(ResourceConfiguredModule.class);
+
+	private volatile ModuleDefinitionCache moduleDefinitionCache;
+
 	public ResourceConfiguredModule(ModuleDescriptor descriptor, ModuleDeploymentProperties deploymentProperties) {
 		super(descriptor, deploymentProperties);
 	}
@@ -46,9 +76,112 @@ public class ResourceConfiguredModule extends SimpleModule {
 	@Override
 	protected void configureModuleApplicationContext(SimpleModuleDefinition moduleDefinition) {
 		Resource source = ModuleUtils.resourceBasedConfigurationFile(moduleDefinition);
-		if (source != null) {
+		if (source == null) {
+			return;
+		}
+		String filename = source.getFilename();
+		if (filename != null && filename.endsWith(".groovy")) {
 			addSource(source);
 		}
+		else {
+			addInitializer(new XmlConfigurationInitializer(moduleDefinition, source));
+		}
+	}
+
+	/**
+	 * Set the cache of the bean definitions parsed from module configuration files; {@code null} (the default) to
+	 * parse the configuration of every instance.
+	 */
+	public void setModuleDefinitionCache(ModuleDefinitionCache moduleDefinitionCache) {
+		this.moduleDefinitionCache = moduleDefinitionCache;
+	}
+
+	/**
+	 * Return the key of the bean definitions parsed from the configuration file of this module in the given
+	 * context. Parsing depends on the active profiles, through nested {@code <beans profile="...">} elements, and,
+	 * for configurations that import other resources, on the option values that the imported locations may refer to.
+	 */
+	private String configurationVariant(ConfigurableApplicationContext context, boolean importingResources) {
+		String[] profiles = context.getEnvironment().getActiveProfiles().clone();
+		Arrays.sort(profiles);
+		if (!importingResources) {
+			return Arrays.toString(profiles);
+		}
+		Map<String, Object> options = new TreeMap<String, Object>();
+		EnumerablePropertySource<?> ps = getModuleOptions().asPropertySource();
+		for (String name : ps.getPropertyNames()) {
+			options.put(name, ps.getProperty(name));
+		}
+		return Arrays.toString(profiles) + options;
+	}
+
+
+	/**
+	 * Loads the bean definitions of an XML configuration file into the module context, before the other sources of
+	 * the module are loaded, like loading the file as a source would.
+	 */
+	private class XmlConfigurationInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+		private final SimpleModuleDefinition moduleDefinition;
+
+		private final Resource source;
+
+		private XmlConfigurationInitializer(SimpleModuleDefinition moduleDefinition, Resource source) {
+			this.moduleDefinition = moduleDefinition;
+			this.source = source;
+		}
+
+		@Override
+		public void initialize(ConfigurableApplicationContext context) {
+			Assert.isInstanceOf(BeanDefinitionRegistry.class, context);
+			BeanDefinitionRegistry registry = (BeanDefinitionRegistry) context;
+			ModuleDefinitionCache cache = moduleDefinitionCache;
+			if (cache != null) {
+				BeanDefinitionsTemplate template = cache.getBeanDefinitions(this.moduleDefinition,
+						configurationVariant(context, false));
+				if (template != null && template.isImportingResources()) {
+					template = cache.getBeanDefinitions(this.moduleDefinition, configurationVariant(context, true));
+				}
+				if (template != null) {
+					template.registerWith(registry);
+					return;
+				}
+			}
+			Set<String> existingNames = new HashSet<String>(Arrays.asList(registry.getBeanDefinitionNames()));
+			final AtomicBoolean importingResources = new AtomicBoolean();
+			XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(registry);
+			reader.setEnvironment(context.getEnvironment());
+			reader.setResourceLoader(context);
+			reader.setEventListener(new EmptyReaderEventListener() {
+
+				@Override
+				public void importProcessed(ImportDefinition importDefinition) {
+					importingResources.set(true);
+				}
+
+			});
+			reader.loadBeanDefinitions(this.source);
+			if (cache != null) {
+				List<String> loadedNames = new ArrayList<String>();
+				for (String name : registry.getBeanDefinitionNames()) {
+					if (!existingNames.contains(name)) {
+						loadedNames.add(name);
+					}
+				}
+				BeanDefinitionsTemplate template = BeanDefinitionsTemplate.capture(registry, loadedNames,
+						getClassLoader(), importingResources.get());
+				if (template == null) {
+					logger.debug("Not caching the configuration of {}, as it refers to module classes",
+							this.moduleDefinition);
+					return;
+				}
+				cache.putBeanDefinitions(this.moduleDefinition, configurationVariant(context, false), template);
+				if (template.isImportingResources()) {
+					cache.putBeanDefinitions(this.moduleDefinition, configurationVariant(context, true), template);
+				}
+			}
+		}
+
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2014 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -36,6 +36,7 @@ import org.springframework.boot.builder.ParentContextCloserApplicationListener;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.context.ContextIdApplicationContextInitializer;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextInitializer;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.core.Ordered;
@@ -150,6 +151,14 @@ public abstract class SimpleModule extends AbstractModule {
 		this.listeners.add(listener);
 	}
 
+	/**
+	 * Add an initializer for the module application context. Initializers run before the sources of the module are
+	 * loaded.
+	 */
+	protected void addInitializer(ApplicationContextInitializer<?> initializer) {
+		this.application.initializers(initializer);
+	}
+
 	@Override
 	public Properties getProperties() {
 		return this.properties;
@@ -169,6 +178,10 @@ public abstract class SimpleModule extends AbstractModule {
 		return classLoader;
 	}
 
+	protected ModuleOptions getModuleOptions() {
+		return moduleOptions;
+	}
+
 	@Override
 	public <T> T getComponent(String componentName, Class<T> requiredType) {
 		if (this.context.isActive() && this.context.containsBean(componentName)) {
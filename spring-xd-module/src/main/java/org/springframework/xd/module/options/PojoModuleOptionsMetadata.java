@@ -1,5 +1,5 @@
 /*
- * Copyright 2013 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -136,7 +136,9 @@ public class PojoModuleOptionsMetadata implements ModuleOptionsMetadata {
 
 	@Override
 	public ModuleOptions interpolate(Map<String, String> raw) throws BindException {
-		bindAndValidate(raw);
+		// bind to a new instance each time, so that this metadata can be shared by several modules
+		final BeanWrapper beanWrapper = new BeanWrapperImpl(this.beanWrapper.getWrappedClass());
+		bindAndValidate(beanWrapper, raw);
 
 		return new ModuleOptions() {
 
@@ -181,7 +183,7 @@ public class PojoModuleOptionsMetadata implements ModuleOptionsMetadata {
 	}
 
 	@SuppressWarnings("unchecked")
-	private void bindAndValidate(Map<String, String> raw) throws BindException {
+	private void bindAndValidate(BeanWrapper beanWrapper, Map<String, String> raw) throws BindException {
 		DataBinder dataBinder = new DataBinder(beanWrapper.getWrappedInstance());
 		dataBinder.setIgnoreUnknownFields(false);
 		dataBinder.setConversionService(conversionService);
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.module.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.PropertiesPropertySource;
+
+/**
+ * Tests for {@link BeanDefinitionsTemplate}.
+ *
+ * @since 1.3.2
+ */
+public class BeanDefinitionsTemplateTests {
+
+	@Test
+	public void registeredCopiesAreIndependent() {
+		GenericApplicationContext first = context("hello");
+		new XmlBeanDefinitionReader(first).loadBeanDefinitions("classpath:/BeanDefinitionsTemplateTests/greetings.xml");
+		BeanDefinitionsTemplate template = BeanDefinitionsTemplate.capture(first,
+				Arrays.asList("greeting", "greetings"), null, false);
+		assertNotNull(template);
+
+		GenericApplicationContext second = context("goodbye");
+		template.registerWith(second);
+		GenericApplicationContext third = context("hi");
+		template.registerWith(third);
+		first.refresh();
+		second.refresh();
+		third.refresh();
+
+		assertGreetings(first, "hello");
+		assertGreetings(second, "goodbye");
+		assertGreetings(third, "hi");
+		assertArrayEquals(new String[] { "salutation" }, third.getAliases("greeting"));
+	}
+
+	@Test
+	public void notCapturedWhenReferringToModuleClasses() {
+		GenericApplicationContext context = context("hello");
+		context.registerBeanDefinition("test", new RootBeanDefinition(BeanDefinitionsTemplateTests.class));
+		assertNull(BeanDefinitionsTemplate.capture(context, Arrays.asList("test"),
+				BeanDefinitionsTemplateTests.class.getClassLoader(), false));
+		assertNotNull(BeanDefinitionsTemplate.capture(context, Arrays.asList("test"),
+				new ClassLoader(BeanDefinitionsTemplateTests.class.getClassLoader()) {}, false));
+	}
+
+	private GenericApplicationContext context(String greeting) {
+		GenericApplicationContext context = new GenericApplicationContext();
+		Properties properties = new Properties();
+		properties.setProperty("greeting", greeting);
+		context.getEnvironment().getPropertySources().addFirst(new PropertiesPropertySource("test", properties));
+		context.registerBeanDefinition("placeholderConfigurer",
+				new RootBeanDefinition(PropertySourcesPlaceholderConfigurer.class));
+		return context;
+	}
+
+	private void assertGreetings(GenericApplicationContext context, String greeting) {
+		assertEquals(greeting, context.getBean("salutation"));
+		assertEquals(Arrays.asList(greeting, greeting + "!"), context.getBean("greetings", List.class));
+	}
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.module.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.util.FileCopyUtils;
+import org.springframework.xd.module.ModuleDefinition;
+import org.springframework.xd.module.ModuleDefinitions;
+import org.springframework.xd.module.ModuleType;
+import org.springframework.xd.module.SimpleModuleDefinition;
+import org.springframework.xd.module.options.ModuleOptionsMetadata;
+import org.springframework.xd.module.options.ModuleOptionsMetadataResolver;
+import org.springframework.xd.module.options.PassthruModuleOptionsMetadata;
+
+/**
+ * Tests for {@link ModuleDefinitionCache}.
+ *
+ * @since 1.3.2
+ */
+public class ModuleDefinitionCacheTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final ModuleDefinitionCache cache = new ModuleDefinitionCache();
+
+	private final CountingResolver resolver = new CountingResolver();
+
+	private File archive;
+
+	private SimpleModuleDefinition definition;
+
+	@Before
+	public void setUp() throws IOException {
+		this.archive = new File(this.folder.getRoot(), "foo.jar");
+		this.definition = ModuleDefinitions.simple("foo", ModuleType.processor, "file:" + this.archive.getPath());
+	}
+
+	@Test
+	public void optionsMetadataIsReused() throws IOException {
+		writeArchive("config/foo.xml");
+		writeMd5("1234");
+		ModuleOptionsMetadata metadata = this.cache.getOptionsMetadata(this.definition, this.resolver);
+		assertSame(metadata, this.cache.getOptionsMetadata(this.definition, this.resolver));
+		assertEquals(1, this.resolver.count);
+	}
+
+	@Test
+	public void optionsMetadataIsResolvedAgainWhenTheMd5Changes() throws IOException {
+		writeArchive("config/foo.xml");
+		writeMd5("1234");
+		ModuleOptionsMetadata metadata = this.cache.getOptionsMetadata(this.definition, this.resolver);
+		writeMd5("5678");
+		ModuleOptionsMetadata reloaded = this.cache.getOptionsMetadata(this.definition, this.resolver);
+		assertNotSame(metadata, reloaded);
+		assertSame(reloaded, this.cache.getOptionsMetadata(this.definition, this.resolver));
+		assertEquals(2, this.resolver.count);
+	}
+
+	@Test
+	public void optionsMetadataOfModulesWithClassesIsNotCached() throws IOException {
+		writeArchive("config/foo.xml", "lib/foo-options.jar");
+		writeMd5("1234");
+		this.cache.getOptionsMetadata(this.definition, this.resolver);
+		this.cache.getOptionsMetadata(this.definition, this.resolver);
+		assertEquals(2, this.resolver.count);
+	}
+
+	@Test
+	public void entryOfDeletedModuleIsDiscarded() throws IOException {
+		writeArchive("config/foo.xml");
+		writeMd5("1234");
+		this.cache.getOptionsMetadata(this.definition, this.resolver);
+		assertTrue(this.archive.delete());
+		assertTrue(new File(this.archive.getPath() + ".md5").delete());
+		this.cache.getOptionsMetadata(this.definition, this.resolver);
+		// uploaded again with the same content
+		writeArchive("config/foo.xml");
+		writeMd5("1234");
+		this.cache.getOptionsMetadata(this.definition, this.resolver);
+		assertEquals(3, this.resolver.count);
+	}
+
+	@Test
+	public void evictedEntryIsResolvedAgain() throws IOException {
+		writeArchive("config/foo.xml");
+		writeMd5("1234");
+		this.cache.getOptionsMetadata(this.definition, this.resolver);
+		this.cache.evict(this.definition);
+		this.cache.getOptionsMetadata(this.definition, this.resolver);
+		assertEquals(2, this.resolver.count);
+	}
+
+	private void writeArchive(String... entries) throws IOException {
+		ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(this.archive));
+		try {
+			for (String entry : entries) {
+				zip.putNextEntry(new ZipEntry(entry));
+				zip.closeEntry();
+			}
+		}
+		finally {
+			zip.close();
+		}
+	}
+
+	private void writeMd5(String md5) throws IOException {
+		FileCopyUtils.copy(md5.getBytes("UTF-8"), new File(this.archive.getPath() + ".md5"));
+	}
+
+
+	private static class CountingResolver implements ModuleOptionsMetadataResolver {
+
+		private int count;
+
+		@Override
+		public ModuleOptionsMetadata resolve(ModuleDefinition moduleDefinition) {
+			this.count++;
+			return new PassthruModuleOptionsMetadata();
+		}
+
+	}
+
+}
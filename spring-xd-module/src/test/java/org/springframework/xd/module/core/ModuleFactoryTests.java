@@ -1,5 +1,5 @@
 /*
- * Copyright 2014-2015 the original author or authors.
+ * Copyright 2014-2016 the original author or authors.
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
@@ -83,6 +83,14 @@ public class ModuleFactoryTests {
 		createResourceConfiguredModule("xmlModule", ModuleType.processor);
 	}
 
+	@Test
+	public void createXmlModuleSeveralTimes() {
+		// the second and third instances reuse the bean definitions parsed for the first one
+		createResourceConfiguredModule("xmlModule", ModuleType.processor, "hello");
+		createResourceConfiguredModule("xmlModule", ModuleType.processor, "goodbye");
+		createResourceConfiguredModule("xmlModule", ModuleType.processor, "hello");
+	}
+
 	@Test(expected = IllegalStateException.class)
 	public void multipleXmlConfigThrowsException() {
 		createResourceConfiguredModule("invalid", ModuleType.processor);
@@ -102,19 +110,23 @@ public class ModuleFactoryTests {
 	}
 
 	private void createResourceConfiguredModule(String moduleName, ModuleType moduleType) {
+		createResourceConfiguredModule(moduleName, moduleType, "hello");
+	}
+
+	private void createResourceConfiguredModule(String moduleName, ModuleType moduleType, String bar) {
 		ModuleDefinition moduleDefinition = ModuleDefinitions.simple(moduleName, moduleType,
 				"classpath:/ModuleFactoryTests/modules/" + moduleType + "/" + moduleName + "/");
 		ModuleDescriptor moduleDescriptor = new ModuleDescriptor.Builder()
 				.setModuleDefinition(moduleDefinition)
 				.setModuleName(moduleName)
 				.setGroup("group")
-				.setParameter("bar", "hello")
+				.setParameter("bar", bar)
 				.build();
 
 		Module module = moduleFactory.createModule(moduleDescriptor, new ModuleDeploymentProperties());
 		assertTrue(module instanceof ResourceConfiguredModule);
 		module.initialize();
 		assertEquals("foo", module.getComponent("foo", String.class));
-		assertEquals("hello", module.getComponent("bar", String.class));
+		assertEquals(bar, module.getComponent("bar", String.class));
 	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -40,6 +40,15 @@ public interface GaugeOperations {
 	 */
 	PagedResources<MetricResource> list();
 
+	/**
+	 * Retrieve a page of the names of the existing gauges, in alphabetical order.
+	 *
+	 * @param prefix only list the gauges whose name starts with this prefix; {@code null} for all
+	 * @param page the number of the page to retrieve, starting at 0
+	 * @param size the maximum number of names per page
+	 */
+	PagedResources<MetricResource> list(String prefix, int page, int size);
+
 	/**
 	 * Delete the given named gauge.
 	 * 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 the original author or authors.
+ * Copyright 2015-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@
 package org.springframework.xd.rest.client.impl;
 
 import org.springframework.hateoas.PagedResources;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UriComponentsBuilder;
 import org.springframework.xd.rest.domain.metrics.MetricResource;
 
 
@@ -39,6 +41,15 @@ abstract class AbstractMetricTemplate extends AbstractTemplate {
 		return restTemplate.getForObject(url, MetricResource.Page.class);
 	}
 
+	public PagedResources<MetricResource> list(String prefix, int page, int size) {
+		UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(resources.get(this.resourcesKey).toString());
+		builder.queryParam("page", page).queryParam("size", size);
+		if (StringUtils.hasText(prefix)) {
+			builder.queryParam("prefix", prefix);
+		}
+		return restTemplate.getForObject(builder.build().encode().toUri(), MetricResource.Page.class);
+	}
+
 	public void delete(String name) {
 		String url = resources.get(this.resourcesKey).toString() + "/{name}";
 		restTemplate.delete(url, name);
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.rest.domain.metrics;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * The REST representation of a HistogramGauge, summarized by its percentiles.
+ *
+ * @since 1.3.2
+ */
+@XmlRootElement(name = "histogram-gauge")
+public class HistogramGaugeResource extends MetricResource {
+
+	@XmlAttribute(name = "count")
+	private long count;
+
+	@XmlAttribute(name = "min")
+	private double min;
+
+	@XmlAttribute(name = "max")
+	private double max;
+
+	@XmlAttribute(name = "mean")
+	private double mean;
+
+	@XmlAttribute(name = "p50")
+	private double p50;
+
+	@XmlAttribute(name = "p90")
+	private double p90;
+
+	@XmlAttribute(name = "p99")
+	private double p99;
+
+	@XmlAttribute(name = "p999")
+	private double p999;
+
+	@XmlAttribute(name = "relativeAccuracy")
+	private double relativeAccuracy;
+
+	/**
+	 * No-arg constructor for serialization frameworks.
+	 */
+	protected HistogramGaugeResource() {
+	}
+
+	public HistogramGaugeResource(String name, long count, double min, double max, double mean, double p50,
+			double p90, double p99, double p999, double relativeAccuracy) {
+		super(name);
+		this.count = count;
+		this.min = min;
+		this.max = max;
+		this.mean = mean;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.p999 = p999;
+		this.relativeAccuracy = relativeAccuracy;
+	}
+
+	/**
+	 * Return the number of values the percentiles were computed from.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * Return the median.
+	 */
+	public double getP50() {
+		return p50;
+	}
+
+	public double getP90() {
+		return p90;
+	}
+
+	public double getP99() {
+		return p99;
+	}
+
+	public double getP999() {
+		return p999;
+	}
+
+	/**
+	 * Return the maximum relative error of the percentiles.
+	 */
+	public double getRelativeAccuracy() {
+		return relativeAccuracy;
+	}
+
+}
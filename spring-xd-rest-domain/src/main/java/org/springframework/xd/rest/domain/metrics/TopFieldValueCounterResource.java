@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.rest.domain.metrics;
+
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * The REST representation of the most frequent values of a field value counter that only tracks a bounded number of
+ * values.
+ *
+ * @since 1.3.2
+ */
+@XmlRootElement(name = "top-field-value-counter")
+public class TopFieldValueCounterResource extends MetricResource {
+
+	@XmlElement(name = "values")
+	private List<FieldValue> values;
+
+	@XmlAttribute(name = "total")
+	private double total;
+
+	@XmlAttribute(name = "distinct")
+	private long distinct;
+
+	@XmlAttribute(name = "distinctStandardError")
+	private double distinctStandardError;
+
+	/**
+	 * No arg constructor for serialization frameworks.
+	 */
+	protected TopFieldValueCounterResource() {
+
+	}
+
+	public TopFieldValueCounterResource(String name, List<FieldValue> values, double total, long distinct,
+			double distinctStandardError) {
+		super(name);
+		this.values = values;
+		this.total = total;
+		this.distinct = distinct;
+		this.distinctStandardError = distinctStandardError;
+	}
+
+	/**
+	 * Return the most frequent values, in decreasing order of count.
+	 */
+	public List<FieldValue> getValues() {
+		return values;
+	}
+
+	/**
+	 * Return the sum of all counts, including those of values that are no longer tracked.
+	 */
+	public double getTotal() {
+		return total;
+	}
+
+	/**
+	 * Return the estimated number of distinct values.
+	 */
+	public long getDistinct() {
+		return distinct;
+	}
+
+	/**
+	 * Return the relative standard error of the distinct count estimate.
+	 */
+	public double getDistinctStandardError() {
+		return distinctStandardError;
+	}
+
+	/**
+	 * A tracked value, whose true count lies between {@code count - error} and {@code count}.
+	 */
+	public static class FieldValue {
+
+		@XmlAttribute(name = "value")
+		private String value;
+
+		@XmlAttribute(name = "count")
+		private double count;
+
+		@XmlAttribute(name = "error")
+		private double error;
+
+		/**
+		 * No arg constructor for serialization frameworks.
+		 */
+		protected FieldValue() {
+
+		}
+
+		public FieldValue(String value, double count, double error) {
+			this.value = value;
+			this.count = count;
+			this.error = error;
+		}
+
+		public String getValue() {
+			return value;
+		}
+
+		public double getCount() {
+			return count;
+		}
+
+		public double getError() {
+			return error;
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -38,11 +38,23 @@ public abstract class AbstractMetricsCommands {
 	}
 
 	/**
-	 * Render a table with information about a list of metrics
+	 * The default number of metric names displayed by the list commands.
+	 */
+	protected static final String DEFAULT_LIST_SIZE = "100";
+
+	/**
+	 * Render a table with information about a list of metrics. When the list is one page out of several, the header
+	 * says which one.
 	 */
 	protected Table displayMetrics(PagedResources<MetricResource> list) {
 		Table table = new Table();
-		table.addHeader(1, new TableHeader(String.format("%s name", kind)));
+		PagedResources.PageMetadata page = list.getMetadata();
+		String header = String.format("%s name", kind);
+		if (page != null && page.getTotalPages() > 1) {
+			header = String.format("%s (page %d of %d, %d in total)", header, page.getNumber(), page.getTotalPages(),
+					page.getTotalElements());
+		}
+		table.addHeader(1, new TableHeader(header));
 		for (MetricResource r : list) {
 			table.newRow().addValue(1, r.getName());
 		}
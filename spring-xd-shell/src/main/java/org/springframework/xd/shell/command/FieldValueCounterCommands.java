@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -72,8 +72,11 @@ public class FieldValueCounterCommands extends AbstractMetricsCommands implement
 	}
 
 	@CliCommand(value = LIST_FV_COUNTERS, help = "List all available field-value-counter names")
-	public Table list(/* TODO */) {
-		PagedResources<MetricResource> list = fvcOperations().list(/* TODO */);
+	public Table list(
+			@CliOption(key = "prefix", help = "only list the field-value-counters whose name starts with this prefix", mandatory = false, optionContext = "existing-fvc disable-string-converter") String prefix,
+			@CliOption(key = "page", help = "the page of names to display, starting at 0", mandatory = false, unspecifiedDefaultValue = "0") int page,
+			@CliOption(key = "size", help = "the number of names per page", mandatory = false, unspecifiedDefaultValue = DEFAULT_LIST_SIZE) int size) {
+		PagedResources<MetricResource> list = fvcOperations().list(prefix, page, size);
 		return displayMetrics(list);
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -59,8 +59,11 @@ public class GaugeCommands extends AbstractMetricsCommands implements CommandMar
 	}
 
 	@CliCommand(value = LIST_GAUGES, help = "List all available gauge names")
-	public Table list(/* TODO */) {
-		PagedResources<MetricResource> list = gaugeOperations().list(/* TODO */);
+	public Table list(
+			@CliOption(key = "prefix", help = "only list the gauges whose name starts with this prefix", mandatory = false, optionContext = "existing-gauge disable-string-converter") String prefix,
+			@CliOption(key = "page", help = "the page of names to display, starting at 0", mandatory = false, unspecifiedDefaultValue = "0") int page,
+			@CliOption(key = "size", help = "the number of names per page", mandatory = false, unspecifiedDefaultValue = DEFAULT_LIST_SIZE) int size) {
+		PagedResources<MetricResource> list = gaugeOperations().list(prefix, page, size);
 		return displayMetrics(list);
 	}
 
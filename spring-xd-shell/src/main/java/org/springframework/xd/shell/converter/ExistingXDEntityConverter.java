@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -55,6 +55,12 @@ public class ExistingXDEntityConverter implements Converter<String> {
 	 */
 	private static final String EXISTING_PREFIX = "existing-";
 
+	/**
+	 * The maximum number of metric names fetched for completion; only the names that start with what has been typed
+	 * so far are fetched.
+	 */
+	private static final int MAX_METRIC_COMPLETIONS = 100;
+
 	@Override
 	public boolean supports(Class<?> type, String optionContext) {
 		return String.class.isAssignableFrom(type)
@@ -82,19 +88,27 @@ public class ExistingXDEntityConverter implements Converter<String> {
 				populate(completions, springXDOperations.jobOperations().list(), criteria, "Jobs");
 			}
 			else if ("counter".equals(kind)) {
-				populate(completions, springXDOperations.counterOperations().list(), criteria, "Counters");
+				populate(completions,
+						springXDOperations.counterOperations().list(existingData, 0, MAX_METRIC_COMPLETIONS),
+						criteria, "Counters");
 			}
 			else if ("fvc".equals(kind)) {
-				populate(completions, springXDOperations.fvcOperations().list(), criteria, "Field Value Counters");
+				populate(completions, springXDOperations.fvcOperations().list(existingData, 0, MAX_METRIC_COMPLETIONS),
+						criteria, "Field Value Counters");
 			}
 			else if ("gauge".equals(kind)) {
-				populate(completions, springXDOperations.gaugeOperations().list(), criteria, "Gauges");
+				populate(completions, springXDOperations.gaugeOperations().list(existingData, 0, MAX_METRIC_COMPLETIONS),
+						criteria, "Gauges");
 			}
 			else if ("rich-gauge".equals(kind)) {
-				populate(completions, springXDOperations.richGaugeOperations().list(), criteria, "Rich Gauges");
+				populate(completions,
+						springXDOperations.richGaugeOperations().list(existingData, 0, MAX_METRIC_COMPLETIONS),
+						criteria, "Rich Gauges");
 			}
 			else if ("aggregate-counter".equals(kind)) {
-				populate(completions, springXDOperations.aggrCounterOperations().list(), criteria, "Aggregate Counters");
+				populate(completions,
+						springXDOperations.aggrCounterOperations().list(existingData, 0, MAX_METRIC_COMPLETIONS),
+						criteria, "Aggregate Counters");
 			}
 			else {
 				kindSupported = false;
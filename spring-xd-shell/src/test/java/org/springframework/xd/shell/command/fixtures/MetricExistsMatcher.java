@@ -1,5 +1,5 @@
 /*
- * Copyright 2013 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,8 +25,8 @@ import org.springframework.xd.shell.util.TableRow;
 import org.springframework.xd.test.fixtures.AbstractMetricSink;
 
 /**
- * A matcher that will assert that the {@code <metric type> list} shell command returns a list that contains the
- * expected metric.
+ * A matcher that will assert that the {@code <metric type> list --prefix} shell command returns a list that contains
+ * the expected metric.
  * 
  * @param <T> the type of metric sink fixture this is matching
  * @author Eric Bottard
@@ -37,7 +37,8 @@ public class MetricExistsMatcher<T extends AbstractMetricSink> extends BaseMatch
 	@Override
 	public boolean matches(Object item) {
 		AbstractMetricSink metric = (AbstractMetricSink) item;
-		Table table = (Table) metric.shell.executeCommand(metric.getDslName() + " list").getResult();
+		Table table = (Table) metric.shell.executeCommand(
+				metric.getDslName() + " list --prefix " + metric.getName()).getResult();
 		return table != null && !CollectionUtils.isEmpty(table.getRows())
 				&& table.getRows().contains(new TableRow().addValue(1, metric.getName()));
 	}
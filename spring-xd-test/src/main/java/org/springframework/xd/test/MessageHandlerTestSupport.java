@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.test;
+
+import java.util.concurrent.Callable;
+
+import org.junit.Rule;
+import org.junit.rules.ExternalResource;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.context.IntegrationContextUtils;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * JUnit {@link Rule} providing a bean factory with the task scheduler and the error channel that message handlers
+ * look up when they are not run in an application context, for tests of handlers that write asynchronously.
+ *
+ * @since 1.3.2
+ */
+public class MessageHandlerTestSupport extends ExternalResource {
+
+	private static final long TIMEOUT = 10000;
+
+	private final ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
+
+	private final QueueChannel errorChannel = new QueueChannel();
+
+	private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+	@Override
+	protected void before() {
+		this.taskScheduler.initialize();
+		this.beanFactory.registerSingleton(IntegrationContextUtils.TASK_SCHEDULER_BEAN_NAME, this.taskScheduler);
+		this.beanFactory.registerSingleton(IntegrationContextUtils.ERROR_CHANNEL_BEAN_NAME, this.errorChannel);
+	}
+
+	@Override
+	protected void after() {
+		this.taskScheduler.destroy();
+	}
+
+	public DefaultListableBeanFactory getBeanFactory() {
+		return this.beanFactory;
+	}
+
+	public QueueChannel getErrorChannel() {
+		return this.errorChannel;
+	}
+
+	/**
+	 * Wait for up to 10 seconds for the given condition to hold.
+	 *
+	 * @param condition the condition
+	 * @return whether the condition holds
+	 * @throws Exception if evaluating the condition fails
+	 */
+	public boolean waitFor(Callable<Boolean> condition) throws Exception {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (!condition.call()) {
+			if (System.currentTimeMillis() > deadline) {
+				return false;
+			}
+			Thread.sleep(10);
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.test.mongodb;
+
+import org.junit.Rule;
+
+import org.springframework.xd.test.AbstractExternalResourceTestSupport;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ServerAddress;
+
+/**
+ * JUnit {@link Rule} that detects the fact that a MongoDB server is running on localhost.
+ *
+ * @since 1.3.2
+ */
+public class MongoTestSupport extends AbstractExternalResourceTestSupport<MongoClient> {
+
+	public MongoTestSupport() {
+		super("MONGODB");
+	}
+
+	@Override
+	protected void obtainResource() throws Exception {
+		resource = new MongoClient(new ServerAddress("localhost"),
+				MongoClientOptions.builder().connectTimeout(1000).maxWaitTime(1000).build());
+		resource.getDB("admin").command("ping").throwOnError();
+	}
+
+	@Override
+	protected void cleanupResource() throws Exception {
+		resource.close();
+	}
+}
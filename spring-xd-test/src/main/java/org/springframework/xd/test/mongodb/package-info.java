@@ -0,0 +1,5 @@
+/**
+ * Contains MongoDB support classes.
+ */
+
+package org.springframework.xd.test.mongodb;
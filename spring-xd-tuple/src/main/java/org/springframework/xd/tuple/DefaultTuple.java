@@ -1,5 +1,5 @@
 /*
- * Copyright 2013-2015 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,16 +37,17 @@ import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 
 /**
- * Default implementation of Tuple interface
+ * Default implementation of Tuple interface. Field names are held in a {@link FieldNameSchema}
+ * shared by the tuples of the same shape, which resolves a name to its index in constant time.
  * @author Mark Pollack
  * @author David Turanski
  * @author Michael Minella
  */
 public class DefaultTuple implements Tuple {
 
-	private List<String> names;
+	private final FieldNameSchema schema;
 
-	private List<Object> values;
+	private final List<Object> values;
 
 	private transient ConfigurableConversionService configurableConversionService;
 
@@ -61,7 +62,7 @@ public class DefaultTuple implements Tuple {
 			throw new IllegalArgumentException("Field names must be same length as values: names=" + names
 					+ ", values=" + values);
 		}
-		this.names = new ArrayList<>(names);
+		this.schema = FieldNameSchema.of(names);
 		this.values = new ArrayList<>(values); // shallow copy
 		this.configurableConversionService = configurableConversionService;
 	}
@@ -82,7 +83,7 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public List<String> getFieldNames() {
-		return Collections.unmodifiableList(names);
+		return schema.getNames();
 	}
 
 	/**
@@ -96,7 +97,7 @@ public class DefaultTuple implements Tuple {
 
 	@Override
 	public int getFieldCount() {
-		return this.names.size();
+		return this.schema.size();
 	}
 
 	/*
@@ -106,7 +107,7 @@ public class DefaultTuple implements Tuple {
 	 */
 	@Override
 	public boolean hasFieldName(String name) {
-		return names.contains(name);
+		return indexOf(name) != -1;
 	}
 
 	/*
@@ -152,8 +153,8 @@ public class DefaultTuple implements Tuple {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((names == null) ? 0 : names.hashCode());
-		result = prime * result + ((values == null) ? 0 : values.hashCode());
+		result = prime * result + schema.hashCode();
+		result = prime * result + values.hashCode();
 		return result;
 	}
 
@@ -174,23 +175,7 @@ public class DefaultTuple implements Tuple {
 			return false;
 		}
 		DefaultTuple other = (DefaultTuple) obj;
-		if (names == null) {
-			if (other.names != null) {
-				return false;
-			}
-		}
-		else if (!names.equals(other.names)) {
-			return false;
-		}
-		if (values == null) {
-			if (other.values != null) {
-				return false;
-			}
-		}
-		else if (!values.equals(other.values)) {
-			return false;
-		}
-		return true;
+		return schema.equals(other.schema) && values.equals(other.values);
 	}
 
 	@Override
@@ -570,7 +555,7 @@ public class DefaultTuple implements Tuple {
 	Map<String, Object> toMap() {
 		Map<String, Object> map = new LinkedHashMap<>(values.size());
 		for (int i = 0; i < values.size(); i++) {
-			map.put(names.get(i), values.get(i));
+			map.put(schema.getNames().get(i), values.get(i));
 		}
 		return map;
 	}
@@ -600,7 +585,7 @@ public class DefaultTuple implements Tuple {
 	 * Returns -1 if not found.
 	 */
 	protected int indexOf(String name) {
-		return names.indexOf(name);
+		return schema.indexOf(name);
 	}
 
 	/**
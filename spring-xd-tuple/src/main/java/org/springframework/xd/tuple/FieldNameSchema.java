@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The immutable field names of a {@link DefaultTuple}, hashed for constant time lookup
+ * of a field's index.
+ * <p>
+ * Schemas are interned, so that tuples of the same shape share a single instance rather
+ * than each holding a copy of their names. The number of interned schemas is bounded, so
+ * that tuples with arbitrary names, such as those converted from free-form JSON, cannot
+ * exhaust the heap; beyond that bound, each tuple gets a schema of its own.
+ *
+ * @since 1.3.2
+ */
+final class FieldNameSchema {
+
+	static final int MAX_INTERNED_SCHEMAS = 1024;
+
+	private static final ConcurrentMap<List<String>, FieldNameSchema> interned = new ConcurrentHashMap<>();
+
+	private final FieldNames names;
+
+	private final Map<String, Integer> indexes;
+
+	private final int hashCode;
+
+	private FieldNameSchema(List<String> names) {
+		this.names = new FieldNames(names.toArray(new String[names.size()]));
+		this.indexes = new HashMap<>(names.size() * 4 / 3 + 1);
+		for (int i = names.size() - 1; i >= 0; i--) {
+			// the first occurrence of a duplicate name wins, as with List.indexOf()
+			this.indexes.put(names.get(i), i);
+		}
+		this.hashCode = this.names.hashCode();
+	}
+
+	/**
+	 * Return the schema for the given field names.
+	 * @param names the field names.
+	 * @return the interned schema, or a new one if too many schemas have been interned.
+	 */
+	static FieldNameSchema of(List<String> names) {
+		if (names instanceof FieldNames) {
+			return ((FieldNames) names).schema();
+		}
+		FieldNameSchema schema = interned.get(names);
+		if (schema == null) {
+			schema = new FieldNameSchema(names);
+			if (interned.size() < MAX_INTERNED_SCHEMAS) {
+				FieldNameSchema existing = interned.putIfAbsent(schema.names, schema);
+				if (existing != null) {
+					schema = existing;
+				}
+			}
+		}
+		return schema;
+	}
+
+	/**
+	 * @return the field names, as an unmodifiable list.
+	 */
+	List<String> getNames() {
+		return this.names;
+	}
+
+	int size() {
+		return this.names.size();
+	}
+
+	/**
+	 * @param name the field name.
+	 * @return the index of the first field with that name, or -1.
+	 */
+	int indexOf(String name) {
+		Integer index = this.indexes.get(name);
+		return index == null ? -1 : index;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof FieldNameSchema)) {
+			return false;
+		}
+		FieldNameSchema other = (FieldNameSchema) obj;
+		return this.hashCode == other.hashCode && this.names.equals(other.names);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	/**
+	 * An unmodifiable list view of the names, that knows its schema so that a tuple built
+	 * from the names of another tuple finds the schema without a lookup.
+	 */
+	private final class FieldNames extends AbstractList<String> implements RandomAccess {
+
+		private final String[] names;
+
+		FieldNames(String[] names) {
+			this.names = names;
+		}
+
+		@Override
+		public String get(int index) {
+			return this.names[index];
+		}
+
+		@Override
+		public int size() {
+			return this.names.length;
+		}
+
+		FieldNameSchema schema() {
+			return FieldNameSchema.this;
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
  * the License. You may obtain a copy of the License at
@@ -15,22 +15,13 @@ package org.springframework.xd.tuple;
 
 import org.springframework.core.convert.converter.Converter;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /**
  * @author David Turanski
  * 
  */
 public class JsonBytesToTupleConverter implements Converter<byte[], Tuple> {
 
-	private final ObjectMapper mapper = new ObjectMapper();
-
-	private final JsonNodeToTupleConverter jsonNodeToTupleConverter = new JsonNodeToTupleConverter();
-
-	public JsonBytesToTupleConverter() {
-		mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
-	}
+	private final JsonTupleParser parser = new JsonTupleParser();
 
 	@Override
 	public Tuple convert(byte[] source) {
@@ -38,7 +29,7 @@ public class JsonBytesToTupleConverter implements Converter<byte[], Tuple> {
 			return null;
 		}
 		try {
-			return jsonNodeToTupleConverter.convert(mapper.readTree(source));
+			return parser.parse(source);
 		}
 		catch (Exception e) {
 			throw new IllegalArgumentException(e.getMessage(), e);
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Parses JSON documents into tuples in a single pass over the token stream, without
+ * building an intermediate {@link com.fasterxml.jackson.databind.JsonNode} tree.
+ * <p>
+ * The fields of a root object become the fields of the tuple; a root scalar becomes a
+ * tuple with a single field named {@code value}, and a root array an empty tuple. Nested
+ * arrays become lists, and nested objects either tuples or maps.
+ * <p>
+ * The parser may be restricted to a set of top-level fields, in which case the values of
+ * the other fields are skipped over rather than converted. The whole document is still
+ * read, so that a requested field that occurs again keeps its last value and a malformed
+ * document is rejected, as without a restriction.
+ * <p>
+ * Instances are thread safe.
+ *
+ * @since 1.3.2
+ */
+public class JsonTupleParser {
+
+	private static final String SCALAR_FIELD_NAME = "value";
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	private final Set<String> fields;
+
+	private final boolean nestedObjectsAsTuples;
+
+	/**
+	 * Create a parser for all fields, that converts nested objects to tuples.
+	 */
+	public JsonTupleParser() {
+		this(null);
+	}
+
+	/**
+	 * Create a parser that converts nested objects to tuples.
+	 * @param fields the top-level fields to keep; null or empty for all fields.
+	 */
+	public JsonTupleParser(Collection<String> fields) {
+		this(fields, true);
+	}
+
+	/**
+	 * @param fields the top-level fields to keep; null or empty for all fields.
+	 * @param nestedObjectsAsTuples true to convert nested objects to tuples, false to
+	 * convert them to maps.
+	 */
+	public JsonTupleParser(Collection<String> fields, boolean nestedObjectsAsTuples) {
+		this.jsonFactory.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+		this.fields = fields == null || fields.isEmpty() ? null
+				: Collections.unmodifiableSet(new HashSet<String>(fields));
+		this.nestedObjectsAsTuples = nestedObjectsAsTuples;
+	}
+
+	/**
+	 * @return the top-level fields this parser keeps, or an empty set for all fields.
+	 */
+	public Set<String> getFields() {
+		return this.fields == null ? Collections.<String> emptySet() : this.fields;
+	}
+
+	public Tuple parse(byte[] json) throws IOException {
+		Assert.notNull(json, "'json' cannot be null");
+		JsonParser parser = this.jsonFactory.createParser(json);
+		try {
+			return parseRoot(parser);
+		}
+		finally {
+			parser.close();
+		}
+	}
+
+	public Tuple parse(String json) throws IOException {
+		Assert.notNull(json, "'json' cannot be null");
+		JsonParser parser = this.jsonFactory.createParser(json);
+		try {
+			return parseRoot(parser);
+		}
+		finally {
+			parser.close();
+		}
+	}
+
+	private Tuple parseRoot(JsonParser parser) throws IOException {
+		JsonToken token = parser.nextToken();
+		if (token == null) {
+			throw new JsonParseException("No content to parse", parser.getCurrentLocation());
+		}
+		switch (token) {
+		case START_OBJECT:
+			return parseObject(parser, this.fields);
+		case START_ARRAY:
+			parser.skipChildren();
+			return TupleBuilder.tuple().ofNamesAndValues(Collections.<String> emptyList(),
+					Collections.emptyList());
+		default:
+			return TupleBuilder.tuple().of(SCALAR_FIELD_NAME, parser.getText());
+		}
+	}
+
+	/**
+	 * Read the fields of the object whose START_OBJECT token is current.
+	 */
+	private Tuple parseObject(JsonParser parser, Set<String> fields) throws IOException {
+		List<String> names = new ArrayList<String>();
+		List<Object> values = new ArrayList<Object>();
+		// the index of each name, so that duplicates are found in linear time on wide objects
+		Map<String, Integer> positions = new HashMap<String, Integer>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			parser.nextToken();
+			if (fields != null && !fields.contains(name)) {
+				parser.skipChildren();
+				continue;
+			}
+			Object value = parseValue(parser);
+			Integer index = positions.get(name);
+			if (index == null) {
+				positions.put(name, names.size());
+				names.add(name);
+				values.add(value);
+			}
+			else {
+				// the last occurrence of a duplicate name wins, as with a JsonNode tree
+				values.set(index, value);
+			}
+		}
+		return TupleBuilder.tuple().ofNamesAndValues(names, values);
+	}
+
+	private Map<String, Object> parseMap(JsonParser parser) throws IOException {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			parser.nextToken();
+			map.put(name, parseValue(parser));
+		}
+		return map;
+	}
+
+	private List<Object> parseList(JsonParser parser) throws IOException {
+		List<Object> list = new ArrayList<Object>();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			list.add(parseValue(parser));
+		}
+		return list;
+	}
+
+	private Object parseValue(JsonParser parser) throws IOException {
+		switch (parser.getCurrentToken()) {
+		case START_OBJECT:
+			return this.nestedObjectsAsTuples ? parseObject(parser, null) : parseMap(parser);
+		case START_ARRAY:
+			return parseList(parser);
+		case VALUE_STRING:
+			return parser.getText();
+		case VALUE_NUMBER_INT:
+		case VALUE_NUMBER_FLOAT:
+			return parser.getNumberValue();
+		case VALUE_TRUE:
+			return Boolean.TRUE;
+		case VALUE_FALSE:
+			return Boolean.FALSE;
+		case VALUE_NULL:
+			return null;
+		case VALUE_EMBEDDED_OBJECT:
+			return parser.getEmbeddedObject();
+		default:
+			throw new JsonParseException("Unexpected token " + parser.getCurrentToken(),
+					parser.getCurrentLocation());
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,45 +16,34 @@
 
 package org.springframework.xd.tuple.integration;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.Arrays;
 
 import org.springframework.integration.transformer.AbstractPayloadTransformer;
+import org.springframework.xd.tuple.JsonTupleParser;
 import org.springframework.xd.tuple.Tuple;
-import org.springframework.xd.tuple.TupleBuilder;
-
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
- * Converts from a json string into a tuple data structure.
- * 
+ * Converts from a json string into a tuple data structure. Nested JSON objects become maps.
+ * <p>
+ * The tuple may be restricted to a subset of the top-level fields, in which case the
+ * values of the others are skipped without being converted.
+ *
  * @author Mark Fisher
  */
 public class JsonToTupleTransformer extends AbstractPayloadTransformer<String, Tuple> {
 
-	private final ObjectMapper mapper = new ObjectMapper();
+	private volatile JsonTupleParser parser = new JsonTupleParser(null, false);
 
-	public JsonToTupleTransformer() {
-		mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+	/**
+	 * @param fields the top-level fields to keep; null or empty (the default) for all fields.
+	 */
+	public void setFields(String... fields) {
+		this.parser = new JsonTupleParser(fields == null ? null : Arrays.asList(fields), false);
 	}
 
 	@Override
 	public Tuple transformPayload(String json) throws Exception {
-		List<String> names = new ArrayList<String>();
-		List<Object> values = new ArrayList<Object>();
-		JsonNode node = this.mapper.readTree(json);
-		Iterator<String> fieldNames = node.fieldNames();
-		while (fieldNames.hasNext()) {
-			String name = fieldNames.next();
-			JsonNode valueNode = node.get(name);
-			Object value = mapper.treeToValue(valueNode, Object.class);
-			names.add(name);
-			values.add(value);
-		}
-		return TupleBuilder.tuple().ofNamesAndValues(names, values);
+		return this.parser.parse(json);
 	}
 
 }
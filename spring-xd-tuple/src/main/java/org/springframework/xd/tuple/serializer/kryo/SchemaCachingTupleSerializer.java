@@ -0,0 +1,373 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.tuple.serializer.kryo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Registration;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.ObjectMap;
+
+import org.springframework.util.ClassUtils;
+import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.TupleBuilder;
+
+/**
+ * Serializes Tuples by reference to their schema - the field names and the classes of
+ * the values - so that the values can be written without class tags.
+ * <p>
+ * With a {@link TupleSchemaRegistry}, each distinct schema is registered once by this
+ * serializer, and tuples only write the 64-bit fingerprint of their schema, which
+ * consumers resolve through the registry and cache. A schema is only referenced once it
+ * has been registered; while it cannot be, for instance because the registry is
+ * unreachable, and without a registry, tuples fall back to writing their schema in full.
+ * Either way, the first tuple of a schema in a serialized object graph gives it the next
+ * graph-local id, and subsequent tuples of that schema in the same graph, such as the
+ * other elements of a collection of tuples, only write that id.
+ * <p>
+ * Schemas carry a format version. The format is not compatible with
+ * {@link DefaultTupleSerializer}; producers and consumers must use the same serializer.
+ *
+ * @since 1.3.2
+ */
+public class SchemaCachingTupleSerializer extends Serializer<Tuple> {
+
+	/**
+	 * The version of the schema format, written with each schema.
+	 */
+	static final int FORMAT_VERSION = 1;
+
+	private static final int INLINE_SCHEMA = 0;
+
+	private static final int REGISTERED_SCHEMA = 1;
+
+	private static final int FIRST_GRAPH_ID = 2;
+
+	/**
+	 * The maximum number of schemas remembered across payloads, so that tuples with free-form
+	 * names cannot grow the caches without bound; other schemas are written in full.
+	 */
+	private static final int MAX_CACHED_SCHEMAS = 1024;
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final TupleSchemaRegistry schemaRegistry;
+
+	private final ConcurrentMap<TupleSchema, Long> registeredSchemas = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<Long, TupleSchema> resolvedSchemas = new ConcurrentHashMap<>();
+
+	private final Object writtenSchemasKey = new Object();
+
+	private final Object readSchemasKey = new Object();
+
+	/**
+	 * Create a serializer that writes each schema in full once per serialized object graph.
+	 */
+	public SchemaCachingTupleSerializer() {
+		this(null);
+	}
+
+	/**
+	 * @param schemaRegistry the registry through which schemas are shared across payloads;
+	 * may be null.
+	 */
+	public SchemaCachingTupleSerializer(TupleSchemaRegistry schemaRegistry) {
+		this.schemaRegistry = schemaRegistry;
+	}
+
+	@Override
+	public void write(Kryo kryo, Output output, Tuple tuple) {
+		List<Object> values = tuple.getValues();
+		Class<?>[] types = new Class<?>[values.size()];
+		for (int i = 0; i < types.length; i++) {
+			Object value = values.get(i);
+			types[i] = value == null ? null : value.getClass();
+		}
+		TupleSchema schema = new TupleSchema(tuple.getFieldNames(), types);
+		Map<TupleSchema, Integer> writtenSchemas = writtenSchemas(kryo);
+		Integer id = writtenSchemas.get(schema);
+		if (id != null) {
+			output.writeVarInt(FIRST_GRAPH_ID + id, true);
+		}
+		else {
+			Long fingerprint = register(schema);
+			if (fingerprint != null) {
+				output.writeVarInt(REGISTERED_SCHEMA, true);
+				output.writeLong(fingerprint);
+			}
+			else {
+				output.writeVarInt(INLINE_SCHEMA, true);
+				writeInlineSchema(kryo, output, schema);
+			}
+			writtenSchemas.put(schema, writtenSchemas.size());
+		}
+		for (int i = 0; i < types.length; i++) {
+			// null values are recorded in the schema
+			if (types[i] == String.class) {
+				// strings are immutable, so they are written without a reference marker
+				output.writeString((String) values.get(i));
+			}
+			else if (types[i] != null) {
+				kryo.writeObject(output, values.get(i), kryo.getRegistration(types[i]).getSerializer());
+			}
+		}
+	}
+
+	@Override
+	public Tuple read(Kryo kryo, Input input, Class<Tuple> type) {
+		int tag = input.readVarInt(true);
+		List<TupleSchema> readSchemas = readSchemas(kryo);
+		TupleSchema schema;
+		if (tag == INLINE_SCHEMA) {
+			schema = readInlineSchema(kryo, input);
+			readSchemas.add(schema);
+		}
+		else if (tag == REGISTERED_SCHEMA) {
+			schema = resolve(kryo, input.readLong());
+			readSchemas.add(schema);
+		}
+		else if (tag - FIRST_GRAPH_ID < readSchemas.size()) {
+			schema = readSchemas.get(tag - FIRST_GRAPH_ID);
+		}
+		else {
+			throw new KryoException("Unknown tuple schema id: " + (tag - FIRST_GRAPH_ID));
+		}
+		Class<?>[] types = schema.types;
+		List<Object> values = new ArrayList<>(types.length);
+		for (int i = 0; i < types.length; i++) {
+			if (types[i] == String.class) {
+				values.add(input.readString());
+			}
+			else {
+				values.add(types[i] == null ? null
+						: kryo.readObject(input, types[i], kryo.getRegistration(types[i]).getSerializer()));
+			}
+		}
+		return TupleBuilder.tuple().ofNamesAndValues(schema.names, values);
+	}
+
+	/**
+	 * Register a schema, unless already registered by this serializer.
+	 * @return the fingerprint of the schema, or null if it should be written in full.
+	 */
+	private Long register(TupleSchema schema) {
+		if (this.schemaRegistry == null) {
+			return null;
+		}
+		Long fingerprint = this.registeredSchemas.get(schema);
+		if (fingerprint != null || this.registeredSchemas.size() >= MAX_CACHED_SCHEMAS) {
+			return fingerprint;
+		}
+		byte[] record = toRecord(schema);
+		fingerprint = fingerprint(record);
+		try {
+			if (!this.schemaRegistry.register(fingerprint, record)) {
+				return null;
+			}
+		}
+		catch (RuntimeException e) {
+			// fall back to a self-contained payload
+			return null;
+		}
+		this.registeredSchemas.putIfAbsent(schema, fingerprint);
+		return fingerprint;
+	}
+
+	private TupleSchema resolve(Kryo kryo, long fingerprint) {
+		TupleSchema schema = this.resolvedSchemas.get(fingerprint);
+		if (schema != null) {
+			return schema;
+		}
+		if (this.schemaRegistry == null) {
+			throw new KryoException("Tuple schema " + Long.toHexString(fingerprint)
+					+ " is registered, but no tuple schema registry is configured");
+		}
+		byte[] record = this.schemaRegistry.lookup(fingerprint);
+		if (record == null) {
+			throw new KryoException("Unknown tuple schema: " + Long.toHexString(fingerprint));
+		}
+		schema = fromRecord(kryo, record);
+		if (this.resolvedSchemas.size() < MAX_CACHED_SCHEMAS) {
+			this.resolvedSchemas.putIfAbsent(fingerprint, schema);
+		}
+		return schema;
+	}
+
+	/**
+	 * Write a schema in a payload; value classes are written as Kryo registrations, as the
+	 * rest of the payload.
+	 */
+	private void writeInlineSchema(Kryo kryo, Output output, TupleSchema schema) {
+		output.writeVarInt(FORMAT_VERSION, true);
+		output.writeVarInt(schema.types.length, true);
+		for (String name : schema.names) {
+			output.writeString(name);
+		}
+		for (Class<?> type : schema.types) {
+			kryo.writeClass(output, type);
+		}
+	}
+
+	private TupleSchema readInlineSchema(Kryo kryo, Input input) {
+		checkVersion(input.readVarInt(true));
+		int size = input.readVarInt(true);
+		List<String> names = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			names.add(input.readString());
+		}
+		Class<?>[] types = new Class<?>[size];
+		for (int i = 0; i < size; i++) {
+			Registration registration = kryo.readClass(input);
+			types[i] = registration == null ? null : registration.getType();
+		}
+		return new TupleSchema(names, types);
+	}
+
+	/**
+	 * Serialize a schema for the registry; value classes are written by name, as consumers
+	 * may register classes differently.
+	 */
+	private static byte[] toRecord(TupleSchema schema) {
+		Output output = new Output(256, -1);
+		output.writeVarInt(FORMAT_VERSION, true);
+		output.writeVarInt(schema.types.length, true);
+		for (String name : schema.names) {
+			output.writeString(name);
+		}
+		for (Class<?> type : schema.types) {
+			output.writeString(type == null ? null : type.getName());
+		}
+		return output.toBytes();
+	}
+
+	private static TupleSchema fromRecord(Kryo kryo, byte[] record) {
+		Input input = new Input(record);
+		checkVersion(input.readVarInt(true));
+		int size = input.readVarInt(true);
+		List<String> names = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			names.add(input.readString());
+		}
+		Class<?>[] types = new Class<?>[size];
+		for (int i = 0; i < size; i++) {
+			String typeName = input.readString();
+			if (typeName != null) {
+				try {
+					types[i] = ClassUtils.forName(typeName, kryo.getClassLoader());
+				}
+				catch (ClassNotFoundException e) {
+					throw new KryoException("Unable to resolve class of tuple field '" + names.get(i) + "'", e);
+				}
+			}
+		}
+		return new TupleSchema(names, types);
+	}
+
+	private static void checkVersion(int version) {
+		if (version != FORMAT_VERSION) {
+			throw new KryoException("Unsupported tuple schema format version " + version + "; expected "
+					+ FORMAT_VERSION + ". Producers and consumers must use the same tuple serializer.");
+		}
+	}
+
+	/**
+	 * The 64-bit FNV-1a hash of a serialized schema.
+	 */
+	private static long fingerprint(byte[] record) {
+		long hash = FNV_OFFSET_BASIS;
+		for (byte b : record) {
+			hash ^= b & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<TupleSchema, Integer> writtenSchemas(Kryo kryo) {
+		ObjectMap<Object, Object> context = kryo.getGraphContext();
+		Map<TupleSchema, Integer> schemas = (Map<TupleSchema, Integer>) context.get(this.writtenSchemasKey);
+		if (schemas == null) {
+			schemas = new HashMap<>();
+			context.put(this.writtenSchemasKey, schemas);
+		}
+		return schemas;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<TupleSchema> readSchemas(Kryo kryo) {
+		ObjectMap<Object, Object> context = kryo.getGraphContext();
+		List<TupleSchema> schemas = (List<TupleSchema>) context.get(this.readSchemasKey);
+		if (schemas == null) {
+			schemas = new ArrayList<>();
+			context.put(this.readSchemasKey, schemas);
+		}
+		return schemas;
+	}
+
+	/**
+	 * The field names of a tuple and the classes of its values; a null class stands for a
+	 * null value.
+	 */
+	private static class TupleSchema {
+
+		private final List<String> names;
+
+		private final Class<?>[] types;
+
+		private final int hashCode;
+
+		TupleSchema(List<String> names, Class<?>[] types) {
+			this.names = names;
+			this.types = types;
+			this.hashCode = 31 * names.hashCode() + Arrays.hashCode(types);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof TupleSchema)) {
+				return false;
+			}
+			TupleSchema that = (TupleSchema) other;
+			return this.hashCode == that.hashCode && Arrays.equals(this.types, that.types)
+					&& this.names.equals(that.names);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+	}
+
+}
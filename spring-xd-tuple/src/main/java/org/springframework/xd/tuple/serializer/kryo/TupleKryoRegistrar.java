@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 the original author or authors.
+ * Copyright 2015-2016 the original author or authors.
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
@@ -22,11 +22,13 @@ import org.springframework.integration.codec.kryo.AbstractKryoRegistrar;
 import org.springframework.xd.tuple.DefaultTuple;
 
 import com.esotericsoftware.kryo.Registration;
+import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.serializers.CollectionSerializer;
 
 /**
  * A {@link org.springframework.xd.dirt.integration.bus.serializer.kryo.KryoRegistrar}
- * used to register a Tuple serializer.
+ * used to register a Tuple serializer: a {@link DefaultTupleSerializer} by default, or a
+ * {@link SchemaCachingTupleSerializer} if schema caching is enabled.
  * @author David Turanski
  * @since 1.2
  */
@@ -36,15 +38,37 @@ public class TupleKryoRegistrar extends AbstractKryoRegistrar {
 
 	private final static int ARRAY_LIST_REGISTRATION_ID = 42;
 
-	private final DefaultTupleSerializer defaultTupleSerializer = new DefaultTupleSerializer();
+	private final Serializer<?> tupleSerializer;
 
 	private final CollectionSerializer collectionSerializer = new CollectionSerializer();
 
+	public TupleKryoRegistrar() {
+		this(false);
+	}
+
+	/**
+	 * @param schemaCaching true to serialize tuples with a {@link SchemaCachingTupleSerializer}.
+	 * @since 1.3.2
+	 */
+	public TupleKryoRegistrar(boolean schemaCaching) {
+		this(schemaCaching, null);
+	}
+
+	/**
+	 * @param schemaCaching true to serialize tuples with a {@link SchemaCachingTupleSerializer}.
+	 * @param schemaRegistry the registry through which the schema caching serializer shares
+	 * schemas across payloads; may be null.
+	 * @since 1.3.2
+	 */
+	public TupleKryoRegistrar(boolean schemaCaching, TupleSchemaRegistry schemaRegistry) {
+		this.tupleSerializer = schemaCaching ? new SchemaCachingTupleSerializer(schemaRegistry)
+				: new DefaultTupleSerializer();
+	}
 
 	@Override
 	public List<Registration> getRegistrations() {
 		List<Registration> registrations = new ArrayList<>(2);
-		registrations.add(new Registration(DefaultTuple.class, defaultTupleSerializer, TUPLE_REGISTRATION_ID));
+		registrations.add(new Registration(DefaultTuple.class, tupleSerializer, TUPLE_REGISTRATION_ID));
 		registrations.add(new Registration(ArrayList.class, collectionSerializer, ARRAY_LIST_REGISTRATION_ID));
 		return registrations;
 	}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.xd.tuple.serializer.kryo;
+
+/**
+ * Stores tuple schemas under a fingerprint of their content, so that a
+ * {@link SchemaCachingTupleSerializer} can reference a schema from any payload rather
+ * than write it in full. The registry must be shared by the producers and the consumers
+ * of the payloads.
+ *
+ * @since 1.3.2
+ */
+public interface TupleSchemaRegistry {
+
+	/**
+	 * Store a schema. Once this method returns true, {@link #lookup(long)} must return the
+	 * schema to every consumer. Storing the same schema again must be harmless.
+	 * @param fingerprint the fingerprint of the schema.
+	 * @param schema the serialized schema.
+	 * @return true if the schema is stored, false if it could not be.
+	 */
+	boolean register(long fingerprint, byte[] schema);
+
+	/**
+	 * @param fingerprint the fingerprint of a schema.
+	 * @return the serialized schema, or null if it is not stored.
+	 */
+	byte[] lookup(long fingerprint);
+
+}
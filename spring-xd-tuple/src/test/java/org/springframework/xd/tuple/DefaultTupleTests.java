@@ -492,4 +492,44 @@ public class DefaultTupleTests {
 		t.getTuple("list");
 	}
 
+	@Test
+	public void testFieldNamesAreShared() {
+		Tuple t1 = tuple().of("foo", 1, "bar", 2);
+		Tuple t2 = tuple().of("foo", 3, "bar", 4);
+		assertThat(t2.getFieldNames(), sameInstance(t1.getFieldNames()));
+		Tuple t3 = tuple().ofNamesAndValues(t1.getFieldNames(), t2.getValues());
+		assertThat(t3.getFieldNames(), sameInstance(t1.getFieldNames()));
+		assertEquals(t2, t3);
+	}
+
+	@Test
+	public void testFieldNamesAreUnmodifiable() {
+		thrown.expect(UnsupportedOperationException.class);
+		tuple().of("foo", "bar").getFieldNames().add("baz");
+	}
+
+	@Test
+	public void testDuplicateFieldNameResolvesToFirst() {
+		Tuple t = tuple().ofNamesAndValues(Arrays.asList("foo", "foo"), Arrays.<Object> asList(1, 2));
+		assertEquals(1, t.getValue("foo"));
+		assertEquals(2, t.getValue(1));
+	}
+
+	@Test
+	public void testWideTupleLookup() {
+		List<String> names = new ArrayList<String>();
+		List<Object> values = new ArrayList<Object>();
+		for (int i = 0; i < 60; i++) {
+			names.add("field" + i);
+			values.add(i);
+		}
+		Tuple t = tuple().ofNamesAndValues(names, values);
+		for (int i = 0; i < 60; i++) {
+			assertTrue(t.hasFieldName("field" + i));
+			assertEquals(i, t.getInt("field" + i));
+		}
+		assertThat(t.hasFieldName("field60"), equalTo(false));
+		assertEquals(-1, t.getInt("field60", -1));
+	}
+
 }
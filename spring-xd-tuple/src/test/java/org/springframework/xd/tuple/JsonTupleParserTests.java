@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * @since 1.3.2
+ */
+public class JsonTupleParserTests {
+
+	private static final String JSON = "{\"symbol\":\"VMW\",\"price\":73.5,\"volume\":9007199254740993,"
+			+ "\"open\":true,\"close\":null,\"quote\":{\"bid\":73,\"ask\":74},"
+			+ "\"trades\":[1,\"two\",[3],{\"four\":4}]}";
+
+	@Test
+	public void testAllFields() throws Exception {
+		Tuple tuple = new JsonTupleParser().parse(JSON);
+		assertEquals(Arrays.asList("symbol", "price", "volume", "open", "close", "quote", "trades"),
+				tuple.getFieldNames());
+		assertEquals("VMW", tuple.getValue("symbol"));
+		assertEquals(73.5, tuple.getValue("price"));
+		assertEquals(9007199254740993L, tuple.getValue("volume"));
+		assertEquals(Boolean.TRUE, tuple.getValue("open"));
+		assertNull(tuple.getValue("close"));
+		Tuple quote = (Tuple) tuple.getValue("quote");
+		assertEquals(73, quote.getValue("bid"));
+		assertEquals(74, quote.getValue("ask"));
+		List<?> trades = (List<?>) tuple.getValue("trades");
+		assertEquals(4, trades.size());
+		assertEquals(1, trades.get(0));
+		assertEquals("two", trades.get(1));
+		assertEquals(Collections.singletonList(3), trades.get(2));
+		assertEquals(4, ((Tuple) trades.get(3)).getValue("four"));
+	}
+
+	@Test
+	public void testSameAsTree() throws Exception {
+		Tuple tuple = new JsonTupleParser().parse(JSON.getBytes("UTF-8"));
+		assertEquals(new JsonNodeToTupleConverter().convert(new ObjectMapper().readTree(JSON)), tuple);
+	}
+
+	@Test
+	public void testNestedObjectsAsMaps() throws Exception {
+		Tuple tuple = new JsonTupleParser(null, false).parse(JSON);
+		Map<?, ?> quote = (Map<?, ?>) tuple.getValue("quote");
+		assertEquals(73, quote.get("bid"));
+		Map<?, ?> trade = (Map<?, ?>) ((List<?>) tuple.getValue("trades")).get(3);
+		assertEquals(4, trade.get("four"));
+	}
+
+	@Test
+	public void testProjection() throws Exception {
+		Tuple tuple = new JsonTupleParser(Arrays.asList("trades", "symbol", "missing")).parse(JSON);
+		assertEquals(Arrays.asList("symbol", "trades"), tuple.getFieldNames());
+		assertEquals("VMW", tuple.getValue("symbol"));
+		assertEquals(4, ((List<?>) tuple.getValue("trades")).size());
+	}
+
+	@Test
+	public void testProjectionDuplicateFieldLastWins() throws Exception {
+		Tuple tuple = new JsonTupleParser(Collections.singleton("symbol"))
+				.parse("{'symbol':'VMW','price':73.5,'symbol':'EMC'}");
+		assertEquals(1, tuple.size());
+		assertEquals("EMC", tuple.getValue("symbol"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testProjectionMalformed() throws Exception {
+		// the malformed remainder is read even though it holds no requested field
+		new JsonTupleParser(Collections.singleton("symbol")).parse("{\"symbol\":\"VMW\",\"price\":");
+	}
+
+	@Test
+	public void testDuplicateFieldLastWins() throws Exception {
+		Tuple tuple = new JsonTupleParser().parse("{'a':1,'b':2,'a':3}");
+		assertEquals(Arrays.asList("a", "b"), tuple.getFieldNames());
+		assertEquals(3, tuple.getValue("a"));
+	}
+
+	@Test
+	public void testWideObjectWithDuplicates() throws Exception {
+		int width = 20000;
+		StringBuilder json = new StringBuilder("{");
+		for (int i = 0; i < width; i++) {
+			json.append("'f").append(i).append("':").append(i).append(',');
+		}
+		json.append("'f0':-1,'f").append(width - 1).append("':-2}");
+		Tuple tuple = new JsonTupleParser().parse(json.toString());
+		assertEquals(width, tuple.size());
+		assertEquals("f0", tuple.getFieldNames().get(0));
+		assertEquals(-1, tuple.getValue("f0"));
+		assertEquals(1, tuple.getValue("f1"));
+		assertEquals(-2, tuple.getValue(width - 1));
+	}
+
+	@Test
+	public void testRootScalar() throws Exception {
+		Tuple tuple = new JsonTupleParser().parse("\"VMW\"");
+		assertEquals(Collections.singletonList("value"), tuple.getFieldNames());
+		assertEquals("VMW", tuple.getValue("value"));
+	}
+
+	@Test
+	public void testRootArray() throws Exception {
+		assertTrue(new JsonTupleParser().parse("[1,2]").getFieldNames().isEmpty());
+	}
+
+	@Test(expected = IOException.class)
+	public void testMalformed() throws Exception {
+		new JsonTupleParser().parse("{\"symbol\":\"VMW\",\"quote\":{\"bid\":73");
+	}
+
+	@Test(expected = IOException.class)
+	public void testEmpty() throws Exception {
+		new JsonTupleParser().parse("");
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2013 the original author or authors.
+ * Copyright 2013-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertThat;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 
@@ -79,4 +80,22 @@ public class JsonToTupleTransformerTests {
 		List<Object> actual = tuple.getValue("stuff", List.class);
 		assertThat(actual, equalTo(list));
 	}
+
+	@Test
+	public void nestedObject() throws Exception {
+		JsonToTupleTransformer transformer = new JsonToTupleTransformer();
+		String json = "{\"quote\":{\"bid\":73}}";
+		Tuple tuple = transformer.transformPayload(json);
+		assertThat(((Map<?, ?>) tuple.getValue("quote")).get("bid"), equalTo((Object) 73));
+	}
+
+	@Test
+	public void fields() throws Exception {
+		JsonToTupleTransformer transformer = new JsonToTupleTransformer();
+		transformer.setFields("three", "one");
+		String json = "{\"one\":1, \"two\":{\"deep\":[2]}, \"three\":\"tres\"}";
+		Tuple tuple = transformer.transformPayload(json);
+		assertThat(tuple.getFieldNames(), equalTo(Arrays.asList("one", "three")));
+	}
+
 }
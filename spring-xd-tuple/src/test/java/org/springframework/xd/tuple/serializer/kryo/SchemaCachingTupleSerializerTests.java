@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.xd.tuple.serializer.kryo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import org.springframework.integration.codec.Codec;
+import org.springframework.integration.codec.kryo.PojoCodec;
+import org.springframework.xd.tuple.DefaultTuple;
+import org.springframework.xd.tuple.Tuple;
+import org.springframework.xd.tuple.TupleBuilder;
+
+import com.esotericsoftware.kryo.KryoException;
+
+/**
+ * @since 1.3.2
+ */
+public class SchemaCachingTupleSerializerTests {
+
+	private final Codec codec = new PojoCodec(new TupleKryoRegistrar(true));
+
+	@Test
+	public void testTupleSerialization() throws IOException {
+		Tuple tuple = TupleBuilder.tuple().of("hello", 123, "foo", "bar", "none", null);
+		Tuple decoded = this.codec.decode(this.codec.encode(tuple), DefaultTuple.class);
+		assertEquals(tuple, decoded);
+		assertNull(decoded.getValue("none"));
+	}
+
+	@Test
+	public void testNestedTupleSerialization() throws IOException {
+		Tuple t0 = TupleBuilder.tuple().of("one", 1, "two", 2);
+		Tuple t1 = TupleBuilder.tuple().of("three", 3, "four", 4, "t0", t0, "t0again", t0);
+		Tuple t2 = TupleBuilder.tuple().of("t1", t1, "t0", TupleBuilder.tuple().of("one", 5, "two", 6));
+		Tuple decoded = this.codec.decode(this.codec.encode(t2), DefaultTuple.class);
+		assertEquals(t2, decoded);
+		assertEquals(5, ((Tuple) decoded.getValue("t0")).getInt("one"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testRepeatedSchemasAreReferenced() throws IOException {
+		List<Tuple> tuples = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			// the schema changes when 'value' switches from Integer to String
+			tuples.add(TupleBuilder.tuple().of("id", i, "name", "name" + i, "value", i % 10 == 0 ? "ten" : i));
+		}
+		// without references, the default serializer writes the field names of every tuple
+		byte[] cached = new PojoCodec(new TupleKryoRegistrar(true), false).encode(tuples);
+		byte[] uncached = new PojoCodec(new TupleKryoRegistrar(), false).encode(tuples);
+		assertTrue("expected " + cached.length + " * 3 < " + uncached.length + " * 2",
+				cached.length * 3 < uncached.length * 2);
+		// with references, it refers back to the field names shared by tuples of the same shape,
+		// but still writes a class tag for each value
+		cached = this.codec.encode(tuples);
+		uncached = new PojoCodec(new TupleKryoRegistrar()).encode(tuples);
+		assertTrue("expected " + cached.length + " * 5 < " + uncached.length + " * 4",
+				cached.length * 5 < uncached.length * 4);
+		List<Tuple> decoded = this.codec.decode(cached, ArrayList.class);
+		assertEquals(tuples, decoded);
+		// each payload is self-contained
+		assertEquals(tuples, this.codec.decode(this.codec.encode(tuples), ArrayList.class));
+	}
+
+	@Test
+	public void testSchemasAreSharedThroughRegistry() throws IOException {
+		InMemoryTupleSchemaRegistry registry = new InMemoryTupleSchemaRegistry();
+		Codec producer = new PojoCodec(new TupleKryoRegistrar(true, registry));
+		// a consumer with its own serializer resolves the schema through the registry
+		Codec consumer = new PojoCodec(new TupleKryoRegistrar(true, registry));
+		Tuple tuple = wideTuple();
+		byte[] shared = producer.encode(tuple);
+		byte[] inline = this.codec.encode(tuple);
+		assertEquals(1, registry.schemas.size());
+		assertTrue("expected " + shared.length + " * 3 < " + inline.length + " * 2",
+				shared.length * 3 < inline.length * 2);
+		assertEquals(tuple, consumer.decode(shared, DefaultTuple.class));
+		assertEquals(tuple, consumer.decode(producer.encode(tuple), DefaultTuple.class));
+		assertEquals(1, registry.schemas.size());
+	}
+
+	@Test
+	public void testSchemaIsWrittenInlineIfNotRegistered() throws IOException {
+		InMemoryTupleSchemaRegistry registry = new InMemoryTupleSchemaRegistry();
+		registry.available = false;
+		Codec producer = new PojoCodec(new TupleKryoRegistrar(true, registry));
+		Tuple tuple = wideTuple();
+		byte[] encoded = producer.encode(tuple);
+		assertTrue(registry.schemas.isEmpty());
+		// a consumer without a registry can read self-contained payloads
+		assertEquals(tuple, this.codec.decode(encoded, DefaultTuple.class));
+		registry.available = true;
+		assertEquals(tuple, new PojoCodec(new TupleKryoRegistrar(true, registry))
+				.decode(producer.encode(tuple), DefaultTuple.class));
+		assertEquals(1, registry.schemas.size());
+	}
+
+	@Test
+	public void testRegisteredSchemaRequiresRegistry() throws IOException {
+		Codec producer = new PojoCodec(new TupleKryoRegistrar(true, new InMemoryTupleSchemaRegistry()));
+		try {
+			this.codec.decode(producer.encode(wideTuple()), DefaultTuple.class);
+			fail("expected KryoException");
+		}
+		catch (KryoException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("no tuple schema registry is configured"));
+		}
+	}
+
+	@Test
+	public void testUnsupportedSchemaVersionIsRejected() throws IOException {
+		InMemoryTupleSchemaRegistry registry = new InMemoryTupleSchemaRegistry();
+		byte[] encoded = new PojoCodec(new TupleKryoRegistrar(true, registry)).encode(wideTuple());
+		for (byte[] schema : registry.schemas.values()) {
+			// the version is the first byte of a schema
+			schema[0] = SchemaCachingTupleSerializer.FORMAT_VERSION + 1;
+		}
+		try {
+			new PojoCodec(new TupleKryoRegistrar(true, registry)).decode(encoded, DefaultTuple.class);
+			fail("expected KryoException");
+		}
+		catch (KryoException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("Unsupported tuple schema format version"));
+		}
+	}
+
+	private static Tuple wideTuple() {
+		TupleBuilder builder = TupleBuilder.tuple();
+		for (int i = 0; i < 20; i++) {
+			builder.put("field" + i, i);
+		}
+		return builder.build();
+	}
+
+	private static class InMemoryTupleSchemaRegistry implements TupleSchemaRegistry {
+
+		private final Map<Long, byte[]> schemas = new ConcurrentHashMap<>();
+
+		private volatile boolean available = true;
+
+		@Override
+		public boolean register(long fingerprint, byte[] schema) {
+			if (!this.available) {
+				return false;
+			}
+			this.schemas.put(fingerprint, schema);
+			return true;
+		}
+
+		@Override
+		public byte[] lookup(long fingerprint) {
+			return this.schemas.get(fingerprint);
+		}
+
+	}
+
+}